@@ -2,16 +2,18 @@ package dbcache;
 
 import dbcache.conf.impl.CacheConfig;
 import dbcache.index.IndexObject;
+import dbcache.persist.ModifiedFields;
 import dbcache.persist.PersistStatus;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import utils.typesafe.SafeType;
 
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * 单个实体缓存数据结构
+ * <br/>为减少每个缓存实体的固定开销: 只持有代理实体(实体通过EnhancedEntity#getEntity()获取),
+ * 索引对象引用延迟创建, 修改过的属性使用位图记录
  *
  * @author jake
  * @date 2014-7-31-下午8:18:03
@@ -19,19 +21,14 @@ import java.util.concurrent.atomic.AtomicIntegerArray;
 public class CacheObject<T extends IEntity<?>> extends SafeType {
 
 	/**
-	 * 缓存对象
-	 */
-	protected final T entity;
-
-	/**
-	 * 代理缓存对象
+	 * 代理缓存对象(未启用索引和动态更新时即为实体本身)
 	 */
 	protected final T proxyEntity;
 
 	/**
 	 * 修改过的属性
 	 */
-	private AtomicIntegerArray modifiedFields;
+	private final ModifiedFields modifiedFields;
 
 
 	// for persist
@@ -42,8 +39,9 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 
 	/**
 	 * 索引对象引用持有
+	 * <br/>null, 单个IndexObject 或 Set<IndexObject>, 添加时才创建
 	 */
-	private final Set<IndexObject<?>> indexObjects = new TreeSet<IndexObject<?>>();
+	private Object indexObjects;
 
 	/**
 	 * 构造方法
@@ -53,13 +51,24 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 	 * @param clazz
 	 *            类型
 	 */
-	public CacheObject(T entity, Class<T> clazz, T proxyEntity, AtomicIntegerArray modifiedFields) {
-		this.entity = entity;
-		this.proxyEntity = proxyEntity;
+	public CacheObject(T entity, Class<T> clazz, T proxyEntity, ModifiedFields modifiedFields) {
+		this.proxyEntity = proxyEntity != null ? proxyEntity : entity;
 		this.persistStatus = PersistStatus.TRANSIENT;
 		this.modifiedFields = modifiedFields;
 	}
 
+	/**
+	 * 获取实体(代理实体所代理的实体)
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected T entity() {
+		if (proxyEntity instanceof EnhancedEntity) {
+			return (T) ((EnhancedEntity) proxyEntity).getEntity();
+		}
+		return proxyEntity;
+	}
+
 	/**
 	 * 初始化
 	 */
@@ -73,6 +82,7 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 	 */
 	public void doAfterLoad() {
 		// 调用初始化
+		T entity = this.entity();
 		if (entity instanceof EntityInitializer){
 			EntityInitializer entityInitializer = (EntityInitializer) entity;
 			entityInitializer.doAfterLoad();
@@ -84,6 +94,7 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 	 */
 	public void doBeforePersist(CacheConfig<T> cacheConfig) {
 		// 持久化前操作
+		T entity = this.entity();
 		if (entity instanceof EntityInitializer) {
 			EntityInitializer entityInitializer = (EntityInitializer) entity;
 			entityInitializer.doBeforePersist();
@@ -93,10 +104,11 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 
 	@Override
 	public int hashCode() {
-		if (this.entity.getId() == null) {
-			return this.entity.getClass().hashCode() * 31;
+		T entity = this.entity();
+		if (entity.getId() == null) {
+			return entity.getClass().hashCode() * 31;
 		}
-		return this.entity.getClass().hashCode() * 31 + this.entity.getId().hashCode();
+		return entity.getClass().hashCode() * 31 + entity.getId().hashCode();
 	}
 
 	
@@ -114,14 +126,16 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 		}
 		
 		CacheObject<T> target = (CacheObject<T>) obj;
+		T entity = this.entity();
+		T targetEntity = target.entity();
 		
 		return new EqualsBuilder()
-				.append(this.entity.getClass(), target.entity.getClass())
-				.append(this.entity.getId(), target.entity.getId()).isEquals();
+				.append(entity.getClass(), targetEntity.getClass())
+				.append(entity.getId(), targetEntity.getId()).isEquals();
 	}
 
 	public T getEntity() {
-		return entity;
+		return this.entity();
 	}
 
 	public T getProxyEntity() {
@@ -136,7 +150,7 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 		this.persistStatus = persistStatus;
 	}
 
-	public AtomicIntegerArray getModifiedFields() {
+	public ModifiedFields getModifiedFields() {
 		return modifiedFields;
 	}
 
@@ -144,16 +158,43 @@ public class CacheObject<T extends IEntity<?>> extends SafeType {
 	 * 移除索引对象引用
 	 * @param indexObject IndexObject<?>
 	 */
+	@SuppressWarnings("unchecked")
 	public void removeIndexObject(IndexObject<?> indexObject) {
-		this.indexObjects.remove(indexObject);
+		Object indexObjects = this.indexObjects;
+		if (indexObjects == null) {
+			return;
+		}
+		if (indexObjects instanceof IndexObject) {
+			if (indexObjects.equals(indexObject)) {
+				this.indexObjects = null;
+			}
+			return;
+		}
+		((Set<IndexObject<?>>) indexObjects).remove(indexObject);
 	}
 
 	/**
 	 * 添加索引对象引用
 	 * @param indexObject IndexObject<?>
 	 */
+	@SuppressWarnings("unchecked")
 	public void addIndexObject(IndexObject<?> indexObject) {
-		this.indexObjects.add(indexObject);
+		Object indexObjects = this.indexObjects;
+		if (indexObjects == null) {
+			this.indexObjects = indexObject;
+			return;
+		}
+		if (indexObjects instanceof IndexObject) {
+			if (indexObjects.equals(indexObject)) {
+				return;
+			}
+			Set<IndexObject<?>> set = new TreeSet<IndexObject<?>>();
+			set.add((IndexObject<?>) indexObjects);
+			set.add(indexObject);
+			this.indexObjects = set;
+			return;
+		}
+		((Set<IndexObject<?>>) indexObjects).add(indexObject);
 	}
 
 }
\ No newline at end of file
@@ -29,4 +29,25 @@ public interface DbCacheMBean {
 	 */
 	Map<String, Object> getDbPersistInfo();
 
+
+	/**
+	 * 获取各实体的运行统计快照
+	 * <br/>缓存命中/未命中及加载耗时、回收/恢复次数、索引命中率、入库批量大小及耗时(微秒)
+	 * @return {实体类名 : 统计}
+	 */
+	Map<String, Map<String, Object>> getEntityMetrics();
+
+
+	/**
+	 * 获取JDBC语句执行耗时统计快照(微秒)
+	 * @return {语句类型 : 耗时分布}
+	 */
+	Map<String, Object> getJdbcMetrics();
+
+
+	/**
+	 * 清零运行统计
+	 */
+	void resetMetrics();
+
 }
@@ -72,6 +72,24 @@ public interface DbCacheService<T extends IEntity<PK>, PK extends Comparable<PK>
 	void submitDelete(PK id);
 
 
+	/**
+	 * 移除缓存中的实体及其相关的索引缓存, 下次访问时重新从数据库加载
+	 * <br/>用于其他节点修改了数据库的情况, 不会同步到数据库
+	 * <br/>实体未入库的修改将丢失
+	 * <br/>不访问数据库, 只移除缓存中实体的索引值对应的索引缓存, 实体未缓存时不处理索引缓存
+	 * @param id 主键id
+	 */
+	void evict(PK id);
+
+
+	/**
+	 * 移除该实体类的全部索引缓存, 下次访问时重新从数据库加载
+	 * <br/>用于其他节点修改了数据库的情况: 本节点不知道修改前后的索引值, 可能缓存了新索引值的id列表, 或只缓存了索引而未缓存实体
+	 * <br/>不访问数据库
+	 */
+	void evictIndexes();
+
+
 	/**
 	 * 根据索引获取实体列表
 	 * <br/>内部已维护索引表
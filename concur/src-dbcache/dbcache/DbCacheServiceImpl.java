@@ -3,12 +3,15 @@ package dbcache;
 import dbcache.anno.ThreadSafe;
 import dbcache.cache.CacheUnit;
 import dbcache.cache.ValueWrapper;
+import dbcache.conf.CacheRule;
 import dbcache.conf.impl.CacheConfig;
 import dbcache.conf.DbConfigFactory;
 import dbcache.conf.Inject;
 import dbcache.dbaccess.DbAccessService;
 import dbcache.index.DbIndexService;
 import dbcache.index.IndexValue;
+import dbcache.metrics.DbCacheMetrics;
+import dbcache.metrics.EntityMetrics;
 import dbcache.persist.service.DbPersistService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -106,6 +109,11 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 	 */
 	private final ConcurrentMap<Object, Lock> WAITING_LOCK_MAP = new ConcurrentHashMapV8<Object, Lock>();
 
+	/**
+	 * 运行统计
+	 */
+	private EntityMetrics metrics;
+
 
 	@Override
 	public T get(PK id) {
@@ -136,6 +144,7 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 		// 从共用缓存获取
 		ValueWrapper wrapper = cacheUnit.get(key);
 		if (wrapper != null) {	// 已经缓存
+			metrics.recordHit();
 			return wrapper;
 		}
 		
@@ -150,11 +159,14 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 			
 			wrapper = cacheUnit.get(key);
 			if (wrapper != null) {
+				metrics.recordHit();
 				return wrapper;
 			}
 
 			// 获取库里面数据
+			long start = System.nanoTime();
 			T entity = dbAccessService.get(clazz, key);
+			metrics.recordMiss(System.nanoTime() - start);
 			if (entity == null) {
 				// 缓存NULL value
 				wrapper = cacheUnit.putIfAbsent(key, null);
@@ -313,6 +325,7 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 		}
 
 		// 提交持久化
+		metrics.recordSave();
 		dbPersistService.handleSave(newCacheObject, this.dbAccessService, this.cacheConfig);
 		
 		return newCacheObject.getProxyEntity();
@@ -345,6 +358,7 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 		}
 		
 		// 提交持久化任务
+		metrics.recordUpdate();
 		dbPersistService.handleUpdate(cacheObject, this.dbAccessService, this.cacheConfig);
 	}
 
@@ -387,6 +401,7 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 		}
 		
 		// 提交持久化任务
+		metrics.recordDelete();
 		dbPersistService.handleDelete(cacheObject, this.dbAccessService, id, this.cacheUnit);
 
 		if (cacheConfig.isEvictWhenDelete()) {
@@ -396,12 +411,54 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 	}
 
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public void evict(PK id) {
+
+		ValueWrapper wrapper = cacheUnit.evict(id);
+		if (!cacheConfig.isEnableIndex()) {
+			return;
+		}
+
+		// 移除缓存实体的索引值所在的索引缓存, 不访问数据库(在失效消息接收线程中执行)
+		Object cached = wrapper != null ? wrapper.get() : null;
+		if (cached instanceof CacheObject) {
+			this.evictIndexes(((CacheObject<T>) cached).getEntity());
+		}
+	}
+
+
+	@Override
+	public void evictIndexes() {
+		if (cacheConfig.isEnableIndex()) {
+			indexService.getCacheUnit().clear();
+		}
+	}
+
+
+	/**
+	 * 移除实体索引值对应的索引缓存
+	 * @param entity 实体
+	 */
+	private void evictIndexes(T entity) {
+		CacheUnit indexCacheUnit = indexService.getCacheUnit();
+		for (Entry<String, ValueGetter<T>> entry : cacheConfig.getIndexes().entrySet()) {
+			Object indexValue = entry.getValue().get(entity);
+			if (indexValue != null) {
+				indexCacheUnit.evict(CacheRule.getIndexIdKey(entry.getKey(), indexValue));
+			}
+		}
+	}
+
+
 
 	/**
 	 * dbCache 初始化
 	 * 系统生成DbCacheService实例时将调用
 	 */
 	public void init() {
+		this.metrics = DbCacheMetrics.getEntityMetrics(clazz);
+
 		//注册jvm关闭钩子
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			@Override
@@ -445,6 +502,14 @@ public class DbCacheServiceImpl<T extends IEntity<PK>, PK extends Comparable<PK>
 		return cacheConfig;
 	}
 
+	/**
+	 * 获取运行统计
+	 * @return
+	 */
+	public EntityMetrics getMetrics() {
+		return metrics;
+	}
+
 	@Override
 	public DbIndexService<PK> getIndexService() {
 		return indexService;
@@ -1,6 +1,6 @@
 package dbcache;
 
-import java.util.concurrent.atomic.AtomicIntegerArray;
+import dbcache.persist.ModifiedFields;
 
 
 /**
@@ -11,6 +11,11 @@ import java.util.concurrent.atomic.AtomicIntegerArray;
  */
 public class WeakCacheObject<T extends IEntity<?>, R extends WeakCacheEntity<T,?>> extends CacheObject<T> {
 
+	/**
+	 * 缓存对象(WeakCacheEntity)
+	 */
+	private final T entity;
+
 	/**
 	 * CacheObject的哈希码
 	 */
@@ -23,14 +28,21 @@ public class WeakCacheObject<T extends IEntity<?>, R extends WeakCacheEntity<T,?
 	 * @param clazz 类型
 	 * @param proxyEntity  WeakCacheEntity
 	 * @param key 实体主键
-	 * @param modifiedFields 修改过的字段的索引AtomicIntegerArray
+	 * @param modifiedFields 修改过的属性集合
 	 */
-	public WeakCacheObject(T entity, Class<T> clazz, T proxyEntity, Object key, AtomicIntegerArray modifiedFields) {
+	public WeakCacheObject(T entity, Class<T> clazz, T proxyEntity, Object key, ModifiedFields modifiedFields) {
 		super(entity, clazz, proxyEntity, modifiedFields);
+		this.entity = entity;
 		this.hashCode = key.hashCode();
 	}
 
 
+	@Override
+	protected T entity() {
+		return entity;
+	}
+
+
 	@SuppressWarnings("unchecked")
 	public T getEntity() {
 		return ((R) entity).get();
@@ -0,0 +1,33 @@
+package dbcache.anno;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 二进制属性注解<br/>
+ * <br/>使用transfer.Persister编码后以BLOB(VARBINARY)字段存储, 编解码开销远小于@JsonType
+ * <br/>自定义类需使用@Transferable注解或注册, 需兼容新旧版本的类(属性增删、调整顺序)时使用PersistConfig.registerTagClass注册
+ * <br/>由@JsonType改为@BinaryType时, 读取到的字符串字段值按json解析, 下次入库时转为二进制
+ * <br/>配合@DynamicUpdate使用时未修改的属性不会重新编码入库, 就地修改集合等属性的方法需标注@ChangeFields
+ * @see dbcache.support.jdbc.BinaryCodec
+ * @author Jake
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BinaryType {
+
+	/**
+	 * 是否使用LZ4压缩
+	 * @return
+	 */
+	boolean compress() default true;
+
+	/**
+	 * 启用压缩的最小字节数, 小于该长度时不压缩
+	 * @return
+	 */
+	int compressThreshold() default 256;
+
+}
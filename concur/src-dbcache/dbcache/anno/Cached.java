@@ -17,6 +17,7 @@ import java.lang.annotation.Target;
  * @see dbcache.anno.Index
  * @see dbcache.anno.DynamicUpdate
  * @see JsonType
+ * @see dbcache.anno.BinaryType
  * @author Jake
  * @date 2014年9月13日下午1:38:22
  */
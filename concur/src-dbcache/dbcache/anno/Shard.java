@@ -8,7 +8,8 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * 分表注解 TODO 未实现
+ * 分表注解
+ * <br/>按主键将实体路由到 表名 + ShardStrategy#getTableNameSuffix(主键) 的分表
  * @author Jake
  */
 @Target(ElementType.TYPE)
@@ -5,6 +5,8 @@ import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 
 import dbcache.cache.CacheUnit;
 import dbcache.cache.ValueWrapper;
+import dbcache.metrics.EntityMetrics;
+import dbcache.metrics.EntityMetricsAware;
 import utils.collections.concurrent.ConcurrentReferenceHashMap;
 import utils.collections.concurrent.ConcurrentReferenceHashMap.ReferenceType;
 
@@ -20,7 +22,7 @@ import java.util.concurrent.ConcurrentMap;
  * @date 2014-7-31-下午8:24:23
  */
 @Component("concurrentLinkedHashMapCache")
-public class ConcurrentLinkedHashMapCache implements CacheUnit {
+public class ConcurrentLinkedHashMapCache implements CacheUnit, EntityMetricsAware {
 
 	/**
 	 * 缺省实体缓存最大容量
@@ -47,6 +49,11 @@ public class ConcurrentLinkedHashMapCache implements CacheUnit {
 	 */
 	private ConcurrentReferenceHashMap<Object, Object> evictions;
 
+	/**
+	 * 运行统计(实体缓存才设置)
+	 */
+	private volatile EntityMetrics metrics;
+
 
 	/**
 	 * 初始化
@@ -67,6 +74,9 @@ public class ConcurrentLinkedHashMapCache implements CacheUnit {
 					public void onEviction(Object key, ValueWrapper value) {
 						if (value.get() != null) {
 							evictions.put(key, value.get());
+							if (metrics != null) {
+								metrics.recordEviction();
+							}
 						}
 					}
 
@@ -110,6 +120,9 @@ public class ConcurrentLinkedHashMapCache implements CacheUnit {
 			this.putIfAbsent(key, value);
 			// 从临时缓存中移除
 			this.evictions.remove(key);
+			if (metrics != null) {
+				metrics.recordResurrection();
+			}
 
 			return this.get(key);
 		}
@@ -200,4 +213,9 @@ public class ConcurrentLinkedHashMapCache implements CacheUnit {
 	}
 
 
+	@Override
+	public void setEntityMetrics(EntityMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 }
@@ -2,6 +2,8 @@ package dbcache.cache.impl;
 
 import dbcache.cache.CacheUnit;
 import dbcache.cache.ValueWrapper;
+import dbcache.metrics.EntityMetrics;
+import dbcache.metrics.EntityMetricsAware;
 import dbcache.utils.CacheUtils;
 import org.springframework.stereotype.Component;
 import utils.collections.concurrent.ConcurrentLRUCache;
@@ -17,7 +19,7 @@ import java.lang.ref.ReferenceQueue;
  * @date 2014-7-31-下午8:24:23
  */
 @Component("concurrentLruHashMapCache")
-public class ConcurrentLruHashMapCache implements CacheUnit {
+public class ConcurrentLruHashMapCache implements CacheUnit, EntityMetricsAware {
 
 	/**
 	 * 缓存名称
@@ -39,6 +41,11 @@ public class ConcurrentLruHashMapCache implements CacheUnit {
 	 */
 	private ConcurrentReferenceHashMap<Object, Object> evictions;
 
+	/**
+	 * 运行统计(实体缓存才设置)
+	 */
+	private volatile EntityMetrics metrics;
+
 
 	/**
 	 * 初始化
@@ -60,6 +67,9 @@ public class ConcurrentLruHashMapCache implements CacheUnit {
 			public void evictedEntry(Object key, ValueWrapper value) {
 				if (value.get() != null) {
 					evictions.put(key, value.get());
+					if (metrics != null) {
+						metrics.recordEviction();
+					}
 				}
 			}
 
@@ -86,6 +96,9 @@ public class ConcurrentLruHashMapCache implements CacheUnit {
 			this.putIfAbsent(key, value);
 			// 从临时缓存中移除
 			this.evictions.remove(key);
+			if (metrics != null) {
+				metrics.recordResurrection();
+			}
 
 			return this.get(key);
 		}
@@ -176,4 +189,9 @@ public class ConcurrentLruHashMapCache implements CacheUnit {
 	}
 
 
+	@Override
+	public void setEntityMetrics(EntityMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 }
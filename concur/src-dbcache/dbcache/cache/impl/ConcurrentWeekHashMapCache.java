@@ -4,6 +4,8 @@ import dbcache.WeakCacheEntity;
 import dbcache.WeakCacheObject;
 import dbcache.cache.CacheUnit;
 import dbcache.cache.ValueWrapper;
+import dbcache.metrics.EntityMetrics;
+import dbcache.metrics.EntityMetricsAware;
 import utils.collections.concurrent.ConcurrentHashMapV8;
 
 import org.slf4j.Logger;
@@ -26,7 +28,7 @@ import java.util.concurrent.TimeUnit;
  * @date 2014-8-1-下午8:30:34
  */
 @Component("concurrentWeekHashMapCache")
-public class ConcurrentWeekHashMapCache implements CacheUnit {
+public class ConcurrentWeekHashMapCache implements CacheUnit, EntityMetricsAware {
 
 	/**
 	 * logger
@@ -65,6 +67,11 @@ public class ConcurrentWeekHashMapCache implements CacheUnit {
 	@SuppressWarnings("rawtypes")
 	private final FinalizableReferenceQueue referenceQueue = new FinalizableReferenceQueue();
 
+	/**
+	 * 运行统计(实体缓存才设置)
+	 */
+	private volatile EntityMetrics metrics;
+
 
 	static {
 
@@ -208,6 +215,9 @@ public class ConcurrentWeekHashMapCache implements CacheUnit {
 						SimpleValueWrapper value = store.get(key);
 						if(value != null && value.get().getProxyEntity() == null) {
 							store.remove(key);
+							if (metrics != null) {
+								metrics.recordEviction();
+							}
 						}
 					}
 				} while(reference != null);
@@ -346,6 +356,12 @@ public class ConcurrentWeekHashMapCache implements CacheUnit {
 	}
 
 
+	@Override
+	public void setEntityMetrics(EntityMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+
 	@Override
 	public int getCachedSize() {
 		return store.size();
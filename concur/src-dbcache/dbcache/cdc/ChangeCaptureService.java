@@ -0,0 +1,386 @@
+package dbcache.cdc;
+
+import com.alibaba.fastjson.JSON;
+import dbcache.EnhancedEntity;
+import dbcache.IEntity;
+import dbcache.persist.ModifiedFields;
+import dbcache.support.asm.ModifiedFieldMethodAspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.ReflectionUtils.FieldCallback;
+import utils.collections.concurrent.ConcurrentHashMapV8;
+import utils.thread.NamedThreadFactory;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 实体变更数据捕获(CDC)服务
+ * <br/>各入库服务在实体成功入库后提交变更记录, 由单线程按提交顺序批量写入分段变更日志, 供统计、审计等下游系统跟踪读取
+ * <br/>同一实体的入库操作是串行的, 因此同一实体的记录在日志中保持入库顺序
+ * <br/>动态更新(@DynamicUpdate)的实体只记录修改过的属性
+ * <br/>配置了dbCacheCdcDir时生效, 否则不做任何处理
+ * @see ChangeLog
+ * @see ChangeLogReader
+ * @author Jake
+ */
+@Component
+public class ChangeCaptureService implements DisposableBean {
+
+	/**
+	 * logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(ChangeCaptureService.class);
+
+	/** 默认分段大小(字节) */
+	public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/** 默认每批写入的记录数 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/** 默认写入间隔(毫秒) */
+	public static final long DEFAULT_INTERVAL = 100;
+
+
+	/**
+	 * 变更日志目录
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheCdcDir")
+	private String dir;
+
+	/**
+	 * 分段大小(字节)
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheCdcSegmentSize")
+	private long segmentSize = DEFAULT_SEGMENT_SIZE;
+
+	/**
+	 * 保留的分段数量, 0为不删除
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheCdcMaxSegments")
+	private int maxSegments = 0;
+
+	/**
+	 * 每批写入的记录数, 待写入的记录达到该数量时立即写入
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheCdcBatchSize")
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * 写入间隔(毫秒)
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheCdcInterval")
+	private long interval = DEFAULT_INTERVAL;
+
+	/**
+	 * 待写入的记录
+	 */
+	private final Queue<ChangeRecord> pendingQueue = new ConcurrentLinkedQueue<ChangeRecord>();
+
+	private final AtomicInteger pendingSize = new AtomicInteger();
+
+	/**
+	 * 写入失败的记录, 下次写入时优先重试
+	 */
+	private List<ChangeRecord> failedRecords;
+
+	/**
+	 * 实体持久化属性 {实体类:属性数组}
+	 */
+	private final ConcurrentMap<Class<?>, Field[]> persistFields = new ConcurrentHashMapV8<Class<?>, Field[]>();
+
+	/**
+	 * 记录修改的属性 {实体类:属性数组}, 下标与ModifiedFields的属性序号一致
+	 */
+	private final ConcurrentMap<Class<?>, Field[]> modifiedFieldArrays = new ConcurrentHashMapV8<Class<?>, Field[]>();
+
+	private ChangeLog changeLog;
+
+	private ScheduledExecutorService executor;
+
+	private volatile boolean enabled;
+
+	/**
+	 * 写入任务
+	 */
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				flush();
+			} catch (Exception e) {
+				logger.error("写入变更日志异常", e);
+			}
+		}
+	};
+
+
+	@PostConstruct
+	public void init() throws IOException {
+		if (dir == null || dir.trim().isEmpty()) {
+			return;
+		}
+		if (segmentSize <= 0) {
+			segmentSize = DEFAULT_SEGMENT_SIZE;
+		}
+		if (batchSize <= 0) {
+			batchSize = DEFAULT_BATCH_SIZE;
+		}
+		if (interval <= 0) {
+			interval = DEFAULT_INTERVAL;
+		}
+
+		changeLog = new ChangeLog(new File(dir), segmentSize, maxSegments);
+		changeLog.open();
+
+		ThreadGroup threadGroup = new ThreadGroup("缓存模块");
+		NamedThreadFactory threadFactory = new NamedThreadFactory(threadGroup, "变更日志写入线程");
+		executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		executor.scheduleWithFixedDelay(flushTask, interval, interval, TimeUnit.MILLISECONDS);
+
+		enabled = true;
+		logger.info("实体变更日志已打开:{} 下一序号:{}", dir, changeLog.getNextSeq());
+	}
+
+
+	/**
+	 * 提交插入记录
+	 * @param entity 已入库的实体
+	 */
+	public void captureSave(Object entity) {
+		if (!enabled) {
+			return;
+		}
+		this.append(this.createRecord(ChangeType.SAVE, entity, null));
+	}
+
+
+	/**
+	 * 提交全量更新记录
+	 * @param entity 已入库的实体
+	 */
+	public void captureUpdate(Object entity) {
+		if (!enabled) {
+			return;
+		}
+		this.append(this.createRecord(ChangeType.UPDATE, entity, null));
+	}
+
+
+	/**
+	 * 提交删除记录
+	 * @param entity 已删除的实体
+	 */
+	public void captureDelete(Object entity) {
+		if (!enabled) {
+			return;
+		}
+		this.append(this.createRecord(ChangeType.DELETE, entity, null));
+	}
+
+
+	/**
+	 * 创建动态更新记录
+	 * <br/>在update之前调用(update会清除修改标记), 入库成功后调用append提交
+	 * @param entity 实体
+	 * @param modifiedFields 本次入库的修改标记
+	 * @return 未启用时返回null
+	 */
+	public ChangeRecord prepareUpdate(Object entity, ModifiedFields modifiedFields) {
+		if (!enabled) {
+			return null;
+		}
+		return this.createRecord(ChangeType.UPDATE, entity, modifiedFields);
+	}
+
+
+	/**
+	 * 提交变更记录
+	 * @param record 变更记录, 为null时忽略
+	 */
+	public void append(ChangeRecord record) {
+		if (record == null || !enabled) {
+			return;
+		}
+		pendingQueue.offer(record);
+		if (pendingSize.incrementAndGet() == batchSize) {
+			executor.execute(flushTask);
+		}
+	}
+
+
+	/**
+	 * 写入所有待写入的记录
+	 */
+	public synchronized void flush() throws IOException {
+		if (changeLog == null) {
+			return;
+		}
+		if (failedRecords != null) {
+			changeLog.append(failedRecords);
+			failedRecords = null;
+		}
+
+		while (true) {
+			List<ChangeRecord> records = new ArrayList<ChangeRecord>(Math.min(batchSize, pendingSize.get()));
+			ChangeRecord record;
+			while (records.size() < batchSize && (record = pendingQueue.poll()) != null) {
+				pendingSize.decrementAndGet();
+				records.add(record);
+			}
+			if (records.isEmpty()) {
+				return;
+			}
+
+			try {
+				changeLog.append(records);
+			} catch (IOException e) {
+				failedRecords = records;
+				throw e;
+			}
+		}
+	}
+
+
+	// 创建变更记录, 在入库线程中取属性值
+	private ChangeRecord createRecord(ChangeType type, Object entity, ModifiedFields modifiedFields) {
+		if (entity instanceof EnhancedEntity) {
+			entity = ((EnhancedEntity) entity).getEntity();
+		}
+		Class<?> clz = entity.getClass();
+		Object id = entity instanceof IEntity ? ((IEntity<?>) entity).getId() : null;
+		if (type == ChangeType.DELETE) {
+			return ChangeRecord.valueOf(type, clz.getName(), id, null, null);
+		}
+
+		List<String> fieldNames = null;
+		Map<String, Object> data = new LinkedHashMap<String, Object>();
+		try {
+			if (modifiedFields == null) {
+				for (Field field : this.getPersistFields(clz)) {
+					data.put(field.getName(), field.get(entity));
+				}
+			} else {
+				Field[] fields = this.getModifiedFieldArray(clz);
+				fieldNames = new ArrayList<String>();
+				for (int i = 0; i < fields.length && i < modifiedFields.length(); i++) {
+					if (modifiedFields.isModified(i)) {
+						fieldNames.add(fields[i].getName());
+						data.put(fields[i].getName(), fields[i].get(entity));
+					}
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("无法获取实体属性值:" + clz.getName(), e);
+		}
+		return ChangeRecord.valueOf(type, clz.getName(), id, fieldNames, JSON.toJSONString(data));
+	}
+
+
+	// 获取记录修改的属性(与动态更新切面的属性序号一致)
+	private Field[] getModifiedFieldArray(Class<?> clz) {
+		Field[] fields = modifiedFieldArrays.get(clz);
+		if (fields != null) {
+			return fields;
+		}
+		String[] fieldNames = ModifiedFieldMethodAspect.getFieldNames(clz);
+		fields = new Field[fieldNames.length];
+		for (int i = 0; i < fieldNames.length; i++) {
+			fields[i] = ReflectionUtils.findField(clz, fieldNames[i]);
+			ReflectionUtils.makeAccessible(fields[i]);
+		}
+		modifiedFieldArrays.putIfAbsent(clz, fields);
+		return fields;
+	}
+
+
+	// 获取持久化属性
+	private Field[] getPersistFields(Class<?> clz) {
+		Field[] fields = persistFields.get(clz);
+		if (fields != null) {
+			return fields;
+		}
+		final List<Field> list = new ArrayList<Field>();
+		ReflectionUtils.doWithFields(clz, new FieldCallback() {
+			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
+				if (Modifier.isTransient(field.getModifiers())
+						|| Modifier.isStatic(field.getModifiers())
+						|| field.isAnnotationPresent(javax.persistence.Transient.class)) {
+					return;
+				}
+				ReflectionUtils.makeAccessible(field);
+				list.add(field);
+			}
+		});
+		fields = list.toArray(new Field[list.size()]);
+		persistFields.putIfAbsent(clz, fields);
+		return fields;
+	}
+
+
+	/**
+	 * 关闭时写入剩余的记录
+	 * <br/>在ContextClosedEvent之后调用, 此时各实体的入库队列已经处理完毕
+	 */
+	@Override
+	public void destroy() throws Exception {
+		if (!enabled) {
+			return;
+		}
+		enabled = false;
+
+		executor.shutdown();
+		executor.awaitTermination(interval * 10, TimeUnit.MILLISECONDS);
+		try {
+			this.flush();
+		} finally {
+			changeLog.close();
+		}
+	}
+
+
+	/**
+	 * 是否已启用
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 待写入的记录数量
+	 * @return
+	 */
+	public int getPendingSize() {
+		return pendingSize.get();
+	}
+
+	/**
+	 * 下一条记录的序号
+	 * @return
+	 */
+	public long getNextSeq() {
+		return changeLog != null ? changeLog.getNextSeq() : 0;
+	}
+
+}
@@ -0,0 +1,263 @@
+package dbcache.cdc;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 分段变更日志
+ * <br/>记录按序号顺序追加到当前分段文件, 文件超过分段大小时新建分段
+ * <br/>分段文件名为 cdc-首条记录序号.log, 按文件名排序即为记录顺序
+ * <br/>每次append后刷新到文件, 消费方可使用ChangeLogReader跟踪读取
+ * @see ChangeLogReader
+ * @author Jake
+ */
+public class ChangeLog implements Closeable {
+
+	/** 分段文件名前缀 */
+	static final String PREFIX = "cdc-";
+
+	/** 分段文件名后缀 */
+	static final String SUFFIX = ".log";
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final byte LINE_SEPARATOR = '\n';
+
+	/** 日志目录 */
+	private final File dir;
+
+	/** 分段大小(字节) */
+	private final long segmentSize;
+
+	/** 保留的分段数量, 0为不删除 */
+	private final int maxSegments;
+
+	/** 下一条记录的序号 */
+	private long nextSeq = 1;
+
+	/** 当前分段文件 */
+	private File current;
+
+	/** 当前分段已写入的字节数 */
+	private long currentSize;
+
+	private OutputStream out;
+
+
+	/**
+	 * 构造方法
+	 * @param dir 日志目录
+	 * @param segmentSize 分段大小(字节)
+	 * @param maxSegments 保留的分段数量, 0为不删除
+	 */
+	public ChangeLog(File dir, long segmentSize, int maxSegments) {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("segmentSize must be positive: " + segmentSize);
+		}
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+	}
+
+
+	/**
+	 * 打开日志, 从最后一个分段继续写入
+	 * <br/>最后一个分段末尾不完整的记录(如进程异常退出时)将被截断
+	 * @throws IOException
+	 */
+	public synchronized void open() throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("无法创建变更日志目录:" + dir.getAbsolutePath());
+		}
+
+		File[] segments = listSegments(dir);
+		if (segments.length == 0) {
+			this.openSegment(nextSeq);
+			return;
+		}
+
+		File last = segments[segments.length - 1];
+		long lastSeq = recover(last);
+		nextSeq = lastSeq > 0 ? lastSeq + 1 : startSeqOf(last);
+		current = last;
+		currentSize = last.length();
+		out = new BufferedOutputStream(new FileOutputStream(last, true));
+	}
+
+
+	/**
+	 * 追加记录并刷新到文件
+	 * <br/>按列表顺序分配序号
+	 * @param records 记录列表
+	 * @throws IOException
+	 */
+	public synchronized void append(List<ChangeRecord> records) throws IOException {
+		if (out == null) {
+			throw new IllegalStateException("变更日志未打开");
+		}
+		for (ChangeRecord record : records) {
+			if (currentSize >= segmentSize) {
+				this.roll();
+			}
+			record.setSeq(nextSeq);
+			byte[] bytes = record.toJson().getBytes(UTF_8);
+			out.write(bytes);
+			out.write(LINE_SEPARATOR);
+			currentSize += bytes.length + 1;
+			nextSeq++;
+		}
+		out.flush();
+	}
+
+
+	/**
+	 * 下一条记录的序号
+	 * @return
+	 */
+	public synchronized long getNextSeq() {
+		return nextSeq;
+	}
+
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+
+	// 新建分段
+	private void roll() throws IOException {
+		out.close();
+		this.openSegment(nextSeq);
+		this.deleteExpiredSegments();
+	}
+
+
+	// 打开新的分段文件
+	private void openSegment(long startSeq) throws IOException {
+		current = new File(dir, segmentName(startSeq));
+		currentSize = 0;
+		out = new BufferedOutputStream(new FileOutputStream(current, true));
+	}
+
+
+	// 删除超出保留数量的分段
+	private void deleteExpiredSegments() {
+		if (maxSegments <= 0) {
+			return;
+		}
+		File[] segments = listSegments(dir);
+		for (int i = 0; i < segments.length - maxSegments; i++) {
+			if (!segments[i].equals(current)) {
+				segments[i].delete();
+			}
+		}
+	}
+
+
+	/**
+	 * 截断分段末尾不完整的记录
+	 * @param segment 分段文件
+	 * @return 最后一条记录的序号, 没有记录时返回0
+	 * @throws IOException
+	 */
+	private static long recover(File segment) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+		try {
+			long end = lastIndexOf(raf, raf.length());
+			if (end + 1 != raf.length()) {
+				raf.setLength(end + 1);
+			}
+			if (end < 0) {
+				return 0;
+			}
+			long start = lastIndexOf(raf, end) + 1;
+			byte[] line = new byte[(int) (end - start)];
+			raf.seek(start);
+			raf.readFully(line);
+			return ChangeRecord.parse(new String(line, UTF_8)).getSeq();
+		} finally {
+			raf.close();
+		}
+	}
+
+
+	// 查找position之前最后一个换行符的位置, 不存在时返回-1
+	private static long lastIndexOf(RandomAccessFile raf, long position) throws IOException {
+		byte[] buf = new byte[4096];
+		long pos = position;
+		while (pos > 0) {
+			int len = (int) Math.min(buf.length, pos);
+			pos -= len;
+			raf.seek(pos);
+			raf.readFully(buf, 0, len);
+			for (int i = len - 1; i >= 0; i--) {
+				if (buf[i] == LINE_SEPARATOR) {
+					return pos + i;
+				}
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * 分段文件名
+	 * @param startSeq 首条记录序号
+	 * @return
+	 */
+	static String segmentName(long startSeq) {
+		return PREFIX + String.format("%020d", startSeq) + SUFFIX;
+	}
+
+
+	/**
+	 * 分段的首条记录序号
+	 * @param segment 分段文件
+	 * @return
+	 */
+	static long startSeqOf(File segment) {
+		String name = segment.getName();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+	}
+
+
+	/**
+	 * 按顺序列出目录中的分段文件
+	 * @param dir 日志目录
+	 * @return
+	 */
+	static File[] listSegments(File dir) {
+		File[] files = dir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				String name = file.getName();
+				return file.isFile() && name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+			}
+		});
+		if (files == null) {
+			return new File[0];
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		return files;
+	}
+
+}
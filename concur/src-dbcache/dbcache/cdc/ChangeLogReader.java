@@ -0,0 +1,164 @@
+package dbcache.cdc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 变更日志读取器
+ * <br/>从指定序号开始按顺序读取记录, 读到末尾后再次poll可继续读取新写入的记录(tail)
+ * <br/>消费方自行保存已处理的序号, 重启后从该序号继续读取
+ * <br/>非线程安全
+ * @see ChangeLog
+ * @author Jake
+ */
+public class ChangeLogReader implements Closeable {
+
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	/** 日志目录 */
+	private final File dir;
+
+	/** 下一条要读取的记录序号 */
+	private long nextSeq;
+
+	/** 当前分段 */
+	private File segment;
+
+	private RandomAccessFile raf;
+
+	/** 当前分段中已读取的位置 */
+	private long position;
+
+	/** 未读完的行 */
+	private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+
+	private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+
+	/**
+	 * 构造方法
+	 * @param dir 日志目录
+	 * @param fromSeq 起始序号(包含), 从头读取时为1
+	 */
+	public ChangeLogReader(File dir, long fromSeq) {
+		this.dir = dir;
+		this.nextSeq = fromSeq;
+	}
+
+
+	/**
+	 * 读取记录
+	 * @param maxRecords 最多读取的记录数
+	 * @return 没有新记录时返回空列表
+	 * @throws IOException
+	 */
+	public List<ChangeRecord> poll(int maxRecords) throws IOException {
+		List<ChangeRecord> result = new ArrayList<ChangeRecord>();
+		if (raf == null && !this.openSegment()) {
+			return result;
+		}
+
+		while (result.size() < maxRecords) {
+			raf.seek(position);
+			int len = raf.read(buffer);
+			if (len <= 0) {
+				// 当前分段已读完, 存在下一个分段时切换
+				if (!this.nextSegment()) {
+					break;
+				}
+				continue;
+			}
+
+			int lineStart = 0;
+			for (int i = 0; i < len && result.size() < maxRecords; i++) {
+				if (buffer[i] != '\n') {
+					continue;
+				}
+				partialLine.write(buffer, lineStart, i - lineStart);
+				ChangeRecord record = ChangeRecord.parse(new String(partialLine.toByteArray(), ChangeLog.UTF_8));
+				partialLine.reset();
+				lineStart = i + 1;
+				if (record.getSeq() >= nextSeq) {
+					result.add(record);
+					nextSeq = record.getSeq() + 1;
+				}
+			}
+			// 记录数已满时未处理的字节留到下次读取
+			if (result.size() < maxRecords) {
+				partialLine.write(buffer, lineStart, len - lineStart);
+				lineStart = len;
+			}
+			position += lineStart;
+		}
+		return result;
+	}
+
+
+	/**
+	 * 下一条要读取的记录序号
+	 * @return
+	 */
+	public long getNextSeq() {
+		return nextSeq;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		if (raf != null) {
+			raf.close();
+			raf = null;
+		}
+	}
+
+
+	// 打开包含nextSeq的分段
+	private boolean openSegment() throws IOException {
+		File[] segments = ChangeLog.listSegments(dir);
+		if (segments.length == 0) {
+			return false;
+		}
+		File target = segments[0];
+		for (File file : segments) {
+			if (ChangeLog.startSeqOf(file) <= nextSeq) {
+				target = file;
+			}
+		}
+		this.open(target);
+		return true;
+	}
+
+
+	// 切换到下一个分段
+	private boolean nextSegment() throws IOException {
+		long currentStart = ChangeLog.startSeqOf(segment);
+		for (File file : ChangeLog.listSegments(dir)) {
+			if (ChangeLog.startSeqOf(file) > currentStart) {
+				// 读到末尾之后、发现新分段之前当前分段可能又写入了记录, 先读完
+				// 新分段出现后当前分段不会再写入
+				if (raf.length() > position) {
+					return true;
+				}
+				// 写入方只在完整的记录之后切换分段, 剩余的不完整数据可忽略
+				raf.close();
+				this.open(file);
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private void open(File file) throws IOException {
+		segment = file;
+		raf = new RandomAccessFile(file, "r");
+		position = 0;
+		partialLine.reset();
+	}
+
+}
@@ -0,0 +1,141 @@
+package dbcache.cdc;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 实体变更记录
+ * <br/>日志中每条记录为一行json: {"seq":序号,"time":时间,"type":类型,"entity":实体类名,"id":主键,"fields":[修改的属性],"data":{属性:值}}
+ * <br/>fields为null时data包含全部持久化属性(插入或全量更新), 删除时data为null
+ * @author Jake
+ */
+public class ChangeRecord {
+
+	/** 序号(写入日志时分配, 从1开始连续递增) */
+	private long seq;
+
+	/** 入库时间 */
+	private long time;
+
+	/** 变更类型 */
+	private ChangeType type;
+
+	/** 实体类名 */
+	private String entity;
+
+	/** 主键 */
+	private Object id;
+
+	/** 修改过的属性名 */
+	private List<String> fields;
+
+	/** 属性值(json) */
+	private String data;
+
+
+	/**
+	 * 获取实例
+	 * @param type 变更类型
+	 * @param entity 实体类名
+	 * @param id 主键
+	 * @param fields 修改过的属性名, 全部属性时为null
+	 * @param data 属性值json
+	 * @return
+	 */
+	public static ChangeRecord valueOf(ChangeType type, String entity, Object id, List<String> fields, String data) {
+		ChangeRecord record = new ChangeRecord();
+		record.time = System.currentTimeMillis();
+		record.type = type;
+		record.entity = entity;
+		record.id = id;
+		record.fields = fields;
+		record.data = data;
+		return record;
+	}
+
+
+	/**
+	 * 解析日志行
+	 * @param line 日志行
+	 * @return
+	 */
+	public static ChangeRecord parse(String line) {
+		JSONObject json = JSON.parseObject(line);
+		ChangeRecord record = new ChangeRecord();
+		record.seq = json.getLongValue("seq");
+		record.time = json.getLongValue("time");
+		record.type = ChangeType.valueOf(json.getString("type"));
+		record.entity = json.getString("entity");
+		record.id = json.get("id");
+		JSONArray fields = json.getJSONArray("fields");
+		if (fields != null) {
+			record.fields = new ArrayList<String>(fields.size());
+			for (int i = 0; i < fields.size(); i++) {
+				record.fields.add(fields.getString(i));
+			}
+		}
+		record.data = json.getString("data");
+		return record;
+	}
+
+
+	/**
+	 * 转换成日志行(不含换行符)
+	 * @return
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder(64 + (data != null ? data.length() : 0));
+		sb.append("{\"seq\":").append(seq)
+				.append(",\"time\":").append(time)
+				.append(",\"type\":\"").append(type.name()).append('"')
+				.append(",\"entity\":").append(JSON.toJSONString(entity))
+				.append(",\"id\":").append(JSON.toJSONString(id))
+				.append(",\"fields\":").append(JSON.toJSONString(fields))
+				.append(",\"data\":").append(data != null ? data : "null")
+				.append('}');
+		return sb.toString();
+	}
+
+
+	public long getSeq() {
+		return seq;
+	}
+
+	void setSeq(long seq) {
+		this.seq = seq;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public ChangeType getType() {
+		return type;
+	}
+
+	public String getEntity() {
+		return entity;
+	}
+
+	public Object getId() {
+		return id;
+	}
+
+	public List<String> getFields() {
+		return fields;
+	}
+
+	public String getData() {
+		return data;
+	}
+
+	@Override
+	public String toString() {
+		return toJson();
+	}
+
+}
@@ -0,0 +1,18 @@
+package dbcache.cdc;
+
+/**
+ * 实体变更类型
+ * @author Jake
+ */
+public enum ChangeType {
+
+	/** 插入 */
+	SAVE,
+
+	/** 更新 */
+	UPDATE,
+
+	/** 删除 */
+	DELETE
+
+}
@@ -36,6 +36,11 @@ public interface CfgConstants {
 	 */
 	String DELAY_WAITTIMMER = "dbcache.delay.timmer";
 
+	/**
+	 * 主键id分段大小(每个线程一次领取的id数量, 0或1表示不分段)
+	 */
+	String KEY_ID_SEGMENT_SIZE = "dbcache.id.segment.size";
+
 	/**
 	 * 分隔符定义
 	 */
@@ -7,9 +7,9 @@ import dbcache.CacheObject;
 import dbcache.IEntity;
 import dbcache.DbCacheService;
 import dbcache.index.DbIndexService;
+import dbcache.persist.ModifiedFields;
 
 import java.io.Serializable;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * DbCache缓存模块配置服务接口
@@ -28,7 +28,7 @@ public interface DbConfigFactory {
 	 * @return
 	 */
 	@SuppressWarnings("rawtypes")
-	<T extends IEntity<PK>, PK extends Comparable<PK> & Serializable> T createProxyEntity(T entity, Class<? extends IEntity> proxyClass, DbIndexService indexService, CacheConfig<T> cacheConfig, AtomicIntegerArray modifiedFields);
+	<T extends IEntity<PK>, PK extends Comparable<PK> & Serializable> T createProxyEntity(T entity, Class<? extends IEntity> proxyClass, DbIndexService indexService, CacheConfig<T> cacheConfig, ModifiedFields modifiedFields);
 
 
 	/**
@@ -53,6 +53,15 @@ public interface DbConfigFactory {
 	<T extends IEntity<PK>, PK extends Comparable<PK> & Serializable> DbCacheService<T, PK> getDbCacheServiceBean(Class<T> clz);
 
 
+	/**
+	 * 获取已创建的DbCacheServiceBean
+	 * @param clz 实体类
+	 * @return 未创建时返回null
+	 */
+	@SuppressWarnings("rawtypes")
+	DbCacheService findDbCacheServiceBean(Class<?> clz);
+
+
 	/**
 	 * 创建DbCacheServiceBean
 	 * @param clz 实体类
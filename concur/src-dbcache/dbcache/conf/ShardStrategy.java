@@ -1,5 +1,6 @@
 package dbcache.conf;
 
+import java.util.Collection;
 
 /**
  * 分表策略接口
@@ -29,4 +30,12 @@ public interface ShardStrategy<PK> {
 	 */
 	String createTableSqlTemplate();
 	
+	/**
+	 * 获取所有表名后缀
+	 * <br/>用于按索引等非主键条件跨分表查询和初始化主键生成器, 必须列出所有可能存在的分表(不存在的分表会被跳过)
+	 * <br/>不能返回null, 否则重启后无法得知已有的分表
+	 * @return
+	 */
+	Collection<String> getTableNameSuffixes();
+	
 }
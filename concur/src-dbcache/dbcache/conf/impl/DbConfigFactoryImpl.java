@@ -7,9 +7,13 @@ import dbcache.conf.DbConfigFactory;
 import dbcache.conf.DbRuleService;
 import dbcache.conf.PersistType;
 import dbcache.index.DbIndexService;
+import dbcache.metrics.DbCacheMetrics;
+import dbcache.metrics.EntityMetricsAware;
+import dbcache.persist.ModifiedFields;
 import dbcache.persist.service.DbPersistService;
 import dbcache.pkey.IdGenerator;
 import dbcache.support.asm.*;
+import dbcache.utils.MutableInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,7 +22,9 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.ReflectionUtils.FieldCallback;
+import org.springframework.util.StringUtils;
 import utils.collections.concurrent.ConcurrentHashMapV8;
+import utils.collections.concurrent.ForkJoinPool;
 import utils.enhance.asm.AsmAccessHelper;
 import utils.enhance.asm.ValueGetter;
 import utils.reflect.ReflectionUtility;
@@ -31,11 +37,10 @@ import java.lang.management.ManagementFactory;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -91,6 +96,14 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 	@Qualifier("delayDbPersistService")
 	private DbPersistService delayDbPersistService;
 
+	/**
+	 * 启动时是否并行预初始化entityPackages下的实体, 默认关闭
+	 * <br/>开启后会为扫描到的所有实体生成代理类并查询最大Id, 包括从未使用的实体, 适合实体大多在启动后都会用到的场景
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheParallelInit")
+	private boolean parallelInit = false;
+
 
 	/**
 	 * DbCacheService实例映射
@@ -108,6 +121,11 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 	 */
 	private final ConcurrentMap<PersistType, DbPersistService> persistServiceMap = new ConcurrentHashMapV8<PersistType, DbPersistService>();
 
+	/**
+	 * 启动时并行预初始化的配置(已生成代理类和Id生成器), 创建DbCacheService时取出
+	 */
+	private final ConcurrentMap<Class<?>, CacheConfig<?>> preparedCacheConfigMap = new ConcurrentHashMapV8<Class<?>, CacheConfig<?>>();
+
 
 
 	@SuppressWarnings({ "rawtypes" })
@@ -128,13 +146,23 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 	}
 
 
+	@SuppressWarnings("rawtypes")
+	@Override
+	public DbCacheService findDbCacheServiceBean(Class<?> clz) {
+		return this.dbCacheServiceBeanMap.get(clz);
+	}
+
+
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Override
 	public <T extends IEntity<PK>, PK extends Comparable<PK> & Serializable> DbCacheService<T, PK> createCacheService(Class<T> clz) {
 
 		try {
-			//获取缓存配置
-			CacheConfig cacheConfig = createCacheConfig(clz);
+			//获取缓存配置(含代理类和Id生成器)
+			CacheConfig cacheConfig = preparedCacheConfigMap.remove(clz);
+			if (cacheConfig == null) {
+				cacheConfig = prepareCacheConfig(clz);
+			}
 			cacheConfigMap.put(clz, cacheConfig);
 
 			//创建新的bean
@@ -147,14 +175,6 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 			ReflectionUtility.inject(service, clazzField, clz);
 
 
-
-			//初始化代理类
-			AbstractAsmMethodProxyAspect aspector = this.createAspector(cacheConfig);
-			
-			EnhancedClassInfo<?> classInfo = EntityAsmFactory.getEntityEnhancedClassInfo(clz, aspector);
-			cacheConfig.setProxyClazz(classInfo.getProxyClass());
-			cacheConfig.setConstructorBuilder(classInfo.getConstructorBuilder());
-
 			Field cacheConfigField = DbCacheServiceImpl.class.getDeclaredField(proxyCacheConfigProperty);
 			ReflectionUtility.inject(service, cacheConfigField, cacheConfig);
 
@@ -169,6 +189,9 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 			int concurrencyLevel = cacheConfig.getConcurrencyLevel() == 0?
 					Runtime.getRuntime().availableProcessors() : cacheConfig.getConcurrencyLevel();
 			cacheUnit.init("ENTITY_CACHE_" + cacheClass.getSimpleName(), cacheConfig.getEntitySize(), concurrencyLevel);
+			if (cacheUnit instanceof EntityMetricsAware) {
+				((EntityMetricsAware) cacheUnit).setEntityMetrics(DbCacheMetrics.getEntityMetrics(clz));
+			}
 			ReflectionUtility.inject(service, cacheField, cacheUnit);
 
 
@@ -225,8 +248,6 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 
 
 
-			// 初始化Id生成器
-			dbRuleService.initIdGenerators(clz, cacheConfig);
 			// 初始化DbCache服务
 			service.init();
 
@@ -241,14 +262,108 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 
 	}
 
+
+	/**
+	 * 构建实体的缓存配置, 生成代理类并初始化Id生成器
+	 * <br/>不访问Spring容器, 可以在启动时并行执行
+	 * @param clz 实体类
+	 * @return
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private CacheConfig prepareCacheConfig(Class<? extends IEntity> clz) {
+		CacheConfig cacheConfig = createCacheConfig(clz);
+
+		//初始化代理类
+		AbstractAsmMethodProxyAspect aspector = this.createAspector(cacheConfig);
+
+		EnhancedClassInfo<?> classInfo = EntityAsmFactory.getEntityEnhancedClassInfo(clz, aspector);
+		cacheConfig.setProxyClazz(classInfo.getProxyClass());
+		cacheConfig.setConstructorBuilder(classInfo.getConstructorBuilder());
+
+		// 初始化Id生成器
+		dbRuleService.initIdGenerators(clz, cacheConfig);
+		return cacheConfig;
+	}
+
+
+	/**
+	 * 并行预初始化entityPackages下的实体
+	 * <br/>各实体的配置解析、代理类生成和最大Id查询相互独立, 在ForkJoin线程池中并行执行,
+	 * 启动耗时取决于CPU核数而不是实体数量
+	 * <br/>DbCacheService等Bean的创建仍在注入时串行进行(Spring创建单例时持有全局锁, 在工作线程中创建会死锁)
+	 * <br/>未使用的实体也会生成代理类、查询最大Id并保留预初始化的配置, 因此需通过dbCacheParallelInit开启
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void prepareEntities() {
+		String[] packages = StringUtils.tokenizeToStringArray(dbRuleService.getEntityPackages(), ",; \t\n");
+		if (packages.length == 0) {
+			return;
+		}
+
+		long start = System.currentTimeMillis();
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		try {
+			for (final Class<?> clz : EntityProxyGenerator.findEntityClasses(packages)) {
+				if (!IEntity.class.isAssignableFrom(clz)
+						|| clz.isInterface() || Modifier.isAbstract(clz.getModifiers())) {
+					continue;
+				}
+				tasks.add(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						try {
+							preparedCacheConfigMap.put(clz, prepareCacheConfig((Class<? extends IEntity>) clz));
+						} catch (Exception e) {
+							// 创建DbCacheService时会重新初始化
+							logger.warn("预初始化实体失败:" + clz.getName(), e);
+						}
+						return null;
+					}
+				});
+			}
+		} catch (ClassNotFoundException e) {
+			logger.error("扫描实体类失败", e);
+			return;
+		}
+		if (tasks.isEmpty()) {
+			return;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			pool.invokeAll(tasks);
+		} finally {
+			pool.shutdown();
+		}
+
+		if (logger.isInfoEnabled()) {
+			logger.info("并行预初始化{}个实体, 耗时{}ms",
+					preparedCacheConfigMap.size(), System.currentTimeMillis() - start);
+		}
+	}
+
 	
 	// 创建AsmMethodProxyAspect
 	private AbstractAsmMethodProxyAspect createAspector(CacheConfig cacheConfig) {
+		return createAspector(cacheConfig, this.indexAspect, this.fieldChangeAspect);
+	}
+
+
+	/**
+	 * 按缓存配置选择代理类的方法切面
+	 * @param cacheConfig 缓存配置
+	 * @param indexAspect 索引切面
+	 * @param fieldChangeAspect 动态更新切面
+	 * @return
+	 */
+	static AbstractAsmMethodProxyAspect createAspector(CacheConfig<?> cacheConfig,
+			IndexMethodProxyAspect indexAspect, ModifiedFieldMethodAspect fieldChangeAspect) {
 		if (cacheConfig.isEnableIndex() && !cacheConfig.isEnableDynamicUpdate()) {
-			return this.indexAspect;
+			return indexAspect;
 		}
 		if (cacheConfig.isEnableDynamicUpdate() && !cacheConfig.isEnableIndex()) {
-			return this.fieldChangeAspect;
+			return fieldChangeAspect;
 		}
 		if (cacheConfig.isEnableIndex() && cacheConfig.isEnableDynamicUpdate()) {
 			return new ChainedMethodProxyAspect(fieldChangeAspect, indexAspect);
@@ -303,6 +418,8 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 
 		CacheConfig cacheConfig = CacheConfig.valueOf(clz);
 		final Map<String, ValueGetter<?>> indexes = new HashMap<String, ValueGetter<?>>();
+		// 持久化属性数量(与动态更新切面的属性序号一致)
+		final MutableInteger fieldCount = new MutableInteger();
 
 		// 解析注解
 		ReflectionUtils.doWithFields(clz, new FieldCallback() {
@@ -313,6 +430,7 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 						|| field.isAnnotationPresent(javax.persistence.Transient.class)) {
 					return;
 				}
+				fieldCount.incrementAndGet();
 
 				// 处理索引注解
 				if (field.isAnnotationPresent(org.hibernate.annotations.Index.class) ||
@@ -342,7 +460,7 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 		});
 
 		cacheConfig.setIndexes(indexes);
-		cacheConfig.setFieldCount(clz.getDeclaredFields().length);
+		cacheConfig.setFieldCount(fieldCount.get());
 		return cacheConfig;
 	}
 
@@ -354,7 +472,7 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 			Class<? extends IEntity> proxyClass,
 			DbIndexService indexService,
 			CacheConfig<T> cacheConfig,
-			AtomicIntegerArray modifiedFields) {
+			ModifiedFields modifiedFields) {
 		// 判断是否启用索引服务
 		if(cacheConfig == null || (!cacheConfig.isEnableIndex() && !cacheConfig.isEnableDynamicUpdate())) {
 			return entity;
@@ -390,9 +508,9 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 			CacheConfig<T> cacheConfig) {
 
 		// 启用动态更新
-		AtomicIntegerArray modifiedFields = null;
+		ModifiedFields modifiedFields = null;
 		if (cacheConfig.isEnableDynamicUpdate()) {
-			modifiedFields = new AtomicIntegerArray(cacheConfig.getFieldCount());
+			modifiedFields = ModifiedFields.valueOf(cacheConfig.getFieldCount());
 		}
 
 		T proxyEntity = this.createProxyEntity(
@@ -507,6 +625,11 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 
 	    // Register the Hello World MBean
 	    mbs.registerMBean(mbean, name);
+
+	    // 并行预初始化实体
+	    if (parallelInit) {
+	    	this.prepareEntities();
+	    }
 	}
 
 
@@ -540,9 +663,29 @@ public class DbConfigFactoryImpl implements DbConfigFactory, DbCacheMBean {
 		infoMap.put("delayDbPersistService", ThreadUtils.dumpThreadPool(
 				"delayDbPersistServiceTheadPool",
 				this.delayDbPersistService.getThreadPool()));
+		infoMap.put("intimeDbPersistServiceQueueSize", this.intimeDbPersistService.getQueueSize());
+		infoMap.put("delayDbPersistServiceQueueSize", this.delayDbPersistService.getQueueSize());
 		return infoMap;
 	}
 
 
+	@Override
+	public Map<String, Map<String, Object>> getEntityMetrics() {
+		return DbCacheMetrics.snapshotEntities();
+	}
+
+
+	@Override
+	public Map<String, Object> getJdbcMetrics() {
+		return DbCacheMetrics.getJdbcMetrics().snapshot();
+	}
+
+
+	@Override
+	public void resetMetrics() {
+		DbCacheMetrics.reset();
+	}
+
+
 
 }
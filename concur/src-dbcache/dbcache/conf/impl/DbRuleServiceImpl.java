@@ -1,9 +1,7 @@
 package dbcache.conf.impl;
 
 import dbcache.conf.DbRuleService;
-import dbcache.pkey.IdGenerator;
-import dbcache.pkey.LongGenerator;
-import dbcache.pkey.ServerEntityIdRule;
+import dbcache.pkey.*;
 import dbcache.IEntity;
 import dbcache.dbaccess.DbAccessService;
 import dbcache.support.jdbc.ModelInfo;
@@ -22,6 +20,7 @@ import org.springframework.util.ReflectionUtils;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.Entity;
+import javax.sql.DataSource;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.*;
@@ -81,6 +80,29 @@ public class DbRuleServiceImpl implements DbRuleService {
 	@Qualifier("entityPackages")
 	private String entityPackages = "dbcache";
 
+	/**
+	 * 主键id分段大小
+	 * <br/>大于1时每个线程一次领取一段id在线程内自增, 减少高并发创建实体时的争用
+	 */
+	@Autowired(required = false)
+	@Qualifier("idSegmentSize")
+	private int idSegmentSize;
+
+	/**
+	 * id段表所在的数据源
+	 * <br/>配置后从数据库预留id段(hi/lo), 多个节点可以使用同一服标识生成id
+	 */
+	@Autowired(required = false)
+	@Qualifier("idRangeDataSource")
+	private DataSource idRangeDataSource;
+
+	/**
+	 * id段表名
+	 */
+	@Autowired(required = false)
+	@Qualifier("idRangeTable")
+	private String idRangeTable = DbIdRangeAllocator.DEFAULT_TABLE_NAME;
+
 	/**
 	 * 配置文件位置
 	 */
@@ -218,6 +240,18 @@ public class DbRuleServiceImpl implements DbRuleService {
 		}
 		this.delayWaitTimmer = this.delayWaitTimmer > 0? this.delayWaitTimmer : delayWaitTimmer;
 
+
+		//主键id分段大小
+		int idSegmentSize = 0;
+		if (properties.containsKey(KEY_ID_SEGMENT_SIZE)) {
+			try {
+				idSegmentSize = Integer.parseInt(properties.getProperty(KEY_ID_SEGMENT_SIZE).trim());
+			} catch (Exception ex) {
+				logger.error("转换'{}'失败， 使用缺省值", KEY_ID_SEGMENT_SIZE);
+			}
+		}
+		this.idSegmentSize = this.idSegmentSize > 0 ? this.idSegmentSize : idSegmentSize;
+
 	}
 
 
@@ -305,19 +339,20 @@ public class DbRuleServiceImpl implements DbRuleService {
 
 		List<Integer> serverIdList = getServerIdList();
 
-		for (int serverId: serverIdList) {
+		//各服当前最大id(一次查询)
+		Object[] resultIds = loadMaxIds(clz, serverIdList);
 
-			long minValue = ServerEntityIdRule.getMinValueOfEntityId(serverId);
-			long maxValue = ServerEntityIdRule.getMaxValueOfEntityId(serverId);
+		for (int i = 0; i < serverIdList.size(); i++) {
+			int serverId = serverIdList.get(i);
 
 			//当前最大id
-			long currMaxId = minValue;
-			Object resultId = this.dbAccessService.loadMaxId(clz, minValue, maxValue);
+			long currMaxId = ServerEntityIdRule.getMinValueOfEntityId(serverId);
+			Object resultId = resultIds[i];
 			if (resultId != null) {
-				currMaxId = (Long) resultId;
+				currMaxId = ((Number) resultId).longValue();
 			}
 
-			LongGenerator idGenerator = new LongGenerator(currMaxId);
+			IdGenerator<Long> idGenerator = createIdGenerator(clz, serverId, currMaxId);
 			idGenerators.put(serverId, idGenerator);
 
 			if (logger.isInfoEnabled()) {
@@ -347,19 +382,20 @@ public class DbRuleServiceImpl implements DbRuleService {
 			List<Integer> serverIdList = getServerIdList();
 			if (serverIdList != null && serverIdList.size() > 0) {//配置的服
 
-				for (int serverId: serverIdList) {
+				//各服当前最大id(一次查询)
+				Object[] resultIds = loadMaxIds(cls, serverIdList);
 
-					long minValue = ServerEntityIdRule.getMinValueOfEntityId(serverId);
-					long maxValue = ServerEntityIdRule.getMaxValueOfEntityId(serverId);
+				for (int i = 0; i < serverIdList.size(); i++) {
+					int serverId = serverIdList.get(i);
 
 					//当前最大id
-					long currMaxId = minValue;
-					Object resultId = this.dbAccessService.loadMaxId(cls, minValue, maxValue);
+					long currMaxId = ServerEntityIdRule.getMinValueOfEntityId(serverId);
+					Object resultId = resultIds[i];
 					if (resultId != null) {
-						currMaxId = (Long) resultId;
+						currMaxId = ((Number) resultId).longValue();
 					}
 
-					LongGenerator idGenerator = new LongGenerator(currMaxId);
+					IdGenerator<Long> idGenerator = createIdGenerator(cls, serverId, currMaxId);
 					idGenerators.put(serverId, idGenerator);
 
 					if (logger.isInfoEnabled()) {
@@ -379,6 +415,50 @@ public class DbRuleServiceImpl implements DbRuleService {
 		}
 		
 	}
+
+
+	/**
+	 * 创建服的主键id生成器
+	 * @param clz 实体类
+	 * @param serverId 服标识
+	 * @param currMaxId 当前最大id
+	 * @return
+	 */
+	private IdGenerator<Long> createIdGenerator(Class<?> clz, int serverId, long currMaxId) {
+		long maxValue = ServerEntityIdRule.getMaxValueOfEntityId(serverId);
+		int segmentSize = idSegmentSize > 1 ? idSegmentSize : 1;
+
+		// 数据库预留id段
+		if (idRangeDataSource != null) {
+			IdRangeAllocator allocator = new DbIdRangeAllocator(idRangeDataSource, idRangeTable,
+					clz.getName() + "_" + serverId, currMaxId, maxValue,
+					Math.max(segmentSize, DbIdRangeAllocator.DEFAULT_RESERVE_SIZE));
+			return new SegmentedLongGenerator(allocator, segmentSize);
+		}
+
+		// 线程内分段
+		if (segmentSize > 1) {
+			return new SegmentedLongGenerator(new AtomicIdRangeAllocator(currMaxId, maxValue), segmentSize);
+		}
+		return new LongGenerator(currMaxId);
+	}
+
+
+	/**
+	 * 查询各服Id范围内的当前最大Id
+	 * @param clz 实体类
+	 * @param serverIdList 服标识列表
+	 * @return 与服标识一一对应
+	 */
+	private Object[] loadMaxIds(Class<?> clz, List<Integer> serverIdList) {
+		long[] minValues = new long[serverIdList.size()];
+		long[] maxValues = new long[serverIdList.size()];
+		for (int i = 0; i < serverIdList.size(); i++) {
+			minValues[i] = ServerEntityIdRule.getMinValueOfEntityId(serverIdList.get(i));
+			maxValues[i] = ServerEntityIdRule.getMaxValueOfEntityId(serverIdList.get(i));
+		}
+		return this.dbAccessService.loadMaxIds(clz, minValues, maxValues);
+	}
 	
 
 	/**
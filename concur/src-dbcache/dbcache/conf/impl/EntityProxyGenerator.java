@@ -0,0 +1,118 @@
+package dbcache.conf.impl;
+
+import dbcache.support.asm.EntityAsmFactory;
+import dbcache.support.asm.IndexMethodProxyAspect;
+import dbcache.support.asm.ModifiedFieldMethodAspect;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.ReflectionUtils.FieldCallback;
+import utils.enhance.asm.AsmAccessHelper;
+import utils.enhance.asm.util.AsmUtils;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 构建期代理类生成器
+ * <br/>在打包前预生成实体的$EnhancedByAsm代理类和属性访问器类, 输出到classes目录一起打入jar
+ * <br/>运行时优先加载预生成的类, 不存在(或与当前切面配置不一致)时才动态生成
+ * <br/>用法: EntityProxyGenerator 输出目录 包名或实体类名...
+ * <br/>Maven中使用 -Pasm-aot 在process-classes阶段执行
+ * @see EntityAsmFactory#getEntityEnhancedClassInfo(Class, dbcache.support.asm.AbstractAsmMethodProxyAspect)
+ * @see AsmAccessHelper#getAccessorClassName(Class, String, String, Class, Field)
+ * @author Jake
+ */
+public class EntityProxyGenerator {
+
+	/** 索引切面 */
+	private final IndexMethodProxyAspect indexAspect = new IndexMethodProxyAspect();
+
+	/** 动态更新切面 */
+	private final ModifiedFieldMethodAspect fieldChangeAspect = new ModifiedFieldMethodAspect();
+
+
+	/**
+	 * 生成实体的代理类和属性访问器类
+	 * @param clz 实体类
+	 * @throws Exception
+	 */
+	public void generate(final Class<?> clz) throws Exception {
+		CacheConfig<?> cacheConfig = CacheConfig.valueOf(clz);
+		EntityAsmFactory.getEntityEnhancedClassInfo(clz,
+				DbConfigFactoryImpl.createAspector(cacheConfig, indexAspect, fieldChangeAspect));
+
+		// 与JdbcSupport和索引使用的属性访问器一致
+		ReflectionUtils.doWithFields(clz, new FieldCallback() {
+			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
+				if (Modifier.isTransient(field.getModifiers())
+						|| Modifier.isStatic(field.getModifiers())
+						|| field.isAnnotationPresent(javax.persistence.Transient.class)) {
+					return;
+				}
+				try {
+					AsmAccessHelper.createFieldGetter(field.getName(), clz, field);
+					AsmAccessHelper.createFieldSetter(field.getName(), clz, field);
+				} catch (Throwable e) {
+					// 运行时会动态生成(或报错), 这里只跳过
+					System.err.println("跳过属性访问器:" + clz.getName() + "." + field.getName() + " " + e);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * 查找实体类
+	 * @param names 包名或类名
+	 * @return
+	 * @throws ClassNotFoundException
+	 */
+	public static Set<Class<?>> findEntityClasses(String... names) throws ClassNotFoundException {
+		ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+		Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+
+		ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+		scanner.addIncludeFilter(new AnnotationTypeFilter(javax.persistence.Entity.class));
+
+		for (String name : names) {
+			if (ClassUtils.isPresent(name, classLoader)) {
+				classes.add(ClassUtils.forName(name, classLoader));
+				continue;
+			}
+			for (BeanDefinition beanDefinition : scanner.findCandidateComponents(name)) {
+				classes.add(ClassUtils.forName(beanDefinition.getBeanClassName(), classLoader));
+			}
+		}
+		return classes;
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("用法: EntityProxyGenerator 输出目录 包名或实体类名...");
+			System.exit(1);
+		}
+
+		String[] names = new String[args.length - 1];
+		System.arraycopy(args, 1, names, 0, names.length);
+
+		AsmUtils.setOutputDir(new File(args[0]));
+		try {
+			EntityProxyGenerator generator = new EntityProxyGenerator();
+			Set<Class<?>> classes = findEntityClasses(names);
+			for (Class<?> clz : classes) {
+				generator.generate(clz);
+			}
+			System.out.println("已预生成" + classes.size() + "个实体的代理类到:" + args[0]);
+		} finally {
+			AsmUtils.setOutputDir(null);
+		}
+	}
+
+}
@@ -1,8 +1,9 @@
 package dbcache.dbaccess;
 
+import dbcache.persist.ModifiedFields;
+
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * 通用数据库存取接口
@@ -26,6 +27,14 @@ public interface DbAccessService {
 	<T> void save(T entity);
 
 
+	/**
+	 * 保存或更新实体对象(主键已存在时更新)
+	 * <br/>用于重试保存,避免主键冲突
+	 * @param entity 实体对象
+	 */
+	<T> void saveOrUpdate(T entity);
+
+
 	/**
 	 * 更新实体对象
 	 * @param entity 实体对象
@@ -38,7 +47,7 @@ public interface DbAccessService {
 	 * @param entity 实体对象
 	 * @param changeFields 修改过的属性
 	 */
-	<T> void update(T entity, AtomicIntegerArray changeFields);
+	<T> void update(T entity, ModifiedFields changeFields);
 
 	/**
 	 * 删除实体
@@ -65,6 +74,16 @@ public interface DbAccessService {
 	Object loadMaxId(Class<?> entityClazz, long minValue, long maxValue);
 
 
+	/**
+	 * 批量取得多个范围内的最大主键值(主键为Long类型)
+	 * @param entityClazz 实体类
+	 * @param minValues 各范围-最小值
+	 * @param maxValues 各范围-最大值
+	 * @return 与范围一一对应的最大主键值
+	 */
+	Object[] loadMaxIds(Class<?> entityClazz, long[] minValues, long[] maxValues);
+
+
 	/**
 	 * 根据索引获取Id列表
 	 * @param entityClazz 实体类
@@ -1,5 +1,6 @@
 package dbcache.dbaccess;
 
+import dbcache.persist.ModifiedFields;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -9,7 +10,6 @@ import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * 数据库存储服务实现类
@@ -48,6 +48,16 @@ public class HibernateDbAccessServiceImpl extends HibernateDaoSupport implements
 	}
 
 
+	/**
+	 * 保存或更新实体对象
+	 * @param entity 实体对象
+	 */
+	@Override
+	public <T> void saveOrUpdate(T entity) {
+		super.getHibernateTemplate().merge(entity);
+	}
+
+
 	/**
 	 * 更新实体对象
 	 * @param entity 实体对象
@@ -100,6 +110,23 @@ public class HibernateDbAccessServiceImpl extends HibernateDaoSupport implements
 	}
 
 
+	/**
+	 * 批量取得多个范围内的最大主键值(主键为Long类型)
+	 * @param entityClazz 实体类
+	 * @param minValues 各范围-最小值
+	 * @param maxValues 各范围-最大值
+	 * @return
+	 */
+	@Override
+	public Object[] loadMaxIds(Class<?> entityClazz, long[] minValues, long[] maxValues) {
+		Object[] result = new Object[minValues.length];
+		for (int i = 0; i < minValues.length; i++) {
+			result[i] = loadMaxId(entityClazz, minValues[i], maxValues[i]);
+		}
+		return result;
+	}
+
+
 	/**
 	 * 更加属性名和属性值获取ID列表
 	 */
@@ -116,7 +143,7 @@ public class HibernateDbAccessServiceImpl extends HibernateDaoSupport implements
 
 
 	@Override
-	public <T> void update(T entity, AtomicIntegerArray changeFields) {
+	public <T> void update(T entity, ModifiedFields changeFields) {
 		throw new UnsupportedOperationException();
 	}
 
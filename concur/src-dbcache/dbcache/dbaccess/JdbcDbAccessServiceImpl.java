@@ -1,13 +1,23 @@
 package dbcache.dbaccess;
 
+import dbcache.invalidation.InvalidationService;
+import dbcache.persist.ModifiedFields;
 import dbcache.persist.service.DbBatchAccessService;
 import dbcache.support.jdbc.JdbcSupport;
+import dbcache.support.jdbc.StaleEntityException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import utils.JsonUtils;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 /**
  * 数据库存储jdbc服务实现类
@@ -17,10 +27,20 @@ import java.util.concurrent.atomic.AtomicIntegerArray;
 @Component("jdbcDbAccessServiceImpl")
 public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 
+	/**
+	 * logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(JdbcDbAccessServiceImpl.class);
 
 	@Autowired
 	private JdbcSupport jdbcSupport;
 
+	/**
+	 * 跨节点缓存失效服务, 入库后通知其他节点
+	 */
+	@Autowired
+	private InvalidationService invalidationService;
+
 	/**
 	 * 根据主键id取得实体对象
 	 * @param entityClazz 实体类
@@ -40,6 +60,7 @@ public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 	@Override
 	public <T> void save(T entity) {
 		jdbcSupport.save(entity);
+		invalidationService.publish(entity);
 	}
 	
 	
@@ -51,16 +72,57 @@ public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 	@Override
 	public void save(Class<?> clzz, Collection<Object> entitys) {
 		jdbcSupport.batchSave(clzz, entitys);
+		this.publish(entitys);
 	}
 	
 
+	/**
+	 * 保存或更新实体对象
+	 * @param entity 实体对象
+	 */
+	@Override
+	public <T> void saveOrUpdate(T entity) {
+		try {
+			jdbcSupport.saveOrUpdate(entity);
+		} catch (StaleEntityException e) {
+			this.handleConflict(e);
+			return;
+		}
+		invalidationService.publish(entity);
+	}
+
+
+	/**
+	 * 批量保存或更新实体对象
+	 * @param clzz 实体类
+	 * @param entitys 实体对象集合
+	 */
+	@Override
+	public void saveOrUpdate(Class<?> clzz, Collection<Object> entitys) {
+		try {
+			jdbcSupport.batchSaveOrUpdate(clzz, entitys);
+		} catch (StaleEntityException e) {
+			this.handleConflict(e);
+			this.publishWritten(entitys, e);
+			return;
+		}
+		this.publish(entitys);
+	}
+
+
 	/**
 	 * 更新实体对象
 	 * @param entity 实体对象
 	 */
 	@Override
 	public <T> void update(T entity) {
-		jdbcSupport.update(entity);
+		try {
+			jdbcSupport.update(entity);
+		} catch (StaleEntityException e) {
+			this.handleConflict(e);
+			return;
+		}
+		invalidationService.publish(entity);
 	}
 	
 	/**
@@ -70,7 +132,28 @@ public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 	 */
 	@Override
 	public void update(Class<?> clzz, Collection<Object> entitys) {
-		jdbcSupport.batchUpdate(clzz, entitys);
+		try {
+			jdbcSupport.batchUpdate(clzz, entitys);
+		} catch (StaleEntityException e) {
+			this.handleConflict(e);
+			this.publishWritten(entitys, e);
+			return;
+		}
+		this.publish(entitys);
+	}
+
+
+	// 冲突的实体未写入数据库, 只为其余实体发送失效消息
+	private void publishWritten(Collection<Object> entitys, StaleEntityException e) {
+		Set<Object> conflicts = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		conflicts.addAll(e.getEntities());
+		List<Object> written = new ArrayList<Object>(entitys.size());
+		for (Object entity : entitys) {
+			if (!conflicts.contains(entity)) {
+				written.add(entity);
+			}
+		}
+		this.publish(written);
 	}
 
 	/**
@@ -81,6 +164,7 @@ public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 	public <T> void delete(T entity) {
 		if (entity != null) {
 			jdbcSupport.delete(entity);
+			invalidationService.publish(entity);
 		}
 	}
 
@@ -92,6 +176,7 @@ public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 	@Override
 	public void delete(Class<?> clzz, Collection<Object> entitys) {
 		jdbcSupport.batchDelete(clzz, entitys);
+		this.publish(entitys);
 	}
 
 	/**
@@ -118,6 +203,26 @@ public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 	}
 
 
+	/**
+	 * 批量取得多个范围内的最大主键值(主键为Long类型)
+	 * <br/>合并为一次查询
+	 * @param entityClazz 实体类
+	 * @param minValues 各范围-最小值
+	 * @param maxValues 各范围-最大值
+	 * @return
+	 */
+	@Override
+	public Object[] loadMaxIds(Class<?> entityClazz, long[] minValues, long[] maxValues) {
+		Object[] mins = new Object[minValues.length];
+		Object[] maxs = new Object[maxValues.length];
+		for (int i = 0; i < minValues.length; i++) {
+			mins[i] = minValues[i];
+			maxs[i] = maxValues[i];
+		}
+		return jdbcSupport.getMaxPrimaryKeys(entityClazz, mins, maxs);
+	}
+
+
 	/**
 	 * 更加属性名和属性值获取ID列表
 	 */
@@ -129,9 +234,43 @@ public class JdbcDbAccessServiceImpl implements DbBatchAccessService {
 	}
 
 
+	/**
+	 * 通知其他节点实体已入库
+	 * @param entitys 实体对象集合
+	 */
+	private void publish(Collection<Object> entitys) {
+		if (!invalidationService.isEnabled()) {
+			return;
+		}
+		for (Object entity : entitys) {
+			invalidationService.publish(entity);
+		}
+	}
+
+
 	@Override
-	public <T> void update(T entity, AtomicIntegerArray modifiedFields) {
-		jdbcSupport.update(entity, modifiedFields);
+	public <T> void update(T entity, ModifiedFields modifiedFields) {
+		try {
+			jdbcSupport.update(entity, modifiedFields);
+		} catch (StaleEntityException e) {
+			this.handleConflict(e);
+			return;
+		}
+		invalidationService.publish(entity);
+	}
+
+
+	/**
+	 * 处理乐观锁冲突
+	 * <br/>数据库中的记录已被其他节点修改, 放弃本次修改并移除缓存, 下次访问时重新加载
+	 * @param e 冲突异常
+	 */
+	private void handleConflict(StaleEntityException e) {
+		for (Object entity : e.getEntities()) {
+			logger.warn("实体版本号冲突, 已从缓存移除, 未入库的修改将丢弃:{} {}",
+					entity.getClass().getName(), JsonUtils.object2JsonString(entity));
+			invalidationService.evictLocal(entity);
+		}
 	}
 
 
@@ -10,6 +10,8 @@ import dbcache.conf.impl.CacheConfig;
 import dbcache.conf.CacheRule;
 import dbcache.conf.Inject;
 import dbcache.dbaccess.DbAccessService;
+import dbcache.metrics.DbCacheMetrics;
+import dbcache.metrics.EntityMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -56,6 +58,11 @@ public class DbIndexServiceImpl<PK extends Comparable<PK> & Serializable>
 	 */
 	private final ConcurrentMap<Object, Lock> WAITING_LOCK_MAP = new ConcurrentHashMapV8<Object, Lock>();
 
+	/**
+	 * 运行统计(首次使用时按实体类获取)
+	 */
+	private EntityMetrics metrics;
+
 
 	@Override
 	public Collection<PK> get(String indexName, Object indexValue) {
@@ -83,6 +90,16 @@ public class DbIndexServiceImpl<PK extends Comparable<PK> & Serializable>
 
 
 
+	// 获取运行统计
+	private EntityMetrics getMetrics() {
+		EntityMetrics metrics = this.metrics;
+		if (metrics == null) {
+			metrics = this.metrics = DbCacheMetrics.getEntityMetrics(cacheConfig.getClazz());
+		}
+		return metrics;
+	}
+
+
 	/**
 	 * 获取可修改的线程安全的持久态索引值
 	 * @return Map<PK, Boolean> 主键 - 是否持久化(false:已删除)
@@ -98,6 +115,7 @@ public class DbIndexServiceImpl<PK extends Comparable<PK> & Serializable>
 		ValueWrapper wrapper = cacheUnit.get(key);
 
 		if (wrapper != null) {												// 已经缓存
+			getMetrics().recordIndexHit();
 			return (IndexObject<PK>) wrapper.get();
 		}
 		
@@ -117,9 +135,11 @@ public class DbIndexServiceImpl<PK extends Comparable<PK> & Serializable>
 			}
 
 			// 查询数据库索引
+			long start = System.nanoTime();
 			ValueGetter<?> indexField = cacheConfig.getIndexes().get(indexName);
 			Collection<PK> entityIds = (Collection<PK>) dbAccessService
 					.listIdByIndex(cacheConfig.getClazz(), indexField.getName(), indexValue);
+			getMetrics().recordIndexMiss(System.nanoTime() - start);
 
 
 			IndexObject<PK> indexObject = IndexObject.valueOf(IndexKey.valueOf(indexName, indexValue));
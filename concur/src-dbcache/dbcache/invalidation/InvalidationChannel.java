@@ -0,0 +1,37 @@
+package dbcache.invalidation;
+
+import java.io.IOException;
+
+/**
+ * 缓存失效消息通道
+ * <br/>多个节点共用数据表时, 用于在节点间广播已入库的实体id
+ * <br/>实现需要过滤掉本节点发出的消息
+ * @see LoopbackInvalidationChannel
+ * @see MulticastInvalidationChannel
+ * @author Jake
+ */
+public interface InvalidationChannel {
+
+	/**
+	 * 打开通道
+	 * @param nodeId 本节点标识
+	 * @param listener 消息监听器
+	 * @throws IOException
+	 */
+	void open(String nodeId, InvalidationListener listener) throws IOException;
+
+
+	/**
+	 * 广播消息
+	 * @param message 失效消息
+	 * @throws IOException
+	 */
+	void send(InvalidationMessage message) throws IOException;
+
+
+	/**
+	 * 关闭通道
+	 */
+	void close();
+
+}
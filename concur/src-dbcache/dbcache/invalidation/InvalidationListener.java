@@ -0,0 +1,15 @@
+package dbcache.invalidation;
+
+/**
+ * 缓存失效消息监听器
+ * @author Jake
+ */
+public interface InvalidationListener {
+
+	/**
+	 * 收到其他节点的失效消息
+	 * @param message 失效消息
+	 */
+	void onInvalidation(InvalidationMessage message);
+
+}
@@ -0,0 +1,94 @@
+package dbcache.invalidation;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * 缓存失效消息
+ * <br/>一批已入库的实体id, 按实体类名分组并去重
+ * @author Jake
+ */
+public class InvalidationMessage implements Serializable {
+
+	private static final long serialVersionUID = -1802416263593025047L;
+
+	/** 发送节点标识 */
+	private String nodeId;
+
+	/** 实体类名 - id集合 */
+	private Map<String, Set<Serializable>> ids = new LinkedHashMap<String, Set<Serializable>>();
+
+	/** id数量 */
+	private int size;
+
+
+	/**
+	 * 获取实例
+	 * @param nodeId 发送节点标识
+	 * @return
+	 */
+	public static InvalidationMessage valueOf(String nodeId) {
+		InvalidationMessage message = new InvalidationMessage();
+		message.nodeId = nodeId;
+		return message;
+	}
+
+
+	/**
+	 * 添加实体id(重复的id只保留一个)
+	 * @param className 实体类名
+	 * @param id 主键id
+	 */
+	public void add(String className, Serializable id) {
+		Set<Serializable> set = ids.get(className);
+		if (set == null) {
+			set = new LinkedHashSet<Serializable>();
+			ids.put(className, set);
+		}
+		if (set.add(id)) {
+			size++;
+		}
+	}
+
+
+	/**
+	 * 拆分为两个消息(消息过大时使用)
+	 * @return
+	 */
+	public InvalidationMessage[] split() {
+		InvalidationMessage first = valueOf(nodeId);
+		InvalidationMessage second = valueOf(nodeId);
+		int half = size / 2;
+		int count = 0;
+		for (Entry<String, Set<Serializable>> entry : ids.entrySet()) {
+			for (Serializable id : entry.getValue()) {
+				(count++ < half ? first : second).add(entry.getKey(), id);
+			}
+		}
+		return new InvalidationMessage[] { first, second };
+	}
+
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public Map<String, Set<Serializable>> getIds() {
+		return ids;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "InvalidationMessage[node=" + nodeId + ", size=" + size + "]";
+	}
+
+}
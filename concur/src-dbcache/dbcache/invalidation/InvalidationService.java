@@ -0,0 +1,338 @@
+package dbcache.invalidation;
+
+import dbcache.DbCacheService;
+import dbcache.EnhancedEntity;
+import dbcache.IEntity;
+import dbcache.conf.DbConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import utils.collections.concurrent.ConcurrentHashMapV8;
+import utils.thread.NamedThreadFactory;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 跨节点缓存失效服务
+ * <br/>多个节点共用数据表时, 实体入库后将id批量广播到其他节点, 其他节点收到后移除对应的实体缓存和索引缓存, 下次访问时重新从数据库加载
+ * <br/>配置了dbCacheInvalidationChannel时生效, 否则不做任何处理
+ * <br/>只保证最终一致: 同一实体仍应避免在多个节点同时修改, 否则未入库的修改可能被覆盖
+ * @see InvalidationChannel
+ * @author Jake
+ */
+@Component
+public class InvalidationService implements InvalidationListener, DisposableBean {
+
+	/**
+	 * logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(InvalidationService.class);
+
+	/** 默认每个消息最多包含的id数量 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/** 默认发送间隔(毫秒) */
+	public static final long DEFAULT_INTERVAL = 50;
+
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	/**
+	 * 失效消息通道
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheInvalidationChannel")
+	private InvalidationChannel channel;
+
+	/**
+	 * 每个消息最多包含的id数量, 待发送的id达到该数量时立即发送
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheInvalidationBatchSize")
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * 发送间隔(毫秒)
+	 */
+	@Autowired(required = false)
+	@Qualifier("dbCacheInvalidationInterval")
+	private long interval = DEFAULT_INTERVAL;
+
+	/**
+	 * 本节点标识
+	 */
+	private final String nodeId = UUID.randomUUID().toString();
+
+	/**
+	 * 待发送的id
+	 */
+	private final Queue<PendingId> pendingQueue = new ConcurrentLinkedQueue<PendingId>();
+
+	private final AtomicInteger pendingSize = new AtomicInteger();
+
+	/**
+	 * 实体类缓存 {类名:实体类}
+	 */
+	private final ConcurrentMap<String, Class<?>> classMap = new ConcurrentHashMapV8<String, Class<?>>();
+
+	private volatile DbConfigFactory configFactory;
+
+	private ScheduledExecutorService executor;
+
+	private volatile boolean enabled;
+
+	/**
+	 * 发送任务
+	 */
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				flush();
+			} catch (Exception e) {
+				logger.error("发送失效消息异常", e);
+			}
+		}
+	};
+
+
+	@PostConstruct
+	public void init() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		if (batchSize <= 0) {
+			batchSize = DEFAULT_BATCH_SIZE;
+		}
+		if (interval <= 0) {
+			interval = DEFAULT_INTERVAL;
+		}
+
+		channel.open(nodeId, this);
+
+		ThreadGroup threadGroup = new ThreadGroup("缓存模块");
+		NamedThreadFactory threadFactory = new NamedThreadFactory(threadGroup, "缓存失效消息发送线程");
+		executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		executor.scheduleWithFixedDelay(flushTask, interval, interval, TimeUnit.MILLISECONDS);
+
+		enabled = true;
+		logger.info("缓存失效通道已打开:{} 节点:{}", channel.getClass().getSimpleName(), nodeId);
+	}
+
+
+	/**
+	 * 提交已入库实体的失效通知
+	 * @param entity 实体对象
+	 */
+	public void publish(Object entity) {
+		if (!enabled || !(entity instanceof IEntity)) {
+			return;
+		}
+		this.publish(entityClassOf(entity), ((IEntity<?>) entity).getId());
+	}
+
+
+	/**
+	 * 提交已入库实体的失效通知
+	 * @param clz 实体类
+	 * @param id 主键id
+	 */
+	public void publish(Class<?> clz, Serializable id) {
+		if (!enabled || id == null) {
+			return;
+		}
+		pendingQueue.offer(new PendingId(clz.getName(), id));
+		if (pendingSize.incrementAndGet() == batchSize) {
+			executor.execute(flushTask);
+		}
+	}
+
+
+	/**
+	 * 发送所有待发送的id
+	 */
+	public synchronized void flush() {
+		while (true) {
+			InvalidationMessage message = InvalidationMessage.valueOf(nodeId);
+			PendingId pending;
+			while (message.size() < batchSize && (pending = pendingQueue.poll()) != null) {
+				pendingSize.decrementAndGet();
+				message.add(pending.className, pending.id);
+			}
+			if (message.isEmpty()) {
+				return;
+			}
+
+			try {
+				channel.send(message);
+			} catch (IOException e) {
+				logger.error("发送失效消息失败:" + message, e);
+			}
+		}
+	}
+
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public void onInvalidation(InvalidationMessage message) {
+		for (Entry<String, Set<Serializable>> entry : message.getIds().entrySet()) {
+			Class<?> clz = this.getEntityClass(entry.getKey());
+			if (clz == null) {
+				continue;
+			}
+
+			// 本节点未使用该实体则无需处理
+			DbCacheService service = this.getConfigFactory().findDbCacheServiceBean(clz);
+			if (service == null) {
+				continue;
+			}
+
+			for (Serializable id : entry.getValue()) {
+				try {
+					service.evict((Comparable) id);
+				} catch (Exception e) {
+					logger.error("移除失效缓存失败:" + entry.getKey() + "#" + id, e);
+				}
+			}
+
+			// 消息中没有索引值, 修改后的索引值或本节点未缓存的实体对应的索引缓存只能整体移除
+			try {
+				service.evictIndexes();
+			} catch (Exception e) {
+				logger.error("移除失效索引缓存失败:" + entry.getKey(), e);
+			}
+		}
+	}
+
+
+	/**
+	 * 移除本节点的实体缓存(如乐观锁冲突时), 下次访问时重新从数据库加载
+	 * @param entity 实体对象
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void evictLocal(Object entity) {
+		if (!(entity instanceof IEntity)) {
+			return;
+		}
+		DbCacheService service = this.getConfigFactory().findDbCacheServiceBean(entityClassOf(entity));
+		if (service != null) {
+			service.evict((Comparable) ((IEntity<?>) entity).getId());
+		}
+	}
+
+
+	// 实体对应的实体类(代理实体取原实体类)
+	private static Class<?> entityClassOf(Object entity) {
+		return entity instanceof EnhancedEntity ?
+				((EnhancedEntity) entity).getEntity().getClass() : entity.getClass();
+	}
+
+
+	/**
+	 * 获取实体类
+	 * @param className 类名
+	 * @return 本节点不存在该类时返回null
+	 */
+	private Class<?> getEntityClass(String className) {
+		Class<?> clz = classMap.get(className);
+		if (clz != null) {
+			return clz;
+		}
+		try {
+			clz = ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+		} catch (Throwable e) {
+			logger.warn("无法识别失效消息中的实体类:{}", className);
+			return null;
+		}
+		classMap.putIfAbsent(className, clz);
+		return clz;
+	}
+
+
+	/**
+	 * 延迟获取DbConfigFactory, 避免与入库服务循环依赖
+	 * @return
+	 */
+	private DbConfigFactory getConfigFactory() {
+		DbConfigFactory configFactory = this.configFactory;
+		if (configFactory == null) {
+			configFactory = applicationContext.getBean(DbConfigFactory.class);
+			this.configFactory = configFactory;
+		}
+		return configFactory;
+	}
+
+
+	/**
+	 * 关闭时发送剩余的id
+	 * <br/>在ContextClosedEvent之后调用, 此时各实体的入库队列已经处理完毕
+	 */
+	@Override
+	public void destroy() throws Exception {
+		if (!enabled) {
+			return;
+		}
+		enabled = false;
+
+		executor.shutdown();
+		executor.awaitTermination(interval * 10, TimeUnit.MILLISECONDS);
+		this.flush();
+		channel.close();
+	}
+
+
+	/**
+	 * 是否已启用
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 本节点标识
+	 * @return
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * 待发送的id数量
+	 * @return
+	 */
+	public int getPendingSize() {
+		return pendingSize.get();
+	}
+
+
+	/**
+	 * 待发送的id
+	 */
+	private static class PendingId {
+
+		final String className;
+
+		final Serializable id;
+
+		PendingId(String className, Serializable id) {
+			this.className = className;
+			this.id = id;
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package dbcache.invalidation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内失效消息通道
+ * <br/>同一JVM内打开的通道互相投递(同步调用), 用于测试多节点场景
+ * @author Jake
+ */
+public class LoopbackInvalidationChannel implements InvalidationChannel {
+
+	/** 已打开的通道 */
+	private static final List<LoopbackInvalidationChannel> CHANNELS = new CopyOnWriteArrayList<LoopbackInvalidationChannel>();
+
+	/** 本节点标识 */
+	private String nodeId;
+
+	/** 消息监听器 */
+	private InvalidationListener listener;
+
+
+	@Override
+	public void open(String nodeId, InvalidationListener listener) throws IOException {
+		this.nodeId = nodeId;
+		this.listener = listener;
+		CHANNELS.add(this);
+	}
+
+
+	@Override
+	public void send(InvalidationMessage message) throws IOException {
+		for (LoopbackInvalidationChannel channel : CHANNELS) {
+			if (channel != this && !channel.nodeId.equals(message.getNodeId())) {
+				channel.listener.onInvalidation(message);
+			}
+		}
+	}
+
+
+	@Override
+	public void close() {
+		CHANNELS.remove(this);
+	}
+
+}
@@ -0,0 +1,240 @@
+package dbcache.invalidation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * UDP组播失效消息通道
+ * <br/>适用于同一网段内的节点, 不保证送达
+ * <br/>单个数据报超过MAX_PACKET_SIZE时自动拆分消息
+ * <br/>数据报来源未经认证, 不使用java序列化, 消息格式固定为:
+ * <pre>
+ * 版本(byte) 节点标识(UTF) 实体类数量(int)
+ *   { 实体类名(UTF) id数量(int) { id类型(byte) id值 } }
+ * </pre>
+ * id只支持Integer, Long, Short和String类型
+ * @author Jake
+ */
+public class MulticastInvalidationChannel implements InvalidationChannel {
+
+	/**
+	 * logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(MulticastInvalidationChannel.class);
+
+	/** 数据报最大长度 */
+	public static final int MAX_PACKET_SIZE = 60000;
+
+	/** 消息格式版本 */
+	private static final byte VERSION = 1;
+
+	/** id类型 */
+	private static final byte ID_INT = 1;
+	private static final byte ID_LONG = 2;
+	private static final byte ID_SHORT = 3;
+	private static final byte ID_STRING = 4;
+
+	/** 组播地址 */
+	private final String group;
+
+	/** 端口 */
+	private final int port;
+
+	/** 组播存活时间(跳数) */
+	private int timeToLive = 1;
+
+	private InetAddress groupAddress;
+
+	private volatile MulticastSocket socket;
+
+	private String nodeId;
+
+
+	/**
+	 * 构造方法
+	 * @param group 组播地址,如 230.0.0.1
+	 * @param port 端口
+	 */
+	public MulticastInvalidationChannel(String group, int port) {
+		this.group = group;
+		this.port = port;
+	}
+
+
+	@Override
+	public void open(String nodeId, final InvalidationListener listener) throws IOException {
+		this.nodeId = nodeId;
+		this.groupAddress = InetAddress.getByName(group);
+
+		final MulticastSocket socket = new MulticastSocket(port);
+		socket.setTimeToLive(timeToLive);
+		socket.joinGroup(groupAddress);
+		this.socket = socket;
+
+		Thread receiver = new Thread("缓存失效消息接收线程") {
+			@Override
+			public void run() {
+				byte[] buf = new byte[MAX_PACKET_SIZE];
+				while (!socket.isClosed()) {
+					DatagramPacket packet = new DatagramPacket(buf, buf.length);
+					try {
+						socket.receive(packet);
+					} catch (IOException e) {
+						if (!socket.isClosed()) {
+							logger.error("接收失效消息失败", e);
+						}
+						continue;
+					}
+
+					InvalidationMessage message = decode(packet);
+					if (message == null || MulticastInvalidationChannel.this.nodeId.equals(message.getNodeId())) {
+						continue;
+					}
+					try {
+						listener.onInvalidation(message);
+					} catch (Exception e) {
+						logger.error("处理失效消息失败:" + message, e);
+					}
+				}
+			}
+		};
+		receiver.setDaemon(true);
+		receiver.start();
+	}
+
+
+	@Override
+	public void send(InvalidationMessage message) throws IOException {
+		MulticastSocket socket = this.socket;
+		if (socket == null) {
+			throw new IOException("通道未打开");
+		}
+
+		byte[] bytes = encode(message);
+		if (bytes.length > MAX_PACKET_SIZE) {
+			if (message.size() <= 1) {
+				throw new IOException("失效消息过大:" + bytes.length);
+			}
+			for (InvalidationMessage part : message.split()) {
+				send(part);
+			}
+			return;
+		}
+		socket.send(new DatagramPacket(bytes, bytes.length, groupAddress, port));
+	}
+
+
+	@Override
+	public void close() {
+		MulticastSocket socket = this.socket;
+		if (socket == null) {
+			return;
+		}
+		this.socket = null;
+		try {
+			socket.leaveGroup(groupAddress);
+		} catch (IOException e) {
+			logger.warn("退出组播组失败", e);
+		}
+		socket.close();
+	}
+
+
+	private byte[] encode(InvalidationMessage message) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+		DataOutputStream out = new DataOutputStream(bos);
+		out.writeByte(VERSION);
+		out.writeUTF(message.getNodeId());
+		out.writeInt(message.getIds().size());
+		for (Entry<String, Set<Serializable>> entry : message.getIds().entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue().size());
+			for (Serializable id : entry.getValue()) {
+				writeId(out, id);
+			}
+		}
+		out.close();
+		return bos.toByteArray();
+	}
+
+
+	private InvalidationMessage decode(DatagramPacket packet) {
+		try {
+			DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(packet.getData(), packet.getOffset(), packet.getLength()));
+			byte version = in.readByte();
+			if (version != VERSION) {
+				throw new IOException("不支持的消息版本:" + version);
+			}
+			InvalidationMessage message = InvalidationMessage.valueOf(in.readUTF());
+			int classCount = in.readInt();
+			for (int i = 0; i < classCount; i++) {
+				String className = in.readUTF();
+				int idCount = in.readInt();
+				for (int j = 0; j < idCount; j++) {
+					message.add(className, readId(in));
+				}
+			}
+			if (in.available() > 0) {
+				throw new IOException("消息长度错误");
+			}
+			return message;
+		} catch (Exception e) {
+			logger.warn("无法解析失效消息, 来自:" + packet.getSocketAddress(), e);
+			return null;
+		}
+	}
+
+
+	private static void writeId(DataOutput out, Serializable id) throws IOException {
+		if (id instanceof Integer) {
+			out.writeByte(ID_INT);
+			out.writeInt((Integer) id);
+		} else if (id instanceof Long) {
+			out.writeByte(ID_LONG);
+			out.writeLong((Long) id);
+		} else if (id instanceof Short) {
+			out.writeByte(ID_SHORT);
+			out.writeShort((Short) id);
+		} else if (id instanceof String) {
+			out.writeByte(ID_STRING);
+			out.writeUTF((String) id);
+		} else {
+			throw new IOException("不支持的id类型:" + (id == null ? null : id.getClass().getName()));
+		}
+	}
+
+
+	private static Serializable readId(DataInput in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case ID_INT:
+			return in.readInt();
+		case ID_LONG:
+			return in.readLong();
+		case ID_SHORT:
+			return in.readShort();
+		case ID_STRING:
+			return in.readUTF();
+		default:
+			throw new IOException("不支持的id类型:" + type);
+		}
+	}
+
+
+	public int getTimeToLive() {
+		return timeToLive;
+	}
+
+	public void setTimeToLive(int timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+}
@@ -0,0 +1,88 @@
+package dbcache.metrics;
+
+import utils.collections.concurrent.ConcurrentHashMapV8;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * DbCache运行统计
+ * <br/>按实体类汇总缓存、索引和入库统计, 以及全局的JDBC语句统计, 通过DbCacheMBean导出
+ * @see dbcache.DbCacheMBean
+ * @author Jake
+ */
+public class DbCacheMetrics {
+
+	/**
+	 * 实体类 - 统计
+	 */
+	private static final ConcurrentMap<Class<?>, EntityMetrics> ENTITY_METRICS = new ConcurrentHashMapV8<Class<?>, EntityMetrics>();
+
+	/**
+	 * JDBC语句统计
+	 */
+	private static final JdbcMetrics JDBC_METRICS = new JdbcMetrics();
+
+
+	/**
+	 * 获取实体类的统计
+	 * @param clazz 实体类
+	 * @return
+	 */
+	public static EntityMetrics getEntityMetrics(Class<?> clazz) {
+		EntityMetrics metrics = ENTITY_METRICS.get(clazz);
+		if (metrics != null) {
+			return metrics;
+		}
+		metrics = new EntityMetrics();
+		EntityMetrics prev = ENTITY_METRICS.putIfAbsent(clazz, metrics);
+		return prev != null ? prev : metrics;
+	}
+
+
+	/**
+	 * 实体类是否有尚未入库的操作
+	 * <br/>有则读取时不能使用从库, 否则会读到入库前的旧数据
+	 * @param clazz 实体类
+	 * @return
+	 */
+	public static boolean hasPendingPersist(Class<?> clazz) {
+		EntityMetrics metrics = ENTITY_METRICS.get(clazz);
+		return metrics != null && metrics.getPendingPersists() > 0;
+	}
+
+
+	/**
+	 * 获取JDBC语句统计
+	 * @return
+	 */
+	public static JdbcMetrics getJdbcMetrics() {
+		return JDBC_METRICS;
+	}
+
+
+	/**
+	 * 获取所有实体统计的快照
+	 * @return {实体类名 : 统计}
+	 */
+	public static Map<String, Map<String, Object>> snapshotEntities() {
+		Map<String, Map<String, Object>> snapshot = new TreeMap<String, Map<String, Object>>();
+		for (Map.Entry<Class<?>, EntityMetrics> entry : ENTITY_METRICS.entrySet()) {
+			snapshot.put(entry.getKey().getName(), entry.getValue().snapshot());
+		}
+		return snapshot;
+	}
+
+
+	/**
+	 * 清零所有统计
+	 */
+	public static void reset() {
+		for (EntityMetrics metrics : ENTITY_METRICS.values()) {
+			metrics.reset();
+		}
+		JDBC_METRICS.reset();
+	}
+
+}
@@ -0,0 +1,210 @@
+package dbcache.metrics;
+
+import utils.collections.concurrent.LongAdder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实体运行统计
+ * <br/>计数使用LongAdder, 耗时单位为微秒
+ * @author Jake
+ */
+public class EntityMetrics {
+
+	/** 缓存命中 */
+	private final LongAdder hits = new LongAdder();
+
+	/** 缓存未命中(从数据库加载) */
+	private final LongAdder misses = new LongAdder();
+
+	/** 加载耗时 */
+	private final Histogram loadTime = new Histogram();
+
+	/** 缓存回收 */
+	private final LongAdder evictions = new LongAdder();
+
+	/** 已回收的实体被再次访问而恢复 */
+	private final LongAdder resurrections = new LongAdder();
+
+	/** 索引缓存命中 */
+	private final LongAdder indexHits = new LongAdder();
+
+	/** 索引缓存未命中 */
+	private final LongAdder indexMisses = new LongAdder();
+
+	/** 索引加载耗时 */
+	private final Histogram indexLoadTime = new Histogram();
+
+	/** 提交新建 */
+	private final LongAdder saves = new LongAdder();
+
+	/** 提交更新 */
+	private final LongAdder updates = new LongAdder();
+
+	/** 提交删除 */
+	private final LongAdder deletes = new LongAdder();
+
+	/** 入库批量大小 */
+	private final Histogram flushBatchSize = new Histogram();
+
+	/** 入库耗时 */
+	private final Histogram flushTime = new Histogram();
+
+	/** 入库失败 */
+	private final LongAdder flushFailures = new LongAdder();
+
+	/** 已提交但尚未入库的操作(不随统计清零) */
+	private final LongAdder pendingPersists = new LongAdder();
+
+
+	public void recordHit() {
+		hits.increment();
+	}
+
+	/**
+	 * 记录缓存未命中
+	 * @param loadNanos 数据库加载耗时(纳秒)
+	 */
+	public void recordMiss(long loadNanos) {
+		misses.increment();
+		loadTime.record(toMicros(loadNanos));
+	}
+
+	public void recordEviction() {
+		evictions.increment();
+	}
+
+	public void recordResurrection() {
+		resurrections.increment();
+	}
+
+	public void recordIndexHit() {
+		indexHits.increment();
+	}
+
+	/**
+	 * 记录索引缓存未命中
+	 * @param loadNanos 数据库加载耗时(纳秒)
+	 */
+	public void recordIndexMiss(long loadNanos) {
+		indexMisses.increment();
+		indexLoadTime.record(toMicros(loadNanos));
+	}
+
+	public void recordSave() {
+		saves.increment();
+	}
+
+	public void recordUpdate() {
+		updates.increment();
+	}
+
+	public void recordDelete() {
+		deletes.increment();
+	}
+
+	/**
+	 * 记录一次入库
+	 * @param batchSize 实体数量
+	 * @param nanos 耗时(纳秒)
+	 */
+	public void recordFlush(int batchSize, long nanos) {
+		flushBatchSize.record(batchSize);
+		flushTime.record(toMicros(nanos));
+	}
+
+	public void recordFlushFailure() {
+		flushFailures.increment();
+	}
+
+	/**
+	 * 记录提交了一个入库操作
+	 */
+	public void incrementPending() {
+		pendingPersists.increment();
+	}
+
+	/**
+	 * 记录一个入库操作已完成(入库成功或者已失效)
+	 */
+	public void decrementPending() {
+		pendingPersists.decrement();
+	}
+
+	/**
+	 * 记录多个入库操作已完成
+	 * @param count 操作数量
+	 */
+	public void decrementPending(int count) {
+		pendingPersists.add(-count);
+	}
+
+	/**
+	 * 获取尚未入库的操作数量
+	 * @return
+	 */
+	public long getPendingPersists() {
+		return pendingPersists.sum();
+	}
+
+
+	private static long toMicros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	// 命中率
+	private static double ratio(long hit, long miss) {
+		long total = hit + miss;
+		return total == 0 ? 0d : (double) hit / total;
+	}
+
+
+	/**
+	 * 获取快照
+	 * @return
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+		long hits = this.hits.sum();
+		long misses = this.misses.sum();
+		snapshot.put("hits", hits);
+		snapshot.put("misses", misses);
+		snapshot.put("hitRatio", ratio(hits, misses));
+		snapshot.put("loadMicros", loadTime.snapshot());
+		snapshot.put("evictions", evictions.sum());
+		snapshot.put("resurrections", resurrections.sum());
+
+		long indexHits = this.indexHits.sum();
+		long indexMisses = this.indexMisses.sum();
+		snapshot.put("indexHits", indexHits);
+		snapshot.put("indexMisses", indexMisses);
+		snapshot.put("indexHitRatio", ratio(indexHits, indexMisses));
+		snapshot.put("indexLoadMicros", indexLoadTime.snapshot());
+
+		snapshot.put("saves", saves.sum());
+		snapshot.put("updates", updates.sum());
+		snapshot.put("deletes", deletes.sum());
+		snapshot.put("flushBatchSize", flushBatchSize.snapshot());
+		snapshot.put("flushMicros", flushTime.snapshot());
+		snapshot.put("flushFailures", flushFailures.sum());
+		snapshot.put("pendingPersists", pendingPersists.sum());
+		return snapshot;
+	}
+
+
+	/**
+	 * 清零
+	 */
+	public void reset() {
+		for (LongAdder adder : new LongAdder[] {hits, misses, evictions, resurrections,
+				indexHits, indexMisses, saves, updates, deletes, flushFailures}) {
+			adder.reset();
+		}
+		for (Histogram histogram : new Histogram[] {loadTime, indexLoadTime, flushBatchSize, flushTime}) {
+			histogram.reset();
+		}
+	}
+
+}
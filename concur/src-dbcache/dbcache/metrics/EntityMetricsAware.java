@@ -0,0 +1,16 @@
+package dbcache.metrics;
+
+/**
+ * 需要记录实体统计的组件(如实体缓存容器)
+ * <br/>创建DbCacheService时注入对应实体类的统计
+ * @author Jake
+ */
+public interface EntityMetricsAware {
+
+	/**
+	 * 设置实体统计
+	 * @param metrics 实体统计
+	 */
+	void setEntityMetrics(EntityMetrics metrics);
+
+}
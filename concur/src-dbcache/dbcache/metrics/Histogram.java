@@ -0,0 +1,125 @@
+package dbcache.metrics;
+
+import utils.collections.concurrent.LongAdder;
+import utils.collections.concurrent.LongMaxUpdater;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 分布统计
+ * <br/>按2的幂分桶计数, 每个桶是一个LongAdder, 多线程记录时没有争用
+ * <br/>百分位取所在桶的上限, 误差在2倍以内
+ * @author Jake
+ */
+public class Histogram {
+
+	/**
+	 * 桶数量(0 和 [2^(i-1), 2^i) i=1..63)
+	 */
+	private static final int BUCKET_COUNT = 64;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongMaxUpdater max = new LongMaxUpdater();
+
+
+	public Histogram() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+
+	/**
+	 * 记录一个值
+	 * @param value 值(小于0按0计)
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(value)].increment();
+		count.increment();
+		total.add(value);
+		max.update(value);
+	}
+
+
+	/**
+	 * 记录次数
+	 * @return
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+
+	/**
+	 * 估算百分位值
+	 * @param percent 百分比(0~1)
+	 * @return
+	 */
+	public long getPercentile(double percent) {
+		long[] counts = new long[BUCKET_COUNT];
+		long sum = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets[i].sum();
+			sum += counts[i];
+		}
+		if (sum == 0) {
+			return 0;
+		}
+
+		long target = (long) Math.ceil(sum * percent);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if (seen >= target && counts[i] > 0) {
+				return Math.min(upperBound(i), max.max());
+			}
+		}
+		return max.max();
+	}
+
+
+	// 桶的上限
+	private static long upperBound(int bucket) {
+		return bucket == 0 ? 0 : bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+
+	/**
+	 * 获取快照
+	 * @return {count, avg, max, p50, p90, p99}
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+		long count = this.count.sum();
+		snapshot.put("count", count);
+		snapshot.put("avg", count == 0 ? 0 : this.total.sum() / count);
+		snapshot.put("max", count == 0 ? 0 : this.max.max());
+		snapshot.put("p50", getPercentile(0.5));
+		snapshot.put("p90", getPercentile(0.9));
+		snapshot.put("p99", getPercentile(0.99));
+		return snapshot;
+	}
+
+
+	/**
+	 * 清零
+	 */
+	public void reset() {
+		for (LongAdder bucket : buckets) {
+			bucket.reset();
+		}
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+}
@@ -0,0 +1,97 @@
+package dbcache.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC语句执行统计
+ * <br/>按语句类型分别统计单条执行和批量执行的耗时(微秒)
+ * @author Jake
+ */
+public class JdbcMetrics {
+
+	/**
+	 * 语句类型
+	 */
+	public enum SqlType {
+
+		SELECT, INSERT, UPDATE, DELETE, OTHER;
+
+		/**
+		 * 根据SQL语句的首个关键字判断类型
+		 * @param sql SQL语句
+		 * @return
+		 */
+		public static SqlType valueOfSql(String sql) {
+			if (sql == null) {
+				return OTHER;
+			}
+			int start = 0;
+			while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+				start++;
+			}
+			for (SqlType type : values()) {
+				String name = type.name();
+				if (sql.regionMatches(true, start, name, 0, name.length())) {
+					return type;
+				}
+			}
+			return OTHER;
+		}
+	}
+
+
+	private final Histogram[] executeTimes = new Histogram[SqlType.values().length];
+
+	private final Histogram[] batchTimes = new Histogram[SqlType.values().length];
+
+
+	public JdbcMetrics() {
+		for (int i = 0; i < executeTimes.length; i++) {
+			executeTimes[i] = new Histogram();
+			batchTimes[i] = new Histogram();
+		}
+	}
+
+
+	/**
+	 * 记录一次执行
+	 * @param type 语句类型
+	 * @param batch 是否批量执行
+	 * @param nanos 耗时(纳秒)
+	 */
+	public void record(SqlType type, boolean batch, long nanos) {
+		(batch ? batchTimes : executeTimes)[type.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+
+	/**
+	 * 获取快照
+	 * @return {语句类型[_BATCH] : 耗时分布}, 只包含执行过的类型
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> snapshot = new LinkedHashMap<String, Object>();
+		for (SqlType type : SqlType.values()) {
+			if (executeTimes[type.ordinal()].getCount() > 0) {
+				snapshot.put(type.name(), executeTimes[type.ordinal()].snapshot());
+			}
+			if (batchTimes[type.ordinal()].getCount() > 0) {
+				snapshot.put(type.name() + "_BATCH", batchTimes[type.ordinal()].snapshot());
+			}
+		}
+		return snapshot;
+	}
+
+
+	/**
+	 * 清零
+	 */
+	public void reset() {
+		for (int i = 0; i < executeTimes.length; i++) {
+			executeTimes[i].reset();
+			batchTimes[i].reset();
+		}
+	}
+
+}
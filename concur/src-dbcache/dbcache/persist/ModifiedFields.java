@@ -0,0 +1,253 @@
+package dbcache.persist;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 实体修改过的属性集合(线程安全)
+ * <br/>代理实体的修改方法中调用mark标记属性, 入库时drain取出并清除标记
+ * <br/>属性数量不超过64时使用单个long位图, 否则使用long数组
+ * @author Jake
+ */
+public abstract class ModifiedFields {
+
+	/** 单个long可记录的属性数量 */
+	public static final int SINGLE_WORD_SIZE = 64;
+
+
+	/**
+	 * 获取实例
+	 * @param length 属性数量
+	 * @return
+	 */
+	public static ModifiedFields valueOf(int length) {
+		if (length <= SINGLE_WORD_SIZE) {
+			return new SingleWord(length);
+		}
+		return new MultiWord(length);
+	}
+
+
+	/**
+	 * 标记属性已修改
+	 * @param index 属性序号
+	 */
+	public abstract void mark(int index);
+
+
+	/**
+	 * 属性是否已修改
+	 * @param index 属性序号
+	 * @return
+	 */
+	public abstract boolean isModified(int index);
+
+
+	/**
+	 * 取出已修改的属性序号并清除标记
+	 * @return 按序号升序排列
+	 */
+	public abstract List<Integer> drain();
+
+
+	/**
+	 * 取出标记到新的实例并清除当前实例的标记
+	 * <br/>入库时取出后当前实例可继续记录新的修改
+	 * @return
+	 */
+	public abstract ModifiedFields detach();
+
+
+	/**
+	 * 转换为位图(不清除标记)
+	 * <br/>序号为动态更新的属性序号, 与transfer的ClassInfo属性顺序不一定一致, 增量编码需使用toFieldNames
+	 * @return
+	 */
+	public abstract BitSet toBitSet();
+
+
+	/**
+	 * 转换为已修改的属性名(不清除标记)
+	 * <br/>可用于增量编码修改过的属性, 如transfer.Transfer#encodeDelta(Object, String...)
+	 * @param fieldNames 属性名数组, 下标为属性序号, 见dbcache.support.asm.ModifiedFieldMethodAspect#getFieldNames(Class)
+	 * @return 按序号升序排列
+	 */
+	public String[] toFieldNames(String[] fieldNames) {
+		if (fieldNames.length != length()) {
+			throw new IllegalArgumentException("属性数量不一致:" + fieldNames.length + ", 应为:" + length());
+		}
+		BitSet bits = toBitSet();
+		String[] result = new String[bits.cardinality()];
+		int i = 0;
+		for (int index = bits.nextSetBit(0); index >= 0; index = bits.nextSetBit(index + 1)) {
+			result[i++] = fieldNames[index];
+		}
+		return result;
+	}
+
+
+	/**
+	 * 属性数量
+	 * @return
+	 */
+	public abstract int length();
+
+
+	// 添加位图中标记的序号
+	static void addIndexes(List<Integer> result, long bits, int base) {
+		while (bits != 0) {
+			result.add(base + Long.numberOfTrailingZeros(bits));
+			bits &= bits - 1;
+		}
+	}
+
+
+	// 设置位图中标记的序号
+	static void setIndexes(BitSet result, long bits, int base) {
+		while (bits != 0) {
+			result.set(base + Long.numberOfTrailingZeros(bits));
+			bits &= bits - 1;
+		}
+	}
+
+
+	/**
+	 * 单个long位图
+	 */
+	static final class SingleWord extends ModifiedFields {
+
+		private static final AtomicLongFieldUpdater<SingleWord> BITS_UPDATER =
+				AtomicLongFieldUpdater.newUpdater(SingleWord.class, "bits");
+
+		private final int length;
+
+		private volatile long bits;
+
+		SingleWord(int length) {
+			this.length = length;
+		}
+
+		@Override
+		public void mark(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index " + index);
+			}
+			long mask = 1L << index;
+			long current;
+			do {
+				current = bits;
+				if ((current & mask) != 0) {
+					return;
+				}
+			} while (!BITS_UPDATER.compareAndSet(this, current, current | mask));
+		}
+
+		@Override
+		public boolean isModified(int index) {
+			return (bits & (1L << index)) != 0;
+		}
+
+		@Override
+		public List<Integer> drain() {
+			long drained = BITS_UPDATER.getAndSet(this, 0L);
+			List<Integer> result = new ArrayList<Integer>(Long.bitCount(drained));
+			addIndexes(result, drained, 0);
+			return result;
+		}
+
+		@Override
+		public BitSet toBitSet() {
+			BitSet result = new BitSet(length);
+			setIndexes(result, bits, 0);
+			return result;
+		}
+
+		@Override
+		public ModifiedFields detach() {
+			SingleWord result = new SingleWord(length);
+			result.bits = BITS_UPDATER.getAndSet(this, 0L);
+			return result;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+	}
+
+
+	/**
+	 * long数组位图
+	 */
+	static final class MultiWord extends ModifiedFields {
+
+		private final int length;
+
+		private final AtomicLongArray words;
+
+		MultiWord(int length) {
+			this.length = length;
+			this.words = new AtomicLongArray((length + SINGLE_WORD_SIZE - 1) / SINGLE_WORD_SIZE);
+		}
+
+		@Override
+		public void mark(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index " + index);
+			}
+			int word = index >>> 6;
+			long mask = 1L << index;
+			long current;
+			do {
+				current = words.get(word);
+				if ((current & mask) != 0) {
+					return;
+				}
+			} while (!words.compareAndSet(word, current, current | mask));
+		}
+
+		@Override
+		public boolean isModified(int index) {
+			return (words.get(index >>> 6) & (1L << index)) != 0;
+		}
+
+		@Override
+		public List<Integer> drain() {
+			List<Integer> result = new ArrayList<Integer>();
+			for (int i = 0; i < words.length(); i++) {
+				long drained = words.getAndSet(i, 0L);
+				if (drained != 0) {
+					addIndexes(result, drained, i * SINGLE_WORD_SIZE);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public BitSet toBitSet() {
+			BitSet result = new BitSet(length);
+			for (int i = 0; i < words.length(); i++) {
+				setIndexes(result, words.get(i), i * SINGLE_WORD_SIZE);
+			}
+			return result;
+		}
+
+		@Override
+		public ModifiedFields detach() {
+			MultiWord result = new MultiWord(length);
+			for (int i = 0; i < words.length(); i++) {
+				result.words.set(i, words.getAndSet(i, 0L));
+			}
+			return result;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+	}
+
+}
@@ -1,9 +1,9 @@
 package dbcache.persist.service;
 
 import dbcache.dbaccess.DbAccessService;
+import dbcache.persist.ModifiedFields;
 
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * 批量数据库管理器接口
@@ -18,6 +18,13 @@ public interface DbBatchAccessService extends DbAccessService {
 	 */
 	void save(Class<?> clzz, Collection<Object> entitys);
 
+	/**
+	 * 批量保存或更新实体对象(主键已存在时更新)
+	 * @param clzz 实体类
+	 * @param entitys 实体对象集合
+	 */
+	void saveOrUpdate(Class<?> clzz, Collection<Object> entitys);
+
 	/**
 	 * 批量更新实体对象
 	 * @param clzz 实体类
@@ -30,7 +37,7 @@ public interface DbBatchAccessService extends DbAccessService {
 	 * @param entity 实体
 	 * @param modifiedFields 修改过的属性集合(线程安全)
 	 */
-	<T> void update(T entity, AtomicIntegerArray modifiedFields);
+	<T> void update(T entity, ModifiedFields modifiedFields);
 	
 	/**
 	 * 批量删除实体对象
@@ -65,4 +65,10 @@ public interface DbPersistService {
 	 */
 	ExecutorService getThreadPool();
 
+	/**
+	 * 获取等待入库的任务数量
+	 * @return
+	 */
+	int getQueueSize();
+
 }
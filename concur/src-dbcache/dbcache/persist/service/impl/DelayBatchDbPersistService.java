@@ -1,9 +1,11 @@
 package dbcache.persist.service.impl;
 
 import dbcache.cache.CacheUnit;
+import dbcache.cdc.ChangeCaptureService;
 import dbcache.conf.impl.CacheConfig;
 import dbcache.conf.DbRuleService;
 import dbcache.dbaccess.DbAccessService;
+import dbcache.metrics.DbCacheMetrics;
 import dbcache.CacheObject;
 import dbcache.IEntity;
 import dbcache.persist.PersistStatus;
@@ -60,6 +62,9 @@ public class DelayBatchDbPersistService implements DbPersistService {
 	@Autowired
 	private DbRuleService dbRuleService;
 
+	@Autowired
+	private ChangeCaptureService changeCaptureService;
+
 	
 	@Autowired
 	@Qualifier("jdbcDbAccessServiceImpl")
@@ -74,6 +79,9 @@ public class DelayBatchDbPersistService implements DbPersistService {
 	// 批量入库操作
 	protected void flushBatchTask() {
 		
+		// 本次插入的实体, 插入的是实体当前状态, 不需要再执行更新
+		Set<CacheObject<?>> saved = Collections.newSetFromMap(new IdentityHashMap<CacheObject<?>, Boolean>());
+
 		// 保存
 		for (Entry<Class<?>, LinkedList<CacheObject<?>>> entry : this.batchTasks.saveBatchQueue.entrySet()) {
 			try {
@@ -83,13 +91,29 @@ public class DelayBatchDbPersistService implements DbPersistService {
 				}
 				List<Object> entityList = new ArrayList<Object>();
 				for (CacheObject<?> cacheObj : list) {
-					if (cacheObj.getPersistStatus() == PersistStatus.TRANSIENT) {
+					// 加入批量任务时已设置为PERSIST
+					if (cacheObj.getPersistStatus() != PersistStatus.DELETED) {
 						entityList.add(cacheObj.getEntity());
 					}
 				}
-				this.dbAccessService.save(entry.getKey(), entityList);
+				// 上次批量插入失败时可能已部分插入, 使用saveOrUpdate避免主键冲突
+				long start = System.nanoTime();
+				if (this.batchTasks.retrySaveClasses.contains(entry.getKey())) {
+					this.dbAccessService.saveOrUpdate(entry.getKey(), entityList);
+					this.batchTasks.retrySaveClasses.remove(entry.getKey());
+				} else {
+					this.dbAccessService.save(entry.getKey(), entityList);
+				}
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).recordFlush(entityList.size(), System.nanoTime() - start);
+				for (Object entity : entityList) {
+					this.changeCaptureService.captureSave(entity);
+				}
+				saved.addAll(list);
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).decrementPending(list.size());
 				list.clear();
 			} catch (Exception e) {
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).recordFlushFailure();
+				this.batchTasks.retrySaveClasses.add(entry.getKey());
 				e.printStackTrace();
 			}
 		}
@@ -103,11 +127,22 @@ public class DelayBatchDbPersistService implements DbPersistService {
 				}
 				List<Object> entityList = new ArrayList<Object>();
 				for (CacheObject<?> cacheObj : list) {
-					entityList.add(cacheObj.getEntity());
+					if (!saved.contains(cacheObj)) {
+						entityList.add(cacheObj.getEntity());
+					}
+				}
+				if (!entityList.isEmpty()) {
+					long start = System.nanoTime();
+					this.dbAccessService.update(entry.getKey(), entityList);
+					DbCacheMetrics.getEntityMetrics(entry.getKey()).recordFlush(entityList.size(), System.nanoTime() - start);
+					for (Object entity : entityList) {
+						this.changeCaptureService.captureUpdate(entity);
+					}
 				}
-				this.dbAccessService.update(entry.getKey(), entityList);
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).decrementPending(list.size());
 				list.clear();
 			} catch (Exception e) {
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).recordFlushFailure();
 				e.printStackTrace();
 			}
 		}
@@ -125,9 +160,16 @@ public class DelayBatchDbPersistService implements DbPersistService {
 						entityList.add(cacheObj.getEntity());
 					}
 				}
+				long start = System.nanoTime();
 				this.dbAccessService.delete(entry.getKey(), entityList);
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).recordFlush(entityList.size(), System.nanoTime() - start);
+				for (Object entity : entityList) {
+					this.changeCaptureService.captureDelete(entity);
+				}
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).decrementPending(list.size());
 				list.clear();
 			} catch (Exception e) {
+				DbCacheMetrics.getEntityMetrics(entry.getKey()).recordFlushFailure();
 				e.printStackTrace();
 			}
 		}
@@ -162,13 +204,14 @@ public class DelayBatchDbPersistService implements DbPersistService {
 			final DbAccessService dbAccessService,
 			final CacheConfig<T> cacheConfig) {
 
-		this.handlePersist(new PersistAction() {
+		this.handlePersist(cacheObject, new PersistAction() {
 
 			@Override
 			public void run() {
 
 				// 判断是否有效
 				if(!this.valid()) {
+					removePending(cacheObject);
 					return;
 				}
 
@@ -208,7 +251,7 @@ public class DelayBatchDbPersistService implements DbPersistService {
 			final DbAccessService dbAccessService,
 			final CacheConfig<T> cacheConfig) {
 
-		this.handlePersist(new PersistAction() {
+		this.handlePersist(cacheObject, new PersistAction() {
 
 			@Override
 			public void run() {
@@ -241,12 +284,13 @@ public class DelayBatchDbPersistService implements DbPersistService {
 			final Object key,
 			final CacheUnit cacheUnit) {
 
-		this.handlePersist(new PersistAction() {
+		this.handlePersist(cacheObject, new PersistAction() {
 
 			@Override
 			public void run() {
 				// 判断是否有效
 				if (!this.valid()) {
+					removePending(cacheObject);
 					return;
 				}
 				// 添加持久化任务到批量任务队列
@@ -273,10 +317,17 @@ public class DelayBatchDbPersistService implements DbPersistService {
 	 * 提交持久化任务
 	 * @param persistAction
 	 */
-	private void handlePersist(PersistAction persistAction) {
+	private void handlePersist(CacheObject<?> cacheObject, PersistAction persistAction) {
+		DbCacheMetrics.getEntityMetrics(cacheObject.getEntity().getClass()).incrementPending();
 		updateQueue.add(persistAction);
 	}
 
+
+	// 已失效的入库操作不再等待入库
+	private void removePending(CacheObject<?> cacheObject) {
+		DbCacheMetrics.getEntityMetrics(cacheObject.getEntity().getClass()).decrementPending();
+	}
+
 	
 	// 处理入库任务
 	private void processAction() {
@@ -315,8 +366,8 @@ public class DelayBatchDbPersistService implements DbPersistService {
 						}
 						
 						do {
-							//执行入库
-							if (persistAction != null && persistAction.valid()) {
+							//执行入库, 已失效的操作在run()中跳过
+							if (persistAction != null) {
 								persistAction.run();
 							}
 							if (Thread.interrupted()) {
@@ -432,6 +483,12 @@ public class DelayBatchDbPersistService implements DbPersistService {
 	}
 
 
+	@Override
+	public int getQueueSize() {
+		return updateQueue.size() + swapQueue.size();
+	}
+
+
 	/**
 	 * 分类批量任务
 	 * @author Jake
@@ -445,6 +502,9 @@ public class DelayBatchDbPersistService implements DbPersistService {
 
 		final Map<Class<?>, LinkedList<CacheObject<?>>> deleteBatchQueue = new HashMap<Class<?>, LinkedList<CacheObject<?>>>();
 
+		/** 批量插入失败需要重试的实体类 */
+		final Set<Class<?>> retrySaveClasses = new HashSet<Class<?>>();
+
 		// 添加插入数据任务
 		public void addSaveTask(CacheObject<?> object) {
 			LinkedList<CacheObject<?>> list = saveBatchQueue.get(object.getEntity().getClass());
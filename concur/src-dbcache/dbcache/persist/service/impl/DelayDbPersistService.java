@@ -2,10 +2,15 @@ package dbcache.persist.service.impl;
 
 import dbcache.CacheObject;
 import dbcache.IEntity;
+import dbcache.cdc.ChangeCaptureService;
+import dbcache.cdc.ChangeRecord;
 import dbcache.cache.CacheUnit;
 import dbcache.conf.DbRuleService;
 import dbcache.conf.impl.CacheConfig;
 import dbcache.dbaccess.DbAccessService;
+import dbcache.metrics.DbCacheMetrics;
+import dbcache.metrics.EntityMetrics;
+import dbcache.persist.ModifiedFields;
 import dbcache.persist.PersistStatus;
 import dbcache.persist.service.DbPersistService;
 import org.apache.commons.lang.StringUtils;
@@ -48,6 +53,9 @@ public class DelayDbPersistService implements DbPersistService {
 	@Autowired
 	private DbRuleService dbRuleService;
 
+	@Autowired
+	private ChangeCaptureService changeCaptureService;
+
 	/**
 	 * 入库线程池
 	 */
@@ -76,7 +84,11 @@ public class DelayDbPersistService implements DbPersistService {
 			final DbAccessService dbAccessService,
 			final CacheConfig<T> cacheConfig) {
 
-		this.handlePersist(new PersistAction() {
+		this.handlePersist(cacheObject, new PersistAction() {
+
+			// 是否已执行过(失败后入库线程会重试同一个操作)
+			private boolean executed;
+
 			@Override
 			public void run() {
 				// 判断是否有效
@@ -86,8 +98,14 @@ public class DelayDbPersistService implements DbPersistService {
 				Object entity = cacheObject.getEntity();
 				// 持久化前操作
 				cacheObject.doBeforePersist(cacheConfig);
-				// 持久化
-				dbAccessService.save(entity);
+				// 持久化, 重试时使用saveOrUpdate避免主键冲突
+				if (executed) {
+					dbAccessService.saveOrUpdate(entity);
+				} else {
+					executed = true;
+					dbAccessService.save(entity);
+				}
+				changeCaptureService.captureSave(entity);
 				// 设置更新状态
 				cacheObject.setPersistStatus(PersistStatus.PERSIST);
 			}
@@ -114,16 +132,21 @@ public class DelayDbPersistService implements DbPersistService {
 			final DbAccessService dbAccessService,
 			final CacheConfig<T> cacheConfig) {
 
-		this.handlePersist(new PersistAction() {
+		this.handlePersist(cacheObject, new PersistAction() {
 			@Override
 			public void run() {
 				// 持久化前的操作
 				cacheObject.doBeforePersist(cacheConfig);
 				//持久化
 				if (cacheConfig.isEnableDynamicUpdate()) {
-					dbAccessService.update(cacheObject.getEntity(), cacheObject.getModifiedFields());
+					// 取出本次入库的修改标记, 入库期间的新修改留到下次
+					ModifiedFields modifiedFields = cacheObject.getModifiedFields().detach();
+					ChangeRecord changeRecord = changeCaptureService.prepareUpdate(cacheObject.getEntity(), modifiedFields);
+					dbAccessService.update(cacheObject.getEntity(), modifiedFields);
+					changeCaptureService.append(changeRecord);
 				} else {
 					dbAccessService.update(cacheObject.getEntity());
+					changeCaptureService.captureUpdate(cacheObject.getEntity());
 				}
 			}
 
@@ -146,7 +169,7 @@ public class DelayDbPersistService implements DbPersistService {
 			final Object key,
 			final CacheUnit cacheUnit) {
 
-		this.handlePersist(new PersistAction() {
+		this.handlePersist(cacheObject, new PersistAction() {
 			@Override
 			public void run() {
 				// 判断是否有效
@@ -155,6 +178,7 @@ public class DelayDbPersistService implements DbPersistService {
 				}
 				// 持久化
 				dbAccessService.delete(cacheObject.getEntity());
+				changeCaptureService.captureDelete(cacheObject.getEntity());
 			}
 
 			@Override
@@ -174,8 +198,9 @@ public class DelayDbPersistService implements DbPersistService {
 	 * 提交持久化任务
 	 * @param persistAction
 	 */
-	private void handlePersist(PersistAction persistAction) {
-		updateQueue.add(QueuedAction.valueOf(persistAction));
+	private void handlePersist(CacheObject<?> cacheObject, PersistAction persistAction) {
+		updateQueue.add(QueuedAction.valueOf(persistAction,
+				DbCacheMetrics.getEntityMetrics(cacheObject.getEntity().getClass())));
 	}
 	
 	
@@ -204,6 +229,8 @@ public class DelayDbPersistService implements DbPersistService {
 						}
 						//执行入库
 						updateAction.doRunTask();
+					} else {
+						updateAction.done();
 					}
 
 					if (Thread.interrupted()) {
@@ -264,12 +291,14 @@ public class DelayDbPersistService implements DbPersistService {
 		while (updateAction != null) {
 			//执行入库
 			updateAction.persistAction.run();
+			updateAction.done();
 			updateAction = this.updateQueue.poll();
 		}
 
 		//入库正在延迟处理的实体
 		if(currentDelayUpdateAction != null) {
 			currentDelayUpdateAction.persistAction.run();
+			currentDelayUpdateAction.done();
 		}
 	}
 
@@ -294,6 +323,12 @@ public class DelayDbPersistService implements DbPersistService {
 	}
 
 
+	@Override
+	public int getQueueSize() {
+		return updateQueue.size();
+	}
+
+
 	/**
 	 * 延迟更新操作
 	 * @author Jake
@@ -303,19 +338,44 @@ public class DelayDbPersistService implements DbPersistService {
 
 		final PersistAction persistAction;
 
+		final EntityMetrics metrics;
+
 		final long createTime = System.currentTimeMillis();
 
-		public QueuedAction(PersistAction persistAction) {
+		/** 是否已完成(入库成功或者已失效) */
+		private volatile boolean done;
+
+		public QueuedAction(PersistAction persistAction, EntityMetrics metrics) {
 			this.persistAction = persistAction;
+			this.metrics = metrics;
+			metrics.incrementPending();
 		}
 
-		public static QueuedAction valueOf(PersistAction persistAction) {
-			return new QueuedAction(persistAction);
+		public static QueuedAction valueOf(PersistAction persistAction, EntityMetrics metrics) {
+			return new QueuedAction(persistAction, metrics);
 		}
 
 		public void doRunTask() {
 			if (persistAction.valid()) {
-				persistAction.run();
+				long start = System.nanoTime();
+				try {
+					persistAction.run();
+				} catch (RuntimeException e) {
+					metrics.recordFlushFailure();
+					throw e;
+				}
+				metrics.recordFlush(1, System.nanoTime() - start);
+			}
+			done();
+		}
+
+		/**
+		 * 标记为已完成, 失败重试期间仍视为未入库
+		 */
+		public void done() {
+			if (!done) {
+				done = true;
+				metrics.decrementPending();
 			}
 		}
 
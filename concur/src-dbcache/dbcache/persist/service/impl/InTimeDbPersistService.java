@@ -2,10 +2,15 @@ package dbcache.persist.service.impl;
 
 import dbcache.CacheObject;
 import dbcache.IEntity;
+import dbcache.cdc.ChangeCaptureService;
+import dbcache.cdc.ChangeRecord;
 import dbcache.cache.CacheUnit;
 import dbcache.conf.DbRuleService;
 import dbcache.conf.impl.CacheConfig;
 import dbcache.dbaccess.DbAccessService;
+import dbcache.metrics.DbCacheMetrics;
+import dbcache.metrics.EntityMetrics;
+import dbcache.persist.ModifiedFields;
 import dbcache.persist.PersistStatus;
 import dbcache.persist.service.DbPersistService;
 import org.slf4j.Logger;
@@ -15,7 +20,6 @@ import org.springframework.stereotype.Component;
 import utils.JsonUtils;
 import utils.thread.NamedThreadFactory;
 import utils.thread.ThreadUtils;
-import utils.typesafe.SafeType;
 import utils.typesafe.finnal.FinalCommitActor;
 
 import javax.annotation.PostConstruct;
@@ -23,6 +27,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * 即时入库实现
@@ -60,6 +65,9 @@ public class InTimeDbPersistService implements DbPersistService {
 	@Autowired
 	private DbRuleService dbRuleService;
 
+	@Autowired
+	private ChangeCaptureService changeCaptureService;
+
 
 	@PostConstruct
 	@SuppressWarnings("unchecked")
@@ -98,8 +106,11 @@ public class InTimeDbPersistService implements DbPersistService {
 
 		this.handlePersist(new PersistAction(cacheObject) {
 
+			// 是否为重试(上次可能已经插入成功)
+			private boolean retry;
+
 			@Override
-			public void run() {
+			protected void doRun() {
 				// 判断是否有效
 				if (!this.valid()) {
 					return;
@@ -107,14 +118,23 @@ public class InTimeDbPersistService implements DbPersistService {
 				Object entity = cacheObject.getEntity();
 				// 持久化前操作
 				cacheObject.doBeforePersist(cacheConfig);
-				// 持久化
-				dbAccessService.save(entity);
+				// 持久化, 重试时使用saveOrUpdate避免主键冲突
+				long start = System.nanoTime();
+				if (retry) {
+					dbAccessService.saveOrUpdate(entity);
+				} else {
+					dbAccessService.save(entity);
+				}
+				changeCaptureService.captureSave(entity);
+				metrics.recordFlush(1, System.nanoTime() - start);
 				// 设置状态为持久化
 				cacheObject.setPersistStatus(PersistStatus.PERSIST);
 			}
 			
 			@Override
 			public void onException(Throwable t) {
+				metrics.recordFlushFailure();
+				retry = true;
 				retryQueue.add(this);
 			}
 
@@ -141,19 +161,27 @@ public class InTimeDbPersistService implements DbPersistService {
 		this.handlePersist(new PersistAction(cacheObject) {
 
 			@Override
-			public void run() {
+			protected void doRun() {
 				// 持久化前的操作
 				cacheObject.doBeforePersist(cacheConfig);
 				//持久化
+				long start = System.nanoTime();
 				if (cacheConfig.isEnableDynamicUpdate()) {
-					dbAccessService.update(cacheObject.getEntity(), cacheObject.getModifiedFields());
+					// 取出本次入库的修改标记, 入库期间的新修改留到下次
+					ModifiedFields modifiedFields = cacheObject.getModifiedFields().detach();
+					ChangeRecord changeRecord = changeCaptureService.prepareUpdate(cacheObject.getEntity(), modifiedFields);
+					dbAccessService.update(cacheObject.getEntity(), modifiedFields);
+					changeCaptureService.append(changeRecord);
 				} else {
 					dbAccessService.update(cacheObject.getEntity());
+					changeCaptureService.captureUpdate(cacheObject.getEntity());
 				}
+				metrics.recordFlush(1, System.nanoTime() - start);
 			}
 
 			@Override
 			public void onException(Throwable t) {
+				metrics.recordFlushFailure();
 				retryQueue.add(this);
 			}
 
@@ -175,17 +203,21 @@ public class InTimeDbPersistService implements DbPersistService {
 
 		this.handlePersist(new PersistAction(cacheObject) {
 			@Override
-			public void run() {
+			protected void doRun() {
 				// 判断是否有效
 				if (!this.valid()) {
 					return;
 				}
 				// 持久化
+				long start = System.nanoTime();
 				dbAccessService.delete(cacheObject.getEntity());
+				changeCaptureService.captureDelete(cacheObject.getEntity());
+				metrics.recordFlush(1, System.nanoTime() - start);
 			}
 			
 			@Override
 			public void onException(Throwable t) {
+				metrics.recordFlushFailure();
 				retryQueue.add(this);
 			}
 
@@ -267,6 +299,16 @@ public class InTimeDbPersistService implements DbPersistService {
 	}
 
 
+	@Override
+	public int getQueueSize() {
+		int size = retryQueue.size();
+		if (DB_POOL_SERVICE instanceof ThreadPoolExecutor) {
+			size += ((ThreadPoolExecutor) DB_POOL_SERVICE).getQueue().size();
+		}
+		return size;
+	}
+
+
 	/**
 	 * 提交持久化任务
 	 * @param persistAction
@@ -293,9 +335,34 @@ public class InTimeDbPersistService implements DbPersistService {
 
 
 	static abstract class PersistAction extends FinalCommitActor {
-		public PersistAction(SafeType safeType) {
-			super(safeType);
+
+		/** 实体运行统计 */
+		final EntityMetrics metrics;
+
+		public PersistAction(CacheObject<?> cacheObject) {
+			super(cacheObject);
+			this.metrics = DbCacheMetrics.getEntityMetrics(cacheObject.getEntity().getClass());
+			this.metrics.incrementPending();
 		}
+
+		@Override
+		public void run() {
+			// 失败时在onException中加入重试队列, 仍视为未入库
+			doRun();
+			metrics.decrementPending();
+		}
+
+		@Override
+		public void onDiscard() {
+			// 由后提交的操作入库
+			metrics.decrementPending();
+		}
+
+		/**
+		 * 执行持久化操作
+		 */
+		protected abstract void doRun();
+
 		public abstract String getPersistInfo();
 	}
 
@@ -0,0 +1,47 @@
+package dbcache.pkey;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存id段分配器
+ * <br/>从启动时加载的当前最大id开始分配, 只适用于单节点
+ * @author Jake
+ */
+public class AtomicIdRangeAllocator implements IdRangeAllocator {
+
+	private final AtomicLong nextValue;
+
+	private final long minValue;
+
+	private final long maxValue;
+
+
+	/**
+	 * 构造函数
+	 * @param currValue 当前值
+	 * @param maxValue 允许分配的最大id
+	 */
+	public AtomicIdRangeAllocator(long currValue, long maxValue) {
+		this.minValue = currValue + 1;
+		this.nextValue = new AtomicLong(minValue);
+		this.maxValue = maxValue;
+	}
+
+
+	@Override
+	public long allocate(int size) {
+		long start = nextValue.getAndAdd(size);
+		// 最后一段可以不足size; start小于minValue说明已溢出
+		if (start > maxValue || start < minValue) {
+			throw new IllegalStateException("id已用尽:" + maxValue);
+		}
+		return start;
+	}
+
+
+	@Override
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+}
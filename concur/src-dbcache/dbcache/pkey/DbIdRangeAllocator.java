@@ -0,0 +1,205 @@
+package dbcache.pkey;
+
+import dbcache.support.jdbc.Dialect;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 数据库id段分配器(hi/lo)
+ * <br/>已预留的id上限持久化在id段表中, 多个节点可以为同一服标识生成id而不冲突
+ * <br/>每次从数据库预留reserveSize个id, 在内存中按段分配, 用完后再预留; 预留通过条件更新(比较并设置)完成, 不需要锁表
+ * <br/>id段表需要预先创建:
+ * <pre>
+ * create table dbcache_id_range (
+ *     name varchar(255) not null primary key,
+ *     next_value bigint not null
+ * )
+ * </pre>
+ * @author Jake
+ */
+public class DbIdRangeAllocator implements IdRangeAllocator {
+
+	/**
+	 * 缺省每次从数据库预留的id数量
+	 */
+	public static final int DEFAULT_RESERVE_SIZE = 10000;
+
+	/**
+	 * 缺省id段表名
+	 */
+	public static final String DEFAULT_TABLE_NAME = "dbcache_id_range";
+
+	/**
+	 * 并发预留冲突时的最大重试次数
+	 */
+	private static final int MAX_RETRY = 100;
+
+	private final DataSource dataSource;
+
+	private final String name;
+
+	private final long minValue;
+
+	private final long maxValue;
+
+	private final int reserveSize;
+
+	private final String selectSql;
+
+	private final String insertSql;
+
+	private final String updateSql;
+
+	/**
+	 * 已预留的下一个可用id
+	 */
+	private long next;
+
+	/**
+	 * 已预留范围上限(不含)
+	 */
+	private long end;
+
+
+	/**
+	 * 构造函数
+	 * @param dataSource 数据源
+	 * @param tableName id段表名
+	 * @param name id段名称(如 实体类名_服标识)
+	 * @param currValue 当前最大id, 预留的id从大于它的值开始
+	 * @param maxValue 允许分配的最大id
+	 * @param reserveSize 每次从数据库预留的id数量
+	 */
+	public DbIdRangeAllocator(DataSource dataSource, String tableName, String name,
+			long currValue, long maxValue, int reserveSize) {
+		if (reserveSize <= 0) {
+			throw new IllegalArgumentException("reserveSize必须大于0:" + reserveSize);
+		}
+		this.dataSource = dataSource;
+		this.name = name;
+		this.minValue = currValue + 1;
+		this.maxValue = maxValue;
+		this.reserveSize = reserveSize;
+		this.selectSql = "select next_value from " + tableName + " where name = ?";
+		this.insertSql = "insert into " + tableName + " (name, next_value) values (?, ?)";
+		this.updateSql = "update " + tableName + " set next_value = ? where name = ? and next_value = ?";
+	}
+
+
+	@Override
+	public synchronized long allocate(int size) {
+		// 已预留到maxValue时分配剩余的id, 不再预留
+		if (next >= end || (next + size > end && end <= maxValue)) {
+			reserve(Math.max(size, reserveSize));
+		}
+		long start = next;
+		next = Math.min(next + size, end);
+		return start;
+	}
+
+
+	@Override
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+
+	/**
+	 * 从数据库预留一段id
+	 * <br/>接近maxValue时只预留到maxValue为止
+	 * @param size 预留的数量
+	 */
+	private void reserve(int size) {
+		Connection conn = null;
+		try {
+			conn = dataSource.getConnection();
+			for (int i = 0; i < MAX_RETRY; i++) {
+				Long current = selectNextValue(conn);
+				long start = current == null ? minValue : Math.max(current, minValue);
+				long available = maxValue - start + 1;
+				if (available <= 0) {
+					throw new IllegalStateException("id已用尽:" + name);
+				}
+				long end = start + Math.min(size, available);
+
+				boolean reserved = current == null ?
+						insertNextValue(conn, end) : updateNextValue(conn, current, end);
+				if (!conn.getAutoCommit()) {
+					if (reserved) {
+						conn.commit();
+					} else {
+						conn.rollback();
+					}
+				}
+				if (reserved) {
+					this.next = start;
+					this.end = end;
+					return;
+				}
+			}
+			throw new IllegalStateException("预留id段冲突次数过多:" + name);
+		} catch (SQLException e) {
+			throw new IllegalStateException("预留id段失败:" + name, e);
+		} finally {
+			if (conn != null) {
+				try {
+					conn.close();
+				} catch (SQLException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+
+	private Long selectNextValue(Connection conn) throws SQLException {
+		PreparedStatement pst = conn.prepareStatement(selectSql);
+		try {
+			pst.setString(1, name);
+			ResultSet rs = pst.executeQuery();
+			try {
+				return rs.next() ? rs.getLong(1) : null;
+			} finally {
+				rs.close();
+			}
+		} finally {
+			pst.close();
+		}
+	}
+
+
+	private boolean insertNextValue(Connection conn, long nextValue) throws SQLException {
+		PreparedStatement pst = conn.prepareStatement(insertSql);
+		try {
+			pst.setString(1, name);
+			pst.setLong(2, nextValue);
+			return pst.executeUpdate() == 1;
+		} catch (SQLException e) {
+			// 其他节点已插入, 重新读取
+			if (Dialect.isDuplicateKey(e)) {
+				return false;
+			}
+			throw e;
+		} finally {
+			pst.close();
+		}
+	}
+
+
+	private boolean updateNextValue(Connection conn, long expectValue, long nextValue) throws SQLException {
+		PreparedStatement pst = conn.prepareStatement(updateSql);
+		try {
+			pst.setLong(1, nextValue);
+			pst.setString(2, name);
+			pst.setLong(3, expectValue);
+			return pst.executeUpdate() == 1;
+		} finally {
+			pst.close();
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package dbcache.pkey;
+
+/**
+ * 主键id段分配器
+ * <br/>每次分配一段连续的id, 供SegmentedLongGenerator在线程内自增使用
+ * @see SegmentedLongGenerator
+ * @author Jake
+ */
+public interface IdRangeAllocator {
+
+	/**
+	 * 分配一段id
+	 * <br/>剩余id不足size时只分配到getMaxValue()为止
+	 * @param size 数量
+	 * @return 起始id, 本次分配的id为 [起始id, min(起始id + size, getMaxValue() + 1))
+	 * @throws IllegalStateException id已用尽
+	 */
+	long allocate(int size);
+
+	/**
+	 * 允许分配的最大id
+	 * @return
+	 */
+	long getMaxValue();
+
+}
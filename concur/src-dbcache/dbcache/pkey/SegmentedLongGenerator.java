@@ -0,0 +1,80 @@
+package dbcache.pkey;
+
+
+/**
+ * 分段Long主键id生成器
+ * <br/>每个线程从IdRangeAllocator领取一段id后在线程内自增, 多核高并发创建实体时不再争用同一个AtomicLong
+ * <br/>生成的id唯一, 但不同线程之间不保证递增; 重启后未用完的id段会留下空洞
+ * @see IdRangeAllocator
+ * @author Jake
+ */
+public class SegmentedLongGenerator implements IdGenerator<Long> {
+
+	/**
+	 * 缺省每段id数量
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 100;
+
+	private final IdRangeAllocator allocator;
+
+	private final int segmentSize;
+
+	/**
+	 * 当前线程持有的id段
+	 */
+	private final ThreadLocal<Segment> segments = new ThreadLocal<Segment>() {
+		@Override
+		protected Segment initialValue() {
+			return new Segment();
+		}
+	};
+
+
+	/**
+	 * 构造函数
+	 * @param allocator id段分配器
+	 */
+	public SegmentedLongGenerator(IdRangeAllocator allocator) {
+		this(allocator, DEFAULT_SEGMENT_SIZE);
+	}
+
+
+	/**
+	 * 构造函数
+	 * @param allocator id段分配器
+	 * @param segmentSize 每段id数量
+	 */
+	public SegmentedLongGenerator(IdRangeAllocator allocator, int segmentSize) {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("segmentSize必须大于0:" + segmentSize);
+		}
+		this.allocator = allocator;
+		this.segmentSize = segmentSize;
+	}
+
+
+	@Override
+	public Long generateId() {
+		Segment segment = segments.get();
+		if (segment.next >= segment.end) {
+			// 最后一段可能不足segmentSize
+			long start = allocator.allocate(segmentSize);
+			segment.next = start;
+			segment.end = start + Math.min(segmentSize - 1, allocator.getMaxValue() - start) + 1;
+		}
+		return segment.next++;
+	}
+
+
+	/**
+	 * 线程持有的id段 [next, end)
+	 */
+	static final class Segment {
+
+		long next;
+
+		long end;
+
+	}
+
+}
@@ -66,6 +66,8 @@ public class ConstructorBuilder implements Opcodes {
 
     public ConstructorBuilder appendParameter(ParameterInit parameterInit) {
         initParams.add(parameterInit);
+        // 保持与构造方法参数一致的顺序(未调用build时也可以获取构造方法)
+        Collections.sort(initParams);
         if (parameterInit.parameterIndexOfgetProxyEntity() >= 0) {
             initParamSize++;
         }
@@ -144,18 +146,9 @@ public class ConstructorBuilder implements Opcodes {
         if (constructor != null) {
             return constructor;
         }
-        Class<?>[] paramTypes = new Class<?>[initParamSize];
-        int index = 0;
-        for (ParameterInit initParamEntry : initParams) {
-            if (initParamEntry.parameterIndexOfgetProxyEntity() < 0) {
-                continue;
-            }
-            paramTypes[index++] = initParamEntry.parameterType();
-        }
-
         Constructor<?> con;
         try {
-            con = proxyClass.getConstructor(paramTypes);
+            con = proxyClass.getConstructor(getParamTypes());
             constructor = con;
             return con;
         } catch (Exception e) {
@@ -165,6 +158,36 @@ public class ConstructorBuilder implements Opcodes {
     }
 
 
+    /**
+     * 代理类是否有与当前参数配置一致的构造方法
+     * <br/>用于校验构建期预生成的代理类
+     * @param proxyClass 代理类
+     * @return
+     */
+    public boolean hasConstructor(Class<?> proxyClass) {
+        try {
+            proxyClass.getConstructor(getParamTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+
+    // 构造方法参数类型
+    private Class<?>[] getParamTypes() {
+        Class<?>[] paramTypes = new Class<?>[initParamSize];
+        int index = 0;
+        for (ParameterInit initParamEntry : initParams) {
+            if (initParamEntry.parameterIndexOfgetProxyEntity() < 0) {
+                continue;
+            }
+            paramTypes[index++] = initParamEntry.parameterType();
+        }
+        return paramTypes;
+    }
+
+
     /**
      * 获取代理对象
      * @param proxyClass 代理类
@@ -112,21 +112,8 @@ public class EntityAsmFactory implements Opcodes {
 		}
 
 
-		ClassReader reader;
 		String enhancedClassName = clazz.getName() + SUFIX;
-		try {
-			reader = new ClassReader(clazz.getName());
-		} catch (IOException ioexception) {
-			throw new EnhanceAccessError("无法获取类信息:" + clazz.getName(), ioexception);
-		}
-
 		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-		// 初始化实体类的方法切面信息
-		methodAspect.initClassMetaInfo(clazz, enhancedClassName);
-
-		ClassVisitor visitor = new EntityClassProxyAdapter(enhancedClassName, clazz,
-				writer, methodAspect);
-
 
 		// 构建构造方法
 		ConstructorBuilder constructorBuilder = new ConstructorBuilder(writer, clazz, enhancedClassName);
@@ -201,18 +188,40 @@ public class EntityAsmFactory implements Opcodes {
 		methodAspect.doInitClass(constructorBuilder);
 
 
-		reader.accept(visitor, 0);
-		// 构建构造方法
-		constructorBuilder.build();
+		// 优先使用构建期预生成的代理类(构造方法与当前切面配置一致时)
+		Class<T> proxyClass = (Class<T>) classLoader.findPregeneratedClass(enhancedClassName);
+		if (proxyClass != null && !constructorBuilder.hasConstructor(proxyClass)) {
+			proxyClass = null;
+		}
 
+		if (proxyClass == null) {
+			ClassReader reader;
+			try {
+				reader = new ClassReader(clazz.getName());
+			} catch (IOException ioexception) {
+				throw new EnhanceAccessError("无法获取类信息:" + clazz.getName(), ioexception);
+			}
 
-		byte[] byteCodes = writer.toByteArray();
-		AsmUtils.writeClazz(enhancedClassName, byteCodes);
+			// 初始化实体类的方法切面信息
+			methodAspect.initClassMetaInfo(clazz, enhancedClassName);
+
+			ClassVisitor visitor = new EntityClassProxyAdapter(enhancedClassName, clazz,
+					writer, methodAspect);
+
+			reader.accept(visitor, 0);
+			// 构建构造方法
+			constructorBuilder.build();
+
+
+			byte[] byteCodes = writer.toByteArray();
+			AsmUtils.writeClazz(enhancedClassName, byteCodes);
+
+			proxyClass = (Class<T>) classLoader.defineClassIfAbsent(
+					enhancedClassName, byteCodes);
+		}
 
 
 		EnhancedClassInfo classInfo = new EnhancedClassInfo();
-		Class<T> proxyClass = (Class<T>) classLoader.defineClass(
-				enhancedClassName, byteCodes);
 		classInfo.setProxyClass(proxyClass);
 		classInfo.setConstructorBuilder(constructorBuilder);
 
@@ -53,7 +53,7 @@ public class IndexMethodProxyAspect extends AbstractAsmMethodProxyAspect {
 
 			@Override
 			/**
-			 * @see dbcache.support.asm.ConstructorBuilder#getProxyEntity(java.lang.Class<T>, T, dbcache.index.DbIndexService , java.util.concurrent.atomic.AtomicIntegerArray)
+			 * @see dbcache.support.asm.ConstructorBuilder#getProxyEntity(java.lang.Class<T>, T, dbcache.index.DbIndexService , dbcache.persist.ModifiedFields)
 			 */
 			public int parameterIndexOfgetProxyEntity() {
 				return 1;
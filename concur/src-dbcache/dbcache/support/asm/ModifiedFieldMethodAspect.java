@@ -1,7 +1,7 @@
 package dbcache.support.asm;
 
 import dbcache.anno.ChangeFields;
-import dbcache.utils.MutableInteger;
+import dbcache.persist.ModifiedFields;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -20,7 +20,6 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * 记录修改属性的切面
@@ -29,7 +28,7 @@ import java.util.concurrent.atomic.AtomicIntegerArray;
 @Component
 public class ModifiedFieldMethodAspect extends AbstractAsmMethodProxyAspect {
 	
-	/** 已经修改过的字段数组,0:未修改; 2:修改过 */
+	/** 已经修改过的字段集合 */
 	private static final String CHANGE_FIELDS_ARRAY = "changeFields";
 	
 	/** 索引信息缓存 实体类 - 索引信息 */
@@ -41,13 +40,13 @@ public class ModifiedFieldMethodAspect extends AbstractAsmMethodProxyAspect {
 	public void doInitClass(ConstructorBuilder constructorBuilder) {
 		
 		// 增加原实体类型的属性(真实类)
-		constructorBuilder.appendField(AtomicIntegerArray.class, CHANGE_FIELDS_ARRAY);
+		constructorBuilder.appendField(ModifiedFields.class, CHANGE_FIELDS_ARRAY);
 
 		// 添加切面处理对象构造方法,用真实类对象作为参数
 		constructorBuilder.appendParameter(new ConstructorBuilder.ParameterInit () {
 			@Override
 			Class<?> parameterType() {
-				return AtomicIntegerArray.class;
+				return ModifiedFields.class;
 			}
 
 			@Override
@@ -68,7 +67,7 @@ public class ModifiedFieldMethodAspect extends AbstractAsmMethodProxyAspect {
 				mvInit.visitFieldInsn(Opcodes.PUTFIELD,
 						AsmUtils.toAsmCls(enhancedClassName),
 						CHANGE_FIELDS_ARRAY,
-						Type.getDescriptor(AtomicIntegerArray.class));
+						Type.getDescriptor(ModifiedFields.class));
 			}
 		});
 				
@@ -83,36 +82,20 @@ public class ModifiedFieldMethodAspect extends AbstractAsmMethodProxyAspect {
 		final Map<Method, Set<MethodMetaData>> methodsMap = indexesMetaData.changeIndexValueMethods;
 		final Map<String, FieldMetaData> fieldsMap = indexesMetaData.fields;// 属性名 - 属性信息
 
-		//扫描属性注解
-		final MutableInteger fieldIndexCounter = new MutableInteger();
-		ReflectionUtils.doWithFields(clazz, new FieldCallback() {
-			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
-				// 忽略静态属性和临时属性
-				if(Modifier.isTransient(field.getModifiers())
-						|| Modifier.isStatic(field.getModifiers())
-						|| field.isAnnotationPresent(javax.persistence.Transient.class)) {
-					return;
-				}
-				
-
-				try {
-					PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), clazz);
-					Method setMethod = propertyDescriptor.getWriteMethod();
+		//扫描属性
+		List<PropertyDescriptor> propertyDescriptors = getPropertyDescriptors(clazz);
+		for (int i = 0; i < propertyDescriptors.size(); i++) {
+			PropertyDescriptor propertyDescriptor = propertyDescriptors.get(i);
+			Method setMethod = propertyDescriptor.getWriteMethod();
 
-					Set<MethodMetaData> methodMetaDataSet = getFieldNameSet(methodsMap, setMethod);
-					methodMetaDataSet.add(MethodMetaData.valueOf(field.getName()));
+			Set<MethodMetaData> methodMetaDataSet = getFieldNameSet(methodsMap, setMethod);
+			methodMetaDataSet.add(MethodMetaData.valueOf(propertyDescriptor.getName()));
 
+			FieldMetaData fieldMetaData = new FieldMetaData();
+			fieldMetaData.fieldIndex = i;
 
-					FieldMetaData fieldMetaData = new FieldMetaData();
-					fieldMetaData.fieldIndex = fieldIndexCounter.getAndIncrement();
-
-					fieldsMap.put(field.getName(), fieldMetaData);
-
-				} catch (IntrospectionException e) {
-					e.printStackTrace();
-				}
-			}
-		});
+			fieldsMap.put(propertyDescriptor.getName(), fieldMetaData);
+		}
 		
 		//扫描方法注解
 		ReflectionUtils.doWithMethods(clazz, new MethodCallback() {
@@ -152,6 +135,44 @@ public class ModifiedFieldMethodAspect extends AbstractAsmMethodProxyAspect {
 
 	}
 
+	/**
+	 * 获取记录修改的属性名
+	 * <br/>数组下标即ModifiedFields中的属性序号, 只有同时具有getter和setter的持久化属性才记录修改
+	 * @param clazz 实体类
+	 * @return
+	 */
+	public static String[] getFieldNames(Class<?> clazz) {
+		List<PropertyDescriptor> propertyDescriptors = getPropertyDescriptors(clazz);
+		String[] fieldNames = new String[propertyDescriptors.size()];
+		for (int i = 0; i < fieldNames.length; i++) {
+			fieldNames[i] = propertyDescriptors.get(i).getName();
+		}
+		return fieldNames;
+	}
+
+
+	// 获取记录修改的属性, 顺序即属性序号
+	private static List<PropertyDescriptor> getPropertyDescriptors(final Class<?> clazz) {
+		final List<PropertyDescriptor> result = new ArrayList<PropertyDescriptor>();
+		ReflectionUtils.doWithFields(clazz, new FieldCallback() {
+			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
+				// 忽略静态属性和临时属性
+				if(Modifier.isTransient(field.getModifiers())
+						|| Modifier.isStatic(field.getModifiers())
+						|| field.isAnnotationPresent(javax.persistence.Transient.class)) {
+					return;
+				}
+				try {
+					result.add(new PropertyDescriptor(field.getName(), clazz));
+				} catch (IntrospectionException e) {
+					// 没有getter或setter的属性不记录修改
+				}
+			}
+		});
+		return result;
+	}
+
+
 	//获取索引对应的方法集合
 	private Set<MethodMetaData> getFieldNameSet(Map<Method, Set<MethodMetaData>> methodsMap, Method method) {
 		Set<MethodMetaData> methodMetaData = methodsMap.get(method);
@@ -191,25 +212,14 @@ public class ModifiedFieldMethodAspect extends AbstractAsmMethodProxyAspect {
 					Opcodes.GETFIELD,
 					AsmUtils.toAsmCls(classIndexesMetaData.enhancedClassName),
 					CHANGE_FIELDS_ARRAY,
-					Type.getDescriptor(AtomicIntegerArray.class));
+					Type.getDescriptor(ModifiedFields.class));
 
 			mWriter.visitLdcInsn(field.fieldIndex);
-			mWriter.visitLdcInsn(1);
-			
-			Method setMethod = null;
-			try {
-				setMethod = AtomicIntegerArray.class.getDeclaredMethod("set", int.class, int.class);
-			} catch (SecurityException e) {
-				e.printStackTrace();
-			} catch (NoSuchMethodException e) {
-				e.printStackTrace();
-			}
 
-			assert setMethod != null;
-			Type mt = Type.getType(setMethod);
+			// changeFields.mark(fieldIndex)
 			mWriter.visitMethodInsn(INVOKEVIRTUAL,
-					AsmUtils.toAsmCls(AtomicIntegerArray.class.getName()), "set",
-					mt.toString());
+					AsmUtils.toAsmCls(ModifiedFields.class.getName()), "mark",
+					Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE));
 		}
 
 
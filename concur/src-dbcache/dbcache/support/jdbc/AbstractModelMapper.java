@@ -0,0 +1,125 @@
+package dbcache.support.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 实体映射器
+ * <br/>由AsmModelMapperHelper按实体类生成子类,按列序号使用类型化的ResultSet/PreparedStatement方法直接读写属性
+ * <br/>无法直接映射的属性(Json属性,Clob/Blob等)回退到AttributeInfo处理
+ * @see AsmModelMapperHelper
+ * @author Jake
+ */
+public abstract class AbstractModelMapper {
+
+	/** 实体信息 */
+	protected ModelInfo modelInfo;
+
+	/** 属性列表(与列顺序一致) */
+	protected AttributeInfo<Object>[] attributes;
+
+
+	/**
+	 * 将结果集当前行填充到实体
+	 * @param rs 查询结果集(已定位到当前行)
+	 * @param entity 实体
+	 * @throws SQLException
+	 */
+	public abstract void fill(ResultSet rs, Object entity) throws SQLException;
+
+
+	/**
+	 * 设置保存语句参数
+	 * @param pst 语句
+	 * @param entity 实体
+	 * @throws SQLException
+	 */
+	public void bindSave(PreparedStatement pst, Object entity) throws SQLException {
+		this.bindSave(pst, 0, entity);
+	}
+
+
+	/**
+	 * 设置保存语句参数(多行插入)
+	 * @param pst 语句
+	 * @param offset 参数序号偏移(前面行的参数数量)
+	 * @param entity 实体
+	 * @throws SQLException
+	 */
+	public abstract void bindSave(PreparedStatement pst, int offset, Object entity) throws SQLException;
+
+
+	/**
+	 * 设置更新语句参数(主键为最后一个参数)
+	 * @param pst 语句
+	 * @param entity 实体
+	 * @throws SQLException
+	 */
+	public abstract void bindUpdate(PreparedStatement pst, Object entity) throws SQLException;
+
+
+	/**
+	 * 按AttributeInfo读取属性值
+	 * @param rs 查询结果集
+	 * @param column 列序号
+	 * @param entity 实体
+	 * @throws SQLException
+	 */
+	protected final void readAttribute(ResultSet rs, int column, Object entity) throws SQLException {
+		AttributeInfo<Object> attributeInfo = this.attributes[column - 1];
+		attributeInfo.setFromPersistValue(entity, modelInfo.getRsVal(rs, column, attributeInfo.getSqlType(), attributeInfo));
+	}
+
+
+	/**
+	 * 按AttributeInfo设置参数值
+	 * @param pst 语句
+	 * @param paramIndex 参数序号
+	 * @param attrIndex 属性序号
+	 * @param entity 实体
+	 * @throws SQLException
+	 */
+	protected final void bindAttribute(PreparedStatement pst, int paramIndex, int attrIndex, Object entity) throws SQLException {
+		pst.setObject(paramIndex, this.attributes[attrIndex].getPersistValue(entity));
+	}
+
+
+	// 包装类型读取, 数据库值为null时返回null
+
+	protected static Boolean getBoolean(ResultSet rs, int column) throws SQLException {
+		boolean value = rs.getBoolean(column);
+		return rs.wasNull() ? null : Boolean.valueOf(value);
+	}
+
+	protected static Byte getByte(ResultSet rs, int column) throws SQLException {
+		byte value = rs.getByte(column);
+		return rs.wasNull() ? null : Byte.valueOf(value);
+	}
+
+	protected static Short getShort(ResultSet rs, int column) throws SQLException {
+		short value = rs.getShort(column);
+		return rs.wasNull() ? null : Short.valueOf(value);
+	}
+
+	protected static Integer getInteger(ResultSet rs, int column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? null : Integer.valueOf(value);
+	}
+
+	protected static Long getLong(ResultSet rs, int column) throws SQLException {
+		long value = rs.getLong(column);
+		return rs.wasNull() ? null : Long.valueOf(value);
+	}
+
+	protected static Float getFloat(ResultSet rs, int column) throws SQLException {
+		float value = rs.getFloat(column);
+		return rs.wasNull() ? null : Float.valueOf(value);
+	}
+
+	protected static Double getDouble(ResultSet rs, int column) throws SQLException {
+		double value = rs.getDouble(column);
+		return rs.wasNull() ? null : Double.valueOf(value);
+	}
+
+}
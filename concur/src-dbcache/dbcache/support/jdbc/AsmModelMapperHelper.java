@@ -0,0 +1,331 @@
+package dbcache.support.jdbc;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.enhance.asm.AsmAccessHelper;
+import utils.enhance.asm.util.AsmUtils;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实体映射器字节码生成
+ * <br/>按列序号生成类型化的ResultSet读取和PreparedStatement设值代码,
+ * 避免逐列经过AttributeInfo的装箱和接口分派
+ * @see AbstractModelMapper
+ * @author Jake
+ */
+public class AsmModelMapperHelper implements Opcodes {
+
+	/**
+	 * logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(AsmModelMapperHelper.class);
+
+	/** 代理类类名 */
+	public static final String SUFIX = "$EnhancedByAsmModelMapper";
+
+	/** 分隔符 */
+	public static final String SPLITER = "_";
+
+	/** 构造方法名常量 */
+	private static final String INIT = "<init>";
+
+	/** 填充方法名 */
+	private static final String FILL_METHOD_NAME = "fill";
+
+	/** 保存参数方法名 */
+	private static final String BIND_SAVE_METHOD_NAME = "bindSave";
+
+	/** 更新参数方法名 */
+	private static final String BIND_UPDATE_METHOD_NAME = "bindUpdate";
+
+	/** ResultSet类名 */
+	private static final String RESULT_SET = Type.getInternalName(ResultSet.class);
+
+	/** PreparedStatement类名 */
+	private static final String PREPARED_STATEMENT = Type.getInternalName(PreparedStatement.class);
+
+	/** 映射器父类类名 */
+	private static final String MAPPER = Type.getInternalName(AbstractModelMapper.class);
+
+	/** 映射方式: 回退到AttributeInfo */
+	private static final int KIND_ATTRIBUTE = 0;
+
+	/** 映射方式: 基本类型 */
+	private static final int KIND_PRIMITIVE = 1;
+
+	/** 映射方式: 包装类型 */
+	private static final int KIND_WRAPPER = 2;
+
+	/** 映射方式: 字符串 */
+	private static final int KIND_STRING = 3;
+
+	/** 映射方式: 字节数组 */
+	private static final int KIND_BYTES = 4;
+
+	/** 映射方式: 其他对象(读取时回退,设值时直接setObject) */
+	private static final int KIND_OBJECT = 5;
+
+	/** 序号生成器 */
+	private static AtomicLong id = new AtomicLong(0);
+
+
+	/**
+	 * 创建实体映射器
+	 * @param clazz 实体类
+	 * @param modelInfo 实体信息
+	 * @param attributes 属性列表(与列顺序一致, sqlType已初始化)
+	 * @return 无法生成时返回null
+	 */
+	@SuppressWarnings("unchecked")
+	public static AbstractModelMapper createModelMapper(final Class<?> clazz, ModelInfo modelInfo, List<AttributeInfo<Object>> attributes) {
+		if (!Modifier.isPublic(clazz.getModifiers())) {
+			return null;
+		}
+
+		int size = attributes.size();
+		Method[] getters = new Method[size];
+		Method[] setters = new Method[size];
+		int[] kinds = new int[size];
+		for (int i = 0; i < size; i++) {
+			AttributeInfo<Object> attributeInfo = attributes.get(i);
+			PropertyDescriptor propertyDescriptor;
+			try {
+				propertyDescriptor = new PropertyDescriptor(attributeInfo.getName(), clazz);
+			} catch (IntrospectionException e) {
+				return null;
+			}
+			getters[i] = propertyDescriptor.getReadMethod();
+			setters[i] = propertyDescriptor.getWriteMethod();
+			if (getters[i] == null || setters[i] == null
+					|| !Modifier.isPublic(getters[i].getModifiers())
+					|| !Modifier.isPublic(setters[i].getModifiers())) {
+				return null;
+			}
+			kinds[i] = kindOf(propertyDescriptor.getPropertyType(), attributeInfo);
+		}
+
+		final String enhancedClassName = AbstractModelMapper.class.getName()
+				+ SUFIX + SPLITER + clazz.getSimpleName() + SPLITER
+				+ id.incrementAndGet();
+		final String enhancedInternalName = AsmUtils.toAsmCls(enhancedClassName);
+		final String entityInternalName = Type.getInternalName(clazz);
+
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(V1_6, ACC_PUBLIC + ACC_SUPER, enhancedInternalName, null, MAPPER, null);
+
+		// 构造方法
+		MethodVisitor mv = writer.visitMethod(ACC_PUBLIC, INIT, "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, MAPPER, INIT, "()V", false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+
+		// fill(ResultSet, Object)
+		mv = writer.visitMethod(ACC_PUBLIC, FILL_METHOD_NAME, "(Ljava/sql/ResultSet;Ljava/lang/Object;)V", null, new String[] { "java/sql/SQLException" });
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitTypeInsn(CHECKCAST, entityInternalName);
+		mv.visitVarInsn(ASTORE, 3);
+		for (int i = 0; i < size; i++) {
+			visitRead(mv, entityInternalName, setters[i], kinds[i], i + 1);
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// bindSave(PreparedStatement, int, Object)
+		mv = writer.visitMethod(ACC_PUBLIC, BIND_SAVE_METHOD_NAME, "(Ljava/sql/PreparedStatement;ILjava/lang/Object;)V", null, new String[] { "java/sql/SQLException" });
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitTypeInsn(CHECKCAST, entityInternalName);
+		mv.visitVarInsn(ASTORE, 4);
+		for (int i = 0; i < size; i++) {
+			visitBind(mv, entityInternalName, getters[i], kinds[i], i + 1, i, 4, 2);
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// bindUpdate(PreparedStatement, Object) 非主键属性在前,主键在最后
+		mv = writer.visitMethod(ACC_PUBLIC, BIND_UPDATE_METHOD_NAME, "(Ljava/sql/PreparedStatement;Ljava/lang/Object;)V", null, new String[] { "java/sql/SQLException" });
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitTypeInsn(CHECKCAST, entityInternalName);
+		mv.visitVarInsn(ASTORE, 3);
+		int paramIndex = 1;
+		int primaryKeyIndex = -1;
+		for (int i = 0; i < size; i++) {
+			if (attributes.get(i).isPrimaryKey()) {
+				primaryKeyIndex = i;
+				continue;
+			}
+			visitBind(mv, entityInternalName, getters[i], kinds[i], paramIndex++, i, 3, -1);
+		}
+		if (primaryKeyIndex >= 0) {
+			visitBind(mv, entityInternalName, getters[primaryKeyIndex], kinds[primaryKeyIndex], paramIndex, primaryKeyIndex, 3, -1);
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		writer.visitEnd();
+		byte[] byteCodes = writer.toByteArray();
+
+		AsmUtils.writeClazz(enhancedClassName, byteCodes);
+
+		try {
+			Class<?> enhancedClass = AsmAccessHelper.classLoader.defineClass(enhancedClassName, byteCodes);
+			AbstractModelMapper modelMapper = (AbstractModelMapper) enhancedClass.newInstance();
+			modelMapper.modelInfo = modelInfo;
+			modelMapper.attributes = attributes.toArray(new AttributeInfo[size]);
+			return modelMapper;
+		} catch (Throwable e) {
+			logger.error("无法创建实体映射器:" + clazz.getName(), e);
+			return null;
+		}
+	}
+
+
+	// 属性映射方式
+	private static int kindOf(Class<?> type, AttributeInfo<Object> attributeInfo) {
+		if (attributeInfo.isJsonType() || attributeInfo.isBinaryType()) {
+			return KIND_ATTRIBUTE;
+		}
+		int sqlType = attributeInfo.getSqlType();
+		boolean lob = sqlType == Types.BLOB || sqlType == Types.CLOB || sqlType == Types.NCLOB;
+		if (type.isPrimitive()) {
+			return type == char.class ? KIND_ATTRIBUTE : KIND_PRIMITIVE;
+		}
+		if (type == Boolean.class || type == Byte.class || type == Short.class || type == Integer.class
+				|| type == Long.class || type == Float.class || type == Double.class) {
+			return KIND_WRAPPER;
+		}
+		if (type == String.class) {
+			return lob ? KIND_OBJECT : KIND_STRING;
+		}
+		if (type == byte[].class) {
+			return lob ? KIND_OBJECT : KIND_BYTES;
+		}
+		return KIND_OBJECT;
+	}
+
+
+	// 读取第column列并调用set方法
+	private static void visitRead(MethodVisitor mv, String entityInternalName, Method setter, int kind, int column) {
+		Class<?> type = setter.getParameterTypes()[0];
+		if (kind == KIND_ATTRIBUTE || kind == KIND_OBJECT) {
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 1);
+			pushInt(mv, column);
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKEVIRTUAL, MAPPER, "readAttribute", "(Ljava/sql/ResultSet;ILjava/lang/Object;)V", false);
+			return;
+		}
+
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitVarInsn(ALOAD, 1);
+		pushInt(mv, column);
+		Type fieldType = Type.getType(type);
+		switch (kind) {
+		case KIND_PRIMITIVE:
+			mv.visitMethodInsn(INVOKEINTERFACE, RESULT_SET, "get" + jdbcTypeName(type), "(I)" + fieldType.getDescriptor(), true);
+			break;
+		case KIND_WRAPPER:
+			mv.visitMethodInsn(INVOKESTATIC, MAPPER, "get" + type.getSimpleName(), "(Ljava/sql/ResultSet;I)" + fieldType.getDescriptor(), false);
+			break;
+		case KIND_STRING:
+			mv.visitMethodInsn(INVOKEINTERFACE, RESULT_SET, "getString", "(I)Ljava/lang/String;", true);
+			break;
+		case KIND_BYTES:
+			mv.visitMethodInsn(INVOKEINTERFACE, RESULT_SET, "getBytes", "(I)[B", true);
+			break;
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, entityInternalName, setter.getName(), Type.getMethodDescriptor(setter), false);
+		popReturn(mv, setter);
+	}
+
+
+	// 调用get方法并设置第(offset + paramIndex)个参数, offsetVar < 0 时无偏移
+	private static void visitBind(MethodVisitor mv, String entityInternalName, Method getter, int kind, int paramIndex, int attrIndex, int entityVar, int offsetVar) {
+		if (kind == KIND_ATTRIBUTE) {
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 1);
+			pushParamIndex(mv, paramIndex, offsetVar);
+			pushInt(mv, attrIndex);
+			mv.visitVarInsn(ALOAD, entityVar);
+			mv.visitMethodInsn(INVOKEVIRTUAL, MAPPER, "bindAttribute", "(Ljava/sql/PreparedStatement;IILjava/lang/Object;)V", false);
+			return;
+		}
+
+		Class<?> type = getter.getReturnType();
+		mv.visitVarInsn(ALOAD, 1);
+		pushParamIndex(mv, paramIndex, offsetVar);
+		mv.visitVarInsn(ALOAD, entityVar);
+		mv.visitMethodInsn(INVOKEVIRTUAL, entityInternalName, getter.getName(), Type.getMethodDescriptor(getter), false);
+		if (kind == KIND_PRIMITIVE) {
+			mv.visitMethodInsn(INVOKEINTERFACE, PREPARED_STATEMENT, "set" + jdbcTypeName(type), "(I" + Type.getDescriptor(type) + ")V", true);
+		} else {
+			mv.visitMethodInsn(INVOKEINTERFACE, PREPARED_STATEMENT, "setObject", "(ILjava/lang/Object;)V", true);
+		}
+	}
+
+
+	// 基本类型对应的ResultSet/PreparedStatement方法名后缀
+	private static String jdbcTypeName(Class<?> type) {
+		if (type == int.class) {
+			return "Int";
+		}
+		String name = type.getName();
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+
+	// 丢弃set方法返回值
+	private static void popReturn(MethodVisitor mv, Method setter) {
+		Class<?> returnType = setter.getReturnType();
+		if (returnType == void.class) {
+			return;
+		}
+		mv.visitInsn(returnType == long.class || returnType == double.class ? POP2 : POP);
+	}
+
+
+	private static void pushParamIndex(MethodVisitor mv, int paramIndex, int offsetVar) {
+		if (offsetVar < 0) {
+			pushInt(mv, paramIndex);
+			return;
+		}
+		mv.visitVarInsn(ILOAD, offsetVar);
+		pushInt(mv, paramIndex);
+		mv.visitInsn(IADD);
+	}
+
+
+	private static void pushInt(MethodVisitor mv, int value) {
+		if (value >= -1 && value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+}
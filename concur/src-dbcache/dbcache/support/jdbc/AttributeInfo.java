@@ -1,6 +1,7 @@
 package dbcache.support.jdbc;
 
 import com.alibaba.fastjson.JSON;
+import dbcache.anno.BinaryType;
 import dbcache.anno.JsonType;
 import utils.enhance.asm.AsmAccessHelper;
 import utils.enhance.asm.ValueGetter;
@@ -65,6 +66,11 @@ public class AttributeInfo<T> {
 	 */
 	private Type targetType;
 
+	/**
+	 * 二进制属性编解码器, 非@BinaryType属性时为null
+	 */
+	private BinaryCodec binaryCodec;
+
 
 	/**
 	 * 获取实例
@@ -90,6 +96,15 @@ public class AttributeInfo<T> {
 			columnInfo.jsonType = true;
 		}
 
+		// 处理二进制转换注解
+		BinaryType binaryType = field.getAnnotation(BinaryType.class);
+		if (binaryType != null) {
+			if (columnInfo.jsonType) {
+				throw new IllegalArgumentException("属性不能同时使用@JsonType和@BinaryType:" + clazz.getName() + "." + field.getName());
+			}
+			columnInfo.binaryCodec = BinaryCodec.valueOf(columnInfo.targetType, binaryType);
+		}
+
 		return columnInfo;
 	}
 
@@ -132,6 +147,13 @@ public class AttributeInfo<T> {
 			}
 			return null;
 		}
+		if (binaryCodec != null) {
+			Object objectValue = this.getValue(object);
+			if (objectValue != null) {
+				return binaryCodec.encode(objectValue);
+			}
+			return null;
+		}
 		return this.getValue(object);
 	}
 
@@ -159,6 +181,10 @@ public class AttributeInfo<T> {
 			}
 			return;
 		}
+		if (binaryCodec != null) {
+			this.setValue(object, binaryCodec.decode(value));
+			return;
+		}
 		this.setValue(object, value);
 	}
 
@@ -206,6 +232,10 @@ public class AttributeInfo<T> {
 		return jsonType;
 	}
 
+	public boolean isBinaryType() {
+		return binaryCodec != null;
+	}
+
 	public Type getTargetType() {
 		return targetType;
 	}
@@ -0,0 +1,133 @@
+package dbcache.support.jdbc;
+
+import com.alibaba.fastjson.JSON;
+import dbcache.anno.BinaryType;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import transfer.ByteArray;
+import transfer.Persister;
+
+import java.lang.reflect.Type;
+
+/**
+ * @BinaryType属性编解码器
+ * <br/>格式: 1字节标识 + 数据
+ * <br/>FLAG_RAW: Persister编码数据
+ * <br/>FLAG_LZ4: 4字节原长度 + LZ4压缩的Persister编码数据
+ * <br/>字符串类型的字段值按json文本解析(兼容由@JsonType存储的旧数据), 标识不匹配时抛出异常
+ * @author Jake
+ */
+public class BinaryCodec {
+
+	/** 未压缩 */
+	static final byte FLAG_RAW = (byte) 0xB0;
+
+	/** LZ4压缩 */
+	static final byte FLAG_LZ4 = (byte) 0xB1;
+
+	/** 压缩长度头 */
+	private static final int LENGTH_SIZE = 4;
+
+	private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+	/** 属性类型 */
+	private final Type type;
+
+	/** 是否压缩 */
+	private final boolean compress;
+
+	/** 压缩阀值 */
+	private final int compressThreshold;
+
+
+	private BinaryCodec(Type type, boolean compress, int compressThreshold) {
+		this.type = type;
+		this.compress = compress;
+		this.compressThreshold = compressThreshold;
+	}
+
+
+	/**
+	 * 获取实例
+	 * @param type 属性类型
+	 * @param binaryType 注解
+	 * @return
+	 */
+	public static BinaryCodec valueOf(Type type, BinaryType binaryType) {
+		return new BinaryCodec(type, binaryType.compress(), binaryType.compressThreshold());
+	}
+
+
+	/**
+	 * 编码
+	 * @param value 属性值
+	 * @return
+	 */
+	public byte[] encode(Object value) {
+		ByteArray byteArray = Persister.encode(value, type);
+		int length = byteArray.getEndIndex() - byteArray.getStartIndex();
+
+		if (compress && length >= compressThreshold) {
+			LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+			int maxLength = compressor.maxCompressedLength(length);
+			byte[] compressed = new byte[1 + LENGTH_SIZE + maxLength];
+			int compressedLength = compressor.compress(byteArray.getByteArr(), byteArray.getStartIndex(), length,
+					compressed, 1 + LENGTH_SIZE, maxLength);
+			// 压缩无效果时存储原数据
+			if (compressedLength + LENGTH_SIZE < length) {
+				compressed[0] = FLAG_LZ4;
+				compressed[1] = (byte) (length >>> 24);
+				compressed[2] = (byte) (length >>> 16);
+				compressed[3] = (byte) (length >>> 8);
+				compressed[4] = (byte) length;
+				byte[] result = new byte[1 + LENGTH_SIZE + compressedLength];
+				System.arraycopy(compressed, 0, result, 0, result.length);
+				return result;
+			}
+		}
+
+		byte[] result = new byte[1 + length];
+		result[0] = FLAG_RAW;
+		System.arraycopy(byteArray.getByteArr(), byteArray.getStartIndex(), result, 1, length);
+		return result;
+	}
+
+
+	/**
+	 * 解码
+	 * @param value 字段值(byte[] 或 旧的json字符串)
+	 * @return
+	 */
+	public Object decode(Object value) {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof String) {
+			return JSON.parseObject((String) value, type);
+		}
+		if (!(value instanceof byte[])) {
+			throw new IllegalArgumentException("无法解码的字段值类型:" + value.getClass().getName());
+		}
+
+		byte[] bytes = (byte[]) value;
+		if (bytes.length == 0) {
+			return null;
+		}
+
+		switch (bytes[0]) {
+		case FLAG_RAW:
+			return Persister.decode(new ByteArray(bytes, 1, bytes.length), type);
+		case FLAG_LZ4:
+			int length = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16)
+					| ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+			byte[] restored = new byte[length];
+			LZ4FastDecompressor decompressor = LZ4_FACTORY.fastDecompressor();
+			decompressor.decompress(bytes, 1 + LENGTH_SIZE, restored, 0, length);
+			return Persister.decode(new ByteArray(restored), type);
+		default:
+			throw new IllegalArgumentException("无法识别的二进制属性标识:" + bytes[0]);
+		}
+	}
+
+}
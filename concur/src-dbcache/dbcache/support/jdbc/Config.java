@@ -2,13 +2,19 @@ package dbcache.support.jdbc;
 
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import utils.collections.concurrent.ConcurrentHashSet;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class Config {
@@ -26,6 +32,99 @@ public class Config {
 
 	private final ThreadLocal<Connection> threadLocal = new ThreadLocal<Connection>();
 
+	/**
+	 * 默认每个连接缓存的PreparedStatement数量
+	 */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+	/**
+	 * 绑定连接空闲多久后使用前需要校验(毫秒)
+	 */
+	private static final long PINNED_VALIDATE_IDLE_MILLIS = 30000;
+
+	/**
+	 * 是否将连接绑定到线程(如入库线程),避免每次操作都从连接池借出/归还连接
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcPinConnection")
+	private boolean pinConnection = false;
+
+	/**
+	 * 绑定连接的PreparedStatement缓存数量, <= 0 不缓存
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcStatementCacheSize")
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+
+	/**
+	 * 默认多行插入每条语句的最大行数
+	 */
+	public static final int DEFAULT_MULTI_ROW_SIZE = 100;
+
+	/**
+	 * 批量保存时每条insert语句的最大行数, <= 1 则使用单行insert的addBatch
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcMultiRowSize")
+	private int multiRowSize = DEFAULT_MULTI_ROW_SIZE;
+
+	/**
+	 * 是否统计语句执行耗时(DbCacheMetrics)
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcMetrics")
+	private boolean metricsEnabled = true;
+
+	/**
+	 * 从库(只读)数据源列表, 轮询使用
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcReadDataSource")
+	private List<DataSource> readDataSources;
+
+	/**
+	 * 缓存加载使用的主库数据源(独立连接池), 为null则与入库共用dataSource
+	 * <br/>避免批量入库占满连接池导致缓存未命中的加载阻塞
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcLoadDataSource")
+	private DataSource loadDataSource;
+
+	/**
+	 * 读库路由策略
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcReadRoutePolicy")
+	private ReadRoutePolicy readRoutePolicy = ReadRoutePolicy.LOAD;
+
+	/**
+	 * 默认从库最大复制延迟(毫秒)
+	 */
+	public static final long DEFAULT_REPLICA_LAG_MILLIS = 1000;
+
+	/**
+	 * 从库最大复制延迟(毫秒)
+	 * <br/>实体最近一次入库后的这段时间内,该实体的查询使用主库,保证读到自己的写入
+	 */
+	@Autowired(required = false)
+	@Qualifier("jdbcReplicaLagMillis")
+	private long replicaLagMillis = DEFAULT_REPLICA_LAG_MILLIS;
+
+	/**
+	 * 从库轮询计数
+	 */
+	private final AtomicInteger readIndex = new AtomicInteger();
+
+	/**
+	 * 线程绑定的连接
+	 */
+	private final ThreadLocal<PinnedConnection> pinnedLocal = new ThreadLocal<PinnedConnection>();
+
+	/**
+	 * 所有绑定的连接,用于关闭
+	 */
+	private final ConcurrentHashSet<PinnedConnection> pinnedConnections = new ConcurrentHashSet<PinnedConnection>();
+
 	Config(){}
 
 	/**
@@ -118,6 +217,86 @@ public class Config {
 		return devMode;
 	}
 
+	public boolean isPinConnection() {
+		return pinConnection;
+	}
+
+	/**
+	 * 设置是否将连接绑定到线程
+	 * @param pinConnection true:每个线程长期持有一个连接并缓存PreparedStatement
+	 */
+	public void setPinConnection(boolean pinConnection) {
+		this.pinConnection = pinConnection;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	public int getMultiRowSize() {
+		return multiRowSize;
+	}
+
+	public void setMultiRowSize(int multiRowSize) {
+		this.multiRowSize = multiRowSize;
+	}
+
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	public List<DataSource> getReadDataSources() {
+		return readDataSources;
+	}
+
+	/**
+	 * 设置从库数据源
+	 * @param readDataSources 从库数据源列表
+	 */
+	public void setReadDataSources(List<DataSource> readDataSources) {
+		this.readDataSources = readDataSources == null ? null : new ArrayList<DataSource>(readDataSources);
+	}
+
+	public DataSource getLoadDataSource() {
+		return loadDataSource;
+	}
+
+	public void setLoadDataSource(DataSource loadDataSource) {
+		this.loadDataSource = loadDataSource;
+	}
+
+	public ReadRoutePolicy getReadRoutePolicy() {
+		return readRoutePolicy;
+	}
+
+	public void setReadRoutePolicy(ReadRoutePolicy readRoutePolicy) {
+		this.readRoutePolicy = readRoutePolicy;
+	}
+
+	public long getReplicaLagMillis() {
+		return replicaLagMillis;
+	}
+
+	public void setReplicaLagMillis(long replicaLagMillis) {
+		this.replicaLagMillis = replicaLagMillis;
+	}
+
+	/**
+	 * 是否配置了从库
+	 * @return
+	 */
+	public boolean hasReadReplica() {
+		return readDataSources != null && !readDataSources.isEmpty();
+	}
+
 	// --------
 
 	/**
@@ -140,9 +319,182 @@ public class Config {
 			threadLocal.set(conn);
 			return conn;
 		}
+		if (pinConnection || pinnedLocal.get() != null) {
+			return getPinnedConnection(true).connection;
+		}
+		return openConnection();
+	}
+
+	/**
+	 * Get Connection for streaming query.
+	 * Never use the pinned Connection, because a streaming ResultSet may lock the Connection until it is closed.
+	 */
+	public final Connection getStreamingConnection() throws SQLException {
+		Connection conn = threadLocal.get();
+		if (conn != null) {
+			return conn;
+		}
+		return openConnection();
+	}
+
+	/**
+	 * Get Connection for loading cache.
+	 * Use read replica if allowed, otherwise use the load DataSource or the primary.
+	 * Support transaction if Connection in ThreadLocal
+	 * @param index 是否为索引查询
+	 * @param lastWriteTime 实体最近一次入库的时间
+	 * @param pendingWrite 实体是否有尚未入库的修改(在入库队列中或者正在入库)
+	 */
+	public final Connection getReadConnection(boolean index, long lastWriteTime, boolean pendingWrite) throws SQLException {
+		Connection conn = threadLocal.get();
+		if (conn != null) {
+			return conn;
+		}
+
+		if (hasReadReplica() && readRoutePolicy != null && readRoutePolicy.isReplica(index) && !pendingWrite
+				&& System.currentTimeMillis() - lastWriteTime >= replicaLagMillis) {
+			List<DataSource> replicas = readDataSources;
+			int start = readIndex.getAndIncrement() & Integer.MAX_VALUE;
+			for (int i = 0; i < replicas.size(); i++) {
+				try {
+					return openConnection(replicas.get((start + i) % replicas.size()));
+				} catch (SQLException e) {
+					// 从库不可用,尝试下一个从库,都不可用时使用主库
+					e.printStackTrace();
+				}
+			}
+		}
+
+		if (loadDataSource != null) {
+			return openConnection(loadDataSource);
+		}
+		return getConnection();
+	}
+
+	// 从连接池获取连接
+	private Connection openConnection() throws SQLException {
+		return openConnection(dataSource);
+	}
+
+	// 从指定连接池获取连接
+	private Connection openConnection(DataSource dataSource) throws SQLException {
 		return showSql ? new SqlReporter(dataSource.getConnection()).getConnection() : dataSource.getConnection();
 	}
 
+	// 获取当前线程绑定的连接, use为是否开始使用(由close方法结束使用)
+	private PinnedConnection getPinnedConnection(boolean use) throws SQLException {
+		PinnedConnection pinned = pinnedLocal.get();
+		if (pinned != null) {
+			// 已请求关闭(closePinnedConnections)的空闲连接不再使用, 嵌套使用中时继续使用到归还
+			if (pinned.isCloseRequested()) {
+				pinned.closeIfIdle();
+			}
+			if (pinned.acquire()) {
+				// 空闲较久的连接可能已被数据库断开
+				if (System.currentTimeMillis() - pinned.lastAccessTime < PINNED_VALIDATE_IDLE_MILLIS
+						|| pinned.connection.isValid(2)) {
+					pinned.lastAccessTime = System.currentTimeMillis();
+					if (!use) {
+						this.releaseUse(pinned);
+					}
+					return pinned;
+				}
+				pinned.releaseUse();
+				this.releasePinnedConnection(pinned);
+			} else {
+				// 已被关闭
+				pinnedLocal.remove();
+				pinnedConnections.remove(pinned);
+			}
+		}
+
+		pinned = new PinnedConnection(openConnection(), statementCacheSize);
+		if (use) {
+			pinned.acquire();
+		}
+		pinnedLocal.set(pinned);
+		pinnedConnections.add(pinned);
+		return pinned;
+	}
+
+	// 结束使用绑定的连接
+	private void releaseUse(PinnedConnection pinned) {
+		if (pinned.releaseUse()) {
+			pinnedConnections.remove(pinned);
+		}
+	}
+
+	// 释放绑定的连接
+	private void releasePinnedConnection(PinnedConnection pinned) {
+		if (pinnedLocal.get() == pinned) {
+			pinnedLocal.remove();
+		}
+		if (pinnedConnections.remove(pinned) && !pinned.isClosed()) {
+			pinned.close();
+		}
+	}
+
+	// 是否为当前线程绑定的连接
+	private PinnedConnection getPinned(Connection conn) {
+		PinnedConnection pinned = pinnedLocal.get();
+		if (pinned != null && pinned.connection == conn) {
+			return pinned;
+		}
+		return null;
+	}
+
+	/**
+	 * 创建PreparedStatement
+	 * <br/>连接为线程绑定连接时,从语句缓存中获取
+	 * @param conn 连接
+	 * @param sql SQL语句
+	 * @return
+	 * @throws SQLException
+	 */
+	public final PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+		PinnedConnection pinned = getPinned(conn);
+		if (pinned != null && statementCacheSize > 0) {
+			return pinned.prepareStatement(sql);
+		}
+		return conn.prepareStatement(sql);
+	}
+
+	/**
+	 * 将连接绑定到当前线程(如单线程的入库线程)
+	 * <br/>未开启pinConnection时,只有调用过此方法的线程才会绑定连接
+	 * @throws SQLException
+	 */
+	public final void pinThreadConnection() throws SQLException {
+		getPinnedConnection(false);
+	}
+
+	/**
+	 * 释放当前线程绑定的连接
+	 * <br/>线程结束前调用,将连接归还连接池
+	 */
+	public final void releaseThreadConnection() {
+		PinnedConnection pinned = pinnedLocal.get();
+		if (pinned != null) {
+			this.releasePinnedConnection(pinned);
+		}
+	}
+
+	/**
+	 * 关闭所有线程绑定的连接
+	 * <br/>空闲的连接立即关闭, 使用中的连接由绑定的线程归还时关闭; 线程再次获取连接时将重新绑定新的连接
+	 */
+	public final void closePinnedConnections() {
+		for (PinnedConnection pinned : pinnedConnections) {
+			if (pinned.requestClose()) {
+				pinnedConnections.remove(pinned);
+			}
+		}
+		PinnedConnection pinned = pinnedLocal.get();
+		if (pinned != null && pinned.isClosed()) {
+			pinnedLocal.remove();
+		}
+	}
+
 	/**
 	 * Helps to implement nested transaction.
 	 * Tx.intercept(...) and Db.tx(...) need this method to detected if it in nested transaction.
@@ -157,23 +509,40 @@ public class Config {
 	 */
 	public final void close(ResultSet rs, Statement st, Connection conn) {
 		if (rs != null) {try {rs.close();} catch (SQLException e) {e.printStackTrace();}}
-		if (st != null) {try {st.close();} catch (SQLException e) {e.printStackTrace();}}
+		PinnedConnection pinned = getPinned(conn);
+		if (st != null && (pinned == null || !pinned.release(st))) {try {st.close();} catch (SQLException e) {e.printStackTrace();}}
+		if (pinned != null) {
+			this.releaseUse(pinned);
+		}
 
-		if (threadLocal.get() == null) {	// in transaction if conn in threadlocal
+		if (threadLocal.get() == null && pinned == null) {	// in transaction if conn in threadlocal
 			if (conn != null) {try {conn.close();}
 			catch (SQLException e) {throw new IllegalStateException(e);}}
 		}
 	}
 
 	public final void close(Statement st, Connection conn) {
-		if (st != null) {try {st.close();} catch (SQLException e) {}}
+		PinnedConnection pinned = getPinned(conn);
+		if (st != null && (pinned == null || !pinned.release(st))) {try {st.close();} catch (SQLException e) {}}
+		if (pinned != null) {
+			this.releaseUse(pinned);
+		}
 
-		if (threadLocal.get() == null) {	// in transaction if conn in threadlocal
+		if (threadLocal.get() == null && pinned == null) {	// in transaction if conn in threadlocal
 			if (conn != null) {try {conn.close();}
 			catch (SQLException e) {throw new IllegalStateException(e);}}
 		}
 	}
 
+	/**
+	 * Close Statement only, keep the Connection open.
+	 * Cached statement of pinned Connection will be reused.
+	 */
+	public final void closeStatement(Statement st, Connection conn) {
+		PinnedConnection pinned = getPinned(conn);
+		if (st != null && (pinned == null || !pinned.release(st))) {try {st.close();} catch (SQLException e) {}}
+	}
+
 	public final void checkConnection(Connection conn) {
 		boolean isConnection = false;
 		
@@ -187,11 +556,19 @@ public class Config {
 		
 		if (!isConnection) {
 			threadLocal.set(null);
+			PinnedConnection pinned = getPinned(conn);
+			if (pinned != null) {
+				this.releasePinnedConnection(pinned);
+			}
 		}
 	}
 
 	public final void close(Connection conn) {
-		if (threadLocal.get() == null)		// in transaction if conn in threadlocal
+		PinnedConnection pinned = getPinned(conn);
+		if (pinned != null) {
+			this.releaseUse(pinned);
+		}
+		if (threadLocal.get() == null && pinned == null)		// in transaction if conn in threadlocal
 			if (conn != null)
 				try {conn.close();} catch (SQLException e) {throw new IllegalStateException(e);}
 	}
@@ -19,8 +19,11 @@ package dbcache.support.jdbc;
 
 import dbcache.support.jdbc.dialect.MysqlDialect;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.Collection;
 import java.util.List;
 
@@ -30,6 +33,26 @@ import java.util.List;
  */
 public abstract class Dialect {
 
+	/**
+	 * 流式查询缺省fetchSize(由方言决定)
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 0;
+
+	/**
+	 * 逐行流式读取的fetchSize(MySQL驱动约定值)
+	 */
+	public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+	/**
+	 * 使用游标读取时的缺省fetchSize
+	 */
+	public static final int CURSOR_FETCH_SIZE = 1000;
+
+	/**
+	 * SQLite约束冲突错误码
+	 */
+	private static final int SQLITE_CONSTRAINT = 19;
+
 	public abstract String forTableInfoBuilderDoBuildTableInfo(TableInfo tInfo, String tableName);
 	public abstract void forModelSave(TableInfo tableInfo, StringBuilder sql);
 	public abstract String forModelDeleteById(TableInfo tInfo);
@@ -40,10 +63,103 @@ public abstract class Dialect {
 	public abstract String forModelFindIdByColumn(TableInfo tInfo, String columnName);
 	public abstract void forPaginate(StringBuilder sql, int pageNumber, int pageSize, String select, String sqlExceptSelect);
 	public abstract String forModelSelectMax(TableInfo tInfo, String columnName);
+
+	/**
+	 * 一次查询多个范围内的最大值
+	 * <br/>返回一行, 每个范围一列; 参数依次为每个范围的最小值和最大值
+	 * @param tInfo 表信息
+	 * @param columnName 列名
+	 * @param ranges 范围数量
+	 * @return
+	 */
+	public String forModelSelectMaxRanges(TableInfo tInfo, String columnName, int ranges) {
+		String maxSql = forModelSelectMax(tInfo, columnName);
+		StringBuilder sql = new StringBuilder("select ");
+		for (int i = 0; i < ranges; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append('(').append(maxSql).append(')');
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * 乐观锁条件, 追加在更新语句(forModelUpdate/forDbUpdate)之后
+	 * <br/>参数为更新前的版本号, 字段为null时视为0
+	 * @param tableInfo 表信息
+	 * @param sql
+	 */
+	public void forVersionCondition(TableInfo tableInfo, StringBuilder sql) {
+		sql.append(" and coalesce(").append(tableInfo.getVersionColumn()).append(", 0) = ?");
+	}
 	
 	public boolean isOracle() {
 		return false;
 	}
+
+	/**
+	 * 单条语句允许的最大参数数量
+	 * @return
+	 */
+	public int getMaxParameters() {
+		return 32767;
+	}
+
+	/**
+	 * 多行插入语句 insert into t(...) values(...), (...)
+	 * <br/>参数按行依次排列,每行参数与forModelSave一致
+	 * @param tableInfo 表信息
+	 * @param rows 行数
+	 * @param sql
+	 */
+	public void forModelMultiSave(TableInfo tableInfo, int rows, StringBuilder sql) {
+		this.forModelSave(tableInfo, sql);
+		appendValuesRows(tableInfo, rows, sql);
+	}
+
+	/**
+	 * 是否支持插入或更新(upsert)语句
+	 * @return
+	 */
+	public boolean isSupportUpsert() {
+		return false;
+	}
+
+	/**
+	 * 多行插入或更新语句,主键冲突时更新非主键字段
+	 * <br/>参数与forModelMultiSave一致
+	 * @param tableInfo 表信息
+	 * @param rows 行数
+	 * @param sql
+	 */
+	public void forModelUpsert(TableInfo tableInfo, int rows, StringBuilder sql) {
+		throw new UnsupportedOperationException("upsert not supported by " + this.getClass().getSimpleName());
+	}
+
+	/**
+	 * 在单行values(...)之后追加其余行的占位符
+	 * @param tableInfo 表信息
+	 * @param rows 总行数
+	 * @param sql
+	 */
+	protected void appendValuesRows(TableInfo tableInfo, int rows, StringBuilder sql) {
+		if (rows <= 1) {
+			return;
+		}
+		int columns = tableInfo.getColumnTypeMap().size();
+		StringBuilder row = new StringBuilder(", (");
+		for (int i = 0; i < columns; i++) {
+			if (i > 0) {
+				row.append(", ");
+			}
+			row.append("?");
+		}
+		row.append(")");
+		for (int i = 1; i < rows; i++) {
+			sql.append(row);
+		}
+	}
 	
 
 	public void fillStatement(PreparedStatement pst, List<Object> paras) throws SQLException {
@@ -62,10 +178,66 @@ public abstract class Dialect {
 		}
 	}
 	
+	/**
+	 * 创建流式查询语句(只读,只能向前)
+	 * @param conn 连接
+	 * @param sql SQL语句
+	 * @param fetchSize 每次从数据库读取的行数, <= 0 使用方言缺省的流式fetchSize
+	 * @return
+	 * @throws SQLException
+	 * @see #getStreamingFetchSize()
+	 */
+	public PreparedStatement prepareStreamingStatement(Connection conn, String sql, int fetchSize) throws SQLException {
+		PreparedStatement pst = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		pst.setFetchSize(fetchSize > 0 ? fetchSize : getStreamingFetchSize());
+		return pst;
+	}
+
+	/**
+	 * 流式查询缺省的fetchSize
+	 * <br/>不设置时PostgreSQL等驱动会把整个结果集读入内存
+	 * @return
+	 */
+	public int getStreamingFetchSize() {
+		return CURSOR_FETCH_SIZE;
+	}
+
+	/**
+	 * 流式查询是否需要关闭自动提交(如PostgreSQL只有在事务中才使用游标)
+	 * @return
+	 */
+	public boolean isStreamingNeedTransaction() {
+		return false;
+	}
+
 	public String getDefaultPrimaryKey() {
 		return "id";
 	}
 
+	/**
+	 * 是否为主键(唯一键)冲突异常
+	 * <br/>SQLState为23类(完整性约束冲突), 或SQLite的SQLITE_CONSTRAINT(没有SQLState)
+	 * @param e 异常, 会依次检查其cause
+	 * @return
+	 */
+	public static boolean isDuplicateKey(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof SQLIntegrityConstraintViolationException) {
+				return true;
+			}
+			if (t instanceof SQLException) {
+				String sqlState = ((SQLException) t).getSQLState();
+				if (sqlState != null ? sqlState.startsWith("23") : ((SQLException) t).getErrorCode() == SQLITE_CONSTRAINT) {
+					return true;
+				}
+			}
+			if (t.getCause() == t) {
+				break;
+			}
+		}
+		return false;
+	}
+
 	public static Dialect getDefaultDialect() {
 		return new MysqlDialect();
 	}
@@ -13,5 +13,9 @@ public class JdbcExecuteException extends RuntimeException {
 	public JdbcExecuteException(Throwable cause) {
 		super(cause);
 	}
+
+	public JdbcExecuteException(String message) {
+		super(message);
+	}
 	
 }
@@ -2,11 +2,16 @@ package dbcache.support.jdbc;
 
 import dbcache.anno.Shard;
 import dbcache.conf.ShardStrategy;
+import dbcache.metrics.DbCacheMetrics;
+import dbcache.metrics.JdbcMetrics.SqlType;
+import dbcache.persist.ModifiedFields;
 import dbcache.pkey.IdGenerator;
 import utils.enhance.asm.util.AsmUtils;
 import dbcache.utils.MutableInteger;
 import utils.StringUtils;
 import utils.collections.concurrent.IdentityHashMap;
+import utils.thread.NamedThreadFactory;
+import utils.thread.ThreadUtils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -26,6 +31,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
@@ -48,6 +58,12 @@ public class JdbcSupport {
     /** 实体信息缓存 */
     private final IdentityHashMap<Class<?>, ModelInfo> modelInfoCache = new IdentityHashMap<Class<?>, ModelInfo>();
 
+    /** 不存在的分表重新检查表元数据的间隔(毫秒) */
+    private static final long MISSING_SHARD_RECHECK_MILLIS = 60 * 1000;
+
+    /** 分表查询线程池 */
+    private volatile ExecutorService shardQueryExecutor;
+
 
     /**
      * 根据Id获取实体
@@ -58,19 +74,22 @@ public class JdbcSupport {
     @SuppressWarnings("unchecked")
 	public <T> T get(final Class<T> clzz, Object id) {
 
-    	ModelInfo modelInfo = getOrCreateModelInfo(clzz);
+    	ModelInfo modelInfo = getShardModelInfo(getOrCreateModelInfo(clzz), id, false);
+    	if (modelInfo == null) {
+    		return null;
+    	}
     	String sql = modelInfo.getOrCreateSelectSql(config.dialect);
 
     	Connection conn = null;
     	PreparedStatement pst = null;
     	ResultSet rs = null;
     	try {
-	    	conn = config.getConnection();
+	    	conn = config.getReadConnection(false, modelInfo.getLastWriteTime(), DbCacheMetrics.hasPendingPersist(clzz));
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 			config.dialect.fillStatement(pst, id);
 
-			rs = pst.executeQuery();
+			rs = timedQuery(pst);
 			
 			return (T) modelInfo.generateEntity(rs);
 		} catch (Exception e) {
@@ -87,7 +106,7 @@ public class JdbcSupport {
      * @param entity 实体对象
      */
     public boolean save(Object entity) {
-    	ModelInfo modelInfo = getOrCreateModelInfo(entity.getClass());
+    	ModelInfo modelInfo = getShardModelInfo(entity);
     	String saveSql = modelInfo.getOrCreateSaveSql(config.dialect);
 
     	Connection conn = null;
@@ -95,12 +114,12 @@ public class JdbcSupport {
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(saveSql);
+			pst = config.prepareStatement(conn, saveSql);
 
-			Object[] params = modelInfo.getSaveParams(entity);
-			config.dialect.fillStatement(pst, params);
+			modelInfo.fillSaveStatement(pst, entity, config.dialect);
 
-			int result = pst.executeUpdate();
+			int result = timedUpdate(pst, SqlType.INSERT);
+			modelInfo.markWrite();
 
 			return result > 0;
 		} catch (Exception e) {
@@ -114,10 +133,18 @@ public class JdbcSupport {
     
     /**
      * 批量保存实体
+     * <br/>Config.multiRowSize > 1 时使用多行insert
      * @param clzz 实体类
      * @param entitys 实体对象
+     * @return 每个实体影响的行数, 多行insert无法区分每行的结果时为Statement.SUCCESS_NO_INFO
      */
     public int[] batchSave(final Class<?> clzz, Collection<Object> entitys) {
+    	if (config.getMultiRowSize() > 1) {
+    		return this.multiRowSave(clzz, entitys, false);
+    	}
+
+    	// 开启事务前确定分表, 建表语句不在事务中执行
+    	Map<ModelInfo, Collection<Object>> shards = groupByShard(clzz, entitys, true);
 
     	Connection conn = null;
     	PreparedStatement pst = null;
@@ -127,18 +154,25 @@ public class JdbcSupport {
 		    conn = config.getConnection();
 		    conn.setAutoCommit(false);
 		    
-		    ModelInfo modelInfo = getOrCreateModelInfo(clzz);
-		    String updateSql = modelInfo.getOrCreateSaveSql(config.dialect);
-		    	
-			pst = conn.prepareStatement(updateSql);
-
-			for (Object entity : entitys) {
-				Object[] params = modelInfo.getSaveParams(entity);
-				config.dialect.fillStatement(pst, params);
-				pst.addBatch();
-			}
+		    int[] results = new int[0];
+		    for (Entry<ModelInfo, Collection<Object>> entry : shards.entrySet()) {
+		    	ModelInfo modelInfo = entry.getKey();
+		    	String updateSql = modelInfo.getOrCreateSaveSql(config.dialect);
+
+		    	pst = config.prepareStatement(conn, updateSql);
+
+		    	for (Object entity : entry.getValue()) {
+		    		modelInfo.fillSaveStatement(pst, entity, config.dialect);
+		    		pst.addBatch();
+		    	}
+
+		    	results = concat(results, timedBatch(pst, SqlType.INSERT));
+		    	modelInfo.markWrite();
+		    	config.closeStatement(pst, conn);
+		    	pst = null;
+		    }
 			
-			return pst.executeBatch();
+			return results;
 			
     	} catch (Exception e) {
 			rollbackAndClose(conn, e);
@@ -149,6 +183,161 @@ public class JdbcSupport {
     }
     
 
+    /**
+     * 保存或更新实体(主键冲突时更新)
+     * <br/>方言不支持upsert或实体带版本号时先update,没有更新到记录再insert
+     * @param entity 实体对象
+     * @throws StaleEntityException 带版本号的实体记录已存在且版本号不一致
+     */
+    public boolean saveOrUpdate(Object entity) {
+    	ModelInfo modelInfo = getShardModelInfo(entity);
+    	// upsert不检查版本号, 可能覆盖其他节点更新的记录
+    	if (!config.dialect.isSupportUpsert() || modelInfo.isVersioned()) {
+    		StaleEntityException stale = null;
+    		try {
+    			if (this.update(entity)) {
+    				return true;
+    			}
+    		} catch (StaleEntityException e) {
+    			// 带版本号时记录不存在也视为冲突, 尝试插入
+    			stale = e;
+    		}
+    		try {
+    			return this.save(entity);
+    		} catch (JdbcExecuteException e) {
+    			// 记录已存在, 版本号不一致
+    			if (stale != null && Dialect.isDuplicateKey(e)) {
+    				throw stale;
+    			}
+    			throw e;
+    		}
+    	}
+
+    	String upsertSql = modelInfo.getOrCreateUpsertSql(1, config.dialect);
+
+    	Connection conn = null;
+    	PreparedStatement pst = null;
+    	try {
+	    	conn = config.getConnection();
+
+			pst = config.prepareStatement(conn, upsertSql);
+
+			modelInfo.fillSaveStatement(pst, 0, entity);
+
+			int result = timedUpdate(pst, SqlType.INSERT);
+			modelInfo.markWrite();
+
+			return result > 0;
+		} catch (Exception e) {
+			handleException(conn, e);
+		} finally {
+			handleClose(conn, pst);
+		}
+    	return false;
+    }
+
+
+    /**
+     * 批量保存或更新实体(主键冲突时更新)
+     * <br/>方言不支持upsert或实体带版本号时逐个先update,没有更新到记录再insert
+     * @param clzz 实体类
+     * @param entitys 实体对象
+     * @return 每个实体影响的行数, 多行upsert无法区分每行的结果时为Statement.SUCCESS_NO_INFO
+     * @throws StaleEntityException 带版本号的实体版本号冲突, 其余实体已正常提交
+     */
+    public int[] batchSaveOrUpdate(final Class<?> clzz, Collection<Object> entitys) {
+    	if (config.dialect.isSupportUpsert() && !getOrCreateModelInfo(clzz).isVersioned()) {
+    		return this.multiRowSave(clzz, entitys, true);
+    	}
+
+    	int[] results = new int[entitys.size()];
+    	int i = 0;
+    	List<Object> conflicts = null;
+    	for (Object entity : entitys) {
+    		try {
+    			results[i++] = this.saveOrUpdate(entity) ? 1 : 0;
+    		} catch (StaleEntityException e) {
+    			if (conflicts == null) {
+    				conflicts = new ArrayList<Object>();
+    			}
+    			conflicts.addAll(e.getEntities());
+    		}
+    	}
+    	if (conflicts != null) {
+    		throw new StaleEntityException(conflicts);
+    	}
+    	return results;
+    }
+
+
+    // 多行insert/upsert, 每条语句最多multiRowSize行, 返回每个实体的结果
+    private int[] multiRowSave(final Class<?> clzz, Collection<Object> entitys, boolean upsert) {
+    	if (entitys.isEmpty()) {
+    		return new int[0];
+    	}
+
+    	// 开启事务前确定分表, 建表语句不在事务中执行
+    	Map<ModelInfo, Collection<Object>> shards = groupByShard(clzz, entitys, true);
+
+    	Connection conn = null;
+    	PreparedStatement pst = null;
+    	try {
+
+		    conn = config.getConnection();
+		    conn.setAutoCommit(false);
+
+		    // 分表时按实体在参数中的位置返回结果
+		    Map<Object, Integer> positions = null;
+		    if (shards.size() > 1) {
+		    	positions = new java.util.IdentityHashMap<Object, Integer>(entitys.size());
+		    	int position = 0;
+		    	for (Object entity : entitys) {
+		    		positions.put(entity, position++);
+		    	}
+		    }
+
+		    int[] results = new int[entitys.size()];
+		    for (Entry<ModelInfo, Collection<Object>> entry : shards.entrySet()) {
+		    	ModelInfo modelInfo = entry.getKey();
+		    	int rowSize = modelInfo.getMultiRowSize(config.getMultiRowSize(), config.dialect);
+		    	int total = entry.getValue().size();
+		    	Object[] rowEntitys = new Object[rowSize];
+
+		    	Iterator<Object> it = entry.getValue().iterator();
+		    	for (int from = 0; from < total; from += rowSize) {
+		    		int rows = Math.min(rowSize, total - from);
+		    		String sql = upsert ? modelInfo.getOrCreateUpsertSql(rows, config.dialect)
+		    				: modelInfo.getOrCreateMultiSaveSql(rows, config.dialect);
+
+		    		pst = config.prepareStatement(conn, sql);
+		    		for (int row = 0; row < rows; row++) {
+		    			rowEntitys[row] = it.next();
+		    			modelInfo.fillSaveStatement(pst, row, rowEntitys[row]);
+		    		}
+		    		int result = timedUpdate(pst, SqlType.INSERT);
+		    		modelInfo.markWrite();
+		    		config.closeStatement(pst, conn);
+		    		pst = null;
+
+		    		// 每行影响一条记录时可以确定每个实体的结果, 否则(如MySQL upsert更新时计为2)无法区分
+		    		int rowResult = result == rows ? 1 : Statement.SUCCESS_NO_INFO;
+		    		for (int row = 0; row < rows; row++) {
+		    			results[positions == null ? from + row : positions.get(rowEntitys[row])] = rowResult;
+		    		}
+		    	}
+		    }
+
+		    return results;
+
+    	} catch (Exception e) {
+			rollbackAndClose(conn, e);
+    	} finally {
+			commitAndClose(conn, pst);
+    	}
+    	return new int[0];
+    }
+
+
     /**
      * 使用Id生成器保存实体
      * @param entity 实体对象
@@ -165,6 +354,10 @@ public class JdbcSupport {
      */
     public boolean saveWithAutoId(Object entity, int category) {
     	ModelInfo modelInfo = getOrCreateModelInfo(entity.getClass());
+
+    	// 先生成主键再确定分表
+    	Object[] params = modelInfo.getAutoIdSaveParams(entity, category);
+    	modelInfo = getShardModelInfo(modelInfo, modelInfo.getPrimaryKeyParam(params));
     	String saveSql = modelInfo.getOrCreateSaveSql(config.dialect);
 
     	Connection conn = null;
@@ -172,12 +365,12 @@ public class JdbcSupport {
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(saveSql);
+			pst = config.prepareStatement(conn, saveSql);
 
-			Object[] params = modelInfo.getAutoIdSaveParams(entity, category);
 			config.dialect.fillStatement(pst, params);
 
-			int result = pst.executeUpdate();
+			int result = timedUpdate(pst, SqlType.INSERT);
+			modelInfo.markWrite();
 
 			return result > 0;
 		} catch (Exception e) {
@@ -195,28 +388,45 @@ public class JdbcSupport {
      * @return
      */
     public boolean update(Object entity) {
-    	ModelInfo modelInfo = getOrCreateModelInfo(entity.getClass());
+    	ModelInfo modelInfo = getShardModelInfo(entity, false);
+    	if (modelInfo == null) {
+    		return missingShardUpdate(entity);
+    	}
     	String updateSql = modelInfo.getOrCreateUpdateSql(config.dialect);
 
+    	// 带版本号时先递增版本号
+    	boolean versioned = modelInfo.isVersioned();
+    	Object oldVersion = versioned ? modelInfo.incrementVersion(entity) : null;
+
+    	int result = 0;
     	Connection conn = null;
     	PreparedStatement pst = null;
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(updateSql);
+			pst = config.prepareStatement(conn, updateSql);
 
-			Object[] params = modelInfo.getUpdateParams(entity);
-			config.dialect.fillStatement(pst, params);
-
-			int result = pst.executeUpdate();
+			modelInfo.fillUpdateStatement(pst, entity, config.dialect);
+			if (versioned) {
+				modelInfo.fillVersionCondition(pst, oldVersion);
+			}
 
-			return result > 0;
+			result = timedUpdate(pst, SqlType.UPDATE);
+			modelInfo.markWrite();
 		} catch (Exception e) {
+			if (versioned) {
+				modelInfo.restoreVersion(entity, oldVersion);
+			}
 			handleException(conn, e);
 		} finally {
 			handleClose(conn, pst);
 		}
-    	return false;
+
+		if (versioned && result == 0) {
+			modelInfo.restoreVersion(entity, oldVersion);
+			throw new StaleEntityException(entity);
+		}
+    	return result > 0;
     }
     
 
@@ -228,8 +438,6 @@ public class JdbcSupport {
      * @return
      */
     public boolean update(Object entity, AtomicIntegerArray modifiedFields) {
-    	ModelInfo modelInfo = getOrCreateModelInfo(entity.getClass());
-    	
     	int length = modifiedFields.length();
     	List<Integer> modifiedFieldList = new ArrayList<Integer>(length);
     	for (int i = 0;i < length;i ++) {
@@ -238,27 +446,76 @@ public class JdbcSupport {
     			modifiedFieldList.add(i);
     		}
     	}
+    	return this.update(entity, modifiedFieldList);
+    }
+
+
+    /**
+     * 更新实体
+     * @param entity 实体对象
+     * @param modifiedFields 修改过的属性集合(线程安全)
+     * @return
+     */
+    public boolean update(Object entity, ModifiedFields modifiedFields) {
+    	return this.update(entity, modifiedFields.drain());
+    }
+
+
+    // 更新修改过的属性, 列表为空时更新全部属性
+    private boolean update(Object entity, List<Integer> modifiedFieldList) {
+    	ModelInfo modelInfo = getShardModelInfo(entity, false);
+    	if (modelInfo == null) {
+    		return missingShardUpdate(entity);
+    	}
+    	
+    	// 带版本号时同时更新版本号字段
+    	boolean versioned = modelInfo.isVersioned();
+    	if (versioned && modifiedFieldList.size() > 0
+    			&& !modifiedFieldList.contains(modelInfo.getVersionIndex())) {
+    		modifiedFieldList.add(modelInfo.getVersionIndex());
+    	}
     	
     	String updateSql = modelInfo.getOrCreateUpdateSql(modifiedFieldList, config.dialect);
+    	Object oldVersion = versioned ? modelInfo.incrementVersion(entity) : null;
 
+    	int result = 0;
     	Connection conn = null;
     	PreparedStatement pst = null;
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(updateSql);
+			pst = config.prepareStatement(conn, updateSql);
 
 			Object[] params = modelInfo.getUpdateParams(modifiedFieldList, entity);
+			if (versioned) {
+				params = modelInfo.addVersionParam(params, oldVersion);
+			}
 			config.dialect.fillStatement(pst, params);
 
-			int result = pst.executeUpdate();
-
-			return result > 0;
+			result = timedUpdate(pst, SqlType.UPDATE);
+			modelInfo.markWrite();
 		} catch (Exception e) {
+			if (versioned) {
+				modelInfo.restoreVersion(entity, oldVersion);
+			}
 			handleException(conn, e);
 		} finally {
 			handleClose(conn, pst);
 		}
+
+		if (versioned && result == 0) {
+			modelInfo.restoreVersion(entity, oldVersion);
+			throw new StaleEntityException(entity);
+		}
+    	return result > 0;
+    }
+
+
+    // 分表不存在时没有可更新的记录, 带版本号时视为冲突
+    private boolean missingShardUpdate(Object entity) {
+    	if (getOrCreateModelInfo(entity.getClass()).isVersioned()) {
+    		throw new StaleEntityException(entity);
+    	}
     	return false;
     }
 
@@ -281,30 +538,42 @@ public class JdbcSupport {
     		list.add(entity);
     	}
 
+    	// 开启事务前确定分表, 分表不存在的实体没有可更新的记录
+    	List<Map<ModelInfo, Collection<Object>>> classShards = new ArrayList<Map<ModelInfo, Collection<Object>>>(entityClassMap.size());
+    	List<Object> conflicts = null;
+    	for (Entry<Class<?>, List<Object>> classEntry : entityClassMap.entrySet()) {
+    		Map<ModelInfo, Collection<Object>> shards = groupByShard(classEntry.getKey(), classEntry.getValue(), false);
+    		conflicts = missingShardConflicts(classEntry.getKey(), shards.remove(null), conflicts);
+    		classShards.add(shards);
+    	}
+
+    	List<Object[]> versions = new ArrayList<Object[]>(0);
     	Connection conn = null;
+    	PreparedStatement pst = null;
     	try {
     		
-    		PreparedStatement pst;
 		    conn = config.getConnection();
 		    conn.setAutoCommit(false);
 		    
-		    for (Entry<Class<?>, List<Object>> entry : entityClassMap.entrySet()) {
-	    		ModelInfo modelInfo = getOrCreateModelInfo(entry.getKey());
-		    	String updateSql = modelInfo.getOrCreateUpdateSql(config.dialect);
-		    	
-				pst = conn.prepareStatement(updateSql);
-
-				for (Object entity : entry.getValue()) {
-					Object[] params = modelInfo.getUpdateParams(entity);
-					config.dialect.fillStatement(pst, params);
-					pst.addBatch();
-				}
-				pst.executeBatch();
-				pst.close();
+		    for (Map<ModelInfo, Collection<Object>> shards : classShards) {
+		    	for (Entry<ModelInfo, Collection<Object>> entry : shards.entrySet()) {
+		    		ModelInfo modelInfo = entry.getKey();
+		    		String updateSql = modelInfo.getOrCreateUpdateSql(config.dialect);
+
+		    		pst = config.prepareStatement(conn, updateSql);
+
+		    		int from = versions.size();
+		    		int[] shardResults = executeUpdateBatch(pst, modelInfo, entry.getValue(), versions);
+		    		conflicts = checkVersionConflicts(modelInfo, versions, from, shardResults, conflicts);
+		    		modelInfo.markWrite();
+		    		config.closeStatement(pst, conn);
+		    		pst = null;
+		    	}
 		    }
 		    
 		    conn.setAutoCommit(true);
     	} catch (Exception e) {
+    		restoreVersions(versions);
 			try {
 				// 若出现异常，对数据库中所有已完成的操作全部撤销，则回滚到事务开始状态
 				if (conn != null && !conn.isClosed()) {
@@ -317,8 +586,13 @@ public class JdbcSupport {
 			}
 			handleException(conn, e);
     	} finally {
+    		config.closeStatement(pst, conn);
     		config.close(conn);
     	}
+
+    	if (conflicts != null) {
+    		throw new StaleEntityException(conflicts);
+    	}
     }
 
     
@@ -329,6 +603,13 @@ public class JdbcSupport {
      */
     public int[] batchUpdate(final Class<?> clzz, Collection<Object> entitys) {
 
+    	// 开启事务前确定分表, 分表不存在的实体没有可更新的记录
+    	Map<ModelInfo, Collection<Object>> shards = groupByShard(clzz, entitys, false);
+    	Collection<Object> missing = shards.remove(null);
+    	List<Object> conflicts = missingShardConflicts(clzz, missing, null);
+    	int[] results = new int[missing != null ? missing.size() : 0];
+
+    	List<Object[]> versions = new ArrayList<Object[]>(0);
     	Connection conn = null;
     	PreparedStatement pst = null;
     	try {
@@ -337,25 +618,117 @@ public class JdbcSupport {
 		    conn = config.getConnection();
 		    conn.setAutoCommit(false);
 		    
-		    ModelInfo modelInfo = getOrCreateModelInfo(clzz);
-		    String updateSql = modelInfo.getOrCreateUpdateSql(config.dialect);
-		    	
-			pst = conn.prepareStatement(updateSql);
-
-			for (Object entity : entitys) {
-				Object[] params = modelInfo.getUpdateParams(entity);
-				config.dialect.fillStatement(pst, params);
-				pst.addBatch();
-			}
-			
-			return pst.executeBatch();
+		    for (Entry<ModelInfo, Collection<Object>> entry : shards.entrySet()) {
+		    	ModelInfo modelInfo = entry.getKey();
+		    	String updateSql = modelInfo.getOrCreateUpdateSql(config.dialect);
+
+		    	pst = config.prepareStatement(conn, updateSql);
+
+		    	int from = versions.size();
+		    	int[] shardResults = executeUpdateBatch(pst, modelInfo, entry.getValue(), versions);
+		    	conflicts = checkVersionConflicts(modelInfo, versions, from, shardResults, conflicts);
+		    	results = concat(results, shardResults);
+		    	modelInfo.markWrite();
+		    	config.closeStatement(pst, conn);
+		    	pst = null;
+		    }
 			
     	} catch (Exception e) {
+    		restoreVersions(versions);
 			rollbackAndClose(conn, e);
     	} finally {
 			commitAndClose(conn, pst);
     	}
-    	return new int[0];
+
+    	// 其余实体已提交, 冲突的实体交给调用方处理
+    	if (conflicts != null) {
+    		throw new StaleEntityException(conflicts);
+    	}
+    	return results;
+    }
+
+
+    /**
+     * 执行批量更新语句
+     * <br/>带版本号时先递增版本号, 并将 {实体, 更新前的版本号} 依次添加到versions
+     * <br/>带版本号时逐条执行: 驱动对批量语句可能返回SUCCESS_NO_INFO, 无法判断版本号是否冲突
+     * @param pst 语句
+     * @param modelInfo 实体信息
+     * @param entitys 实体对象
+     * @param versions 版本号变更记录
+     * @return 每个实体影响的行数
+     * @throws SQLException
+     */
+    private int[] executeUpdateBatch(PreparedStatement pst, ModelInfo modelInfo, Collection<Object> entitys,
+    		List<Object[]> versions) throws SQLException {
+    	if (!modelInfo.isVersioned()) {
+    		for (Object entity : entitys) {
+    			modelInfo.fillUpdateStatement(pst, entity, config.dialect);
+    			pst.addBatch();
+    		}
+    		return timedBatch(pst, SqlType.UPDATE);
+    	}
+
+    	int[] results = new int[entitys.size()];
+    	int i = 0;
+    	for (Object entity : entitys) {
+    		Object oldVersion = modelInfo.incrementVersion(entity);
+    		versions.add(new Object[] { entity, oldVersion });
+    		modelInfo.fillUpdateStatement(pst, entity, config.dialect);
+    		modelInfo.fillVersionCondition(pst, oldVersion);
+    		results[i++] = timedUpdate(pst, SqlType.UPDATE);
+    	}
+    	return results;
+    }
+
+
+    /**
+     * 检查批量更新结果, 未更新到记录的实体恢复版本号并加入冲突列表
+     * <br/>带版本号的实体逐条执行, 结果为准确的影响行数
+     * @param modelInfo 实体信息
+     * @param versions 版本号变更记录
+     * @param from 本批语句在versions中的起始位置
+     * @param results 批量执行结果
+     * @param conflicts 冲突列表, 可为null
+     * @return 冲突列表, 没有冲突时返回传入的conflicts
+     */
+    private List<Object> checkVersionConflicts(ModelInfo modelInfo, List<Object[]> versions, int from,
+    		int[] results, List<Object> conflicts) {
+    	if (!modelInfo.isVersioned()) {
+    		return conflicts;
+    	}
+    	for (int i = 0; i < results.length && from + i < versions.size(); i++) {
+    		if (results[i] == 0) {
+    			Object[] version = versions.get(from + i);
+    			modelInfo.restoreVersion(version[0], version[1]);
+    			if (conflicts == null) {
+    				conflicts = new ArrayList<Object>();
+    			}
+    			conflicts.add(version[0]);
+    		}
+    	}
+    	return conflicts;
+    }
+
+
+    // 分表不存在的带版本号实体加入冲突列表
+    private List<Object> missingShardConflicts(Class<?> clzz, Collection<Object> missing, List<Object> conflicts) {
+    	if (missing == null || !getOrCreateModelInfo(clzz).isVersioned()) {
+    		return conflicts;
+    	}
+    	if (conflicts == null) {
+    		conflicts = new ArrayList<Object>();
+    	}
+    	conflicts.addAll(missing);
+    	return conflicts;
+    }
+
+
+    // 回滚时恢复实体版本号
+    private void restoreVersions(List<Object[]> versions) {
+    	for (Object[] version : versions) {
+    		getOrCreateModelInfo(version[0].getClass()).restoreVersion(version[0], version[1]);
+    	}
     }
 
 	private void commitAndClose(Connection conn, PreparedStatement pst) {
@@ -378,7 +751,10 @@ public class JdbcSupport {
      * @return
      */
     public boolean delete(Object entity) {
-    	ModelInfo modelInfo = getOrCreateModelInfo(entity.getClass());
+    	ModelInfo modelInfo = getShardModelInfo(entity, false);
+    	if (modelInfo == null) {
+    		return false;
+    	}
     	String deleteSql = modelInfo.getOrCreateDeleteSql(config.dialect);
 
     	Connection conn = null;
@@ -386,12 +762,13 @@ public class JdbcSupport {
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(deleteSql);
+			pst = config.prepareStatement(conn, deleteSql);
 
 			Object param = modelInfo.getDeleteParam(entity);
 			config.dialect.fillStatement(pst, param);
 
-			int result = pst.executeUpdate();
+			int result = timedUpdate(pst, SqlType.DELETE);
+			modelInfo.markWrite();
 
 			return result > 0;
 		} catch (Exception e) {
@@ -410,6 +787,10 @@ public class JdbcSupport {
      */
     public int[] batchDelete(final Class<?> clzz, Collection<Object> entitys) {
 
+    	// 开启事务前确定分表, 分表不存在的实体没有可删除的记录
+    	Map<ModelInfo, Collection<Object>> shards = groupByShard(clzz, entitys, false);
+    	Collection<Object> missing = shards.remove(null);
+
     	Connection conn = null;
     	PreparedStatement pst = null;
     	try {
@@ -418,18 +799,26 @@ public class JdbcSupport {
 		    conn = config.getConnection();
 		    conn.setAutoCommit(false);
 		    
-		    ModelInfo modelInfo = getOrCreateModelInfo(clzz);
-		    String updateSql = modelInfo.getOrCreateDeleteSql(config.dialect);
-		    	
-			pst = conn.prepareStatement(updateSql);
-
-			for (Object entity : entitys) {
-				Object params = modelInfo.getDeleteParam(entity);
-				config.dialect.fillStatement(pst, params);
-				pst.addBatch();
-			}
+		    int[] results = new int[missing != null ? missing.size() : 0];
+		    for (Entry<ModelInfo, Collection<Object>> entry : shards.entrySet()) {
+		    	ModelInfo modelInfo = entry.getKey();
+		    	String updateSql = modelInfo.getOrCreateDeleteSql(config.dialect);
+
+		    	pst = config.prepareStatement(conn, updateSql);
+
+		    	for (Object entity : entry.getValue()) {
+		    		Object params = modelInfo.getDeleteParam(entity);
+		    		config.dialect.fillStatement(pst, params);
+		    		pst.addBatch();
+		    	}
+
+		    	results = concat(results, timedBatch(pst, SqlType.DELETE));
+		    	modelInfo.markWrite();
+		    	config.closeStatement(pst, conn);
+		    	pst = null;
+		    }
 			
-			return pst.executeBatch();
+			return results;
 			
     	} catch (Exception e) {
 			rollbackAndClose(conn, e);
@@ -461,22 +850,40 @@ public class JdbcSupport {
      * @return
      */
     @SuppressWarnings("unchecked")
-	public <T> List<T> listByAttr(final Class<T> clzz, String attrName, Object attrValue) {
+	public <T> List<T> listByAttr(final Class<T> clzz, final String attrName, final Object attrValue) {
     	ModelInfo modelInfo = getOrCreateModelInfo(clzz);
+    	if (!modelInfo.isSharded()) {
+    		return (List<T>) listByAttr(modelInfo, attrName, attrValue);
+    	}
+
+    	List<T> result = new ArrayList<T>();
+    	for (List<?> shardResult : queryShards(modelInfo, new ShardQuery<List<?>>() {
+			@Override
+			public List<?> query(ModelInfo shardModelInfo) {
+				return listByAttr(shardModelInfo, attrName, attrValue);
+			}
+		})) {
+    		result.addAll((List<T>) shardResult);
+    	}
+    	return result;
+    }
+
+
+    private List<?> listByAttr(ModelInfo modelInfo, String attrName, Object attrValue) {
     	String sql = modelInfo.getOrCreateFindByAttributeSql(config.dialect, attrName);
 
     	Connection conn = null;
     	PreparedStatement pst = null;
     	ResultSet rs = null;
     	try {
-	    	conn = config.getConnection();
+	    	conn = config.getReadConnection(true, modelInfo.getLastWriteTime(), DbCacheMetrics.hasPendingPersist(modelInfo.getClzz()));
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 			config.dialect.fillStatement(pst, attrValue);
 
-			rs = pst.executeQuery();
+			rs = timedQuery(pst);
 
-			return (List<T>) modelInfo.generateEntityList(rs);
+			return modelInfo.generateEntityList(rs);
 		} catch (Exception e) {
 			handleException(conn, e);
 		} finally {
@@ -493,20 +900,38 @@ public class JdbcSupport {
      * @param attrValue 属性值
      * @return
      */
-    public List<?> listIdByAttr(final Class<?> clzz, String attrName, Object attrValue) {
+    public List<?> listIdByAttr(final Class<?> clzz, final String attrName, final Object attrValue) {
     	ModelInfo modelInfo = getOrCreateModelInfo(clzz);
+    	if (!modelInfo.isSharded()) {
+    		return listIdByAttr(modelInfo, attrName, attrValue);
+    	}
+
+    	List<Object> result = new ArrayList<Object>();
+    	for (List<?> shardResult : queryShards(modelInfo, new ShardQuery<List<?>>() {
+			@Override
+			public List<?> query(ModelInfo shardModelInfo) {
+				return listIdByAttr(shardModelInfo, attrName, attrValue);
+			}
+		})) {
+    		result.addAll(shardResult);
+    	}
+    	return result;
+    }
+
+
+    private List<?> listIdByAttr(ModelInfo modelInfo, String attrName, Object attrValue) {
     	String sql = modelInfo.getOrCreateFindIdByAttributeSql(config.dialect, attrName);
 
     	Connection conn = null;
     	PreparedStatement pst = null;
     	ResultSet rs = null;
     	try {
-	    	conn = config.getConnection();
+	    	conn = config.getReadConnection(true, modelInfo.getLastWriteTime(), DbCacheMetrics.hasPendingPersist(modelInfo.getClzz()));
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 			config.dialect.fillStatement(pst, attrValue);
 
-			rs = pst.executeQuery();
+			rs = timedQuery(pst);
 
 			return modelInfo.generateIdList(rs);
 		} catch (Exception e) {
@@ -525,8 +950,82 @@ public class JdbcSupport {
      * @param maxValue 范围-上限
      * @return
      */
-    public Object getMaxPrimaryKey(final Class<?> clzz, Object minValue, Object maxValue) {
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+	public Object getMaxPrimaryKey(final Class<?> clzz, final Object minValue, final Object maxValue) {
     	ModelInfo modelInfo = getOrCreateModelInfo(clzz);
+    	if (!modelInfo.isSharded()) {
+    		return getMaxPrimaryKey(modelInfo, minValue, maxValue);
+    	}
+
+    	Object result = null;
+    	for (Object shardResult : queryShards(modelInfo, new ShardQuery<Object>() {
+			@Override
+			public Object query(ModelInfo shardModelInfo) {
+				return getMaxPrimaryKey(shardModelInfo, minValue, maxValue);
+			}
+		})) {
+    		if (shardResult != null && (result == null || ((Comparable) shardResult).compareTo(result) > 0)) {
+    			result = shardResult;
+    		}
+    	}
+    	return result;
+    }
+
+
+    /**
+     * 一次查询取得多个范围内的最大主键值
+     * <br/>用于启动时按服务器Id范围初始化主键生成器, 只需一次数据库往返
+     * @param clzz 实体类
+     * @param minValues 各范围最小值
+     * @param maxValues 各范围最大值
+     * @return 与范围一一对应的最大主键值, 范围内没有记录时为null
+     */
+    public Object[] getMaxPrimaryKeys(final Class<?> clzz, final Object[] minValues, final Object[] maxValues) {
+    	if (minValues.length != maxValues.length) {
+    		throw new IllegalArgumentException("minValues和maxValues长度不一致");
+    	}
+    	int ranges = minValues.length;
+    	ModelInfo modelInfo = getOrCreateModelInfo(clzz);
+    	if (modelInfo.isSharded() || ranges * 2 > config.dialect.getMaxParameters()) {
+    		Object[] result = new Object[ranges];
+    		for (int i = 0; i < ranges; i++) {
+    			result[i] = getMaxPrimaryKey(clzz, minValues[i], maxValues[i]);
+    		}
+    		return result;
+    	}
+    	if (ranges == 0) {
+    		return new Object[0];
+    	}
+
+    	String sql = modelInfo.getOrCreateSelectMaxIdSql(config.dialect, ranges);
+    	Object[] params = new Object[ranges * 2];
+    	for (int i = 0; i < ranges; i++) {
+    		params[i * 2] = minValues[i];
+    		params[i * 2 + 1] = maxValues[i];
+    	}
+
+    	Connection conn = null;
+    	PreparedStatement pst = null;
+    	ResultSet rs = null;
+    	try {
+	    	conn = config.getConnection();
+
+			pst = config.prepareStatement(conn, sql);
+			config.dialect.fillStatement(pst, params);
+
+			rs = timedQuery(pst);
+
+			return modelInfo.generateUniqueRow(rs, ranges);
+		} catch (Exception e) {
+			handleException(conn, e);
+		} finally {
+			handleClose(conn, pst, rs);
+		}
+    	return null;
+    }
+
+
+    private Object getMaxPrimaryKey(ModelInfo modelInfo, Object minValue, Object maxValue) {
     	String sql = modelInfo.getOrCreateSelectMaxIdSql(config.dialect);
 
     	Connection conn = null;
@@ -535,10 +1034,10 @@ public class JdbcSupport {
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 			config.dialect.fillStatement(pst, minValue, maxValue);
 
-			rs = pst.executeQuery();
+			rs = timedQuery(pst);
 
 			return modelInfo.generateUniqueResult(rs);
 		} catch (Exception e) {
@@ -568,10 +1067,10 @@ public class JdbcSupport {
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 			config.dialect.fillStatement(pst, params);
 
-			rs = pst.executeQuery();
+			rs = timedQuery(pst);
 
 			return (List<T>) modelInfo.generateEntityList(rs);
 		} catch (Exception e) {
@@ -599,10 +1098,10 @@ public class JdbcSupport {
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 			config.dialect.fillStatement(pst, params);
 
-			rs = pst.executeQuery();
+			rs = timedQuery(pst);
 
 			return this.generateObjectList(rs, clzz);
 		} catch (Exception e) {
@@ -630,10 +1129,10 @@ public class JdbcSupport {
     	try {
 	    	conn = config.getConnection();
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 			config.dialect.fillStatement(pst, params);
 
-			rs = pst.executeQuery();
+			rs = timedQuery(pst);
 
 			return this.generateObjectList(rs, rowMapper);
 		} catch (Exception e) {
@@ -658,11 +1157,11 @@ public class JdbcSupport {
 		try {
 			conn = config.getConnection();
 
-			pst = conn.prepareStatement(sql);
+			pst = config.prepareStatement(conn, sql);
 
 			config.dialect.fillStatement(pst, params);
 
-			int result = pst.executeUpdate();
+			int result = timedUpdate(pst, SqlType.valueOfSql(sql));
 
 			return result > 0;
 		} catch (Exception e) {
@@ -674,6 +1173,161 @@ public class JdbcSupport {
 	}
 
 
+    /**
+     * 流式查询实体
+     * <br/>逐行映射实体,不缓存整个结果集,适用于导出/全表扫描等大结果集
+     * <br/>迭代器读取完毕后自动关闭,提前结束时必须调用close()
+     * @param clzz 实体类
+     * @param fetchSize 每次从数据库读取的行数, <= 0 使用方言缺省的流式读取方式
+     * @param sql SQL语句
+     * @param params 参数列表
+     * @param <T> 类泛型
+     * @return
+     */
+    public <T> ResultIterator<T> iterateEntityBySql(final Class<T> clzz, int fetchSize, String sql, Object... params) {
+    	return this.iterateBySql(sql, this.createEntityRowMapper(clzz), fetchSize, params);
+    }
+
+
+    /**
+     * 流式查询对象
+     * @param clzz 查询结果类型(数组/List/单列)
+     * @param fetchSize 每次从数据库读取的行数, <= 0 使用方言缺省的流式读取方式
+     * @param sql SQL语句
+     * @param params 参数列表
+     * @param <T> 类泛型
+     * @return
+     */
+    public <T> ResultIterator<T> iterateBySql(final Class<T> clzz, int fetchSize, String sql, Object... params) {
+    	return this.iterateBySql(sql, new ObjectRowMapper<T>(clzz), fetchSize, params);
+    }
+
+
+    /**
+     * 流式查询对象
+     * @param sql SQL语句
+     * @param rowMapper 行映射
+     * @param fetchSize 每次从数据库读取的行数, <= 0 使用方言缺省的流式读取方式
+     * @param params 参数列表
+     * @param <T> 类泛型
+     * @return
+     */
+    public <T> ResultIterator<T> iterateBySql(String sql, RowMapper<T> rowMapper, int fetchSize, Object... params) {
+
+    	Connection conn = null;
+    	PreparedStatement pst = null;
+    	ResultSet rs = null;
+    	Boolean autoCommit = null;
+    	boolean opened = false;
+    	try {
+	    	conn = config.getStreamingConnection();
+	    	if (config.dialect.isStreamingNeedTransaction() && conn.getAutoCommit()) {
+	    		conn.setAutoCommit(false);
+	    		autoCommit = Boolean.TRUE;
+	    	}
+
+			pst = config.dialect.prepareStreamingStatement(conn, sql, fetchSize);
+			config.dialect.fillStatement(pst, params);
+
+			rs = pst.executeQuery();
+
+			ResultIterator<T> iterator = new ResultIterator<T>(config, conn, pst, rs, rowMapper, autoCommit);
+			opened = true;
+			return iterator;
+		} catch (Exception e) {
+			handleException(conn, e);
+		} finally {
+			if (!opened) {
+				restoreAutoCommit(conn, autoCommit);
+				handleClose(conn, pst, rs);
+			}
+		}
+    	return null;
+    }
+
+
+    /**
+     * 流式查询实体,逐行回调
+     * @param clzz 实体类
+     * @param callback 行回调
+     * @param fetchSize 每次从数据库读取的行数, <= 0 使用方言缺省的流式读取方式
+     * @param sql SQL语句
+     * @param params 参数列表
+     * @param <T> 类泛型
+     * @return 处理的行数
+     */
+    public <T> int eachEntityBySql(final Class<T> clzz, RowCallback<? super T> callback, int fetchSize, String sql, Object... params) {
+    	return this.each(this.iterateEntityBySql(clzz, fetchSize, sql, params), callback);
+    }
+
+
+    /**
+     * 流式查询对象,逐行回调
+     * @param sql SQL语句
+     * @param rowMapper 行映射
+     * @param callback 行回调
+     * @param fetchSize 每次从数据库读取的行数, <= 0 使用方言缺省的流式读取方式
+     * @param params 参数列表
+     * @param <T> 类泛型
+     * @return 处理的行数
+     */
+    public <T> int eachBySql(String sql, RowMapper<T> rowMapper, RowCallback<? super T> callback, int fetchSize, Object... params) {
+    	return this.each(this.iterateBySql(sql, rowMapper, fetchSize, params), callback);
+    }
+
+
+    // 遍历流式查询结果
+    private <T> int each(ResultIterator<T> iterator, RowCallback<? super T> callback) {
+    	try {
+    		while (iterator.hasNext()) {
+    			int rowNum = iterator.getRowCount();
+    			if (!callback.processRow(iterator.next(), rowNum)) {
+    				break;
+    			}
+    		}
+    		return iterator.getRowCount();
+    	} finally {
+    		iterator.close();
+    	}
+    }
+
+
+    // 恢复自动提交
+    private void restoreAutoCommit(Connection conn, Boolean autoCommit) {
+    	if (conn == null || autoCommit == null) {
+    		return;
+    	}
+    	try {
+    		conn.rollback();
+    		conn.setAutoCommit(autoCommit);
+    	} catch (SQLException e) {
+    		e.printStackTrace();
+    	}
+    }
+
+
+    /**
+     * 创建实体行映射
+     * @param clzz 实体类
+     * @return
+     */
+    private <T> RowMapper<T> createEntityRowMapper(final Class<T> clzz) {
+    	final ModelInfo modelInfo = getOrCreateModelInfo(clzz);
+    	return new RowMapper<T>() {
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T mapRow(ResultSet rs, int rowNum) {
+				try {
+					return (T) modelInfo.mapEntity(rs);
+				} catch (Exception e) {
+					throw new JdbcExecuteException(e);
+				}
+			}
+		};
+    }
+
+
     /**
      * 生成查询结果列表
      * @param rs ResultSet
@@ -681,36 +1335,8 @@ public class JdbcSupport {
      * @return
      * @throws SQLException
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
 	private <T> List<T> generateObjectList(ResultSet rs, Class<T> clzz) throws SQLException {
-    	List list = new ArrayList();
-
-    	if (clzz.isArray()) {
-    		int colAmount = rs.getMetaData().getColumnCount();
-    		Class<?> elementType = clzz.getComponentType();
-    		while (rs.next()) {
-    			Object[] row = (Object[]) Array.newInstance(elementType, colAmount);
-    			for (int i = 1; i <= colAmount;i++) {
-    				row[i - 1] = rs.getObject(i);
-    			}
-    			list.add(row);
-    		}
-    	} else if(List.class.isAssignableFrom(clzz)) {
-    		int colAmount = rs.getMetaData().getColumnCount();
-    		while (rs.next()) {
-    			List row = new ArrayList(colAmount);
-    			for (int i = 1; i <= colAmount;i++) {
-    				row.add(rs.getObject(i));
-    			}
-    			list.add(row);
-    		}
-    	} else {
-    		while (rs.next()) {
-    			list.add(rs.getObject(1));
-    		}
-    	}
-
-		return list;
+		return this.generateObjectList(rs, new ObjectRowMapper<T>(clzz));
 	}
 
 
@@ -731,6 +1357,56 @@ public class JdbcSupport {
     }
 
     
+    /**
+     * 按查询结果类型映射单行
+     * <br/>数组:每列一个元素; List:每列一个元素; 其他:取第一列
+     * @param <T>
+     */
+    private static class ObjectRowMapper<T> implements RowMapper<T> {
+
+    	private final Class<T> clzz;
+
+    	// 列数
+    	private int colAmount = -1;
+
+    	ObjectRowMapper(Class<T> clzz) {
+    		this.clzz = clzz;
+    	}
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		@Override
+		public T mapRow(ResultSet rs, int rowNum) {
+			try {
+				if (clzz.isArray()) {
+					int colAmount = this.getColAmount(rs);
+					Object[] row = (Object[]) Array.newInstance(clzz.getComponentType(), colAmount);
+					for (int i = 1; i <= colAmount;i++) {
+						row[i - 1] = rs.getObject(i);
+					}
+					return (T) row;
+				} else if(List.class.isAssignableFrom(clzz)) {
+					int colAmount = this.getColAmount(rs);
+					List row = new ArrayList(colAmount);
+					for (int i = 1; i <= colAmount;i++) {
+						row.add(rs.getObject(i));
+					}
+					return (T) row;
+				}
+				return (T) rs.getObject(1);
+			} catch (SQLException e) {
+				throw new JdbcExecuteException(e);
+			}
+		}
+
+		private int getColAmount(ResultSet rs) throws SQLException {
+			if (colAmount < 0) {
+				colAmount = rs.getMetaData().getColumnCount();
+			}
+			return colAmount;
+		}
+    }
+
+    
     // 处理jdbc异常
 	private void handleException(Connection conn, Exception e) throws JdbcExecuteException {
 		e.printStackTrace();
@@ -832,6 +1508,16 @@ public class JdbcSupport {
 					tableInfo.setPrimaryKey(columnName);
 				}
 
+				// 版本号(乐观锁)
+				boolean isVersion = field.isAnnotationPresent(javax.persistence.Version.class);
+				if (isVersion) {
+					if (!ModelInfo.isVersionType(field.getType())) {
+						throw new IllegalArgumentException("版本号属性只支持int/long/short类型:"
+								+ clzz.getName() + "#" + fieldName);
+					}
+					tableInfo.setVersionColumn(columnName);
+				}
+
 				// 添加字段信息
 				columnTypeMap.put(columnName, field.getType());
 
@@ -849,6 +1535,9 @@ public class JdbcSupport {
 						attributeInfo.setPrimaryKey(true);
 						modelInfo.setPrimaryKeyInfo(attributeInfo);
 					}
+					if (isVersion) {
+						modelInfo.setVersionInfo(attributeInfo);
+					}
 				} catch (Exception e) {
 					e.printStackTrace();
 					throw new IllegalAccessException(
@@ -874,8 +1563,14 @@ public class JdbcSupport {
 			}
 		}
 
-    	// 初始化字段对应的sql类型
-    	initAttributeSqlTypes(tableInfo, attrTypeMap);
+    	// 分表实体在首次访问分表时初始化
+    	if (!tableInfo.isSharded()) {
+	    	// 初始化字段对应的sql类型
+	    	initAttributeSqlTypes(tableInfo, attrTypeMap);
+
+	    	// 生成实体映射器
+	    	modelInfo.initModelMapper();
+    	}
 
     	ModelInfo oldModelInfo = modelInfoCache.putIfAbsent(clzz, modelInfo);
 
@@ -927,6 +1622,348 @@ public class JdbcSupport {
      */
     public void close() {
     	modelInfoCache.clear();
+    	config.closePinnedConnections();
+    	if (shardQueryExecutor != null) {
+    		ThreadUtils.shundownThreadPool(shardQueryExecutor, false);
+    		shardQueryExecutor = null;
+    	}
+    }
+
+
+    /**
+     * 分表查询
+     * @param <T> 查询结果类型
+     */
+    private interface ShardQuery<T> {
+
+    	/**
+    	 * 查询单个分表
+    	 * @param shardModelInfo 分表实体信息
+    	 * @return
+    	 */
+    	T query(ModelInfo shardModelInfo);
+    }
+
+
+    /**
+     * 在所有分表上执行查询
+     * <br/>当前线程处于事务中时按顺序执行,否则提交到分表查询线程池并行执行
+     * @param modelInfo 实体信息
+     * @param shardQuery 查询
+     * @return 各分表的查询结果
+     */
+    private <T> List<T> queryShards(ModelInfo modelInfo, final ShardQuery<T> shardQuery) {
+    	List<ModelInfo> shardModelInfos = getAllShardModelInfos(modelInfo);
+    	List<T> results = new ArrayList<T>(shardModelInfos.size());
+    	if (shardModelInfos.size() <= 1 || config.getThreadLocalConnection() != null) {
+    		for (ModelInfo shardModelInfo : shardModelInfos) {
+    			results.add(shardQuery.query(shardModelInfo));
+    		}
+    		return results;
+    	}
+
+    	ExecutorService executor = getShardQueryExecutor();
+    	List<Future<T>> futures = new ArrayList<Future<T>>(shardModelInfos.size());
+    	for (final ModelInfo shardModelInfo : shardModelInfos) {
+    		futures.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					return shardQuery.query(shardModelInfo);
+				}
+			}));
+    	}
+    	for (Future<T> future : futures) {
+    		try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new JdbcExecuteException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof JdbcExecuteException) {
+					throw (JdbcExecuteException) e.getCause();
+				}
+				throw new JdbcExecuteException(e.getCause());
+			}
+    	}
+    	return results;
+    }
+
+
+    /**
+     * 获取所有分表的实体信息
+     * <br/>不存在的分表跳过, 不会建表
+     * @param modelInfo 实体信息
+     * @return
+     */
+    private List<ModelInfo> getAllShardModelInfos(ModelInfo modelInfo) {
+    	ShardStrategy strategy = modelInfo.getTableInfo().getShardStrategy();
+    	Collection<String> suffixes = strategy.getTableNameSuffixes();
+    	if (suffixes == null) {
+    		throw new IllegalStateException("分表策略未列出表名后缀:" + strategy.getClass().getName());
+    	}
+    	List<ModelInfo> shardModelInfos = new ArrayList<ModelInfo>(suffixes.size());
+    	for (String suffix : suffixes) {
+    		ModelInfo shardModelInfo = getShardModelInfo(modelInfo, suffix, false);
+    		if (shardModelInfo != null) {
+    			shardModelInfos.add(shardModelInfo);
+    		}
+    	}
+    	return shardModelInfos;
+    }
+
+
+    // 获取分表查询线程池
+    private ExecutorService getShardQueryExecutor() {
+    	ExecutorService executor = shardQueryExecutor;
+    	if (executor == null) {
+    		synchronized (this) {
+    			executor = shardQueryExecutor;
+    			if (executor == null) {
+    				NamedThreadFactory threadFactory = new NamedThreadFactory(new ThreadGroup("缓存模块"), "分表查询线程池");
+    				executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory);
+    				shardQueryExecutor = executor;
+    			}
+    		}
+    	}
+    	return executor;
+    }
+
+
+    /**
+     * 获取实体所在分表的实体信息
+     * @param entity 实体
+     * @return 非分表实体返回自身的实体信息
+     */
+    private ModelInfo getShardModelInfo(Object entity) {
+    	return getShardModelInfo(entity, true);
+    }
+
+
+    /**
+     * 获取实体所在分表的实体信息
+     * @param entity 实体
+     * @param create 表不存在时是否创建, 更新和删除不建表
+     * @return 非分表实体返回自身的实体信息; 表不存在且create为false时返回null
+     */
+    private ModelInfo getShardModelInfo(Object entity, boolean create) {
+    	ModelInfo modelInfo = getOrCreateModelInfo(entity.getClass());
+    	if (!modelInfo.isSharded()) {
+    		return modelInfo;
+    	}
+    	return getShardModelInfo(modelInfo, modelInfo.getPrimaryKeyInfo().getValue(entity), create);
+    }
+
+
+    /**
+     * 获取主键所在分表的实体信息
+     * @param modelInfo 实体信息
+     * @param id 主键
+     * @return 非分表实体返回modelInfo
+     */
+	private ModelInfo getShardModelInfo(ModelInfo modelInfo, Object id) {
+    	return getShardModelInfo(modelInfo, id, true);
+    }
+
+
+    /**
+     * 获取主键所在分表的实体信息
+     * @param modelInfo 实体信息
+     * @param id 主键
+     * @param create 表不存在时是否创建, 读操作不建表
+     * @return 非分表实体返回modelInfo; 表不存在且create为false时返回null
+     */
+    @SuppressWarnings("unchecked")
+	private ModelInfo getShardModelInfo(ModelInfo modelInfo, Object id, boolean create) {
+    	if (!modelInfo.isSharded()) {
+    		return modelInfo;
+    	}
+    	if (id == null) {
+    		throw new IllegalArgumentException("分表实体主键不能为空:" + modelInfo.getClzz().getName());
+    	}
+    	String suffix = modelInfo.getTableInfo().getShardStrategy().getTableNameSuffix(id);
+    	return getShardModelInfo(modelInfo, suffix, create);
+    }
+
+
+    /**
+     * 获取分表的实体信息
+     * <br/>首次访问分表时检查表是否存在,按分表策略自动建表
+     * <br/>create为false时缓存表不存在的结果, 间隔MISSING_SHARD_RECHECK_MILLIS后重新检查
+     * @param modelInfo 实体信息
+     * @param suffix 表名后缀
+     * @param create 表不存在时是否创建
+     * @return 表不存在且create为false时返回null
+     */
+    @SuppressWarnings("rawtypes")
+	private ModelInfo getShardModelInfo(ModelInfo modelInfo, String suffix, boolean create) {
+    	ModelInfo shardModelInfo = modelInfo.getShardModelInfo(suffix);
+    	if (shardModelInfo != null) {
+    		return shardModelInfo;
+    	}
+    	if (!create && modelInfo.isShardMissing(suffix, MISSING_SHARD_RECHECK_MILLIS)) {
+    		return null;
+    	}
+
+    	synchronized (modelInfo) {
+    		shardModelInfo = modelInfo.getShardModelInfo(suffix);
+    		if (shardModelInfo != null) {
+        		return shardModelInfo;
+        	}
+
+    		TableInfo tableInfo = modelInfo.getTableInfo();
+    		TableInfo shardTableInfo = tableInfo.newShardTableInfo(suffix);
+    		String tableName = shardTableInfo.getTableName();
+    		if (!existsTable(tableName)) {
+    			if (!create) {
+    				modelInfo.markShardMissing(suffix);
+    				return null;
+    			}
+    			ShardStrategy strategy = tableInfo.getShardStrategy();
+    			if (!strategy.autoCreateTable()) {
+    				throw new IllegalStateException("分表不存在:" + tableName);
+    			}
+    			executeUpdate(strategy.createTableSqlTemplate().replace("${TableName}", tableName));
+    		}
+
+    		// 使用第一个分表初始化字段类型和实体映射器
+    		if (!modelInfo.isShardInited()) {
+    			initAttributeSqlTypes(shardTableInfo, modelInfo.getAttrTypeMap());
+    			modelInfo.initModelMapper();
+    			modelInfo.setShardInited(true);
+    		}
+
+    		return modelInfo.createShardModelInfo(suffix, shardTableInfo);
+    	}
+    }
+
+
+    /**
+     * 按分表对实体分组
+     * @param clzz 实体类
+     * @param entitys 实体列表
+     * @param create 表不存在时是否创建
+     * @return 分表实体信息 - 实体列表; create为false时表不存在的实体放在null下
+     */
+    private Map<ModelInfo, Collection<Object>> groupByShard(Class<?> clzz, Collection<?> entitys, boolean create) {
+    	ModelInfo modelInfo = getOrCreateModelInfo(clzz);
+    	Map<ModelInfo, Collection<Object>> result = new LinkedHashMap<ModelInfo, Collection<Object>>();
+    	if (!modelInfo.isSharded()) {
+    		result.put(modelInfo, new ArrayList<Object>(entitys));
+    		return result;
+    	}
+    	for (Object entity : entitys) {
+    		ModelInfo shardModelInfo = getShardModelInfo(modelInfo, modelInfo.getPrimaryKeyInfo().getValue(entity), create);
+    		Collection<Object> shardEntitys = result.get(shardModelInfo);
+    		if (shardEntitys == null) {
+    			shardEntitys = new ArrayList<Object>();
+    			result.put(shardModelInfo, shardEntitys);
+    		}
+    		shardEntitys.add(entity);
+    	}
+    	return result;
+    }
+
+
+    // 合并批量执行结果
+    private static int[] concat(int[] a, int[] b) {
+    	if (a.length == 0) {
+    		return b;
+    	}
+    	int[] result = new int[a.length + b.length];
+    	System.arraycopy(a, 0, result, 0, a.length);
+    	System.arraycopy(b, 0, result, a.length, b.length);
+    	return result;
+    }
+
+
+    /**
+     * 表是否存在
+     * @param tableName 表名
+     * @return
+     */
+    private boolean existsTable(String tableName) {
+    	Connection conn = null;
+    	ResultSet rs = null;
+    	try {
+    		conn = config.getConnection();
+    		DatabaseMetaData metaData = conn.getMetaData();
+    		String escape = metaData.getSearchStringEscape();
+    		for (String name : new String[] {tableName, tableName.toUpperCase(), tableName.toLowerCase()}) {
+    			if (escape != null) {
+    				name = name.replace("_", escape + "_").replace("%", escape + "%");
+    			}
+    			rs = metaData.getTables(null, null, name, new String[] {"TABLE"});
+    			boolean exists = rs.next();
+    			rs.close();
+    			rs = null;
+    			if (exists) {
+    				return true;
+    			}
+    		}
+    	} catch (Exception e) {
+    		handleException(conn, e);
+    	} finally {
+    		config.close(rs, null, conn);
+    	}
+    	return false;
+    }
+
+
+    // 执行查询, 统计耗时
+    private ResultSet timedQuery(PreparedStatement pst) throws SQLException {
+    	if (!config.isMetricsEnabled()) {
+    		return pst.executeQuery();
+    	}
+    	long start = System.nanoTime();
+    	try {
+    		return pst.executeQuery();
+    	} finally {
+    		DbCacheMetrics.getJdbcMetrics().record(SqlType.SELECT, false, System.nanoTime() - start);
+    	}
+    }
+
+
+    // 执行更新, 统计耗时
+    private int timedUpdate(PreparedStatement pst, SqlType sqlType) throws SQLException {
+    	if (!config.isMetricsEnabled()) {
+    		return pst.executeUpdate();
+    	}
+    	long start = System.nanoTime();
+    	try {
+    		return pst.executeUpdate();
+    	} finally {
+    		DbCacheMetrics.getJdbcMetrics().record(sqlType, false, System.nanoTime() - start);
+    	}
+    }
+
+
+    // 执行批量更新, 统计耗时
+    private int[] timedBatch(PreparedStatement pst, SqlType sqlType) throws SQLException {
+    	if (!config.isMetricsEnabled()) {
+    		return pst.executeBatch();
+    	}
+    	long start = System.nanoTime();
+    	try {
+    		return pst.executeBatch();
+    	} finally {
+    		DbCacheMetrics.getJdbcMetrics().record(sqlType, true, System.nanoTime() - start);
+    	}
+    }
+
+
+    // 执行DDL语句
+    private void executeUpdate(String sql) {
+    	Connection conn = null;
+    	Statement st = null;
+    	try {
+    		conn = config.getConnection();
+    		st = conn.createStatement();
+    		st.executeUpdate(sql);
+    	} catch (Exception e) {
+    		handleException(conn, e);
+    	} finally {
+    		config.close(null, st, conn);
+    	}
     }
 
 
@@ -8,6 +8,8 @@ import java.io.Reader;
 import java.sql.*;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Entity信息
@@ -27,6 +29,12 @@ public class ModelInfo {
     // 主键信息
     private AttributeInfo<Object> primaryKeyInfo;
 
+    // 版本号信息(乐观锁), null为不检查版本
+    private AttributeInfo<Object> versionInfo;
+
+    // 版本号属性序号
+    private int versionIndex = -1;
+
     // 属性信息
     @SuppressWarnings("rawtypes")
 	private Map<String, AttributeInfo> attrTypeMap = new LinkedHashMap<String, AttributeInfo>();
@@ -44,6 +52,21 @@ public class ModelInfo {
 	/**  默认主键id生成器  */
 	private IdGenerator<?> defaultIdGenerator;
 
+	/** 字节码生成的实体映射器, 为null时使用AttributeInfo逐列映射 */
+	private AbstractModelMapper modelMapper;
+
+	/** 分表实体信息 表名后缀 - ModelInfo */
+	private final ConcurrentMap<String, ModelInfo> shardModelInfos = new ConcurrentHashMap<String, ModelInfo>();
+
+	/** 不存在的分表 表名后缀 - 检查时间, 避免读操作重复查询表元数据 */
+	private final ConcurrentMap<String, Long> missingShards = new ConcurrentHashMap<String, Long>();
+
+	/** 分表实体的字段类型是否已从分表初始化 */
+	private volatile boolean shardInited;
+
+	/** 最近一次入库的时间, 用于从库读取时保证读到自己的写入 */
+	private volatile long lastWriteTime;
+
     // 查询语句
     private String selectSql;
 
@@ -59,6 +82,9 @@ public class ModelInfo {
     // 查询最大Id语句
     private String selectMaxIdSql;
 
+    // 批量查询多个范围最大Id语句(范围数量 - 语句)
+    private final ConcurrentMap<Integer, String> selectMaxIdRangesSqlMap = new ConcurrentHashMap<Integer, String>();
+
 	// 按字段查询Id语句
     private final Map<String, String> findIdByColumnSqlMap = new HashMap<String, String>();
 
@@ -70,6 +96,12 @@ public class ModelInfo {
 
 	// 按字段更新语句
     private final Map<String, String> updateByFieldSqlMap = new HashMap<String, String>();
+
+    // 多行插入语句 行数 - sql
+    private final Map<Integer, String> multiSaveSqlMap = new ConcurrentHashMap<Integer, String>();
+
+    // 多行插入或更新语句 行数 - sql
+    private final Map<Integer, String> upsertSqlMap = new ConcurrentHashMap<Integer, String>();
     
     /**
      * 生成插入语句
@@ -103,6 +135,58 @@ public class ModelInfo {
     }
 
 
+    /**
+     * 生成多行插入语句
+     * @param rows 行数
+     * @param dialect Dialect
+     * @return
+     */
+    public String getOrCreateMultiSaveSql(int rows, Dialect dialect) {
+    	String sql = multiSaveSqlMap.get(rows);
+    	if (sql != null) {
+    		return sql;
+    	}
+    	StringBuilder sqlBuilder = new StringBuilder();
+    	dialect.forModelMultiSave(tableInfo, rows, sqlBuilder);
+
+    	sql = sqlBuilder.toString();
+    	multiSaveSqlMap.put(rows, sql);
+    	return sql;
+    }
+
+
+    /**
+     * 生成多行插入或更新语句
+     * @param rows 行数
+     * @param dialect Dialect
+     * @return
+     */
+    public String getOrCreateUpsertSql(int rows, Dialect dialect) {
+    	String sql = upsertSqlMap.get(rows);
+    	if (sql != null) {
+    		return sql;
+    	}
+    	StringBuilder sqlBuilder = new StringBuilder();
+    	dialect.forModelUpsert(tableInfo, rows, sqlBuilder);
+
+    	sql = sqlBuilder.toString();
+    	upsertSqlMap.put(rows, sql);
+    	return sql;
+    }
+
+
+    /**
+     * 多行插入时每条语句的最大行数
+     * @param multiRowSize 配置的行数
+     * @param dialect Dialect
+     * @return
+     */
+    public int getMultiRowSize(int multiRowSize, Dialect dialect) {
+    	int maxRows = dialect.getMaxParameters() / Math.max(1, this.columnInfos.size());
+    	return Math.max(1, Math.min(multiRowSize, maxRows));
+    }
+
+
     /**
      * 生成删除语句
      * @param dialect Dialect
@@ -129,6 +213,9 @@ public class ModelInfo {
     	}
     	StringBuilder sqlBuilder = new StringBuilder();
     	dialect.forModelUpdate(tableInfo, sqlBuilder);
+    	if (versionInfo != null) {
+    		dialect.forVersionCondition(tableInfo, sqlBuilder);
+    	}
 
     	this.updateSql = sqlBuilder.toString();
     	return this.updateSql;
@@ -166,6 +253,9 @@ public class ModelInfo {
     	
 		StringBuilder sqlBuilder = new StringBuilder();
     	dialect.forDbUpdate(tableInfo, modifiedColumns, sqlBuilder);
+    	if (versionInfo != null) {
+    		dialect.forVersionCondition(tableInfo, sqlBuilder);
+    	}
 
     	sql = sqlBuilder.toString();
     	if (modifiedFields.size() <= 3) {
@@ -190,6 +280,23 @@ public class ModelInfo {
 	}
 
 
+    /**
+     * 生成一次查询多个范围最大主键的语句
+     * @param dialect Dialect
+     * @param ranges 范围数量
+     * @return
+     */
+    public String getOrCreateSelectMaxIdSql(Dialect dialect, int ranges) {
+    	String sql = selectMaxIdRangesSqlMap.get(ranges);
+    	if (sql != null) {
+    		return sql;
+    	}
+    	sql = dialect.forModelSelectMaxRanges(tableInfo, tableInfo.getPrimaryKey(), ranges);
+    	selectMaxIdRangesSqlMap.putIfAbsent(ranges, sql);
+    	return sql;
+    }
+
+
     /**
      * 生成按属性查询Id语句
      * @param dialect Dialect
@@ -249,18 +356,37 @@ public class ModelInfo {
     @SuppressWarnings("unchecked")
 	public Object generateEntity(ResultSet rs) throws InstantiationException, IllegalAccessException, SQLException {
 		if (rs.next()) {
-			Class<?> clzz = this.proxyClzz != null ? this.proxyClzz : this.clzz;
-			Object instance = clzz.newInstance();
+			return this.mapEntity(rs);
+		}
 
-			int columnIndex = 1;
-			for (AttributeInfo<Object> columnInfo : this.columnInfos) {
-				columnInfo.setFromPersistValue(instance, this.getRsVal(rs, columnIndex, columnInfo.getSqlType(), columnInfo));
-				columnIndex++;
-			}
+		return null;
+	}
+
+
+    /**
+     * 将结果集当前行映射为实体
+     * @param rs 查询结果集(已定位到当前行)
+     * @return 实体对象
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+	public Object mapEntity(ResultSet rs) throws InstantiationException, IllegalAccessException, SQLException {
+		Class<?> clzz = this.proxyClzz != null ? this.proxyClzz : this.clzz;
+		Object instance = clzz.newInstance();
+
+		if (this.modelMapper != null) {
+			this.modelMapper.fill(rs, instance);
 			return instance;
 		}
 
-		return null;
+		int columnIndex = 1;
+		for (AttributeInfo<Object> columnInfo : this.columnInfos) {
+			columnInfo.setFromPersistValue(instance, this.getRsVal(rs, columnIndex, columnInfo.getSqlType(), columnInfo));
+			columnIndex++;
+		}
+		return instance;
 	}
 
 
@@ -277,15 +403,7 @@ public class ModelInfo {
     	List list = new ArrayList();
 
     	while (rs.next()) {
-			Class<?> clzz = this.proxyClzz != null ? this.proxyClzz : this.clzz;
-			Object instance = clzz.newInstance();
-
-			int columnIndex = 1;
-			for (AttributeInfo<Object> columnInfo : this.columnInfos) {
-				columnInfo.setFromPersistValue(instance, this.getRsVal(rs, columnIndex, columnInfo.getSqlType(), columnInfo));
-				columnIndex++;
-			}
-			list.add(instance);
+			list.add(this.mapEntity(rs));
 		}
 
 		return list;
@@ -322,6 +440,23 @@ public class ModelInfo {
 		return null;
 	}
 
+    /**
+     * 生成单行多列的查询结果
+     * @param rs ResultSet
+     * @param columns 列数
+     * @return
+     * @throws SQLException
+     */
+    public Object[] generateUniqueRow(ResultSet rs, int columns) throws SQLException {
+    	Object[] result = new Object[columns];
+    	if (rs.next()) {
+    		for (int i = 0; i < columns; i++) {
+    			result[i] = rs.getObject(i + 1);
+    		}
+    	}
+    	return result;
+    }
+
     /**
      * 获取保存的sql参数
      * @param entity 实体
@@ -366,6 +501,58 @@ public class ModelInfo {
 	}
 
 
+    /**
+     * 设置保存语句参数
+     * @param pst 语句
+     * @param entity 实体
+     * @param dialect Dialect
+     * @throws SQLException
+     */
+    public void fillSaveStatement(PreparedStatement pst, Object entity, Dialect dialect) throws SQLException {
+    	if (this.modelMapper != null) {
+    		this.modelMapper.bindSave(pst, entity);
+    		return;
+    	}
+    	dialect.fillStatement(pst, this.getSaveParams(entity));
+    }
+
+
+    /**
+     * 设置多行插入语句中某一行的参数
+     * @param pst 语句
+     * @param row 行序号(从0开始)
+     * @param entity 实体
+     * @throws SQLException
+     */
+    public void fillSaveStatement(PreparedStatement pst, int row, Object entity) throws SQLException {
+    	int offset = row * this.columnInfos.size();
+    	if (this.modelMapper != null) {
+    		this.modelMapper.bindSave(pst, offset, entity);
+    		return;
+    	}
+    	Object[] params = this.getSaveParams(entity);
+    	for (int i = 0; i < params.length; i++) {
+    		pst.setObject(offset + i + 1, params[i]);
+    	}
+    }
+
+
+    /**
+     * 设置更新语句参数
+     * @param pst 语句
+     * @param entity 实体
+     * @param dialect Dialect
+     * @throws SQLException
+     */
+    public void fillUpdateStatement(PreparedStatement pst, Object entity, Dialect dialect) throws SQLException {
+    	if (this.modelMapper != null) {
+    		this.modelMapper.bindUpdate(pst, entity);
+    		return;
+    	}
+    	dialect.fillStatement(pst, this.getUpdateParams(entity));
+    }
+
+
     /**
      * 获取更新的sql参数
      * @param entity 实体
@@ -414,8 +601,82 @@ public class ModelInfo {
    
    
    
+    /**
+     * 递增实体的版本号
+     * <br/>更新语句的SET部分将使用新的版本号, 条件部分使用返回的旧版本号
+     * @param entity 实体
+     * @return 更新前的版本号
+     */
+    public Object incrementVersion(Object entity) {
+    	Object value = versionInfo.getValue(entity);
+    	long oldVersion = value == null ? 0 : ((Number) value).longValue();
+    	versionInfo.setValue(entity, toVersionType(oldVersion + 1));
+    	return toVersionType(oldVersion);
+    }
+
+
+    /**
+     * 更新失败或冲突时恢复实体的版本号
+     * @param entity 实体
+     * @param oldVersion 更新前的版本号
+     */
+    public void restoreVersion(Object entity, Object oldVersion) {
+    	versionInfo.setValue(entity, oldVersion);
+    }
+
+
+    /**
+     * 设置更新语句的版本号条件参数
+     * <br/>在fillUpdateStatement之后调用
+     * @param pst 语句
+     * @param oldVersion 更新前的版本号
+     * @throws SQLException
+     */
+    public void fillVersionCondition(PreparedStatement pst, Object oldVersion) throws SQLException {
+    	pst.setObject(this.columnInfos.size() + 1, oldVersion);
+    }
+
+
+    /**
+     * 在更新参数之后追加版本号条件参数
+     * @param params 更新的sql参数
+     * @param oldVersion 更新前的版本号
+     * @return
+     */
+    public Object[] addVersionParam(Object[] params, Object oldVersion) {
+    	Object[] result = Arrays.copyOf(params, params.length + 1);
+    	result[params.length] = oldVersion;
+    	return result;
+    }
+
+
+    // 转换为版本号属性的类型
+    private Object toVersionType(long version) {
+    	java.lang.reflect.Type type = versionInfo.getTargetType();
+    	if (type == int.class || type == Integer.class) {
+    		return (int) version;
+    	}
+    	if (type == short.class || type == Short.class) {
+    		return (short) version;
+    	}
+    	return version;
+    }
+
+
+    /**
+     * 是否支持作为版本号的类型
+     * @param type 属性类型
+     * @return
+     */
+    public static boolean isVersionType(Class<?> type) {
+    	return type == int.class || type == Integer.class
+    			|| type == long.class || type == Long.class
+    			|| type == short.class || type == Short.class;
+    }
+
+
     @SuppressWarnings("rawtypes")
-	private Object getRsVal(ResultSet rs, int i, int type, AttributeInfo columnInfo) throws SQLException {
+	Object getRsVal(ResultSet rs, int i, int type, AttributeInfo columnInfo) throws SQLException {
     	Object value = null;
     	if (columnInfo.getType() == java.util.Date.class) {
     		java.sql.Date typeDate = rs.getDate(i);
@@ -475,6 +736,16 @@ public class ModelInfo {
 	}
 
 
+    /**
+     * 获取保存参数中的主键值
+     * @param saveParams 保存的sql参数
+     * @return
+     */
+    public Object getPrimaryKeyParam(Object[] saveParams) {
+    	return saveParams[this.columnInfos.indexOf(primaryKeyInfo)];
+    }
+
+
     /**
      * 获取删除的sql参数
      * @param entity 实体
@@ -493,14 +764,117 @@ public class ModelInfo {
 		this.clzz = clzz;
 	}
 
+	public Class<?> getClzz() {
+		return clzz;
+	}
+
 	public void setProxyClzz(Class<?> proxyClzz) {
 		this.proxyClzz = proxyClzz;
+		for (ModelInfo shardModelInfo : shardModelInfos.values()) {
+			shardModelInfo.setProxyClzz(proxyClzz);
+		}
+	}
+
+	public TableInfo getTableInfo() {
+		return tableInfo;
 	}
 
 	public void setTableInfo(TableInfo tableInfo) {
 		this.tableInfo = tableInfo;
 	}
 
+	/**
+	 * 是否分表
+	 * @return
+	 */
+	public boolean isSharded() {
+		return tableInfo.isSharded();
+	}
+
+	/**
+	 * 获取已创建的分表实体信息
+	 * @param suffix 表名后缀
+	 * @return
+	 */
+	public ModelInfo getShardModelInfo(String suffix) {
+		return shardModelInfos.get(suffix);
+	}
+
+	/**
+	 * 分表是否已确认不存在
+	 * @param suffix 表名后缀
+	 * @param recheckMillis 超过该时间后重新检查(其他进程可能已建表)
+	 * @return
+	 */
+	public boolean isShardMissing(String suffix, long recheckMillis) {
+		Long checkTime = missingShards.get(suffix);
+		return checkTime != null && System.currentTimeMillis() - checkTime.longValue() < recheckMillis;
+	}
+
+	/**
+	 * 记录不存在的分表
+	 * @param suffix 表名后缀
+	 */
+	public void markShardMissing(String suffix) {
+		missingShards.put(suffix, Long.valueOf(System.currentTimeMillis()));
+	}
+
+	/**
+	 * 所有已创建的分表实体信息
+	 * @return
+	 */
+	public Collection<ModelInfo> getShardModelInfos() {
+		return shardModelInfos.values();
+	}
+
+	/**
+	 * 创建分表实体信息
+	 * <br/>共享属性信息,Id生成器和实体映射器,使用各自的表名和sql缓存
+	 * @param suffix 表名后缀
+	 * @param shardTableInfo 分表表信息
+	 * @return
+	 */
+	public ModelInfo createShardModelInfo(String suffix, TableInfo shardTableInfo) {
+		ModelInfo shardModelInfo = new ModelInfo();
+		shardModelInfo.clzz = this.clzz;
+		shardModelInfo.proxyClzz = this.proxyClzz;
+		shardModelInfo.tableInfo = shardTableInfo;
+		shardModelInfo.primaryKeyInfo = this.primaryKeyInfo;
+		shardModelInfo.versionInfo = this.versionInfo;
+		shardModelInfo.setAttrTypeMap(this.attrTypeMap);
+		shardModelInfo.idGenerators = this.idGenerators;
+		shardModelInfo.defaultIdGenerator = this.defaultIdGenerator;
+		shardModelInfo.modelMapper = this.modelMapper;
+
+		ModelInfo old = shardModelInfos.putIfAbsent(suffix, shardModelInfo);
+		missingShards.remove(suffix);
+		return old != null ? old : shardModelInfo;
+	}
+
+	/**
+	 * 记录入库时间
+	 */
+	public void markWrite() {
+		this.lastWriteTime = System.currentTimeMillis();
+	}
+
+	public long getLastWriteTime() {
+		return lastWriteTime;
+	}
+
+	public boolean isShardInited() {
+		return shardInited;
+	}
+
+	public void setShardInited(boolean shardInited) {
+		this.shardInited = shardInited;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public Map<String, AttributeInfo> getAttrTypeMap() {
+		return attrTypeMap;
+	}
+
 	public AttributeInfo<Object> getPrimaryKeyInfo() {
 		return primaryKeyInfo;
 	}
@@ -509,12 +883,51 @@ public class ModelInfo {
 		this.primaryKeyInfo = primaryKeyInfo;
 	}
 
+	/**
+	 * 是否带版本号(乐观锁)
+	 * @return
+	 */
+	public boolean isVersioned() {
+		return versionInfo != null;
+	}
+
+	public AttributeInfo<Object> getVersionInfo() {
+		return versionInfo;
+	}
+
+	public void setVersionInfo(AttributeInfo<Object> versionInfo) {
+		this.versionInfo = versionInfo;
+	}
+
+	/**
+	 * 版本号属性在属性列表中的序号
+	 * @return 不带版本号时返回-1
+	 */
+	public int getVersionIndex() {
+		return versionIndex;
+	}
+
 	@SuppressWarnings("rawtypes")
 	public void setAttrTypeMap(Map<String, AttributeInfo> attrTypeMap) {
 		this.attrTypeMap = attrTypeMap;
 		this.findByColumnSqlMap = new HashMap<String, String>(
 				attrTypeMap.size());
 		this.columnInfos = new ArrayList<AttributeInfo>(attrTypeMap.values());
+		this.versionIndex = this.columnInfos.indexOf(versionInfo);
+	}
+
+	/**
+	 * 初始化实体映射器
+	 * <br/>需在属性sql类型初始化之后调用, 生成失败时继续使用AttributeInfo映射
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void initModelMapper() {
+		List list = this.columnInfos;
+		this.modelMapper = AsmModelMapperHelper.createModelMapper(this.clzz, this, (List<AttributeInfo<Object>>) list);
+	}
+
+	public AbstractModelMapper getModelMapper() {
+		return modelMapper;
 	}
 
 	public Map<Integer, IdGenerator<?>> getIdGenerators() {
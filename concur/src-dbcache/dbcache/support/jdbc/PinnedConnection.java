@@ -0,0 +1,246 @@
+package dbcache.support.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程绑定的数据库连接
+ * <br/>持有一个长期借出的连接,以及以sql语句为key的PreparedStatement缓存(LRU,有容量上限)
+ * <br/>非线程安全,只能由绑定的线程访问; 其他线程只能通过closeIfIdle关闭空闲的连接
+ * @author Jake
+ */
+class PinnedConnection {
+
+	/** 绑定的连接 */
+	final Connection connection;
+
+	/** 语句缓存 sql - PreparedStatement */
+	private final LinkedHashMap<String, PreparedStatement> statementCache;
+
+	/** 已缓存的语句 */
+	private final Set<Statement> cachedStatements =
+			Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+
+	/** 正在使用中的语句 */
+	private final Set<Statement> inUseStatements =
+			Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+
+	/** 最后访问时间 */
+	long lastAccessTime = System.currentTimeMillis();
+
+	/** 正在使用连接的次数(嵌套查询时大于1), -1为已关闭 */
+	private final AtomicInteger users = new AtomicInteger();
+
+	/** 是否已请求关闭, 使用中的连接在归还时关闭 */
+	private volatile boolean closeRequested;
+
+
+	/**
+	 * 构造方法
+	 * @param connection 连接
+	 * @param cacheSize 语句缓存容量, <= 0 则不缓存
+	 */
+	PinnedConnection(Connection connection, final int cacheSize) {
+		this.connection = connection;
+		this.statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = -3458542624577417953L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() <= cacheSize) {
+					return false;
+				}
+				PreparedStatement pst = eldest.getValue();
+				cachedStatements.remove(pst);
+				// 正在使用的语句由close时关闭
+				if (!inUseStatements.contains(pst)) {
+					closeQuietly(pst);
+				}
+				return true;
+			}
+		};
+	}
+
+
+	/**
+	 * 获取语句
+	 * <br/>缓存中的语句正在被使用时(如RowMapper回调中嵌套查询),创建新的不缓存的语句
+	 * @param sql SQL语句
+	 * @return
+	 * @throws SQLException
+	 */
+	PreparedStatement prepareStatement(String sql) throws SQLException {
+		this.lastAccessTime = System.currentTimeMillis();
+
+		PreparedStatement pst = statementCache.get(sql);
+		if (pst != null && !inUseStatements.contains(pst)) {
+			inUseStatements.add(pst);
+			return pst;
+		}
+
+		pst = connection.prepareStatement(sql);
+		if (!statementCache.containsKey(sql)) {
+			statementCache.put(sql, pst);
+			cachedStatements.add(pst);
+		}
+		inUseStatements.add(pst);
+		return pst;
+	}
+
+
+	/**
+	 * 归还语句
+	 * @param st 语句
+	 * @return true:语句已缓存,不需要关闭; false:语句未缓存
+	 */
+	boolean release(Statement st) {
+		inUseStatements.remove(st);
+		if (!cachedStatements.contains(st)) {
+			return false;
+		}
+		try {
+			((PreparedStatement) st).clearParameters();
+			st.clearBatch();
+			return true;
+		} catch (SQLException e) {
+			// 语句已不可用,移出缓存
+			this.evict(st);
+			return false;
+		}
+	}
+
+
+	/**
+	 * 移除缓存的语句
+	 * @param st 语句
+	 */
+	void evict(Statement st) {
+		if (!cachedStatements.remove(st)) {
+			return;
+		}
+		for (Iterator<PreparedStatement> it = statementCache.values().iterator(); it.hasNext();) {
+			if (it.next() == st) {
+				it.remove();
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * 当前缓存的语句数量
+	 * @return
+	 */
+	int getCachedSize() {
+		return statementCache.size();
+	}
+
+
+	/**
+	 * 开始使用连接
+	 * @return false:连接已关闭
+	 */
+	boolean acquire() {
+		for (;;) {
+			int count = users.get();
+			if (count < 0) {
+				return false;
+			}
+			if (users.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+
+	/**
+	 * 结束使用连接
+	 * <br/>已请求关闭且不再使用时关闭连接
+	 * @return true:连接已关闭
+	 */
+	boolean releaseUse() {
+		if (users.decrementAndGet() == 0 && closeRequested) {
+			return this.closeIfIdle();
+		}
+		return false;
+	}
+
+
+	/**
+	 * 请求关闭, 连接空闲时立即关闭, 使用中时由绑定的线程归还时关闭
+	 * @return true:连接已关闭
+	 */
+	boolean requestClose() {
+		this.closeRequested = true;
+		return this.closeIfIdle();
+	}
+
+
+	/**
+	 * 连接空闲时关闭
+	 * @return true:连接已关闭
+	 */
+	boolean closeIfIdle() {
+		if (!users.compareAndSet(0, -1)) {
+			return false;
+		}
+		this.close();
+		return true;
+	}
+
+
+	/**
+	 * 是否已请求关闭
+	 * @return
+	 */
+	boolean isCloseRequested() {
+		return closeRequested;
+	}
+
+
+	/**
+	 * 是否已关闭
+	 * @return
+	 */
+	boolean isClosed() {
+		return users.get() < 0;
+	}
+
+
+	/**
+	 * 关闭所有缓存语句和连接
+	 * <br/>只能由绑定的线程调用或在closeIfIdle中调用
+	 */
+	void close() {
+		users.set(-1);
+		for (PreparedStatement pst : statementCache.values()) {
+			closeQuietly(pst);
+		}
+		statementCache.clear();
+		cachedStatements.clear();
+		inUseStatements.clear();
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	private static void closeQuietly(Statement st) {
+		try {
+			st.close();
+		} catch (SQLException e) {}
+	}
+
+}
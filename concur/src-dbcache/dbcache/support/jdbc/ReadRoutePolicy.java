@@ -0,0 +1,29 @@
+package dbcache.support.jdbc;
+
+/**
+ * 读库路由策略
+ * <br/>配置了从库(jdbcReadDataSource)时生效, 入库操作始终使用主库
+ * @author Jake
+ */
+public enum ReadRoutePolicy {
+
+	/** 所有查询使用主库 */
+	PRIMARY,
+
+	/** 只有索引查询(listIdByIndex)使用从库 */
+	INDEX,
+
+	/** 缓存未命中的加载和索引查询都使用从库 */
+	LOAD;
+
+
+	/**
+	 * 是否路由到从库
+	 * @param index 是否为索引查询
+	 * @return
+	 */
+	public boolean isReplica(boolean index) {
+		return this == LOAD || (this == INDEX && index);
+	}
+
+}
@@ -0,0 +1,131 @@
+package dbcache.support.jdbc;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 流式查询结果迭代器
+ * <br/>逐行读取ResultSet并映射,不缓存整个结果集
+ * <br/>读取完毕后自动关闭,提前结束时必须调用close()归还连接
+ * @author Jake
+ *
+ * @param <T>
+ */
+public class ResultIterator<T> implements Iterator<T>, Closeable {
+
+	private final Config config;
+
+	private final Connection conn;
+
+	private final PreparedStatement pst;
+
+	private final ResultSet rs;
+
+	/** 行映射 */
+	private final RowMapper<T> rowMapper;
+
+	/** 打开前的自动提交状态, null 表示未修改 */
+	private final Boolean autoCommit;
+
+	/** 当前行号 */
+	private int rowNum;
+
+	/** 是否已读取下一行 */
+	private boolean fetched;
+
+	/** 是否存在下一行 */
+	private boolean hasNext;
+
+	/** 是否已关闭 */
+	private boolean closed;
+
+
+	ResultIterator(Config config, Connection conn, PreparedStatement pst,
+			ResultSet rs, RowMapper<T> rowMapper, Boolean autoCommit) {
+		this.config = config;
+		this.conn = conn;
+		this.pst = pst;
+		this.rs = rs;
+		this.rowMapper = rowMapper;
+		this.autoCommit = autoCommit;
+	}
+
+
+	@Override
+	public boolean hasNext() {
+		if (closed) {
+			return false;
+		}
+		if (!fetched) {
+			try {
+				hasNext = rs.next();
+			} catch (SQLException e) {
+				this.close();
+				throw new JdbcExecuteException(e);
+			}
+			fetched = true;
+			if (!hasNext) {
+				this.close();
+			}
+		}
+		return hasNext;
+	}
+
+
+	@Override
+	public T next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		try {
+			return rowMapper.mapRow(rs, rowNum++);
+		} catch (RuntimeException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+
+	/**
+	 * 已读取的行数
+	 * @return
+	 */
+	public int getRowCount() {
+		return rowNum;
+	}
+
+
+	/**
+	 * 关闭结果集并归还连接
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (autoCommit != null && !conn.isClosed()) {
+				conn.commit();
+				conn.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			config.close(rs, pst, conn);
+		}
+	}
+
+}
@@ -0,0 +1,19 @@
+package dbcache.support.jdbc;
+
+/**
+ * 流式查询逐行回调
+ * @author Jake
+ *
+ * @param <T>
+ */
+public interface RowCallback<T> {
+
+	/**
+	 * 处理单行结果
+	 * @param row 映射后的行对象
+	 * @param rowNum 行号
+	 * @return 是否继续读取下一行, false 则提前结束查询
+	 */
+	boolean processRow(T row, int rowNum);
+
+}
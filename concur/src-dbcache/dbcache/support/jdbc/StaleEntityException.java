@@ -0,0 +1,32 @@
+package dbcache.support.jdbc;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 乐观锁冲突异常
+ * <br/>带@Version的实体更新时, 数据库中的版本号已被其他节点修改
+ * <br/>批量更新时其余实体已正常提交, 只包含冲突的实体
+ * @author Jake
+ */
+public class StaleEntityException extends JdbcExecuteException {
+
+	private static final long serialVersionUID = -6184092519227640273L;
+
+	/** 冲突的实体 */
+	private final List<Object> entities;
+
+	public StaleEntityException(Object entity) {
+		this(Collections.singletonList(entity));
+	}
+
+	public StaleEntityException(List<Object> entities) {
+		super("实体版本号冲突:" + entities.size() + "个, " + entities.get(0).getClass().getName());
+		this.entities = entities;
+	}
+
+	public List<Object> getEntities() {
+		return entities;
+	}
+
+}
@@ -41,6 +41,9 @@ public class TableInfo {
 	
 	/** 分表策略类,null为不分表 */
 	private ShardStrategy shardStrategy;
+
+	/** 版本号字段(乐观锁),null为不检查版本 */
+	private String versionColumn;
 	
 	public TableInfo(String tableName, Class<?> modelClass) {
 		this(tableName, Dialect.getDefaultDialect().getDefaultPrimaryKey(), modelClass);
@@ -112,6 +115,37 @@ public class TableInfo {
 	public void setShardStrategy(ShardStrategy shardStrategy) {
 		this.shardStrategy = shardStrategy;
 	}
+
+	public ShardStrategy getShardStrategy() {
+		return shardStrategy;
+	}
+
+	public String getVersionColumn() {
+		return versionColumn;
+	}
+
+	public void setVersionColumn(String versionColumn) {
+		this.versionColumn = versionColumn;
+	}
+
+	/**
+	 * 是否分表
+	 */
+	public boolean isSharded() {
+		return shardStrategy != null;
+	}
+
+	/**
+	 * 创建分表的表信息(共享字段信息)
+	 * @param suffix 表名后缀
+	 */
+	public TableInfo newShardTableInfo(String suffix) {
+		String key = secondaryKey == null ? primaryKey : primaryKey + "," + secondaryKey;
+		TableInfo shardTableInfo = new TableInfo(tableName + suffix, key, modelClass);
+		shardTableInfo.columnTypeMap = this.columnTypeMap;
+		shardTableInfo.versionColumn = this.versionColumn;
+		return shardTableInfo;
+	}
 	
 }
 
@@ -102,6 +102,11 @@ public class MysqlDialect extends Dialect {
 		}
 		sql.append(" where `").append(tableInfo.getPrimaryKey()).append("` = ?");
 	}
+
+	@Override
+	public void forVersionCondition(TableInfo tableInfo, StringBuilder sql) {
+		sql.append(" and coalesce(`").append(tableInfo.getVersionColumn()).append("`, 0) = ?");
+	}
 	
 	public String forModelFindById(TableInfo tInfo) {
 		StringBuilder sql = new StringBuilder("select ");
@@ -173,5 +178,49 @@ public class MysqlDialect extends Dialect {
 		return sql;
 	}
 
+	/**
+	 * MySQL驱动缺省会把整个结果集读入内存
+	 * <br/>缺省使用逐行流式读取(Integer.MIN_VALUE, 读取期间该连接不能执行其他语句)
+	 * <br/>fetchSize > 0 时需要在连接url中配置useCursorFetch=true才会生效
+	 */
+	@Override
+	public int getStreamingFetchSize() {
+		return STREAMING_FETCH_SIZE;
+	}
+
+	@Override
+	public int getMaxParameters() {
+		return 65535;
+	}
+
+	@Override
+	public boolean isSupportUpsert() {
+		return true;
+	}
+
+	/**
+	 * insert into `t`(...) values(...), (...) on duplicate key update `c` = values(`c`), ...
+	 */
+	@Override
+	public void forModelUpsert(TableInfo tableInfo, int rows, StringBuilder sql) {
+		this.forModelMultiSave(tableInfo, rows, sql);
+		sql.append(" on duplicate key update ");
+		boolean first = true;
+		for (String colName : tableInfo.getColumnNames()) {
+			if (!tableInfo.getPrimaryKey().equalsIgnoreCase(colName)) {
+				if (!first) {
+					sql.append(", ");
+				} else {
+					first = false;
+				}
+				sql.append("`").append(colName).append("` = values(`").append(colName).append("`)");
+			}
+		}
+		// 只有主键字段
+		if (first) {
+			String primaryKey = tableInfo.getPrimaryKey();
+			sql.append("`").append(primaryKey).append("` = values(`").append(primaryKey).append("`)");
+		}
+	}
 
 }
@@ -204,5 +204,103 @@ public class OracleDialect extends Dialect {
 		return sql;
 	}
 
+	@Override
+	public String forModelSelectMaxRanges(TableInfo tInfo, String columnName, int ranges) {
+		return super.forModelSelectMaxRanges(tInfo, columnName, ranges) + " from dual";
+	}
+
+	@Override
+	public int getMaxParameters() {
+		return 65535;
+	}
+
+	/**
+	 * Oracle不支持values(...), (...)
+	 * <br/>insert all into t(...) values(...) into t(...) values(...) select 1 from dual
+	 */
+	@Override
+	public void forModelMultiSave(TableInfo tableInfo, int rows, StringBuilder sql) {
+		if (rows <= 1) {
+			this.forModelSave(tableInfo, sql);
+			return;
+		}
+		StringBuilder row = new StringBuilder(" into ");
+		row.append(tableInfo.getTableName()).append("(");
+		StringBuilder temp = new StringBuilder(") values(");
+		int count = 0;
+		for (String colName : tableInfo.getColumnNames()) {
+			if (count++ > 0) {
+				row.append(", ");
+				temp.append(", ");
+			}
+			row.append(colName);
+			temp.append("?");
+		}
+		row.append(temp.toString()).append(")");
+
+		sql.append("insert all");
+		for (int i = 0; i < rows; i++) {
+			sql.append(row);
+		}
+		sql.append(" select 1 from dual");
+	}
+
+	@Override
+	public boolean isSupportUpsert() {
+		return true;
+	}
+
+	/**
+	 * merge into t using (select ? c1, ? c2 from dual union all ...) s on (t.id = s.id)
+	 * when matched then update set t.c2 = s.c2 when not matched then insert (c1, c2) values(s.c1, s.c2)
+	 */
+	@Override
+	public void forModelUpsert(TableInfo tableInfo, int rows, StringBuilder sql) {
+		List<String> columnNames = tableInfo.getColumnNames();
+		String primaryKey = tableInfo.getPrimaryKey();
+
+		sql.append("merge into ").append(tableInfo.getTableName()).append(" t using (");
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) {
+				sql.append(" union all ");
+			}
+			sql.append("select ");
+			int count = 0;
+			for (String colName : columnNames) {
+				if (count++ > 0) {
+					sql.append(", ");
+				}
+				sql.append("? ").append(colName);
+			}
+			sql.append(" from dual");
+		}
+		sql.append(") s on (t.").append(primaryKey).append(" = s.").append(primaryKey).append(")");
+
+		boolean first = true;
+		for (String colName : columnNames) {
+			if (!primaryKey.equalsIgnoreCase(colName)) {
+				if (!first) {
+					sql.append(", ");
+				} else {
+					sql.append(" when matched then update set ");
+					first = false;
+				}
+				sql.append("t.").append(colName).append(" = s.").append(colName);
+			}
+		}
+
+		sql.append(" when not matched then insert (");
+		StringBuilder temp = new StringBuilder(") values(");
+		int count = 0;
+		for (String colName : columnNames) {
+			if (count++ > 0) {
+				sql.append(", ");
+				temp.append(", ");
+			}
+			sql.append(colName);
+			temp.append("s.").append(colName);
+		}
+		sql.append(temp.toString()).append(")");
+	}
 
 }
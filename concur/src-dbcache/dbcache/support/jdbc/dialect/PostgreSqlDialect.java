@@ -173,5 +173,43 @@ public class PostgreSqlDialect extends Dialect {
 		return sql;
 	}
 
+	/**
+	 * PostgreSQL驱动只有在关闭自动提交时才按fetchSize使用游标读取
+	 */
+	@Override
+	public boolean isStreamingNeedTransaction() {
+		return true;
+	}
+
+	@Override
+	public boolean isSupportUpsert() {
+		return true;
+	}
+
+	/**
+	 * insert into "t"(...) values(...), (...) on conflict ("id") do update set "c" = excluded."c", ...
+	 * <br/>需要PostgreSQL 9.5以上
+	 */
+	@Override
+	public void forModelUpsert(TableInfo tableInfo, int rows, StringBuilder sql) {
+		this.forModelMultiSave(tableInfo, rows, sql);
+		sql.append(" on conflict (\"").append(tableInfo.getPrimaryKey()).append("\") do ");
+		boolean first = true;
+		for (String colName : tableInfo.getColumnNames()) {
+			if (!tableInfo.getPrimaryKey().equalsIgnoreCase(colName)) {
+				if (!first) {
+					sql.append(", ");
+				} else {
+					sql.append("update set ");
+					first = false;
+				}
+				sql.append("\"").append(colName).append("\" = excluded.\"").append(colName).append("\"");
+			}
+		}
+		// 只有主键字段
+		if (first) {
+			sql.append("nothing");
+		}
+	}
 
 }
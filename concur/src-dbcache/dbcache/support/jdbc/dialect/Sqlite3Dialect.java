@@ -172,5 +172,43 @@ public class Sqlite3Dialect extends Dialect {
 		return sql;
 	}
 
+	/**
+	 * SQLITE_MAX_VARIABLE_NUMBER 缺省值
+	 */
+	@Override
+	public int getMaxParameters() {
+		return 999;
+	}
+
+	@Override
+	public boolean isSupportUpsert() {
+		return true;
+	}
+
+	/**
+	 * insert into t(...) values(...), (...) on conflict(id) do update set c = excluded.c, ...
+	 * <br/>需要SQLite 3.24以上
+	 */
+	@Override
+	public void forModelUpsert(TableInfo tableInfo, int rows, StringBuilder sql) {
+		this.forModelMultiSave(tableInfo, rows, sql);
+		sql.append(" on conflict(").append(tableInfo.getPrimaryKey()).append(") do ");
+		boolean first = true;
+		for (String colName : tableInfo.getColumnNames()) {
+			if (!tableInfo.getPrimaryKey().equalsIgnoreCase(colName)) {
+				if (!first) {
+					sql.append(", ");
+				} else {
+					sql.append("update set ");
+					first = false;
+				}
+				sql.append(colName).append(" = excluded.").append(colName);
+			}
+		}
+		// 只有主键字段
+		if (first) {
+			sql.append("nothing");
+		}
+	}
 
 }
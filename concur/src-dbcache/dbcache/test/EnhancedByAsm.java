@@ -7,13 +7,13 @@ import dbcache.WeakRefHolder;
 import dbcache.index.DbIndexService;
 import org.apache.mina.util.ConcurrentHashSet;
 
-import java.util.concurrent.atomic.AtomicIntegerArray;
+import dbcache.persist.ModifiedFields;
 
 public class EnhancedByAsm
   implements EntityInitializer, IEntity<Long>, EnhancedEntity
 {
   protected Entity obj;
-  protected AtomicIntegerArray changeFields;
+  protected ModifiedFields changeFields;
   protected DbIndexService handler;
 
   public IEntity getEntity()
@@ -56,7 +56,7 @@ public class EnhancedByAsm
   
   public void combine(Entity paramEntity, boolean paramBoolean)
   {
-    this.changeFields.set(5, 1);
+    this.changeFields.mark(5);
     this.obj.combine(paramEntity, paramBoolean);
   }
 
@@ -67,19 +67,19 @@ public class EnhancedByAsm
 
   public void setName(String paramString)
   {
-    this.changeFields.set(3, 1);
+    this.changeFields.mark(3);
     this.obj.setName(paramString);
   }
 
   public void addNum()
   {
-    this.changeFields.set(1, 1);
+    this.changeFields.mark(1);
     this.obj.addNum();
   }
 
   public int addNum(int paramInt)
   {
-    this.changeFields.set(2, 1);
+    this.changeFields.mark(2);
     Integer localInteger1 = this.obj.getNum();
     int i = this.obj.addNum(paramInt);
     Integer localInteger2 = this.obj.getNum();
@@ -94,13 +94,13 @@ public class EnhancedByAsm
 
   public void setFriends(ConcurrentHashSet<Long> paramConcurrentHashSet)
   {
-    this.changeFields.set(5, 1);
+    this.changeFields.mark(5);
     this.obj.setFriends(paramConcurrentHashSet);
   }
 
   public void setNum(int paramInt)
   {
-    this.changeFields.set(2, 1);
+    this.changeFields.mark(2);
     Integer localInteger1 = this.obj.getNum();
     this.obj.setNum(paramInt);
     Integer localInteger2 = this.obj.getNum();
@@ -114,13 +114,13 @@ public class EnhancedByAsm
 
   public void setA(byte[] paramArrayOfByte)
   {
-    this.changeFields.set(4, 1);
+    this.changeFields.mark(4);
     this.obj.setA(paramArrayOfByte);
   }
 
   public void setId(Long paramLong)
   {
-    this.changeFields.set(0, 1);
+    this.changeFields.mark(0);
     this.obj.setId(paramLong);
   }
 
@@ -131,7 +131,7 @@ public class EnhancedByAsm
 
   public void increseNum()
   {
-    this.changeFields.set(1, 1);
+    this.changeFields.mark(1);
     this.obj.increseNum();
   }
 
@@ -142,7 +142,7 @@ public class EnhancedByAsm
 
   public void doReset()
   {
-    this.changeFields.set(1, 1);
+    this.changeFields.mark(1);
     this.obj.doReset();
   }
 
@@ -153,7 +153,7 @@ public class EnhancedByAsm
 
   public void setUid(int paramInt)
   {
-    this.changeFields.set(1, 1);
+    this.changeFields.mark(1);
     this.obj.setUid(paramInt);
   }
 
@@ -166,10 +166,10 @@ public class EnhancedByAsm
   {
   }
 
-  public EnhancedByAsm(Entity paramEntity, AtomicIntegerArray paramAtomicIntegerArray, DbIndexService paramDbIndexService)
+  public EnhancedByAsm(Entity paramEntity, ModifiedFields paramModifiedFields, DbIndexService paramDbIndexService)
   {
     this.obj = paramEntity;
-    this.changeFields = paramAtomicIntegerArray;
+    this.changeFields = paramModifiedFields;
     this.handler = paramDbIndexService;
   }
 }
\ No newline at end of file
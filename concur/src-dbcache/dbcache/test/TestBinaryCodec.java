@@ -0,0 +1,83 @@
+package dbcache.test;
+
+import dbcache.anno.BinaryType;
+import dbcache.support.jdbc.BinaryCodec;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @BinaryType属性编解码往返测试
+ * @author Jake
+ */
+public class TestBinaryCodec {
+
+    @BinaryType
+    private List<String> names;
+
+    @BinaryType(compress = false)
+    private Map<String, Integer> scores;
+
+
+    public static void main(String[] args) throws Exception {
+
+        BinaryCodec namesCodec = codec("names");
+        BinaryCodec scoresCodec = codec("scores");
+
+        // 小于压缩阀值, 不压缩
+        List<String> names = new ArrayList<String>();
+        names.add("jake");
+        names.add("tom");
+        byte[] bytes = namesCodec.encode(names);
+        System.out.println("raw flag:" + bytes[0] + " length:" + bytes.length);
+        if (!names.equals(namesCodec.decode(bytes))) {
+            throw new IllegalStateException("raw");
+        }
+
+        // 超过压缩阀值, LZ4压缩
+        for (int i = 0; i < 1000; i++) {
+            names.add("name" + (i % 10));
+        }
+        bytes = namesCodec.encode(names);
+        System.out.println("lz4 flag:" + bytes[0] + " length:" + bytes.length);
+        if (!names.equals(namesCodec.decode(bytes))) {
+            throw new IllegalStateException("lz4");
+        }
+
+        // 不压缩
+        Map<String, Integer> scores = new HashMap<String, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            scores.put("s" + i, i);
+        }
+        bytes = scoresCodec.encode(scores);
+        System.out.println("uncompressed flag:" + bytes[0] + " length:" + bytes.length);
+        if (!scores.equals(scoresCodec.decode(bytes))) {
+            throw new IllegalStateException("uncompressed");
+        }
+
+        // @JsonType存储的旧数据
+        if (!"jake".equals(((List<?>) namesCodec.decode("[\"jake\"]")).get(0))) {
+            throw new IllegalStateException("json");
+        }
+
+        // 无法识别的标识
+        try {
+            namesCodec.decode("[\"jake\"]".getBytes("UTF-8"));
+            throw new IllegalStateException("unknown flag");
+        } catch (IllegalArgumentException e) {
+            System.out.println("unknown flag: " + e.getMessage());
+        }
+
+        System.out.println("null:" + namesCodec.decode(null) + " empty:" + namesCodec.decode(new byte[0]));
+    }
+
+
+    private static BinaryCodec codec(String fieldName) throws NoSuchFieldException {
+        Field field = TestBinaryCodec.class.getDeclaredField(fieldName);
+        return BinaryCodec.valueOf(field.getGenericType(), field.getAnnotation(BinaryType.class));
+    }
+
+}
@@ -0,0 +1,113 @@
+package dbcache.test;
+
+import dbcache.CacheObject;
+import dbcache.persist.ModifiedFields;
+import dbcache.persist.PersistStatus;
+import utils.typesafe.SafeType;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * CacheObject内存占用测试
+ * <br/>对比旧布局(实体+代理引用, 持久化状态, 预建TreeSet, AtomicIntegerArray)与当前布局每个缓存对象的字节数
+ * <br/>建议使用 -Xmx1g -XX:+UseSerialGC 运行
+ * @author Jake
+ */
+public class TestCacheObjectMemory {
+
+    /** 对象数量 */
+    static final int SIZE = 200000;
+
+    /** 实体属性数量 */
+    static final int FIELD_COUNT = 8;
+
+
+    /**
+     * 旧的CacheObject布局(同样继承SafeType)
+     */
+    static class LegacyCacheObject extends SafeType {
+
+        final Object entity;
+
+        final Object proxyEntity;
+
+        AtomicIntegerArray modifiedFields;
+
+        volatile PersistStatus persistStatus;
+
+        final Set<Object> indexObjects = new TreeSet<Object>();
+
+        LegacyCacheObject(Object entity, Object proxyEntity, AtomicIntegerArray modifiedFields) {
+            this.entity = entity;
+            this.proxyEntity = proxyEntity;
+            this.persistStatus = PersistStatus.TRANSIENT;
+            this.modifiedFields = modifiedFields;
+        }
+    }
+
+
+    public static void main(String[] args) {
+
+        final Entity entity = new Entity();
+
+        // 预热
+        measure("warm up", new Factory() {
+            public Object create(int i) {
+                return new CacheObject<Entity>(entity, Entity.class, entity, ModifiedFields.valueOf(FIELD_COUNT));
+            }
+        });
+
+        measure("legacy", new Factory() {
+            public Object create(int i) {
+                return new LegacyCacheObject(entity, entity, new AtomicIntegerArray(FIELD_COUNT));
+            }
+        });
+
+        measure("compact", new Factory() {
+            public Object create(int i) {
+                return new CacheObject<Entity>(entity, Entity.class, entity, ModifiedFields.valueOf(FIELD_COUNT));
+            }
+        });
+
+        measure("compact(no dynamic update)", new Factory() {
+            public Object create(int i) {
+                return new CacheObject<Entity>(entity, Entity.class, entity, null);
+            }
+        });
+
+    }
+
+
+    interface Factory {
+        Object create(int i);
+    }
+
+
+    static void measure(String name, Factory factory) {
+        Object[] holder = new Object[SIZE];
+        long before = usedMemory();
+        for (int i = 0; i < SIZE; i++) {
+            holder[i] = factory.create(i);
+        }
+        long after = usedMemory();
+        System.out.println(name + ": " + (after - before) / SIZE + " bytes/object");
+        holder[0] = null;
+    }
+
+
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,89 @@
+package transfer;
+
+import transfer.utils.IdentityHashMap;
+
+/**
+ * 按类型估算编码长度
+ * <br/>根据最近的编码长度调整初始缓冲大小: 超出时立即增大, 连续多次明显偏小时减半
+ * <br/>使估算长度通常能容纳整个消息, 避免扩展字节数组段和getByteArray()时的复制
+ * @author Jake
+ */
+final class BufferSizeEstimator {
+
+    /** 最小估算长度 */
+    static final int MIN_LENGTH = 16;
+
+    /** 最大估算长度 */
+    static final int MAX_LENGTH = 64 * 1024;
+
+    /** 连续偏小多少次后减小 */
+    static final int DECREASE_THRESHOLD = 16;
+
+    private final IdentityHashMap<Class<?>, Estimate> estimates = new IdentityHashMap<Class<?>, Estimate>();
+
+    private final int defaultLength;
+
+
+    BufferSizeEstimator(int defaultLength) {
+        this.defaultLength = defaultLength;
+    }
+
+
+    /**
+     * 估算编码长度
+     * @param clazz 类型
+     * @return
+     */
+    int estimate(Class<?> clazz) {
+        Estimate estimate = estimates.get(clazz);
+        return estimate != null ? estimate.length : defaultLength;
+    }
+
+
+    /**
+     * 记录实际编码长度
+     * @param clazz 类型
+     * @param length 编码长度
+     */
+    void record(Class<?> clazz, int length) {
+        Estimate estimate = estimates.get(clazz);
+        if (estimate == null) {
+            estimate = new Estimate(defaultLength);
+            estimates.put(clazz, estimate);
+        }
+        estimate.record(length);
+    }
+
+
+    /**
+     * 单个类型的估算(并发更新时可能丢失个别记录, 不影响正确性)
+     */
+    static final class Estimate {
+
+        volatile int length;
+
+        private int decreaseCount;
+
+        Estimate(int length) {
+            this.length = length;
+        }
+
+        void record(int actual) {
+            int current = this.length;
+            // 预留1/4余量
+            int wanted = Math.min(MAX_LENGTH, Math.max(MIN_LENGTH, actual + (actual >> 2)));
+            if (actual > current) {
+                this.length = wanted;
+                this.decreaseCount = 0;
+            } else if (wanted < current >> 1) {
+                if (++this.decreaseCount >= DECREASE_THRESHOLD) {
+                    this.length = Math.max(wanted, current >> 1);
+                    this.decreaseCount = 0;
+                }
+            } else {
+                this.decreaseCount = 0;
+            }
+        }
+    }
+
+}
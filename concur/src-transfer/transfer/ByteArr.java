@@ -19,10 +19,20 @@ class ByteArr {
     }
 
     private ByteArr expandNext(int length) {
+        // 重用reset前扩展的字节数组段
+        ByteArr next = this.next;
+        if (next != null && next.length >= length) {
+            next.offset = 0;
+            return next;
+        }
         this.next = new ByteArr(length);
         return this.next;
     }
 
+    int length() {
+        return length;
+    }
+
     public void putByte(byte byte1) {
         this.byteArray[offset++] = byte1;
     }
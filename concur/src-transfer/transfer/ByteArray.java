@@ -93,6 +93,18 @@ public class ByteArray implements Inputable {
     }
 
 
+    /**
+     * 跳过指定长度的字节
+     * @param length 字节数
+     */
+    public void skip(int length) {
+        if (this.curIndex + length > this.endIndex) {
+            throw new EOFBytesException();
+        }
+        this.curIndex += length;
+    }
+
+
     public byte[] getByteArr() {
         return byteArr;
     }
@@ -105,4 +117,8 @@ public class ByteArray implements Inputable {
         return endIndex;
     }
 
+    public int getCurIndex() {
+        return curIndex;
+    }
+
 }
@@ -1,7 +1,11 @@
 package transfer;
 
+import transfer.utils.Utf8Utils;
+
 /**
  * 可变长度字节缓冲
+ * <br/>调用reset()后可重复使用, 已扩展的字节数组段会被重用
+ * @see ByteBufferPool
  * Created by Jake on 2015/2/23.
  */
 public class ByteBuffer implements Outputable {
@@ -46,8 +50,22 @@ public class ByteBuffer implements Outputable {
     }
 
 
+    /**
+     * 写入字符串的UTF-8字节, 直接编码到字节数组段
+     * @param string 字符串
+     * @param utf8Length UTF-8字节数
+     * @see Utf8Utils#utf8Length(String)
+     */
+    public void putUtf8(String string, int utf8Length) {
+        ByteArr byteArr = this.curByteArray.checkBounds(utf8Length, this);
+        byteArr.offset = Utf8Utils.encode(string, byteArr.byteArray, byteArr.offset);
+        offset += utf8Length;
+    }
+
+
     /**
      * 获取字节
+     * <br/>只有一个字节数组段时直接包装该数组, 重用缓冲时需在reset()前使用完毕
      * @return
      */
     public ByteArray getByteArray() {
@@ -56,13 +74,7 @@ public class ByteBuffer implements Outputable {
         }
 
         byte[] byteArray = new byte[offset];
-        ByteArr curBytesArr = this.rootByteArray;
-        int loopOffset = 0;
-        do {
-            System.arraycopy(curBytesArr.byteArray, 0, byteArray, loopOffset, curBytesArr.offset);
-            loopOffset += curBytesArr.offset;
-        } while ((curBytesArr = curBytesArr.next) != null);
-
+        this.getBytes(byteArray, 0);
         return new ByteArray(byteArray, 0, offset);
     }
 
@@ -73,19 +85,67 @@ public class ByteBuffer implements Outputable {
      */
     public byte[] toBytes() {
         byte[] byteArray = new byte[offset];
-        if (rootByteArray == curByteArray) {
-            System.arraycopy(rootByteArray.byteArray, 0, byteArray, 0, offset);
-            return byteArray;
-        }
+        this.getBytes(byteArray, 0);
+        return byteArray;
+    }
 
+
+    /**
+     * 复制字节到调用方提供的数组
+     * @param dest 目标数组
+     * @param destPos 目标起始位置
+     * @return 复制的字节数
+     */
+    public int getBytes(byte[] dest, int destPos) {
+        if (dest.length - destPos < offset) {
+            throw new IndexOutOfBoundsException("dest remaining " + (dest.length - destPos) + " < " + offset);
+        }
         ByteArr curBytesArr = this.rootByteArray;
-        int loopOffset = 0;
-        do {
-            System.arraycopy(curBytesArr.byteArray, 0, byteArray, loopOffset, curBytesArr.offset);
+        int loopOffset = destPos;
+        while (true) {
+            System.arraycopy(curBytesArr.byteArray, 0, dest, loopOffset, curBytesArr.offset);
             loopOffset += curBytesArr.offset;
-        } while ((curBytesArr = curBytesArr.next) != null);
+            if (curBytesArr == curByteArray) {
+                break;
+            }
+            curBytesArr = curBytesArr.next;
+        }
+        return offset;
+    }
 
-        return byteArray;
+
+    /**
+     * 写入到输出通道(如NioOutputable、IoBufferOutputable)
+     * @param outputable 输出通道
+     */
+    public void writeTo(Outputable outputable) {
+        ByteArr curBytesArr = this.rootByteArray;
+        while (true) {
+            outputable.putBytes(curBytesArr.byteArray, 0, curBytesArr.offset);
+            if (curBytesArr == curByteArray) {
+                break;
+            }
+            curBytesArr = curBytesArr.next;
+        }
+    }
+
+
+    /**
+     * 重置缓冲, 清空已写入的内容
+     */
+    public void reset() {
+        this.rootByteArray.offset = 0;
+        this.curByteArray = this.rootByteArray;
+        this.offset = 0;
+    }
+
+
+    /**
+     * 首个字节数组段的容量
+     * @return
+     */
+    int rootCapacity() {
+        return this.rootByteArray.length();
     }
 
 
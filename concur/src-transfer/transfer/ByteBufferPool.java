@@ -0,0 +1,83 @@
+package transfer;
+
+/**
+ * 线程本地字节缓冲池
+ * <br/>按容量分级(256B - 64KB)每个线程每级缓存一个ByteBuffer, borrow时取出并reset, release时放回
+ * <br/>同一线程嵌套borrow同一级别时创建新的缓冲, 超过最大级别的缓冲不缓存
+ * <br/>借出的缓冲及其getByteArray()结果在release之后不可再使用
+ * @author Jake
+ */
+public final class ByteBufferPool {
+
+    /** 容量级别 */
+    static final int[] SIZE_CLASSES = {256, 1024, 4096, 16384, 65536};
+
+    /** 放回时保留的最大总长度, 超过时丢弃(避免线程长期占用大块内存) */
+    static final int MAX_RETAINED_LENGTH = 4 * SIZE_CLASSES[SIZE_CLASSES.length - 1];
+
+    private static final ThreadLocal<ByteBuffer[]> CACHE = new ThreadLocal<ByteBuffer[]>() {
+        @Override
+        protected ByteBuffer[] initialValue() {
+            return new ByteBuffer[SIZE_CLASSES.length];
+        }
+    };
+
+
+    private ByteBufferPool() {
+    }
+
+
+    /**
+     * 借出缓冲
+     * @param expectedLength 预计写入的字节数
+     * @return
+     */
+    public static ByteBuffer borrow(int expectedLength) {
+        int sizeClass = sizeClassOf(expectedLength);
+        if (sizeClass < 0) {
+            return new ByteBuffer(expectedLength);
+        }
+
+        ByteBuffer[] cache = CACHE.get();
+        ByteBuffer buffer = cache[sizeClass];
+        if (buffer == null) {
+            return new ByteBuffer(SIZE_CLASSES[sizeClass]);
+        }
+        cache[sizeClass] = null;
+        buffer.reset();
+        return buffer;
+    }
+
+
+    /**
+     * 放回缓冲
+     * @param buffer 由borrow借出的缓冲
+     */
+    public static void release(ByteBuffer buffer) {
+        if (buffer.length() > MAX_RETAINED_LENGTH) {
+            return;
+        }
+        int capacity = buffer.rootCapacity();
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (SIZE_CLASSES[i] == capacity) {
+                ByteBuffer[] cache = CACHE.get();
+                if (cache[i] == null) {
+                    cache[i] = buffer;
+                }
+                return;
+            }
+        }
+    }
+
+
+    // 容量级别, 超过最大级别时返回-1
+    static int sizeClassOf(int length) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (length <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,190 @@
+package transfer;
+
+import transfer.core.ClassInfo;
+import transfer.core.DeserialContext;
+import transfer.core.FieldInfo;
+import transfer.def.TransferConfig;
+import transfer.def.Types;
+import transfer.deserializer.Deserializer;
+import transfer.exceptions.IllegalTypeException;
+import transfer.utils.BitUtils;
+
+/**
+ * 对象视图
+ * <br/>不创建对象, 按需从原始字节解析单个属性, 适用于只需读取少数属性的路由、过滤等场景
+ * <br/>首次访问某个属性时才跳过它之前的属性并记录偏移, 之后的访问直接定位
+ * <br/>属性值与原始字节数组共享数据(字符串等属性值解析时才创建), 非线程安全
+ * @author Jake
+ */
+public class ObjectView {
+
+    /**
+     * 原始字节数组
+     */
+    private final byte[] byteArr;
+
+    /**
+     * 对象的起始位置(类型标记)
+     */
+    private final int startIndex;
+
+    /**
+     * 数据源的结束位置
+     */
+    private final int endIndex;
+
+    /**
+     * 对象的类信息
+     */
+    private final ClassInfo classInfo;
+
+    /**
+     * 属性的起始位置, offsets[fieldNum]为对象的结束位置
+     */
+    private final int[] offsets;
+
+    /**
+     * 已记录偏移的属性数量
+     */
+    private int indexed;
+
+
+    /**
+     * @param byteArray 数据源, 当前位置为对象的类型标记
+     */
+    public ObjectView(ByteArray byteArray) {
+
+        this.startIndex = byteArray.getCurIndex();
+        byte flag = byteArray.getByte();
+        if (flag != Types.OBJECT) {
+            throw new IllegalTypeException(new DeserialContext(), TransferConfig.getType(flag), Types.OBJECT, null);
+        }
+
+        int classId = BitUtils.getInt(byteArray);
+        this.byteArr = byteArray.getByteArr();
+        this.endIndex = byteArray.getEndIndex();
+        this.classInfo = TransferConfig.getOrCreateClassInfo(TransferConfig.getClass(classId));
+        this.offsets = new int[classInfo.getFieldInfos().size() + 1];
+        this.offsets[0] = byteArray.getCurIndex();
+    }
+
+
+    /**
+     * 获取属性值
+     * @param fieldName 属性名
+     * @param <T> 属性类型
+     * @return
+     */
+    public <T> T get(String fieldName) {
+        return get(getFieldIndex(fieldName));
+    }
+
+
+    /**
+     * 获取属性值
+     * @param index 属性序号(与ClassInfo的属性顺序一致)
+     * @param <T> 属性类型
+     * @return
+     */
+    public <T> T get(int index) {
+        ByteArray byteArray = getByteArray(index);
+        FieldInfo fieldInfo = classInfo.getFieldInfos().get(index);
+
+        byte flag = byteArray.getByte();
+        Deserializer deserializer = TransferConfig.getDeserializer(fieldInfo.getType(), flag);
+        return deserializer.deserialze(byteArray, fieldInfo.getType(), flag, new DeserialContext());
+    }
+
+
+    /**
+     * 获取对象类型属性的视图, 不创建属性对象
+     * @param fieldName 属性名
+     * @return 属性值为null时返回null
+     */
+    public ObjectView getView(String fieldName) {
+        ByteArray byteArray = getByteArray(getFieldIndex(fieldName));
+        if (byteArr[byteArray.getStartIndex()] == Types.NULL) {
+            return null;
+        }
+        return new ObjectView(byteArray);
+    }
+
+
+    /**
+     * 属性值是否为null
+     * @param fieldName 属性名
+     * @return
+     */
+    public boolean isNull(String fieldName) {
+        return byteArr[getByteArray(getFieldIndex(fieldName)).getStartIndex()] == Types.NULL;
+    }
+
+
+    /**
+     * 获取属性的原始字节(包括类型标记), 不复制字节
+     * <br/>可直接转发或者使用Transfer#decode解析
+     * @param index 属性序号
+     * @return
+     */
+    public ByteArray getByteArray(int index) {
+        if (index < 0 || index >= classInfo.getFieldInfos().size()) {
+            throw new IndexOutOfBoundsException("属性序号超出范围:" + index + ", class:" + classInfo.getClazz().getName());
+        }
+        indexTo(index + 1);
+        return new ByteArray(byteArr, offsets[index], offsets[index + 1]);
+    }
+
+
+    /**
+     * 获取对象的原始字节, 不复制字节
+     * @return
+     */
+    public ByteArray getByteArray() {
+        int fieldNum = classInfo.getFieldInfos().size();
+        indexTo(fieldNum);
+        return new ByteArray(byteArr, startIndex, offsets[fieldNum]);
+    }
+
+
+    // 跳过属性值直到记录了第count个偏移
+    private void indexTo(int count) {
+        if (indexed >= count) {
+            return;
+        }
+
+        ByteArray byteArray = new ByteArray(byteArr, offsets[indexed], endIndex);
+        while (indexed < count) {
+            TransferConfig.skipValue(byteArray, byteArray.getByte());
+            offsets[++indexed] = byteArray.getCurIndex();
+        }
+    }
+
+
+    // 获取属性序号
+    private int getFieldIndex(String fieldName) {
+        int index = classInfo.getFieldIndex(fieldName);
+        if (index < 0) {
+            throw new IllegalArgumentException("属性不存在:" + fieldName + ", class:" + classInfo.getClazz().getName());
+        }
+        return index;
+    }
+
+
+    /**
+     * 获取对象的类信息
+     * @return
+     */
+    public ClassInfo getClassInfo() {
+        return classInfo;
+    }
+
+
+    /**
+     * 获取属性数量
+     * @return
+     */
+    public int getFieldCount() {
+        return classInfo.getFieldInfos().size();
+    }
+
+}
@@ -11,7 +11,11 @@ import transfer.deserializer.CollectionDeSerializer;
 import transfer.deserializer.Deserializer;
 import transfer.deserializer.EntryDeserializer;
 import transfer.deserializer.MapDeSerializer;
+import transfer.io.Lz4Outputable;
+import transfer.io.NioOutputable;
 import transfer.serializer.Serializer;
+import transfer.utils.Lz4Utils;
+import transfer.utils.PackedUtils;
 import transfer.utils.TypeUtils;
 
 import java.lang.reflect.Type;
@@ -40,12 +44,26 @@ public class Persister {
      */
     private static final Logger logger = LoggerFactory.getLogger(Transfer.class);
 
+    /**
+     * 编码长度估算
+     */
+    private static final BufferSizeEstimator SIZE_ESTIMATOR = new BufferSizeEstimator(128);
+
     /**
      * 编码
+     * <br/>初始缓冲大小按该类型最近的编码长度估算
      * @param object 目标对象
      */
     public static ByteArray encode(Object object) {
-        return encode(object, 128);
+        if (object == null) {
+            return encode(object, 1);
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = new ByteBuffer(SIZE_ESTIMATOR.estimate(clazz));
+        encode(buffer, object);
+        SIZE_ESTIMATOR.record(clazz, buffer.length());
+        return buffer.getByteArray();
     }
 
 
@@ -74,7 +92,93 @@ public class Persister {
      * @See transfer.Transfer.encodePreCompile(Type)
      */
     public static ByteArray encode(Object object, Type type) {
-        return encode(object, type, 128);
+        if (object == null) {
+            return encode(object, type, 1);
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = new ByteBuffer(SIZE_ESTIMATOR.estimate(clazz));
+        encode(buffer, object, type);
+        SIZE_ESTIMATOR.record(clazz, buffer.length());
+        return buffer.getByteArray();
+    }
+
+
+    /**
+     * 编码到字节数组
+     * <br/>使用线程本地的缓冲池编码, 只分配结果数组
+     * @param object 目标对象
+     * @return
+     */
+    public static byte[] encodeBytes(Object object) {
+        if (object == null) {
+            return encode(object, 1).toBytes();
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = ByteBufferPool.borrow(SIZE_ESTIMATOR.estimate(clazz));
+        try {
+            encode(buffer, object);
+            SIZE_ESTIMATOR.record(clazz, buffer.length());
+            return buffer.toBytes();
+        } finally {
+            ByteBufferPool.release(buffer);
+        }
+    }
+
+
+    /**
+     * 编码到字节数组
+     * <br/>使用线程本地的缓冲池编码, 只分配结果数组
+     * @param object 目标对象
+     * @param type 指定预编译目标对象的类型
+     * @return
+     */
+    public static byte[] encodeBytes(Object object, Type type) {
+        if (object == null) {
+            return encode(object, type, 1).toBytes();
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = ByteBufferPool.borrow(SIZE_ESTIMATOR.estimate(clazz));
+        try {
+            encode(buffer, object, type);
+            SIZE_ESTIMATOR.record(clazz, buffer.length());
+            return buffer.toBytes();
+        } finally {
+            ByteBufferPool.release(buffer);
+        }
+    }
+
+
+    /**
+     * 编码到调用方提供的数组
+     * @param dest 目标数组
+     * @param destPos 目标起始位置
+     * @param object 目标对象
+     * @return 编码长度
+     * @throws java.nio.BufferOverflowException 目标数组空间不足
+     */
+    public static int encode(byte[] dest, int destPos, Object object) {
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(dest, destPos, dest.length - destPos);
+        encode(new NioOutputable(buffer), object);
+        return buffer.position() - destPos;
+    }
+
+
+    /**
+     * 编码到调用方提供的数组
+     * @param dest 目标数组
+     * @param destPos 目标起始位置
+     * @param object 目标对象
+     * @param type 指定预编译目标对象的类型
+     * @return 编码长度
+     * @throws java.nio.BufferOverflowException 目标数组空间不足
+     */
+    public static int encode(byte[] dest, int destPos, Object object, Type type) {
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(dest, destPos, dest.length - destPos);
+        encode(new NioOutputable(buffer), object, type);
+        return buffer.position() - destPos;
     }
 
 
@@ -103,7 +207,7 @@ public class Persister {
      * @param outputable 输出接口
      * @param object 目标对象
      */
-    private static void encode(Outputable outputable, Object object) {
+    public static void encode(Outputable outputable, Object object) {
         if (object == null) {
             Serializer.NULL_SERIALIZER.serialze(outputable, null, null);
             return;
@@ -120,7 +224,7 @@ public class Persister {
      * @param object 目标对象
      * @param type 指定预编译目标对象的类型
      */
-    private static <T> void encode(Outputable outputable, T object, Type type) {
+    public static <T> void encode(Outputable outputable, T object, Type type) {
         if (object == null) {
             Serializer.NULL_SERIALIZER.serialze(outputable, null, null);
             return;
@@ -155,6 +259,36 @@ public class Persister {
     }
 
 
+    /**
+     * 压缩编码
+     * <br/>编码时按块进行LZ4压缩, 编码长度小于Lz4Utils.DEFAULT_THRESHOLD时不压缩
+     * @param object 目标对象
+     * @see Persister#decodeCompressed(byte[], Class)
+     */
+    public static ByteArray encodeCompressed(Object object) {
+        return encodeCompressed(object, null);
+    }
+
+
+    /**
+     * 压缩编码
+     * @param object 目标对象
+     * @param type 指定预编译目标对象的类型, 为null时按对象的实际类型编码
+     */
+    public static ByteArray encodeCompressed(Object object, Type type) {
+        int sizeHint = object == null ? 1 : SIZE_ESTIMATOR.estimate(object.getClass());
+        ByteBuffer buffer = new ByteBuffer(sizeHint);
+        Lz4Outputable outputable = new Lz4Outputable(buffer, Lz4Utils.DEFAULT_THRESHOLD, sizeHint);
+        if (type == null) {
+            encode(outputable, object);
+        } else {
+            encode(outputable, object, type);
+        }
+        outputable.finish();
+        return buffer.getByteArray();
+    }
+
+
     /**
      * 获取预编译的编码器
      * @param type 类型
@@ -201,7 +335,7 @@ public class Persister {
      * @param <T>
      * @return
      */
-    private static <T> T decode(Inputable inputable, Class<T> clazz) {
+    public static <T> T decode(Inputable inputable, Class<T> clazz) {
         Deserializer deserializer;
         if (logger.isDebugEnabled()) {
             deserializer = PersistConfig.getDeserializer(clazz);
@@ -234,16 +368,28 @@ public class Persister {
      * @param <T>
      * @return
      */
-    private static <T> T decode(Inputable inputable, TypeReference<T> typeReference) {
+    public static <T> T decode(Inputable inputable, TypeReference<T> typeReference) {
+        return decode(inputable, typeReference.getType());
+    }
+
+
+    /**
+     * 解码
+     * @param inputable 输入接口
+     * @param type 类型
+     * @param <T>
+     * @return
+     */
+    public static <T> T decode(Inputable inputable, Type type) {
         Deserializer deserializer;
         if (logger.isDebugEnabled()) {
-            deserializer = PersistConfig.getDeserializer(typeReference.getType());
+            deserializer = PersistConfig.getDeserializer(type);
         } else {
-            deserializer = getCompiledDeserializer(typeReference.getType());
+            deserializer = getCompiledDeserializer(type);
         }
 
         byte flag = inputable.getByte();
-        return deserializer.deserialze(inputable, typeReference.getType(), flag, new DeserialContext());
+        return deserializer.deserialze(inputable, type, flag, new DeserialContext());
     }
 
 
@@ -260,6 +406,31 @@ public class Persister {
     }
 
 
+    /**
+     * 解码压缩数据, 未压缩的数据直接解码
+     * @param bytes 输入字节数组
+     * @param clazz 类型
+     * @param <T>
+     * @return
+     * @see Persister#encodeCompressed(Object, Type)
+     */
+    public static <T> T decodeCompressed(byte[] bytes, Class<T> clazz) {
+        return decode(Lz4Utils.decompress(new ByteArray(bytes)), clazz);
+    }
+
+
+    /**
+     * 解码压缩数据, 未压缩的数据直接解码
+     * @param bytes 输入字节数组
+     * @param typeReference 类型定义
+     * @param <T>
+     * @return
+     */
+    public static <T> T decodeCompressed(byte[] bytes, TypeReference<T> typeReference) {
+        return decode(Lz4Utils.decompress(new ByteArray(bytes)), typeReference);
+    }
+
+
     /**
      * 获取预编译大热解码器
      * @param type 类型
@@ -282,7 +453,7 @@ public class Persister {
      * @param <T> 集合类型类型
      * @return
      */
-    private static <T extends Collection<E>, E> Iterator<E> iterator(final Inputable inputable, TypeReference<T> typeReference) {
+    public static <T extends Collection<E>, E> Iterator<E> iterator(final Inputable inputable, TypeReference<T> typeReference) {
 
         // 读取消息头
         final ByteMeta byteDataMeta = CollectionDeSerializer.getInstance().readMeta(inputable);
@@ -301,6 +472,12 @@ public class Persister {
             defaultComponentDeserializer = null;
         }
 
+        // 紧凑编码的数字集合一次读取全部元素
+        final byte packedType = PersistConfig.getExtra(byteDataMeta.getFlag());
+        final Object packedValues = packedType == PackedUtils.NONE ? null
+                : PackedUtils.getArray(inputable, packedType, byteDataMeta.getComponentSize());
+        final Class<?> componentClass = componentType == Object.class ? null : TypeUtils.getRawClass(componentType);
+
 
         final DeserialContext context = new DeserialContext();
         return new Iterator<E>() {
@@ -315,6 +492,9 @@ public class Persister {
             @Override
             public E next() {
                 curIndex ++;
+                if (packedValues != null) {
+                    return (E) PackedUtils.get(packedValues, curIndex - 1, componentClass);
+                }
                 if (defaultComponentDeserializer == null) {
                     final byte elementFlag = inputable.getByte();
                     final Deserializer componentDeserializer = PersistConfig.getDeserializer(componentType, elementFlag);// 元素解析器
@@ -351,7 +531,7 @@ public class Persister {
      * @param <T> Map类型
      * @return
      */
-    private static <T extends Map<K, V>, K, V> Iterator<Map.Entry<K, V>> iteratorMap(final Inputable inputable, TypeReference<T> typeReference) {
+    public static <T extends Map<K, V>, K, V> Iterator<Map.Entry<K, V>> iteratorMap(final Inputable inputable, TypeReference<T> typeReference) {
         // 读取消息头
         final ByteMeta byteDataMeta = MapDeSerializer.getInstance().readMeta(inputable);
         // 不可以迭代
@@ -8,13 +8,23 @@ import transfer.core.SerialContext;
 import transfer.def.TransferConfig;
 import transfer.def.Types;
 import transfer.deserializer.CollectionDeSerializer;
+import transfer.deserializer.DeltaDeserializer;
 import transfer.deserializer.Deserializer;
 import transfer.deserializer.EntryDeserializer;
 import transfer.deserializer.MapDeSerializer;
+import transfer.deserializer.ParallelDeserializer;
+import transfer.io.Lz4Outputable;
+import transfer.io.NioOutputable;
+import transfer.serializer.DeltaSerializer;
+import transfer.serializer.ParallelSerializer;
 import transfer.serializer.Serializer;
+import transfer.utils.Lz4Utils;
+import transfer.utils.PackedUtils;
 import transfer.utils.TypeUtils;
+import utils.collections.concurrent.ForkJoinPool;
 
 import java.lang.reflect.Type;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -38,12 +48,26 @@ public class Transfer {
      */
     private static final Logger logger = LoggerFactory.getLogger(Transfer.class);
 
+    /**
+     * 编码长度估算
+     */
+    private static final BufferSizeEstimator SIZE_ESTIMATOR = new BufferSizeEstimator(128);
+
     /**
      * 编码
+     * <br/>初始缓冲大小按该类型最近的编码长度估算
      * @param object 目标对象
      */
     public static ByteArray encode(Object object) {
-        return encode(object, 128);
+        if (object == null) {
+            return encode(object, 1);
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = new ByteBuffer(SIZE_ESTIMATOR.estimate(clazz));
+        encode(buffer, object);
+        SIZE_ESTIMATOR.record(clazz, buffer.length());
+        return buffer.getByteArray();
     }
 
 
@@ -72,7 +96,93 @@ public class Transfer {
      * @See transfer.Transfer.encodePreCompile(Type)
      */
     public static ByteArray encode(Object object, Type type) {
-        return encode(object, type, 128);
+        if (object == null) {
+            return encode(object, type, 1);
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = new ByteBuffer(SIZE_ESTIMATOR.estimate(clazz));
+        encode(buffer, object, type);
+        SIZE_ESTIMATOR.record(clazz, buffer.length());
+        return buffer.getByteArray();
+    }
+
+
+    /**
+     * 编码到字节数组
+     * <br/>使用线程本地的缓冲池编码, 只分配结果数组
+     * @param object 目标对象
+     * @return
+     */
+    public static byte[] encodeBytes(Object object) {
+        if (object == null) {
+            return encode(object, 1).toBytes();
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = ByteBufferPool.borrow(SIZE_ESTIMATOR.estimate(clazz));
+        try {
+            encode(buffer, object);
+            SIZE_ESTIMATOR.record(clazz, buffer.length());
+            return buffer.toBytes();
+        } finally {
+            ByteBufferPool.release(buffer);
+        }
+    }
+
+
+    /**
+     * 编码到字节数组
+     * <br/>使用线程本地的缓冲池编码, 只分配结果数组
+     * @param object 目标对象
+     * @param type 指定预编译目标对象的类型
+     * @return
+     */
+    public static byte[] encodeBytes(Object object, Type type) {
+        if (object == null) {
+            return encode(object, type, 1).toBytes();
+        }
+
+        Class<?> clazz = object.getClass();
+        ByteBuffer buffer = ByteBufferPool.borrow(SIZE_ESTIMATOR.estimate(clazz));
+        try {
+            encode(buffer, object, type);
+            SIZE_ESTIMATOR.record(clazz, buffer.length());
+            return buffer.toBytes();
+        } finally {
+            ByteBufferPool.release(buffer);
+        }
+    }
+
+
+    /**
+     * 编码到调用方提供的数组
+     * @param dest 目标数组
+     * @param destPos 目标起始位置
+     * @param object 目标对象
+     * @return 编码长度
+     * @throws java.nio.BufferOverflowException 目标数组空间不足
+     */
+    public static int encode(byte[] dest, int destPos, Object object) {
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(dest, destPos, dest.length - destPos);
+        encode(new NioOutputable(buffer), object);
+        return buffer.position() - destPos;
+    }
+
+
+    /**
+     * 编码到调用方提供的数组
+     * @param dest 目标数组
+     * @param destPos 目标起始位置
+     * @param object 目标对象
+     * @param type 指定预编译目标对象的类型
+     * @return 编码长度
+     * @throws java.nio.BufferOverflowException 目标数组空间不足
+     */
+    public static int encode(byte[] dest, int destPos, Object object, Type type) {
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(dest, destPos, dest.length - destPos);
+        encode(new NioOutputable(buffer), object, type);
+        return buffer.position() - destPos;
     }
 
 
@@ -153,6 +263,99 @@ public class Transfer {
     }
 
 
+    /**
+     * 压缩编码
+     * <br/>编码时按块进行LZ4压缩, 编码长度小于Lz4Utils.DEFAULT_THRESHOLD时不压缩
+     * @param object 目标对象
+     * @see Transfer#decodeCompressed(byte[], Class)
+     */
+    public static ByteArray encodeCompressed(Object object) {
+        return encodeCompressed(object, null);
+    }
+
+
+    /**
+     * 压缩编码
+     * @param object 目标对象
+     * @param type 指定预编译目标对象的类型, 为null时按对象的实际类型编码
+     */
+    public static ByteArray encodeCompressed(Object object, Type type) {
+        int sizeHint = object == null ? 1 : SIZE_ESTIMATOR.estimate(object.getClass());
+        ByteBuffer buffer = new ByteBuffer(sizeHint);
+        Lz4Outputable outputable = new Lz4Outputable(buffer, Lz4Utils.DEFAULT_THRESHOLD, sizeHint);
+        if (type == null) {
+            encode(outputable, object);
+        } else {
+            encode(outputable, object, type);
+        }
+        outputable.finish();
+        return buffer.getByteArray();
+    }
+
+
+    /**
+     * 增量编码, 只编码修改过的属性
+     * <br/>属性序号与ClassInfo的属性顺序一致, 其他来源的序号(如dbcache动态更新的属性序号)需转为属性名使用encodeDelta(Object, String...)
+     * @param object 目标对象
+     * @param fields 修改过的属性序号
+     * @see Transfer#decodeDelta(Inputable, Object)
+     */
+    public static ByteArray encodeDelta(Object object, BitSet fields) {
+        ByteBuffer buffer = new ByteBuffer();
+        encodeDelta(buffer, object, fields);
+        return buffer.getByteArray();
+    }
+
+
+    /**
+     * 增量编码, 只编码修改过的属性
+     * @param object 目标对象
+     * @param fieldNames 修改过的属性名
+     */
+    public static ByteArray encodeDelta(Object object, String... fieldNames) {
+        return encodeDelta(object, DeltaSerializer.getInstance().getFields(object, fieldNames));
+    }
+
+
+    /**
+     * 增量编码, 只编码修改过的属性
+     * @param outputable 输出接口
+     * @param object 目标对象
+     * @param fields 修改过的属性序号
+     */
+    public static void encodeDelta(Outputable outputable, Object object, BitSet fields) {
+        DeltaSerializer.getInstance().serialze(outputable, object, fields, new SerialContext());
+    }
+
+
+    /**
+     * 并行编码大集合或Map
+     * <br/>元素数量超过ParallelSerializer.DEFAULT_CHUNK_SIZE时分块, 在公共ForkJoin线程池中并行编码
+     * <br/>分块后的数据需使用Transfer#decodeParallel解码
+     * @param object 集合或Map
+     * @param type 集合类型, 指定泛型时元素使用预编译的编码器
+     * @see Transfer#decodeParallel(byte[], TypeReference)
+     */
+    public static ByteArray encodeParallel(Object object, Type type) {
+        ByteBuffer buffer = new ByteBuffer();
+        encodeParallel(buffer, object, type, ParallelSerializer.DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+        return buffer.getByteArray();
+    }
+
+
+    /**
+     * 并行编码大集合或Map
+     * @param outputable 输出接口
+     * @param object 集合或Map
+     * @param type 集合类型
+     * @param chunkSize 块大小(元素数量)
+     * @param pool ForkJoin线程池
+     */
+    public static void encodeParallel(Outputable outputable, Object object, Type type, int chunkSize, ForkJoinPool pool) {
+        ParallelSerializer.getInstance().serialze(outputable, object, type, chunkSize, pool);
+    }
+
+
     /**
      * 获取预编译的编码器
      * @param type 类型
@@ -258,6 +461,31 @@ public class Transfer {
     }
 
 
+    /**
+     * 解码压缩数据, 未压缩的数据直接解码
+     * @param bytes 输入字节数组
+     * @param clazz 类型
+     * @param <T>
+     * @return
+     * @see Transfer#encodeCompressed(Object, Type)
+     */
+    public static <T> T decodeCompressed(byte[] bytes, Class<T> clazz) {
+        return decode(Lz4Utils.decompress(new ByteArray(bytes)), clazz);
+    }
+
+
+    /**
+     * 解码压缩数据, 未压缩的数据直接解码
+     * @param bytes 输入字节数组
+     * @param typeReference 类型定义
+     * @param <T>
+     * @return
+     */
+    public static <T> T decodeCompressed(byte[] bytes, TypeReference<T> typeReference) {
+        return decode(Lz4Utils.decompress(new ByteArray(bytes)), typeReference);
+    }
+
+
     /**
      * 获取预编译大热解码器
      * @param type 类型
@@ -273,6 +501,80 @@ public class Transfer {
     }
 
 
+    /**
+     * 应用增量, 将修改过的属性值设置到目标对象
+     * @param inputable 输入接口
+     * @param target 目标对象
+     * @param <T> 目标对象类型
+     * @return 目标对象
+     * @see Transfer#encodeDelta(Object, BitSet)
+     */
+    public static <T> T decodeDelta(Inputable inputable, T target) {
+        byte flag = inputable.getByte();
+        return DeltaDeserializer.getInstance().deserialze(inputable, target, flag, new DeserialContext());
+    }
+
+
+    /**
+     * 应用增量, 将修改过的属性值设置到目标对象
+     * @param bytes 输入字节数组
+     * @param target 目标对象
+     * @param <T> 目标对象类型
+     * @return 目标对象
+     */
+    public static <T> T decodeDelta(byte[] bytes, T target) {
+        return decodeDelta(new ByteArray(bytes), target);
+    }
+
+
+    /**
+     * 获取对象视图, 不解码整个对象, 按需解析单个属性
+     * @param bytes 输入字节数组
+     * @return
+     * @see ObjectView
+     */
+    public static ObjectView view(byte[] bytes) {
+        return new ObjectView(new ByteArray(bytes));
+    }
+
+
+    /**
+     * 获取对象视图, 不复制字节
+     * @param byteArray 输入字节数组, 当前位置为对象的类型标记
+     * @return
+     */
+    public static ObjectView view(ByteArray byteArray) {
+        return new ObjectView(byteArray);
+    }
+
+
+    /**
+     * 并行解码大集合或Map
+     * <br/>按块索引在公共ForkJoin线程池中并行解码, 非分块格式的数据按普通方式解码
+     * @param bytes 输入字节数组
+     * @param typeReference 类型定义
+     * @param <T> 集合类型
+     * @return
+     * @see Transfer#encodeParallel(Object, Type)
+     */
+    public static <T> T decodeParallel(byte[] bytes, TypeReference<T> typeReference) {
+        return decodeParallel(new ByteArray(bytes), typeReference.getType(), ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * 并行解码大集合或Map
+     * @param byteArray 输入字节数组
+     * @param type 集合类型
+     * @param pool ForkJoin线程池
+     * @param <T> 集合类型
+     * @return
+     */
+    public static <T> T decodeParallel(ByteArray byteArray, Type type, ForkJoinPool pool) {
+        return ParallelDeserializer.getInstance().deserialze(byteArray, type, pool);
+    }
+
+
     /**
      * 迭代解码
      * @param inputable 输入字节数组
@@ -299,6 +601,12 @@ public class Transfer {
             defaultComponentDeserializer = null;
         }
 
+        // 紧凑编码的数字集合一次读取全部元素
+        final byte packedType = TransferConfig.getExtra(byteDataMeta.getFlag());
+        final Object packedValues = packedType == PackedUtils.NONE ? null
+                : PackedUtils.getArray(inputable, packedType, byteDataMeta.getComponentSize());
+        final Class<?> componentClass = componentType == Object.class ? null : TypeUtils.getRawClass(componentType);
+
 
         final DeserialContext context = new DeserialContext();
         return new Iterator<E>() {
@@ -313,6 +621,9 @@ public class Transfer {
             @Override
             public E next() {
                 curIndex ++;
+                if (packedValues != null) {
+                    return (E) PackedUtils.get(packedValues, curIndex - 1, componentClass);
+                }
                 if (defaultComponentDeserializer == null) {
                     final byte elementFlag = inputable.getByte();
                     final Deserializer componentDeserializer = TransferConfig.getDeserializer(componentType, elementFlag);// 元素解析器
@@ -1,5 +1,6 @@
 package transfer.core;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +31,16 @@ public class ClassInfo {
      */
     private Map<String, FieldInfo> fieldInfoMap;
 
+    /**
+     * 属性标签表
+     */
+    private volatile TagTable tagTable;
+
+    /**
+     * 属性序号 {属性名:序号}
+     */
+    private volatile Map<String, Integer> fieldIndexMap;
+
     /**
      * 获取实例
      * @param clazz 类
@@ -68,4 +79,35 @@ public class ClassInfo {
         return classId;
     }
 
+    /**
+     * 获取属性标签表
+     * @return
+     */
+    public TagTable getTagTable() {
+        TagTable tagTable = this.tagTable;
+        if (tagTable == null) {
+            tagTable = new TagTable(fieldInfos);
+            this.tagTable = tagTable;
+        }
+        return tagTable;
+    }
+
+    /**
+     * 获取属性序号
+     * @param fieldName 属性名
+     * @return 不存在时返回-1
+     */
+    public int getFieldIndex(String fieldName) {
+        Map<String, Integer> fieldIndexMap = this.fieldIndexMap;
+        if (fieldIndexMap == null) {
+            fieldIndexMap = new HashMap<String, Integer>();
+            for (int i = 0; i < fieldInfos.size(); i++) {
+                fieldIndexMap.put(fieldInfos.get(i).getFieldName(), i);
+            }
+            this.fieldIndexMap = fieldIndexMap;
+        }
+        Integer index = fieldIndexMap.get(fieldName);
+        return index != null ? index : -1;
+    }
+
 }
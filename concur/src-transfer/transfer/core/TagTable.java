@@ -0,0 +1,132 @@
+package transfer.core;
+
+import transfer.ByteArray;
+import transfer.Inputable;
+import transfer.def.PersistConfig;
+import transfer.def.Types;
+import transfer.exceptions.IllegalTypeException;
+import transfer.utils.BitUtils;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * 属性标签表
+ * <br/>预先计算属性名的UTF-8字节和散列表, 直接按标签字节查找属性序号, 无需解码为字符串
+ * <br/>标签通常按属性顺序出现, 优先与预期的属性比较
+ * @author Jake
+ */
+public class TagTable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** 属性名的UTF-8字节 {属性序号:字节} */
+    private final byte[][] tags;
+
+    /** 散列表 {槽位:属性序号 + 1}, 0为空 */
+    private final int[] slots;
+
+    private final int indexMask;
+
+
+    /**
+     * 构造方法
+     * @param fieldInfos 属性列表
+     */
+    public TagTable(List<FieldInfo> fieldInfos) {
+        int size = fieldInfos.size();
+        int capacity = 4;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+
+        this.tags = new byte[size][];
+        this.slots = new int[capacity];
+        this.indexMask = capacity - 1;
+
+        for (int i = 0; i < size; i++) {
+            byte[] tag = fieldInfos.get(i).getFieldName().getBytes(UTF_8);
+            tags[i] = tag;
+            int slot = hash(tag, 0, tag.length) & indexMask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & indexMask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+
+    /**
+     * 读取属性标签
+     * @param inputable 数据源
+     * @param expected 预期的属性序号
+     * @param context 解析上下文
+     * @return 属性序号, 不存在的属性返回-1
+     */
+    public int read(Inputable inputable, int expected, DeserialContext context) {
+        byte flag = inputable.getByte();
+        byte typeFlag = PersistConfig.getType(flag);
+        if (typeFlag != Types.STRING) {
+            throw new IllegalTypeException(context, typeFlag, Types.STRING, String.class);
+        }
+
+        int length = BitUtils.getInt(inputable);
+        ByteArray byteArray;
+        int start;
+        if (inputable instanceof ByteArray) {
+            byteArray = (ByteArray) inputable;
+            start = byteArray.getCurIndex();
+            byteArray.skip(length);
+        } else {
+            byteArray = inputable.getByteArray(length);
+            start = byteArray.getStartIndex();
+        }
+        byte[] src = byteArray.getByteArr();
+
+        if (expected >= 0 && expected < tags.length && equals(tags[expected], src, start, length)) {
+            return expected;
+        }
+
+        int slot = hash(src, start, length) & indexMask;
+        int index;
+        while ((index = slots[slot]) != 0) {
+            if (equals(tags[index - 1], src, start, length)) {
+                return index - 1;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+        return -1;
+    }
+
+
+    /**
+     * 属性数量
+     * @return
+     */
+    public int size() {
+        return tags.length;
+    }
+
+
+    private static boolean equals(byte[] tag, byte[] src, int start, int length) {
+        if (tag.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (tag[i] != src[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static int hash(byte[] src, int start, int length) {
+        int h = length;
+        for (int i = start, end = start + length; i < end; i++) {
+            h = 31 * h + src[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -6,12 +6,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.util.ReflectionUtils;
 
 import transfer.ByteArray;
+import transfer.Inputable;
 import transfer.Outputable;
 import transfer.anno.Ignore;
 import transfer.anno.Transferable;
 import transfer.compile.AsmDeserializerFactory;
 import transfer.compile.AsmSerializerFactory;
 import transfer.core.ClassInfo;
+import transfer.core.DeserialContext;
 import transfer.core.EnumInfo;
 import transfer.core.FieldInfo;
 import transfer.deserializer.*;
@@ -59,6 +61,9 @@ public class PersistConfig {
 
     private static final IdentityHashMap<Class, Integer> idClassMap = new IdentityHashMap<Class, Integer>();
 
+    /** 使用带标签格式编码的类 */
+    private static final Set<Class> tagClasses = new ConcurrentHashSet<Class>();
+
 
     // 1111 0000 类型
     private static final byte TYPE_MASK = (byte) 0xF0;
@@ -87,6 +92,24 @@ public class PersistConfig {
      * @param id 唯一编号
      */
     public static void registerClass(Class<?> clazz, int id) {
+        registerClass(clazz, id, false);
+    }
+
+
+    /**
+     * 注册使用带标签格式编码的类
+     * <br/>按属性名匹配, 兼容属性增加、删除和调整顺序, 编码长度比默认格式大
+     * <br/>与registerClass注册的类编码格式不同, 已存储的数据需按原注册方式解码
+     * @param clazz 传输类
+     * @param id 唯一编号
+     */
+    public static void registerTagClass(Class<?> clazz, int id) {
+        registerClass(clazz, id, true);
+    }
+
+
+    // 注册类, tagged为是否使用带标签格式
+    private static void registerClass(Class<?> clazz, int id, boolean tagged) {
 
         Class oldClass = classIdMap.get(id);
         if (oldClass != null) {
@@ -97,12 +120,24 @@ public class PersistConfig {
         idClassMap.put(clazz, id);
 
         boolean repeatRegisterSerializers,repeatRegisterDeSerializers;
-        if (clazz.isEnum() || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum())) { // 枚举类型
-            repeatRegisterSerializers = serializers.put(clazz, EnumSerializer.getInstance());
-            repeatRegisterDeSerializers = typedDeserializers.put(clazz, EnumDeserializer.getInstance());
+        if (!tagged) {
+            tagClasses.remove(clazz);
+            if (clazz.isEnum() || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum())) { // 枚举类型
+                repeatRegisterSerializers = serializers.put(clazz, EnumSerializer.getInstance());
+                repeatRegisterDeSerializers = typedDeserializers.put(clazz, EnumDeserializer.getInstance());
+            } else {
+                repeatRegisterSerializers = serializers.put(clazz, ObjectSerializer.getInstance());
+                repeatRegisterDeSerializers = typedDeserializers.put(clazz, ObjectDeSerializer.getInstance());
+            }
         } else {
-            repeatRegisterSerializers = serializers.put(clazz, ObjectSerializer.getInstance());
-            repeatRegisterDeSerializers = typedDeserializers.put(clazz, ObjectDeSerializer.getInstance());
+            tagClasses.add(clazz);
+            if (clazz.isEnum() || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum())) { // 枚举类型
+                repeatRegisterSerializers = serializers.put(clazz, TagEnumSerializer.getInstance());
+                repeatRegisterDeSerializers = typedDeserializers.put(clazz, TagEnumDeserializer.getInstance());
+            } else {
+                repeatRegisterSerializers = serializers.put(clazz, TagObjectSerializer.getInstance());
+                repeatRegisterDeSerializers = typedDeserializers.put(clazz, TagObjectDeSerializer.getInstance());
+            }
         }
 
         if (repeatRegisterSerializers || repeatRegisterDeSerializers) {
@@ -383,11 +418,18 @@ public class PersistConfig {
 	        classIdMap.put(classId, clazz);
 	        idClassMap.put(clazz, classId);
 		
+	        boolean tagged = tagClasses.contains(clazz);
 	        if (clazz.isEnum() || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum())) { // 枚举类型
-	            serializers.put(clazz, EnumSerializer.getInstance());
-	            return EnumSerializer.getInstance();
+	        	Serializer enumSerializer = tagged ? TagEnumSerializer.getInstance() : EnumSerializer.getInstance();
+	            serializers.put(clazz, enumSerializer);
+	            return enumSerializer;
 	        }
 	        
+	        if (tagged) {
+	        	// 带标签的编码器不预编译
+	        	serializers.put(clazz, TagObjectSerializer.getInstance());
+	        	return TagObjectSerializer.getInstance();
+	        }
 	        
         	Serializer serializer;
         	try {
@@ -404,6 +446,10 @@ public class PersistConfig {
         }
         	
     	Serializer outerSerializer = getSerializer(clazz);
+    	if (outerSerializer instanceof TagObjectSerializer || outerSerializer instanceof TagEnumSerializer) {
+    		serializers.put(type, outerSerializer);
+    		return outerSerializer;
+    	}
     	try {
     		outerSerializer = AsmSerializerFactory.compileSerializer(type, outerSerializer);
         	serializers.put(type, outerSerializer);
@@ -433,20 +479,21 @@ public class PersistConfig {
 	        classIdMap.put(classId, clazz);
 	        idClassMap.put(clazz, classId);
 		
+	        boolean tagged = tagClasses.contains(clazz);
 	        if (clazz.isEnum() || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum())) { // 枚举类型
-	        	compiledDeserializers.put(clazz, EnumDeserializer.getInstance());
-	            return EnumDeserializer.getInstance();
+	        	Deserializer enumDeserializer = tagged ? TagEnumDeserializer.getInstance() : EnumDeserializer.getInstance();
+	        	compiledDeserializers.put(clazz, enumDeserializer);
+	            return enumDeserializer;
 	        }
 	        
 	        
-	        Deserializer deserializer;
+	        Deserializer deserializer = tagged ? TagObjectDeSerializer.getInstance() : ObjectDeSerializer.getInstance();
         	try {
-        		deserializer = AsmDeserializerFactory.compileDeserializer(clazz, ObjectDeSerializer.getInstance());// 自定义传输类
+        		deserializer = AsmDeserializerFactory.compileDeserializer(clazz, deserializer);// 自定义传输类
         		compiledDeserializers.put(clazz, deserializer);
         		
         	} catch (CompileError e) {
         		logger.warn("无法预编译: " + e.getMessage() + ", 将使用默认解码器");
-        		deserializer = ObjectDeSerializer.getInstance();
         		compiledDeserializers.put(clazz, deserializer);
         	}
         	return deserializer;
@@ -454,11 +501,16 @@ public class PersistConfig {
         }
         	
         Deserializer outerDeserializer = getDeserializer(clazz);
+        if (outerDeserializer instanceof TagEnumDeserializer) {
+        	compiledDeserializers.put(type, outerDeserializer);
+        	return outerDeserializer;
+        }
     	try {
     		outerDeserializer = AsmDeserializerFactory.compileDeserializer(type, outerDeserializer);
     		compiledDeserializers.put(type, outerDeserializer);
     	} catch (CompileError e) {
     		logger.warn("无法预编译: " + e.getMessage() + ", 将使用默认解码器");
+    		compiledDeserializers.put(type, outerDeserializer);
     	}
     	return outerDeserializer;
 	}
@@ -497,7 +549,7 @@ public class PersistConfig {
         }
 
         
-        int classId = TransferConfig.getClassId(clazz);
+        int classId = getClassId(clazz);
         // 枚举类型
         if (clazz.isEnum()) {
             classInfo = EnumInfo.valueOf(clazz, classId);
@@ -633,6 +685,88 @@ public class PersistConfig {
     }
 
 
+    /**
+     * 跳过一个值(不存在的属性等), 不创建对象
+     * <br/>集合、数组和Map中的对象和枚举元素使用Transfer格式编码, 需要解码后丢弃
+     * @param inputable 数据源
+     * @param flag 值的类型标记
+     */
+    public static void skipValue(Inputable inputable, byte flag) {
+        skipValue(inputable, flag, false);
+    }
+
+
+    // 跳过一个值, element为是否集合元素
+    private static void skipValue(Inputable inputable, byte flag, boolean element) {
+        if (flag == Types.NULL) {
+            return;
+        }
+
+        if (element && (getType(flag) == Types.OBJECT || getType(flag) == Types.ENUM)) {
+            Deserializer deserializer = TransferConfig.getDeserializer(Object.class, flag);
+            deserializer.deserialze(inputable, Object.class, flag, new DeserialContext());
+            return;
+        }
+
+        int size;
+        switch (getType(flag)) {
+            case Types.BOOLEAN:
+                return;
+            case Types.NUMBER:
+            case Types.DECIMAL:
+            case Types.DATE_TIME:
+                BitUtils.skipVarint(inputable);
+                return;
+            case Types.STRING:
+            case Types.BYTE_ARRAY:
+                skipBytes(inputable, BitUtils.getInt(inputable));
+                return;
+            case Types.ENUM:
+                BitUtils.skipVarint(inputable);// 枚举类型
+                skipValue(inputable, inputable.getByte());// 枚举名
+                return;
+            case Types.OBJECT:
+                BitUtils.skipVarint(inputable);// 类Id
+                size = BitUtils.getInt(inputable);
+                for (int i = 0; i < size; i++) {
+                    skipValue(inputable, inputable.getByte());// 属性标签
+                    skipValue(inputable, inputable.getByte());// 属性值
+                }
+                return;
+            case Types.ARRAY:
+            case Types.COLLECTION:
+                size = BitUtils.getInt(inputable);
+                if (getExtra(flag) != PackedUtils.NONE) {
+                    PackedUtils.skip(inputable, getExtra(flag), size);
+                    return;
+                }
+                for (int i = 0; i < size; i++) {
+                    skipValue(inputable, inputable.getByte(), true);
+                }
+                return;
+            case Types.MAP:
+                size = BitUtils.getInt(inputable);
+                for (int i = 0; i < size; i++) {
+                    skipValue(inputable, inputable.getByte(), true);// key
+                    skipValue(inputable, inputable.getByte(), true);// value
+                }
+                return;
+            default:
+                throw new UnsupportDeserializerTypeException(flag);
+        }
+    }
+
+
+    // 跳过字节
+    private static void skipBytes(Inputable inputable, int length) {
+        if (inputable instanceof ByteArray) {
+            ((ByteArray) inputable).skip(length);
+        } else {
+            inputable.getByteArray(length);
+        }
+    }
+
+
     static {
 
         deserializers.put(Types.OBJECT, TagObjectDeSerializer.getInstance());
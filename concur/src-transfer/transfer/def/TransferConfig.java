@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.ReflectionUtils;
 import transfer.ByteArray;
+import transfer.Inputable;
 import transfer.Outputable;
 import transfer.anno.Ignore;
 import transfer.anno.Transferable;
@@ -39,6 +40,8 @@ public class TransferConfig {
     private static final Logger logger = LoggerFactory.getLogger(TransferConfig.class);
     /** 是否使用自增ID */
     private static boolean useAutoIncrementId = false;
+    /** 基本类型数组和数字集合是否使用紧凑编码 */
+    private static volatile boolean packedEncoding = false;
     /** 传输类自增ID */
     private static final AtomicInteger CLASS_ID_GENERTOR = new AtomicInteger(1);
     
@@ -594,6 +597,27 @@ public class TransferConfig {
 	}
 
 
+    /**
+     * 设置基本类型数组和数字集合是否使用紧凑编码
+     * <br/>默认为false; 紧凑编码的数据需要支持该格式的版本才能解码, 所有节点升级后再开启
+     * <br/>同时作用于Transfer和Persister, 需在预编译编码器之前设置
+     * @param packedEncoding 是否使用紧凑编码
+     * @see transfer.utils.PackedUtils
+     */
+    public static void setPackedEncoding(boolean packedEncoding) {
+        TransferConfig.packedEncoding = packedEncoding;
+    }
+
+
+    /**
+     * 基本类型数组和数字集合是否使用紧凑编码
+     * @return
+     */
+    public static boolean isPackedEncoding() {
+        return packedEncoding;
+    }
+
+
     /**
      * 输出int值
      * @param outputable
@@ -632,6 +656,87 @@ public class TransferConfig {
     }
 
 
+    /**
+     * 跳过一个值, 不创建对象
+     * <br/>对象按类Id查找注册类的属性数量逐个跳过
+     * @param inputable 数据源
+     * @param flag 值的类型标记
+     */
+    public static void skipValue(Inputable inputable, byte flag) {
+        if (flag == Types.NULL) {
+            return;
+        }
+
+        int size;
+        switch (getType(flag)) {
+            case Types.BOOLEAN:
+                return;
+            case Types.NUMBER:
+            case Types.DECIMAL:
+            case Types.DATE_TIME:
+                BitUtils.skipVarint(inputable);
+                return;
+            case Types.STRING:
+            case Types.BYTE_ARRAY:
+                skipBytes(inputable, BitUtils.getInt(inputable));
+                return;
+            case Types.ENUM:
+                BitUtils.skipVarint(inputable);// 枚举类型
+                BitUtils.skipVarint(inputable);// 枚举索引
+                return;
+            case Types.OBJECT:
+                size = getOrCreateClassInfo(getClass(BitUtils.getInt(inputable))).getFieldInfos().size();
+                for (int i = 0; i < size; i++) {
+                    skipValue(inputable, inputable.getByte());
+                }
+                return;
+            case Types.ARRAY:
+            case Types.COLLECTION:
+            case Types.MAP:
+                size = BitUtils.getInt(inputable);
+                if (getExtra(flag) == ParallelSerializer.CHUNKED) {
+                    skipChunks(inputable);
+                    return;
+                }
+                if (getExtra(flag) != PackedUtils.NONE) {
+                    PackedUtils.skip(inputable, getExtra(flag), size);
+                    return;
+                }
+                if (getType(flag) == Types.MAP) {
+                    size <<= 1;// key和value
+                }
+                for (int i = 0; i < size; i++) {
+                    skipValue(inputable, inputable.getByte());
+                }
+                return;
+            default:
+                throw new UnsupportDeserializerTypeException(flag);
+        }
+    }
+
+
+    // 按块索引跳过分块编码的元素
+    private static void skipChunks(Inputable inputable) {
+        int chunkNum = BitUtils.getInt(inputable);
+        int length = 0;
+        for (int i = 0; i < chunkNum; i++) {
+            BitUtils.skipVarint(inputable);// 元素数量
+            length += BitUtils.getInt(inputable);
+        }
+        skipBytes(inputable, length);
+    }
+
+
+    // 跳过字节
+    private static void skipBytes(Inputable inputable, int length) {
+        if (inputable instanceof ByteArray) {
+            ((ByteArray) inputable).skip(length);
+        } else {
+            inputable.getByteArray(length);
+        }
+    }
+
+
 	static {
 
         deserializers.put(Types.OBJECT, ObjectDeSerializer.getInstance());
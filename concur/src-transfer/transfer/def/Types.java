@@ -15,6 +15,8 @@ public interface Types {
 	byte DATE_TIME = (byte) 0xA0;
 	// 1001 #### (144 - (byte)0x90)
 	byte COLLECTION = (byte) 0x90;
+	// 1000 #### (128 - (byte)0x80), 压缩信封
+	byte COMPRESSED = (byte) 0x80;
 	// 0101 #### (80 - (byte)0x50)
 	byte ENUM = (byte) 0x50;
 	// 0011 #### (48 - (byte)0x30),
@@ -12,6 +12,7 @@ import transfer.def.TransferConfig;
 import transfer.def.Types;
 import transfer.exceptions.IllegalTypeException;
 import transfer.utils.BitUtils;
+import transfer.utils.PackedUtils;
 import transfer.utils.TypeUtils;
 import utils.enhance.asm.util.AsmUtils;
 
@@ -48,6 +49,12 @@ public class ArrayDeSerializer implements Deserializer, Opcodes {
             itemType = TypeUtils.getParameterizedType((ParameterizedType) type, 0);
         }
 
+        // 紧凑编码的基本类型数组
+        byte packedType = TransferConfig.getExtra(flag);
+        if (packedType != PackedUtils.NONE) {
+            return (T) PackedUtils.toArray(PackedUtils.getArray(inputable, packedType, size), TypeUtils.getRawClass(itemType));
+        }
+
 
         Object array = Array.newInstance(TypeUtils.getRawClass(itemType), size);
         if (size == 0) {
@@ -164,6 +171,26 @@ public class ArrayDeSerializer implements Deserializer, Opcodes {
         
         
         Class<?> componentClass = TypeUtils.getRawClass(itemType);
+
+        // 紧凑编码的基本类型数组
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/def/TransferConfig", "getExtra", "(B)B", false);
+        Label l3 = new Label();
+        mv.visitJumpInsn(IFEQ, l3);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/def/TransferConfig", "getExtra", "(B)B", false);
+        mv.visitVarInsn(ILOAD, 6);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/PackedUtils", "getArray", "(Ltransfer/Inputable;BI)Ljava/lang/Object;", false);
+        if (componentClass.isPrimitive()) {
+            AsmUtils.loadPrimitiveType(mv, componentClass);
+        } else {
+            mv.visitLdcInsn(org.objectweb.asm.Type.getType(componentClass));
+        }
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/PackedUtils", "toArray", "(Ljava/lang/Object;Ljava/lang/Class;)Ljava/lang/Object;", false);
+        mv.visitTypeInsn(CHECKCAST, org.objectweb.asm.Type.getInternalName(Array.newInstance(componentClass, 0).getClass()));
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(l3);
         
         mv.visitVarInsn(ILOAD, 6);
         Label l6 = new Label();
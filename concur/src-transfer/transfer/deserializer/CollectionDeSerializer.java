@@ -13,6 +13,7 @@ import transfer.def.TransferConfig;
 import transfer.def.Types;
 import transfer.exceptions.IllegalTypeException;
 import transfer.utils.BitUtils;
+import transfer.utils.PackedUtils;
 import transfer.utils.TypeUtils;
 import utils.enhance.asm.util.AsmUtils;
 
@@ -54,9 +55,17 @@ public class CollectionDeSerializer implements Deserializer, Opcodes {
             itemType = ((Class<?>)type).getComponentType();
         }
 
+        Class<?> componentClass = TypeUtils.getRawClass(itemType);
+
+        // 紧凑编码的数字集合
+        byte packedType = TransferConfig.getExtra(flag);
+        if (packedType != PackedUtils.NONE) {
+            PackedUtils.addAll(list, PackedUtils.getArray(inputable, packedType, size), componentClass);
+            return (T) list;
+        }
+
 
         Deserializer defaultComponentDeserializer = null;
-        Class<?> componentClass = TypeUtils.getRawClass(itemType);
         if (itemType != null 
         		&& itemType != Object.class
         		&& !componentClass.isInterface()
@@ -87,7 +96,7 @@ public class CollectionDeSerializer implements Deserializer, Opcodes {
     }
 
 
-    private Collection createCollection(Type type) {
+    Collection createCollection(Type type) {
 
         if (type == null || type == Collection.class || type == Object.class) {
             return new ArrayList();
@@ -230,6 +239,23 @@ public class CollectionDeSerializer implements Deserializer, Opcodes {
 
 
         Class<?> componentClass = TypeUtils.getRawClass(itemType);
+
+        // 紧凑编码的数字集合
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/def/TransferConfig", "getExtra", "(B)B", false);
+        Label l8 = new Label();
+        mv.visitJumpInsn(IFEQ, l8);
+        mv.visitVarInsn(ALOAD, 6);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/def/TransferConfig", "getExtra", "(B)B", false);
+        mv.visitVarInsn(ILOAD, 7);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/PackedUtils", "getArray", "(Ltransfer/Inputable;BI)Ljava/lang/Object;", false);
+        mv.visitLdcInsn(org.objectweb.asm.Type.getType(componentClass));
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/PackedUtils", "addAll", "(Ljava/util/Collection;Ljava/lang/Object;Ljava/lang/Class;)V", false);
+        mv.visitVarInsn(ALOAD, 6);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(l8);
         Deserializer defaultComponentDeserializer = null;
         if (itemType != null && itemType != Object.class
         		&& !componentClass.isInterface()
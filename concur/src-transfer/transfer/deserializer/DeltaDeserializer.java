@@ -0,0 +1,91 @@
+package transfer.deserializer;
+
+import transfer.Inputable;
+import transfer.core.ClassInfo;
+import transfer.core.DeserialContext;
+import transfer.core.FieldInfo;
+import transfer.core.ParseStackTrace;
+import transfer.def.TransferConfig;
+import transfer.def.Types;
+import transfer.exceptions.IllegalClassTypeException;
+import transfer.exceptions.IllegalTypeException;
+import transfer.serializer.DeltaSerializer;
+import transfer.utils.BitUtils;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * 对象增量解析器
+ * <br/>将修改过的属性值设置到已有的对象上, 未修改的属性保持不变
+ * @see transfer.serializer.DeltaSerializer
+ * @author Jake
+ */
+public class DeltaDeserializer {
+
+
+    /**
+     * 应用增量
+     * @param inputable 数据源
+     * @param target 目标对象
+     * @param flag 类型标记
+     * @param context 解析上下文
+     * @return 目标对象
+     */
+    public <T> T deserialze(Inputable inputable, T target, byte flag, DeserialContext context) {
+
+        Class<?> clazz = DeltaSerializer.getTransferClass(target.getClass());
+        ParseStackTrace stack = context.nextStackTrace(clazz);
+
+        if (flag != (byte) (Types.OBJECT | DeltaSerializer.DELTA)) {
+            throw new IllegalTypeException(context, TransferConfig.getType(flag), Types.OBJECT, clazz);
+        }
+
+        // 读取对象类型
+        int classId = BitUtils.getInt(inputable);
+        ClassInfo classInfo = TransferConfig.getOrCreateClassInfo(clazz);
+        if (classId != classInfo.getClassId()) {
+            throw new IllegalClassTypeException(context, classId, clazz);
+        }
+
+        // 属性数量不一致时序号无法对应
+        List<FieldInfo> fieldInfos = classInfo.getFieldInfos();
+        int fieldNum = BitUtils.getInt(inputable);
+        if (fieldNum != fieldInfos.size()) {
+            throw new IllegalClassTypeException(context, classId, clazz);
+        }
+
+        byte[] bitmap = new byte[(fieldNum + 7) >>> 3];
+        inputable.getBytes(bitmap);
+
+        Type fieldType;
+        Object fieldValue;
+        Deserializer fieldDeserializer;
+
+        for (int i = 0; i < fieldNum; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) == 0) {
+                continue;
+            }
+
+            FieldInfo fieldInfo = fieldInfos.get(i);
+            context.next(stack, "field [" + fieldInfo.getName() + "]");
+
+            byte fieldFlag = inputable.getByte();
+            fieldType = fieldInfo.getType();
+            fieldDeserializer = TransferConfig.getDeserializer(fieldType, fieldFlag);
+
+            fieldValue = fieldDeserializer.deserialze(inputable, fieldType, fieldFlag, context);
+            fieldInfo.setField(target, fieldValue);
+        }
+
+        return target;
+    }
+
+
+    private static final DeltaDeserializer instance = new DeltaDeserializer();
+
+    public static DeltaDeserializer getInstance() {
+        return instance;
+    }
+
+}
@@ -322,7 +322,7 @@ public class MapDeSerializer implements Deserializer, Opcodes {
     }
 
 
-    private Map<Object, Object> createMap(Type type) {
+    Map<Object, Object> createMap(Type type) {
 
         if (type == null || type == Map.class || type == Object.class) {
             return new HashMap<Object, Object>();
@@ -0,0 +1,224 @@
+package transfer.deserializer;
+
+import transfer.ByteArray;
+import transfer.core.DeserialContext;
+import transfer.def.TransferConfig;
+import transfer.def.Types;
+import transfer.exceptions.IllegalTypeException;
+import transfer.serializer.ParallelSerializer;
+import transfer.utils.BitUtils;
+import transfer.utils.TypeUtils;
+import utils.collections.concurrent.ForkJoinPool;
+import utils.collections.concurrent.RecursiveTask;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 大集合并行解析器
+ * <br/>按块索引将数据切分为独立的ByteArray(不复制字节), 在ForkJoin线程池中并行解析, 再按顺序合并
+ * <br/>非分块格式的数据按普通方式解析
+ * @see transfer.serializer.ParallelSerializer
+ * @author Jake
+ */
+public class ParallelDeserializer {
+
+
+    /**
+     * 并行解析
+     * @param byteArray 数据源
+     * @param type 集合或Map类型, 指定泛型时元素使用预编译的解析器
+     * @param pool ForkJoin线程池
+     * @return
+     */
+    public <T> T deserialze(ByteArray byteArray, Type type, ForkJoinPool pool) {
+
+        byte flag = byteArray.getByte();
+        if (TransferConfig.getExtra(flag) != ParallelSerializer.CHUNKED) {
+            Deserializer deserializer = TransferConfig.getDeserializer(type, flag);
+            return deserializer.deserialze(byteArray, type, flag, new DeserialContext());
+        }
+
+        byte typeFlag = TransferConfig.getType(flag);
+        if (typeFlag != Types.COLLECTION && typeFlag != Types.MAP) {
+            throw new IllegalTypeException(new DeserialContext(), typeFlag, Types.COLLECTION, type);
+        }
+        boolean isMap = typeFlag == Types.MAP;
+
+        int size = BitUtils.getInt(byteArray);
+        int chunkNum = BitUtils.getInt(byteArray);
+
+        // 读取块索引
+        int[] counts = new int[chunkNum];
+        int[] lengths = new int[chunkNum];
+        for (int i = 0; i < chunkNum; i++) {
+            counts[i] = BitUtils.getInt(byteArray);
+            lengths[i] = BitUtils.getInt(byteArray);
+        }
+
+        ByteArray[] chunks = new ByteArray[chunkNum];
+        for (int i = 0; i < chunkNum; i++) {
+            chunks[i] = byteArray.getByteArray(lengths[i]);
+        }
+
+        // 在调用线程中获取元素解析器, 避免在工作线程中并发预编译
+        Type keyType = null;
+        Type valueType = null;
+        if (type instanceof ParameterizedType) {
+            keyType = TypeUtils.getParameterizedType((ParameterizedType) type, 0);
+            if (isMap) {
+                valueType = TypeUtils.getParameterizedType((ParameterizedType) type, 1);
+            }
+        }
+        Deserializer keyDeserializer = getElementDeserializer(keyType);
+        Deserializer valueDeserializer = getElementDeserializer(valueType);
+
+        Object[][] results = new Object[chunkNum][];
+        pool.invoke(new ChunkTask(chunks, counts, isMap, keyType, valueType,
+                keyDeserializer, valueDeserializer, results, 0, chunkNum));
+
+        if (isMap) {
+            Map<Object, Object> map = MapDeSerializer.getInstance().createMap(type);
+            for (Object[] result : results) {
+                for (int i = 0; i < result.length; i += 2) {
+                    map.put(result[i], result[i + 1]);
+                }
+            }
+            return (T) map;
+        }
+
+        Collection list = CollectionDeSerializer.getInstance().createCollection(type);
+        if (list instanceof ArrayList) {
+            ((ArrayList) list).ensureCapacity(size);
+        }
+        for (Object[] result : results) {
+            for (Object element : result) {
+                list.add(element);
+            }
+        }
+        return (T) list;
+    }
+
+
+    /**
+     * 获取元素解析器
+     * @param elementType 元素类型
+     * @return 不确定元素类型时返回null, 按数据的类型标记解析
+     */
+    private Deserializer getElementDeserializer(Type elementType) {
+        Class<?> elementClass = TypeUtils.getRawClass(elementType);
+        if (elementClass == Object.class || elementClass.isInterface()
+                || Modifier.isAbstract(elementClass.getModifiers()) && !elementClass.isArray()) {
+            return null;
+        }
+
+        Deserializer deserializer = TransferConfig.getCompiledDeSerializer(elementType);
+        if (deserializer == null) {
+            deserializer = TransferConfig.preCompileDeserializer(elementType);
+        }
+        return deserializer;
+    }
+
+
+    /**
+     * 解析一个元素
+     */
+    private static Object deserialzeElement(ByteArray byteArray, Type type, Deserializer deserializer, DeserialContext context) {
+        byte flag = byteArray.getByte();
+        if (deserializer == null) {
+            deserializer = TransferConfig.getDeserializer(type, flag);
+        }
+        return deserializer.deserialze(byteArray, type, flag, context);
+    }
+
+
+    /**
+     * 块解析任务
+     * <br/>按块序号二分, 每块解析到独立的数组(Map为key、value交替)
+     */
+    private static class ChunkTask extends RecursiveTask<Void> {
+
+        private static final long serialVersionUID = 3518254079630187642L;
+
+        private final ByteArray[] chunks;
+
+        private final int[] counts;
+
+        private final boolean isMap;
+
+        private final Type keyType;
+
+        private final Type valueType;
+
+        private final Deserializer keyDeserializer;
+
+        private final Deserializer valueDeserializer;
+
+        private final Object[][] results;
+
+        /** 起始块序号 包括 */
+        private final int low;
+
+        /** 结束块序号 不包括 */
+        private final int high;
+
+        ChunkTask(ByteArray[] chunks, int[] counts, boolean isMap, Type keyType, Type valueType,
+                  Deserializer keyDeserializer, Deserializer valueDeserializer, Object[][] results, int low, int high) {
+            this.chunks = chunks;
+            this.counts = counts;
+            this.isMap = isMap;
+            this.keyType = keyType;
+            this.valueType = valueType;
+            this.keyDeserializer = keyDeserializer;
+            this.valueDeserializer = valueDeserializer;
+            this.results = results;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected Void compute() {
+            if (high - low > 1) {
+                int mid = (low + high) >>> 1;
+                ChunkTask left = new ChunkTask(chunks, counts, isMap, keyType, valueType,
+                        keyDeserializer, valueDeserializer, results, low, mid);
+                left.fork();
+                new ChunkTask(chunks, counts, isMap, keyType, valueType,
+                        keyDeserializer, valueDeserializer, results, mid, high).compute();
+                left.join();
+                return null;
+            }
+
+            ByteArray chunk = chunks[low];
+            int count = counts[low];
+            DeserialContext context = new DeserialContext();
+            Object[] result;
+            if (isMap) {
+                result = new Object[count << 1];
+                for (int i = 0; i < result.length; i += 2) {
+                    result[i] = deserialzeElement(chunk, keyType, keyDeserializer, context);
+                    result[i + 1] = deserialzeElement(chunk, valueType, valueDeserializer, context);
+                }
+            } else {
+                result = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    result[i] = deserialzeElement(chunk, keyType, keyDeserializer, context);
+                }
+            }
+            results[low] = result;
+            return null;
+        }
+    }
+
+
+    private static final ParallelDeserializer instance = new ParallelDeserializer();
+
+    public static ParallelDeserializer getInstance() {
+        return instance;
+    }
+
+}
@@ -9,10 +9,9 @@ import transfer.core.DeserialContext;
 import transfer.def.TransferConfig;
 import transfer.def.Types;
 import transfer.exceptions.IllegalTypeException;
-import transfer.utils.BitUtils;
+import transfer.utils.Utf8Utils;
 
 import java.lang.reflect.Type;
-import java.nio.charset.Charset;
 
 /**
  * 字符串解析器
@@ -20,8 +19,6 @@ import java.nio.charset.Charset;
  */
 public class StringDeserializer implements Deserializer, Opcodes {
 
-	// 默认编码
-    private static final String CHARSET = "UTF-8";
 
 	@Override
     public <T> T deserialze(Inputable inputable, Type type, byte flag, DeserialContext context) {
@@ -33,11 +30,8 @@ public class StringDeserializer implements Deserializer, Opcodes {
             throw new IllegalTypeException(context, typeFlag, Types.STRING, type);
         }
 
-        // 读取字符串字节数组的大小
-        int length = BitUtils.getInt(inputable);
-        byte[] bytes = new byte[length];
-        inputable.getBytes(bytes);
-        return (T) new String(bytes, Charset.forName(CHARSET));
+        // 读取长度和UTF-8字节
+        return (T) Utf8Utils.getString(inputable);
     }
 
     
@@ -80,23 +74,9 @@ public class StringDeserializer implements Deserializer, Opcodes {
     	
     	mv.visitFrame(Opcodes.F_APPEND,1, new Object[] {Opcodes.INTEGER}, 0, null);
     	mv.visitVarInsn(ALOAD, 1);
-    	mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/BitUtils", "getInt", "(Ltransfer/Inputable;)I", false);
-    	mv.visitVarInsn(ISTORE, 6);
-    	mv.visitVarInsn(ILOAD, 6);
-    	mv.visitIntInsn(NEWARRAY, T_BYTE);
-    	mv.visitVarInsn(ASTORE, 7);
-    	mv.visitVarInsn(ALOAD, 1);
-    	mv.visitVarInsn(ALOAD, 7);
-    	
-    	mv.visitMethodInsn(INVOKEINTERFACE, "transfer/Inputable", "getBytes", "([B)V", true);
-    	mv.visitTypeInsn(NEW, "java/lang/String");
-    	mv.visitInsn(DUP);
-    	mv.visitVarInsn(ALOAD, 7);
-    	mv.visitLdcInsn(CHARSET);
-    	mv.visitMethodInsn(INVOKESTATIC, "java/nio/charset/Charset", "forName", "(Ljava/lang/String;)Ljava/nio/charset/Charset;", false);
-    	mv.visitMethodInsn(INVOKESPECIAL, "java/lang/String", "<init>", "([BLjava/nio/charset/Charset;)V", false);
+    	mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/Utf8Utils", "getString", "(Ltransfer/Inputable;)Ljava/lang/String;", false);
     	mv.visitInsn(ARETURN);
-    	mv.visitMaxs(5, 8);
+    	mv.visitMaxs(5, 6);
     	mv.visitEnd();
     	
 	}
@@ -1,33 +1,47 @@
 package transfer.deserializer;
 
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import transfer.Inputable;
 import transfer.compile.AsmDeserializerContext;
 import transfer.core.ClassInfo;
 import transfer.core.DeserialContext;
 import transfer.core.FieldInfo;
 import transfer.core.ParseStackTrace;
+import transfer.core.TagTable;
 import transfer.def.PersistConfig;
 import transfer.def.Types;
+import transfer.exceptions.CompileError;
 import transfer.exceptions.IllegalClassTypeException;
 import transfer.exceptions.IllegalTypeException;
 import transfer.exceptions.UnsupportDeserializerTypeException;
 import transfer.utils.BitUtils;
 import transfer.utils.TypeUtils;
+import utils.enhance.asm.util.AsmUtils;
 
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.List;
 
 /**
  * 带标签的对象解析器
+ * <br/>按属性标签查找属性, 不存在的属性直接跳过, 兼容新旧版本的类
+ * <br/>预编译时生成按属性序号跳转(tableswitch)的解码方法, 基本类型、字符串、日期和字节数组属性使用预编译解析方法
+ * @see TagTable
  * Created by Jake on 2015/2/23.
  */
-public class TagObjectDeSerializer implements Deserializer {
+public class TagObjectDeSerializer implements Deserializer, Opcodes {
 
-    /**
-     * 属性名解析器
-     */
-    private static final ShortStringDeserializer STRING_DESERIALIZER = ShortStringDeserializer.getInstance();
+    /** 标签表静态属性名 */
+    private static final String TAGS_FIELD = "TAGS";
+
+    /** 属性列表静态属性名 */
+    private static final String FIELDS_FIELD = "FIELDS";
 
 
     @Override
@@ -43,7 +57,7 @@ public class TagObjectDeSerializer implements Deserializer {
         // 读取对象类型
         int classId = BitUtils.getInt(inputable);
         Class<?> rawClass = TypeUtils.getRawClass(type);
-        if (type == null 
+        if (type == null
         		|| type == Object.class
         		|| rawClass.isInterface()
 				|| Modifier.isAbstract(rawClass.getModifiers()) && !rawClass.isArray()) {
@@ -73,49 +87,375 @@ public class TagObjectDeSerializer implements Deserializer {
         }
 
 
+        TagTable tagTable = classInfo.getTagTable();
+        List<FieldInfo> fieldInfos = classInfo.getFieldInfos();
 
         Type fieldType;
-        String fieldName;
         Object fieldValue;
         FieldInfo fieldInfo;
         Deserializer fieldDeserializer;
 
         // 读取属性数量
         int fieldNum = BitUtils.getInt(inputable);
+        // 预期的下一个属性序号
+        int expected = 0;
 
         for (int i = 0;i < fieldNum;i++) {
-            stack.setIndex(fieldNum);
+            stack.setIndex(i);
             context.next(stack, "field name", String.class);
 
-            fieldName = STRING_DESERIALIZER.deserialze(inputable, String.class, inputable.getByte(), context);
-            fieldInfo = classInfo.getFieldInfo(fieldName);
+            int index = tagTable.read(inputable, expected, context);
+            byte fieldFlag = inputable.getByte();
 
-            context.next(stack, "field [" + fieldInfo != null?fieldInfo.getName():"" + "]");
+            if (index < 0) {// 略过不存在的属性
+                PersistConfig.skipValue(inputable, fieldFlag);
+                continue;
+            }
 
-            byte fieldFlag = inputable.getByte();
-            fieldType = fieldInfo != null ? fieldInfo.getType() : Object.class;
+            fieldInfo = fieldInfos.get(index);
+            expected = index + 1;
+            context.next(stack, "field [" + fieldInfo.getName() + "]");
 
+            fieldType = fieldInfo.getType();
             fieldDeserializer = PersistConfig.getDeserializer(fieldType, fieldFlag);
             fieldValue = fieldDeserializer.deserialze(inputable, fieldType, fieldFlag, context);
 
-            if (fieldInfo == null) {// 略过不存在的属性
-                continue;
-            }
-            
             fieldInfo.setField(object, fieldValue);
-
         }
 
         return (T) object;
     }
 
-    
+
     @Override
-	public void compile(Type type, MethodVisitor mw,
+	public void compile(Type type, MethodVisitor mv,
 			AsmDeserializerContext context) {
-    	
+
+        Class<?> rawClass = TypeUtils.getRawClass(type);
+        if (type == null || rawClass == null || rawClass == Object.class
+                || rawClass.isInterface() || Modifier.isAbstract(rawClass.getModifiers())
+                || !Modifier.isPublic(rawClass.getModifiers())) {
+            throw new CompileError("不支持编译类型:" + type);
+        }
+        try {
+            rawClass.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new CompileError("不支持编译类型(缺少public无参构造方法):" + type);
+        }
+
+        ClassInfo classInfo = PersistConfig.getOrCreateClassInfo(rawClass);
+        if (classInfo == null) {
+            throw new UnsupportDeserializerTypeException(rawClass);
+        }
+        List<FieldInfo> fieldInfos = classInfo.getFieldInfos();
+
+        String owner = AsmUtils.toAsmCls(context.getClassName());
+        String entityClass = org.objectweb.asm.Type.getInternalName(rawClass);
+
+        this.compileStaticFields(owner, rawClass, context.getClassWriter());
+
+        mv.visitCode();
+
+//      if (flag == Types.NULL) {
+//   		return null;
+//  	}
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitInsn(ICONST_1);
+        Label l1 = new Label();
+        mv.visitJumpInsn(IF_ICMPNE, l1);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(l1);
+
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/def/PersistConfig", "getType", "(B)B", false);
+        mv.visitVarInsn(ISTORE, 5);
+
+        mv.visitVarInsn(ILOAD, 5);
+        mv.visitIntInsn(BIPUSH, Types.OBJECT);
+        Label l2 = new Label();
+        mv.visitJumpInsn(IF_ICMPEQ, l2);
+        mv.visitTypeInsn(NEW, "transfer/exceptions/IllegalTypeException");
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, 4);
+        mv.visitVarInsn(ILOAD, 5);
+        mv.visitIntInsn(BIPUSH, Types.OBJECT);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, "transfer/exceptions/IllegalTypeException", "<init>", "(Ltransfer/core/DeserialContext;BBLjava/lang/reflect/Type;)V", false);
+        mv.visitInsn(ATHROW);
+        mv.visitLabel(l2);
+
+        // 类Id
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/BitUtils", "getInt", "(Ltransfer/Inputable;)I", false);
+        mv.visitVarInsn(ISTORE, 6);
+
+        mv.visitVarInsn(ILOAD, 6);
+        mv.visitLdcInsn(classInfo.getClassId());
+        Label l3 = new Label();
+        mv.visitJumpInsn(IF_ICMPEQ, l3);
+        mv.visitTypeInsn(NEW, "transfer/exceptions/IllegalClassTypeException");
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, 4);
+        mv.visitVarInsn(ILOAD, 6);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESPECIAL, "transfer/exceptions/IllegalClassTypeException", "<init>", "(Ltransfer/core/DeserialContext;ILjava/lang/reflect/Type;)V", false);
+        mv.visitInsn(ATHROW);
+        mv.visitLabel(l3);
+
+        // new Entity()
+        mv.visitTypeInsn(NEW, entityClass);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, entityClass, "<init>", "()V", false);
+        mv.visitVarInsn(ASTORE, 7);
+
+        // 属性数量
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/BitUtils", "getInt", "(Ltransfer/Inputable;)I", false);
+        mv.visitVarInsn(ISTORE, 8);
+
+        // i = 0, expected = 0
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, 9);
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, 10);
+
+        Label loop = new Label();
+        Label next = new Label();
+        Label end = new Label();
+        mv.visitLabel(loop);
+        mv.visitVarInsn(ILOAD, 9);
+        mv.visitVarInsn(ILOAD, 8);
+        mv.visitJumpInsn(IF_ICMPGE, end);
+
+        // index = TAGS.read(inputable, expected, context)
+        mv.visitFieldInsn(GETSTATIC, owner, TAGS_FIELD, "Ltransfer/core/TagTable;");
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ILOAD, 10);
+        mv.visitVarInsn(ALOAD, 4);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "transfer/core/TagTable", "read", "(Ltransfer/Inputable;ILtransfer/core/DeserialContext;)I", false);
+        mv.visitVarInsn(ISTORE, 11);
+
+        // fieldFlag = inputable.getByte()
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEINTERFACE, "transfer/Inputable", "getByte", "()B", true);
+        mv.visitVarInsn(ISTORE, 12);
+
+        Label skip = new Label();
+        int size = fieldInfos.size();
+        if (size > 0) {
+            Label[] labels = new Label[size];
+            for (int i = 0; i < size; i++) {
+                labels[i] = new Label();
+            }
+            mv.visitVarInsn(ILOAD, 11);
+            mv.visitTableSwitchInsn(0, size - 1, skip, labels);
+
+            for (int i = 0; i < size; i++) {
+                mv.visitLabel(labels[i]);
+                this.compileField(i, fieldInfos.get(i), rawClass, owner, mv, context);
+                pushInt(mv, i + 1);
+                mv.visitVarInsn(ISTORE, 10);
+                mv.visitJumpInsn(GOTO, next);
+            }
+        }
+
+        // 略过不存在的属性
+        mv.visitLabel(skip);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ILOAD, 12);
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/def/PersistConfig", "skipValue", "(Ltransfer/Inputable;B)V", false);
+
+        mv.visitLabel(next);
+        mv.visitIincInsn(9, 1);
+        mv.visitJumpInsn(GOTO, loop);
+
+        mv.visitLabel(end);
+        mv.visitVarInsn(ALOAD, 7);
+        mv.visitInsn(ARETURN);
+
+        mv.visitMaxs(6, 15);
+        mv.visitEnd();
 	}
 
+
+    // 生成静态属性 TAGS、FIELDS
+    private void compileStaticFields(String owner, Class<?> rawClass, ClassWriter cw) {
+        FieldVisitor fv = cw.visitField(ACC_PRIVATE + ACC_STATIC + ACC_FINAL, TAGS_FIELD, "Ltransfer/core/TagTable;", null, null);
+        fv.visitEnd();
+        fv = cw.visitField(ACC_PRIVATE + ACC_STATIC + ACC_FINAL, FIELDS_FIELD, "Ljava/util/List;", null, null);
+        fv.visitEnd();
+
+        MethodVisitor mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(org.objectweb.asm.Type.getType(rawClass));
+        mv.visitMethodInsn(INVOKESTATIC, "transfer/def/PersistConfig", "getOrCreateClassInfo", "(Ljava/lang/Class;)Ltransfer/core/ClassInfo;", false);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "transfer/core/ClassInfo", "getTagTable", "()Ltransfer/core/TagTable;", false);
+        mv.visitFieldInsn(PUTSTATIC, owner, TAGS_FIELD, "Ltransfer/core/TagTable;");
+        mv.visitMethodInsn(INVOKEVIRTUAL, "transfer/core/ClassInfo", "getFieldInfos", "()Ljava/util/List;", false);
+        mv.visitFieldInsn(PUTSTATIC, owner, FIELDS_FIELD, "Ljava/util/List;");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(2, 0);
+        mv.visitEnd();
+    }
+
+
+    // 解码属性值并设置到对象(局部变量7), 属性标记在局部变量12
+    private void compileField(int index, FieldInfo fieldInfo, Class<?> rawClass, String owner,
+                              MethodVisitor mv, AsmDeserializerContext context) {
+
+        Type fieldType = fieldInfo.getType();
+        Class<?> fieldRawClass = TypeUtils.getRawClass(fieldType);
+
+        Deserializer fieldDeserializer = getCompilableDeserializer(fieldRawClass);
+        if (fieldDeserializer != null) {
+            // 使用预编译解析方法
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            loadClass(mv, fieldRawClass);
+            mv.visitVarInsn(ILOAD, 12);
+            mv.visitVarInsn(ALOAD, 4);
+
+            MethodVisitor mv1 = context.invokeNextDeserialize(fieldInfo.getFieldName(), mv);
+            fieldDeserializer.compile(fieldType, mv1, context);
+        } else {
+            // fieldType = FIELDS.get(index).getType()
+            loadFieldInfo(mv, owner, index);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "transfer/core/FieldInfo", "getType", "()Ljava/lang/reflect/Type;", false);
+            mv.visitVarInsn(ASTORE, 14);
+
+            // PersistConfig.getDeserializer(fieldType, fieldFlag).deserialze(inputable, fieldType, fieldFlag, context)
+            mv.visitVarInsn(ALOAD, 14);
+            mv.visitVarInsn(ILOAD, 12);
+            mv.visitMethodInsn(INVOKESTATIC, "transfer/def/PersistConfig", "getDeserializer", "(Ljava/lang/reflect/Type;B)Ltransfer/deserializer/Deserializer;", false);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitVarInsn(ALOAD, 14);
+            mv.visitVarInsn(ILOAD, 12);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitMethodInsn(INVOKEINTERFACE, "transfer/deserializer/Deserializer", "deserialze", "(Ltransfer/Inputable;Ljava/lang/reflect/Type;BLtransfer/core/DeserialContext;)Ljava/lang/Object;", true);
+        }
+        mv.visitVarInsn(ASTORE, 13);
+
+        // 基本类型属性值为null时不设置
+        Label done = new Label();
+        if (fieldRawClass.isPrimitive()) {
+            mv.visitVarInsn(ALOAD, 13);
+            mv.visitJumpInsn(IFNULL, done);
+        }
+
+        Method setMethod = getSetMethod(rawClass, fieldInfo);
+        if (setMethod != null) {
+            org.objectweb.asm.Type paramType = org.objectweb.asm.Type.getType(fieldRawClass);
+            mv.visitVarInsn(ALOAD, 7);
+            mv.visitVarInsn(ALOAD, 13);
+            if (fieldRawClass.isPrimitive()) {
+                AsmUtils.withUnBoxingType(mv, paramType);
+            } else if (fieldRawClass != Object.class) {
+                mv.visitTypeInsn(CHECKCAST, paramType.getInternalName());
+            }
+            mv.visitMethodInsn(INVOKEVIRTUAL, org.objectweb.asm.Type.getInternalName(rawClass), setMethod.getName(),
+                    org.objectweb.asm.Type.getMethodDescriptor(setMethod), false);
+        } else {
+            // FIELDS.get(index).setField(object, value)
+            loadFieldInfo(mv, owner, index);
+            mv.visitVarInsn(ALOAD, 7);
+            mv.visitVarInsn(ALOAD, 13);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "transfer/core/FieldInfo", "setField", "(Ljava/lang/Object;Ljava/lang/Object;)V", false);
+        }
+        mv.visitLabel(done);
+    }
+
+
+    // FIELDS.get(index)
+    private static void loadFieldInfo(MethodVisitor mv, String owner, int index) {
+        mv.visitFieldInsn(GETSTATIC, owner, FIELDS_FIELD, "Ljava/util/List;");
+        pushInt(mv, index);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "get", "(I)Ljava/lang/Object;", true);
+        mv.visitTypeInsn(CHECKCAST, "transfer/core/FieldInfo");
+    }
+
+
+    // 可预编译的属性解析器, 与Transfer格式相同的类型
+    private static Deserializer getCompilableDeserializer(Class<?> clazz) {
+        if (clazz == int.class || clazz == Integer.class
+                || clazz == long.class || clazz == Long.class
+                || clazz == short.class || clazz == Short.class
+                || clazz == byte.class || clazz == Byte.class) {
+            return NumberDeserializer.getInstance();
+        } else if (clazz == float.class || clazz == Float.class
+                || clazz == double.class || clazz == Double.class) {
+            return DecimalDeserializer.getInstance();
+        } else if (clazz == boolean.class || clazz == Boolean.class) {
+            return BooleanDeserializer.getInstance();
+        } else if (clazz == String.class) {
+            return StringDeserializer.getInstance();
+        } else if (clazz == Date.class) {
+            return DateDeserializer.getInstance();
+        } else if (clazz == byte[].class) {
+            return ByteArrayDeSerializer.getInstance();
+        }
+        return null;
+    }
+
+
+    // 获取public的set方法
+    private static Method getSetMethod(Class<?> rawClass, FieldInfo fieldInfo) {
+        String fieldName = fieldInfo.getFieldName();
+        String methodName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        try {
+            Method method = rawClass.getMethod(methodName, fieldInfo.getField().getType());
+            if (method.getReturnType() == void.class && !Modifier.isStatic(method.getModifiers())) {
+                return method;
+            }
+        } catch (NoSuchMethodException e) {
+            // 使用属性设置器
+        }
+        return null;
+    }
+
+
+    // 加载类常量, 基本类型使用包装类型的TYPE
+    private static void loadClass(MethodVisitor mv, Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            String boxType;
+            if (clazz == int.class) {
+                boxType = "java/lang/Integer";
+            } else if (clazz == long.class) {
+                boxType = "java/lang/Long";
+            } else if (clazz == short.class) {
+                boxType = "java/lang/Short";
+            } else if (clazz == byte.class) {
+                boxType = "java/lang/Byte";
+            } else if (clazz == float.class) {
+                boxType = "java/lang/Float";
+            } else if (clazz == double.class) {
+                boxType = "java/lang/Double";
+            } else if (clazz == boolean.class) {
+                boxType = "java/lang/Boolean";
+            } else {
+                boxType = "java/lang/Character";
+            }
+            mv.visitFieldInsn(GETSTATIC, boxType, "TYPE", "Ljava/lang/Class;");
+        } else {
+            mv.visitLdcInsn(org.objectweb.asm.Type.getType(clazz));
+        }
+    }
+
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+
     private static final TagObjectDeSerializer instance = new TagObjectDeSerializer();
 
     public static TagObjectDeSerializer getInstance() {
@@ -0,0 +1,17 @@
+package transfer.exceptions;
+
+/**
+ * 非法的压缩数据(块长度错误、解压失败或校验和不一致)
+ * @author Jake
+ */
+public class IllegalCompressedDataException extends RuntimeException {
+
+    public IllegalCompressedDataException(String message) {
+        super(message);
+    }
+
+    public IllegalCompressedDataException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
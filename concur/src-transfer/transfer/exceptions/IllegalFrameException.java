@@ -0,0 +1,13 @@
+package transfer.exceptions;
+
+/**
+ * 非法的消息帧(长度超出限制或长度头格式错误)
+ * @author Jake
+ */
+public class IllegalFrameException extends RuntimeException {
+
+    public IllegalFrameException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,150 @@
+package transfer.io;
+
+import transfer.ByteArray;
+import transfer.Inputable;
+import transfer.Transfer;
+import transfer.exceptions.IllegalFrameException;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 消息帧解码器
+ * <br/>可分多次输入连续的字节流, 每次解码出所有完整的帧, 不完整的长度头和帧保留到下次输入
+ * <br/>完整位于本次输入中的帧直接在输入缓冲上解码; 跨越多次输入的帧只复制到一个帧长度的数组中, 不重复缓存
+ * <br/>非线程安全, 每个连接使用一个实例
+ * @see FrameEncoder
+ * @author Jake
+ */
+public class FrameDecoder {
+
+    /** 默认最大帧长度 */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+    /** 消息类型, 为null时按消息中的类型解码 */
+    private final Class<?> type;
+
+    /** 最大帧长度 */
+    private final int maxFrameLength;
+
+    /** 当前帧长度, 长度头未读完时为-1 */
+    private int frameLength = -1;
+
+    /** 已读取的长度头数值 */
+    private int varintValue;
+
+    /** 已读取的长度头位数 */
+    private int varintShift;
+
+    /** 跨越多次输入的帧 */
+    private byte[] partialFrame;
+
+    /** 跨越多次输入的帧已读取的长度 */
+    private int partialLength;
+
+
+    public FrameDecoder() {
+        this(null, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+
+    /**
+     * @param type 消息类型, 为null时按消息中的类型解码
+     * @param maxFrameLength 最大帧长度
+     */
+    public FrameDecoder(Class<?> type, int maxFrameLength) {
+        this.type = type;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+
+    /**
+     * 解码
+     * @param in 输入缓冲, 解码后position移到limit
+     * @param out 解码出的消息
+     * @throws IllegalFrameException 长度头非法或帧长度超过限制
+     */
+    public void decode(ByteBuffer in, List<Object> out) {
+        while (in.hasRemaining()) {
+            if (frameLength < 0 && !this.readLength(in)) {
+                return;
+            }
+
+            // 整帧在本次输入中
+            if (partialFrame == null && in.remaining() >= frameLength) {
+                ByteBuffer frame = in.duplicate();
+                int end = in.position() + frameLength;
+                frame.limit(end);
+                in.position(end);
+                this.resetFrame();
+                out.add(this.decodeMessage(new NioInputable(frame)));
+                continue;
+            }
+
+            // 帧跨越多次输入
+            if (partialFrame == null) {
+                partialFrame = new byte[frameLength];
+                partialLength = 0;
+            }
+            int length = Math.min(in.remaining(), frameLength - partialLength);
+            in.get(partialFrame, partialLength, length);
+            partialLength += length;
+            if (partialLength < frameLength) {
+                return;
+            }
+            byte[] bytes = partialFrame;
+            this.resetFrame();
+            out.add(this.decodeMessage(new ByteArray(bytes)));
+        }
+    }
+
+
+    // 读取长度头, 返回是否读取完整
+    private boolean readLength(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            varintValue |= (b & 0x7F) << varintShift;
+            if ((b & 0x80) == 0) {
+                if (varintValue < 0 || varintValue > maxFrameLength) {
+                    throw new IllegalFrameException("frame length " + varintValue + " exceeds " + maxFrameLength);
+                }
+                frameLength = varintValue;
+                varintValue = 0;
+                varintShift = 0;
+                return true;
+            }
+            varintShift += 7;
+            if (varintShift >= FrameEncoder.MAX_VARINT_SIZE * 7) {
+                throw new IllegalFrameException("malformed frame length");
+            }
+        }
+        return false;
+    }
+
+
+    // 解码消息
+    private Object decodeMessage(Inputable inputable) {
+        if (type != null) {
+            return Transfer.decode(inputable, type);
+        }
+        return Transfer.decode(inputable);
+    }
+
+
+    // 开始下一帧
+    private void resetFrame() {
+        frameLength = -1;
+        partialFrame = null;
+        partialLength = 0;
+    }
+
+
+    /**
+     * 是否有未解码完的数据
+     * @return
+     */
+    public boolean hasPartialFrame() {
+        return frameLength >= 0 || varintShift > 0;
+    }
+
+}
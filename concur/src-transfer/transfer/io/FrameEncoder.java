@@ -0,0 +1,118 @@
+package transfer.io;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import transfer.ByteBuffer;
+import transfer.ByteBufferPool;
+import transfer.Outputable;
+import transfer.Transfer;
+
+/**
+ * 消息帧编码器
+ * <br/>帧格式: varint长度 + Transfer编码的消息
+ * <br/>varint每字节低7位为数据, 最高位为1表示后面还有字节, 低位在前
+ * <br/>线程安全
+ * @see FrameDecoder
+ * @author Jake
+ */
+public class FrameEncoder {
+
+    /** int类型varint的最大字节数 */
+    public static final int MAX_VARINT_SIZE = 5;
+
+    /** 消息类型, 为null时按消息的实际类型编码 */
+    private final Class<?> type;
+
+
+    public FrameEncoder() {
+        this(null);
+    }
+
+
+    /**
+     * @param type 消息类型(预编译)
+     */
+    public FrameEncoder(Class<?> type) {
+        this.type = type;
+    }
+
+
+    /**
+     * 编码消息帧到输出通道
+     * <br/>消息先编码到线程本地的缓冲池, 再连同长度头写入输出通道
+     * @param message 消息
+     * @param outputable 输出通道
+     */
+    public void encode(Object message, Outputable outputable) {
+        ByteBuffer buffer = ByteBufferPool.borrow(256);
+        try {
+            this.encodeMessage(buffer, message);
+            writeVarint(outputable, buffer.length());
+            buffer.writeTo(outputable);
+        } finally {
+            ByteBufferPool.release(buffer);
+        }
+    }
+
+
+    /**
+     * 编码消息帧到IoBuffer
+     * <br/>预留长度头空间后直接编码消息, 再回填长度头, 没有中间复制
+     * @param message 消息
+     * @param buffer 开启autoExpand的缓冲
+     * @return 帧的起始位置, 编码后buffer的position为帧起始位置, limit为帧结束位置
+     */
+    public int encode(Object message, IoBuffer buffer) {
+        int headerStart = buffer.position();
+        buffer.position(headerStart + MAX_VARINT_SIZE);
+        this.encodeMessage(new IoBufferOutputable(buffer), message);
+
+        int end = buffer.position();
+        int length = end - headerStart - MAX_VARINT_SIZE;
+        int start = headerStart + MAX_VARINT_SIZE - varintSize(length);
+        buffer.position(start);
+        writeVarint(new IoBufferOutputable(buffer), length);
+        buffer.limit(end);
+        buffer.position(start);
+        return start;
+    }
+
+
+    // 编码消息
+    private void encodeMessage(Outputable outputable, Object message) {
+        if (type != null) {
+            Transfer.encode(outputable, message, type);
+        } else {
+            Transfer.encode(outputable, message);
+        }
+    }
+
+
+    /**
+     * 写入varint
+     * @param outputable 输出通道
+     * @param value 非负整数
+     */
+    public static void writeVarint(Outputable outputable, int value) {
+        while ((value & ~0x7F) != 0) {
+            outputable.putByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        outputable.putByte((byte) value);
+    }
+
+
+    /**
+     * varint字节数
+     * @param value 非负整数
+     * @return
+     */
+    public static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,74 @@
+package transfer.io;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import transfer.ByteArray;
+import transfer.Inputable;
+import transfer.exceptions.EOFBytesException;
+
+/**
+ * MINA IoBuffer数据源
+ * <br/>在messageReceived/ProtocolDecoder中直接从IoBuffer解码, 读取后position前移
+ * @author Jake
+ */
+public class IoBufferInputable implements Inputable {
+
+    private final IoBuffer buffer;
+
+
+    /**
+     * @param buffer 待读取的缓冲
+     */
+    public IoBufferInputable(IoBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    @Override
+    public byte getByte() {
+        if (!buffer.hasRemaining()) {
+            throw new EOFBytesException();
+        }
+        return buffer.get();
+    }
+
+
+    @Override
+    public void getBytes(byte[] bytes) {
+        if (buffer.remaining() < bytes.length) {
+            throw new EOFBytesException();
+        }
+        buffer.get(bytes);
+    }
+
+
+    /**
+     * 生成ByteArray包装
+     * <br/>堆内缓冲直接包装底层数组, 直接内存缓冲需要复制
+     * @param length
+     * @return
+     */
+    @Override
+    public ByteArray getByteArray(int length) {
+        if (buffer.remaining() < length) {
+            throw new EOFBytesException();
+        }
+        if (buffer.hasArray()) {
+            int start = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+            return new ByteArray(buffer.array(), start, start + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new ByteArray(bytes);
+    }
+
+
+    /**
+     * 获取缓冲
+     * @return
+     */
+    public IoBuffer getBuffer() {
+        return buffer;
+    }
+
+}
@@ -0,0 +1,64 @@
+package transfer.io;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import transfer.Outputable;
+
+/**
+ * MINA IoBuffer写入通道
+ * <br/>在ProtocolEncoder中直接编码到发送缓冲, 无需先生成字节数组再复制
+ * <br/>空间不足时由IoBuffer的autoExpand扩容, 因此缓冲需开启autoExpand(或预留足够空间)
+ * @author Jake
+ */
+public class IoBufferOutputable implements Outputable {
+
+    private final IoBuffer buffer;
+
+
+    /**
+     * @param buffer 写入的缓冲, 从position开始写入
+     */
+    public IoBufferOutputable(IoBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    /**
+     * 分配开启autoExpand的缓冲
+     * @param capacity 初始容量
+     * @param direct 是否使用直接内存
+     * @return
+     */
+    public static IoBufferOutputable allocate(int capacity, boolean direct) {
+        IoBuffer buffer = IoBuffer.allocate(capacity, direct);
+        buffer.setAutoExpand(true);
+        return new IoBufferOutputable(buffer);
+    }
+
+
+    @Override
+    public void putByte(byte byte1) {
+        buffer.put(byte1);
+    }
+
+
+    @Override
+    public void putBytes(byte[] bytes) {
+        buffer.put(bytes);
+    }
+
+
+    @Override
+    public void putBytes(byte[] bytes, int start, int length) {
+        buffer.put(bytes, start, length);
+    }
+
+
+    /**
+     * 获取缓冲
+     * @return
+     */
+    public IoBuffer getBuffer() {
+        return buffer;
+    }
+
+}
@@ -0,0 +1,134 @@
+package transfer.io;
+
+import transfer.Outputable;
+import transfer.utils.Lz4Utils;
+
+/**
+ * LZ4压缩输出
+ * <br/>写入的数据先缓冲到块中, 每满一块压缩后写入下层输出通道, 编码链式ByteBuffer或大对象时不需要先合并成整个数组
+ * <br/>调用finish()结束, 总长度小于压缩阈值时不压缩, 原样写入
+ * <br/>非线程安全, finish()后可重复使用
+ * @see Lz4Utils
+ * @author Jake
+ */
+public class Lz4Outputable implements Outputable {
+
+    /** 下层输出通道 */
+    private final Outputable outputable;
+
+    /** 压缩阈值 */
+    private final int threshold;
+
+    /** 块缓冲 */
+    private final byte[] block;
+
+    /** 压缩缓冲 */
+    private final byte[] compressed;
+
+    /** 块缓冲中的长度 */
+    private int blockLength;
+
+    /** 是否已写入信封标记 */
+    private boolean started;
+
+
+    /**
+     * @param outputable 下层输出通道
+     */
+    public Lz4Outputable(Outputable outputable) {
+        this(outputable, Lz4Utils.DEFAULT_THRESHOLD, Lz4Utils.BLOCK_SIZE);
+    }
+
+
+    /**
+     * @param outputable 下层输出通道
+     * @param threshold 压缩阈值(不超过Lz4Utils.BLOCK_SIZE)
+     * @param sizeHint 预计长度, 用于确定块缓冲大小
+     */
+    public Lz4Outputable(Outputable outputable, int threshold, int sizeHint) {
+        if (threshold < 0 || threshold > Lz4Utils.BLOCK_SIZE) {
+            throw new IllegalArgumentException("压缩阈值超出范围:" + threshold);
+        }
+        int blockSize = Math.min(Lz4Utils.BLOCK_SIZE, Math.max(Math.max(sizeHint, threshold), 1));
+        this.outputable = outputable;
+        this.threshold = threshold;
+        this.block = new byte[blockSize];
+        this.compressed = new byte[Lz4Utils.maxCompressedLength(blockSize)];
+    }
+
+
+    @Override
+    public void putByte(byte byte1) {
+        if (blockLength == block.length) {
+            flushBlock();
+        }
+        block[blockLength++] = byte1;
+    }
+
+
+    @Override
+    public void putBytes(byte[] bytes) {
+        putBytes(bytes, 0, bytes.length);
+    }
+
+
+    @Override
+    public void putBytes(byte[] bytes, int start, int length) {
+        while (length > 0) {
+            if (blockLength == block.length) {
+                flushBlock();
+            }
+
+            // 块缓冲为空时整块直接压缩
+            if (blockLength == 0 && length >= block.length) {
+                putHeader();
+                Lz4Utils.putBlock(outputable, bytes, start, block.length, compressed);
+                start += block.length;
+                length -= block.length;
+                continue;
+            }
+
+            int len = Math.min(block.length - blockLength, length);
+            System.arraycopy(bytes, start, block, blockLength, len);
+            blockLength += len;
+            start += len;
+            length -= len;
+        }
+    }
+
+
+    /**
+     * 结束压缩, 写入剩余数据和结束标记
+     */
+    public void finish() {
+        if (!started && blockLength < threshold) {
+            outputable.putBytes(block, 0, blockLength);
+        } else {
+            if (blockLength > 0) {
+                flushBlock();
+            }
+            putHeader();
+            Lz4Utils.putEnd(outputable);
+        }
+        blockLength = 0;
+        started = false;
+    }
+
+
+    // 压缩并写入块缓冲
+    private void flushBlock() {
+        putHeader();
+        Lz4Utils.putBlock(outputable, block, 0, blockLength, compressed);
+        blockLength = 0;
+    }
+
+
+    // 写入信封标记
+    private void putHeader() {
+        if (!started) {
+            outputable.putByte(Lz4Utils.FLAG);
+            started = true;
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package transfer.io;
+
+import transfer.ByteArray;
+import transfer.Inputable;
+import transfer.exceptions.EOFBytesException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * java.nio.ByteBuffer数据源
+ * <br/>支持堆内、直接内存(allocateDirect)和文件映射(MappedByteBuffer)缓冲, 直接从缓冲中解码, 无需先复制到字节数组
+ * <br/>从position读取到limit, 读取后position前移
+ * @author Jake
+ */
+public class NioInputable implements Inputable {
+
+    private final ByteBuffer buffer;
+
+
+    /**
+     * @param buffer 待读取的缓冲(已flip)
+     */
+    public NioInputable(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    @Override
+    public byte getByte() {
+        if (!buffer.hasRemaining()) {
+            throw new EOFBytesException();
+        }
+        return buffer.get();
+    }
+
+
+    @Override
+    public void getBytes(byte[] bytes) {
+        if (buffer.remaining() < bytes.length) {
+            throw new EOFBytesException();
+        }
+        buffer.get(bytes);
+    }
+
+
+    /**
+     * 生成ByteArray包装
+     * <br/>堆内缓冲直接包装底层数组, 直接内存缓冲需要复制
+     * @param length
+     * @return
+     */
+    @Override
+    public ByteArray getByteArray(int length) {
+        if (buffer.remaining() < length) {
+            throw new EOFBytesException();
+        }
+        if (buffer.hasArray()) {
+            int start = buffer.arrayOffset() + buffer.position();
+            buffer.position(buffer.position() + length);
+            return new ByteArray(buffer.array(), start, start + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new ByteArray(bytes);
+    }
+
+
+    /**
+     * 获取缓冲
+     * @return
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+}
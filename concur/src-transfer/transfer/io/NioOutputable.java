@@ -0,0 +1,100 @@
+package transfer.io;
+
+import transfer.Outputable;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * java.nio.ByteBuffer写入通道
+ * <br/>直接编码到堆内、直接内存或文件映射缓冲中, 无需生成中间字节数组
+ * <br/>空间不足时: 开启autoExpand则按同类型(堆内或直接内存)扩容, 容量翻倍, 需使用getBuffer()获取扩容后的缓冲;
+ * 否则(如文件映射缓冲)抛出BufferOverflowException
+ * @author Jake
+ */
+public class NioOutputable implements Outputable {
+
+    private ByteBuffer buffer;
+
+    /** 空间不足时是否扩容 */
+    private final boolean autoExpand;
+
+
+    /**
+     * 不扩容的写入通道
+     * @param buffer 写入的缓冲, 从position开始写入
+     */
+    public NioOutputable(ByteBuffer buffer) {
+        this(buffer, false);
+    }
+
+
+    /**
+     * @param buffer 写入的缓冲, 从position开始写入
+     * @param autoExpand 空间不足时是否扩容
+     */
+    public NioOutputable(ByteBuffer buffer, boolean autoExpand) {
+        this.buffer = buffer;
+        this.autoExpand = autoExpand;
+    }
+
+
+    /**
+     * 分配开启autoExpand的缓冲
+     * @param capacity 初始容量
+     * @param direct 是否使用直接内存
+     * @return
+     */
+    public static NioOutputable allocate(int capacity, boolean direct) {
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        return new NioOutputable(buffer, true);
+    }
+
+
+    @Override
+    public void putByte(byte byte1) {
+        if (!buffer.hasRemaining()) {
+            this.expand(1);
+        }
+        buffer.put(byte1);
+    }
+
+
+    @Override
+    public void putBytes(byte[] bytes) {
+        this.putBytes(bytes, 0, bytes.length);
+    }
+
+
+    @Override
+    public void putBytes(byte[] bytes, int start, int length) {
+        if (buffer.remaining() < length) {
+            this.expand(length);
+        }
+        buffer.put(bytes, start, length);
+    }
+
+
+    // 扩容
+    private void expand(int length) {
+        if (!autoExpand) {
+            throw new BufferOverflowException();
+        }
+        int capacity = Math.max(buffer.capacity() << 1, buffer.position() + length);
+        ByteBuffer newBuffer = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        newBuffer.order(buffer.order());
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+
+
+    /**
+     * 获取缓冲(扩容后为新的缓冲)
+     * @return
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+}
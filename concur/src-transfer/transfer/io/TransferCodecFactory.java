@@ -0,0 +1,96 @@
+package transfer.io;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.session.AttributeKey;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MINA编解码工厂
+ * <br/>消息帧格式见FrameEncoder, 使用方式:
+ * <br/>filterChain.addLast("codec", new ProtocolCodecFilter(new TransferCodecFactory()));
+ * <br/>解码器不使用CumulativeProtocolDecoder: 完整的帧直接在读缓冲上解码, 只有跨越多次读取的帧才复制一次
+ * @see FrameEncoder
+ * @see FrameDecoder
+ * @author Jake
+ */
+public class TransferCodecFactory implements ProtocolCodecFactory {
+
+    /** 连接的帧解码器 */
+    private static final AttributeKey DECODER_KEY = new AttributeKey(TransferCodecFactory.class, "decoder");
+
+    /** 编码缓冲初始容量 */
+    private static final int ENCODE_BUFFER_SIZE = 256;
+
+    private final FrameEncoder frameEncoder;
+
+    /** 消息类型, 为null时按消息中的类型解码 */
+    private final Class<?> type;
+
+    /** 最大帧长度 */
+    private final int maxFrameLength;
+
+    private final ProtocolEncoder encoder = new ProtocolEncoderAdapter() {
+        @Override
+        public void encode(IoSession session, Object message, ProtocolEncoderOutput out) throws Exception {
+            IoBuffer buffer = IoBuffer.allocate(ENCODE_BUFFER_SIZE, false);
+            buffer.setAutoExpand(true);
+            frameEncoder.encode(message, buffer);
+            out.write(buffer);
+        }
+    };
+
+    private final ProtocolDecoder decoder = new ProtocolDecoderAdapter() {
+        @Override
+        public void decode(IoSession session, IoBuffer in, ProtocolDecoderOutput out) throws Exception {
+            FrameDecoder frameDecoder = (FrameDecoder) session.getAttribute(DECODER_KEY);
+            if (frameDecoder == null) {
+                frameDecoder = new FrameDecoder(type, maxFrameLength);
+                session.setAttribute(DECODER_KEY, frameDecoder);
+            }
+
+            List<Object> messages = new ArrayList<Object>(4);
+            frameDecoder.decode(in.buf(), messages);
+            for (Object message : messages) {
+                out.write(message);
+            }
+        }
+
+        @Override
+        public void dispose(IoSession session) throws Exception {
+            session.removeAttribute(DECODER_KEY);
+        }
+    };
+
+
+    public TransferCodecFactory() {
+        this(null, FrameDecoder.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+
+    /**
+     * @param type 消息类型(预编译), 为null时按消息的实际类型编解码
+     * @param maxFrameLength 最大帧长度
+     */
+    public TransferCodecFactory(Class<?> type, int maxFrameLength) {
+        this.type = type;
+        this.maxFrameLength = maxFrameLength;
+        this.frameEncoder = new FrameEncoder(type);
+    }
+
+
+    @Override
+    public ProtocolEncoder getEncoder(IoSession session) throws Exception {
+        return encoder;
+    }
+
+
+    @Override
+    public ProtocolDecoder getDecoder(IoSession session) throws Exception {
+        return decoder;
+    }
+
+}
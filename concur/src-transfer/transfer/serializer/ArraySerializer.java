@@ -11,6 +11,7 @@ import transfer.compile.AsmSerializerContext;
 import transfer.def.TransferConfig;
 import transfer.def.Types;
 import transfer.utils.BitUtils;
+import transfer.utils.PackedUtils;
 import transfer.utils.TypeUtils;
 
 import java.lang.reflect.Array;
@@ -31,6 +32,13 @@ public class ArraySerializer implements Serializer, Opcodes {
 			return;
 		}
 
+		// 基本类型数组使用紧凑编码
+		if (TransferConfig.isPackedEncoding()
+				&& PackedUtils.getPackedType(object.getClass().getComponentType()) != PackedUtils.NONE) {
+			PackedUtils.putArray(outputable, object);
+			return;
+		}
+
 		outputable.putByte(Types.ARRAY);
 
 		int length = Array.getLength(object);
@@ -64,12 +72,26 @@ public class ArraySerializer implements Serializer, Opcodes {
 
 		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
 
+		Class<?> arrayClass = TypeUtils.getRawClass(type);
+
+		// 基本类型数组使用紧凑编码
+		if (TransferConfig.isPackedEncoding()
+				&& PackedUtils.getPackedType(arrayClass.getComponentType()) != PackedUtils.NONE) {
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/PackedUtils", "putArray",
+					"(Ltransfer/Outputable;Ljava/lang/Object;)V", false);
+			mv.visitInsn(RETURN);
+
+			mv.visitMaxs(2, 4);
+			mv.visitEnd();
+			return;
+		}
+
 		mv.visitVarInsn(ALOAD, 1);
 		mv.visitIntInsn(BIPUSH, (int) Types.ARRAY);
 		mv.visitMethodInsn(INVOKEINTERFACE, "transfer/Outputable", "putByte",
 				"(B)V", true);
-
-		Class<?> arrayClass = TypeUtils.getRawClass(type);
 		
 		mv.visitVarInsn(ALOAD, 2);
 		mv.visitTypeInsn(CHECKCAST, org.objectweb.asm.Type.getDescriptor(arrayClass));
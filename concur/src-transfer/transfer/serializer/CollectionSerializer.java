@@ -10,6 +10,7 @@ import transfer.core.SerialContext;
 import transfer.def.TransferConfig;
 import transfer.def.Types;
 import transfer.utils.BitUtils;
+import transfer.utils.PackedUtils;
 import transfer.utils.TypeUtils;
 
 import java.lang.reflect.Modifier;
@@ -31,9 +32,14 @@ public class CollectionSerializer implements Serializer, Opcodes {
 			return;
 		}
 
+		Collection collection = (Collection) object;
+		// 数字集合使用紧凑编码
+		if (TransferConfig.isPackedEncoding() && PackedUtils.putCollection(outputable, collection)) {
+			return;
+		}
+
 		outputable.putByte(Types.COLLECTION);
 
-		Collection collection = (Collection) object;
 		// 设置集合大小
 		BitUtils.putInt(outputable, collection.size());
 
@@ -63,6 +69,22 @@ public class CollectionSerializer implements Serializer, Opcodes {
 
 		mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
 
+		Class<?> elementClass = TypeUtils.getParameterizedClass(type, 0);
+
+		// 数字集合使用紧凑编码
+		if (TransferConfig.isPackedEncoding() && PackedUtils.maybePacked(elementClass)) {
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitTypeInsn(CHECKCAST, "java/util/Collection");
+			mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/PackedUtils", "putCollection",
+					"(Ltransfer/Outputable;Ljava/util/Collection;)Z", false);
+			Label l2 = new Label();
+			mv.visitJumpInsn(IFEQ, l2);
+			mv.visitInsn(RETURN);
+			mv.visitLabel(l2);
+			mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		}
+
 		mv.visitVarInsn(ALOAD, 1);
 		mv.visitIntInsn(SIPUSH, (int) Types.COLLECTION);
 		mv.visitMethodInsn(INVOKEINTERFACE, "transfer/Outputable", "putByte",
@@ -79,8 +101,6 @@ public class CollectionSerializer implements Serializer, Opcodes {
 		mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/BitUtils", "putInt",
 				"(Ltransfer/Outputable;I)V", false);
 
-		Class<?> elementClass = TypeUtils.getParameterizedClass(type, 0);
-
 		Type elementType = null;
 		if (type instanceof ParameterizedType) {
 			elementType = TypeUtils.getParameterizedType(
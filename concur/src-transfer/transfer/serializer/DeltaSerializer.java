@@ -0,0 +1,113 @@
+package transfer.serializer;
+
+import transfer.Outputable;
+import transfer.core.ClassInfo;
+import transfer.core.FieldInfo;
+import transfer.core.SerialContext;
+import transfer.def.TransferConfig;
+import transfer.def.Types;
+import transfer.utils.BitUtils;
+import transfer.utils.TypeUtils;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 对象增量编码器
+ * <br/>只编码修改过的属性, 格式: 标记(OBJECT | DELTA) + 类Id + 属性数量 + 属性位图 + 修改过的属性值
+ * <br/>属性序号与ClassInfo的属性顺序一致
+ * @see transfer.deserializer.DeltaDeserializer
+ * @author Jake
+ */
+public class DeltaSerializer {
+
+	/** 增量标记(OBJECT类型的低4位) */
+	public static final byte DELTA = 0x01;
+
+
+	/**
+	 * 增量编码
+	 * @param outputable 输出通道
+	 * @param object 目标对象
+	 * @param fields 修改过的属性序号
+	 * @param context 编码上下文
+	 */
+	public void serialze(Outputable outputable, Object object, BitSet fields,
+			SerialContext context) {
+
+		ClassInfo classInfo = TransferConfig.getOrCreateClassInfo(getTransferClass(object.getClass()));
+		List<FieldInfo> fieldInfos = classInfo.getFieldInfos();
+		int fieldNum = fieldInfos.size();
+		if (fields.length() > fieldNum) {
+			throw new IllegalArgumentException("属性序号超出范围:" + (fields.length() - 1) + ", class:" + classInfo.getClazz().getName());
+		}
+
+		outputable.putByte((byte) (Types.OBJECT | DELTA));
+		BitUtils.putInt(outputable, classInfo.getClassId());
+		BitUtils.putInt(outputable, fieldNum);
+
+		// 属性位图
+		for (int i = 0; i < fieldNum; i += 8) {
+			int bits = 0;
+			for (int j = fields.nextSetBit(i); j >= 0 && j < i + 8; j = fields.nextSetBit(j + 1)) {
+				bits |= 1 << (j - i);
+			}
+			outputable.putByte((byte) bits);
+		}
+
+		for (int i = fields.nextSetBit(0); i >= 0; i = fields.nextSetBit(i + 1)) {
+			FieldInfo fieldInfo = fieldInfos.get(i);
+			Object fieldValue = fieldInfo.getField(object);
+
+			Serializer fieldSerializer;
+			if (fieldValue != null) {
+				fieldSerializer = TransferConfig.getSerializer(fieldValue.getClass());
+			} else {
+				fieldSerializer = TransferConfig.getSerializer(TypeUtils.getRawClass(fieldInfo.getType()));
+			}
+			fieldSerializer.serialze(outputable, fieldValue, context);
+		}
+
+	}
+
+
+	/**
+	 * 根据属性名获取属性序号
+	 * @param object 目标对象
+	 * @param fieldNames 属性名
+	 * @return
+	 */
+	public BitSet getFields(Object object, String... fieldNames) {
+		ClassInfo classInfo = TransferConfig.getOrCreateClassInfo(getTransferClass(object.getClass()));
+		BitSet fields = new BitSet(classInfo.getFieldInfos().size());
+		for (String fieldName : fieldNames) {
+			int index = classInfo.getFieldIndex(fieldName);
+			if (index < 0) {
+				throw new IllegalArgumentException("属性不存在:" + fieldName + ", class:" + classInfo.getClazz().getName());
+			}
+			fields.set(index);
+		}
+		return fields;
+	}
+
+
+	/**
+	 * 获取传输类(Asm代理对象取父类)
+	 * @param clazz 对象的类
+	 * @return
+	 */
+	public static Class<?> getTransferClass(Class<?> clazz) {
+		if (TransferConfig.getSerializer(clazz) instanceof ObjectAsmProxySerializer) {
+			return clazz.getSuperclass();
+		}
+		return clazz;
+	}
+
+
+	private static final DeltaSerializer instance = new DeltaSerializer();
+
+	public static DeltaSerializer getInstance() {
+		return instance;
+	}
+
+}
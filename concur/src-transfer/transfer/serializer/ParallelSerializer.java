@@ -0,0 +1,204 @@
+package transfer.serializer;
+
+import transfer.ByteBuffer;
+import transfer.Outputable;
+import transfer.core.SerialContext;
+import transfer.def.TransferConfig;
+import transfer.def.Types;
+import transfer.utils.BitUtils;
+import transfer.utils.TypeUtils;
+import utils.collections.concurrent.ForkJoinPool;
+import utils.collections.concurrent.RecursiveTask;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 大集合并行编码器
+ * <br/>将集合或Map按元素数量分块, 在ForkJoin线程池中并行编码到独立的缓冲, 再按顺序拼接
+ * <br/>格式: 标记(COLLECTION/MAP | CHUNKED) + 元素数量 + 块数量 + 块索引(每块的元素数量和字节长度) + 各块的元素
+ * <br/>元素数量不超过块大小时按普通格式编码
+ * @see transfer.deserializer.ParallelDeserializer
+ * @author Jake
+ */
+public class ParallelSerializer {
+
+	/** 分块标记(COLLECTION/MAP类型的低4位, 不与紧凑编码的元素类型冲突) */
+	public static final byte CHUNKED = 0x0F;
+
+	/** 默认块大小(元素数量) */
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+
+	/**
+	 * 并行编码
+	 * @param outputable 输出通道
+	 * @param object 集合或Map
+	 * @param type 集合类型, 指定泛型时元素使用预编译的编码器
+	 * @param chunkSize 块大小(元素数量)
+	 * @param pool ForkJoin线程池
+	 */
+	public void serialze(Outputable outputable, Object object, Type type, int chunkSize, ForkJoinPool pool) {
+
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("块大小必须大于0:" + chunkSize);
+		}
+
+		boolean isMap = object instanceof Map;
+		Object[] elements = null;
+		if (object instanceof Collection) {
+			elements = ((Collection<?>) object).toArray();
+		} else if (isMap) {
+			elements = ((Map<?, ?>) object).entrySet().toArray();
+		}
+
+		// 非集合或者元素数量不超过块大小
+		if (elements == null || elements.length <= chunkSize) {
+			serialzeElement(outputable, object, null, new SerialContext());
+			return;
+		}
+
+		int size = elements.length;
+
+		// 在调用线程中获取元素编码器, 避免在工作线程中并发预编译
+		Serializer keySerializer = null;
+		Serializer valueSerializer = null;
+		if (type instanceof ParameterizedType) {
+			keySerializer = getElementSerializer(TypeUtils.getParameterizedType((ParameterizedType) type, 0));
+			if (isMap) {
+				valueSerializer = getElementSerializer(TypeUtils.getParameterizedType((ParameterizedType) type, 1));
+			}
+		}
+
+		int chunkNum = (size + chunkSize - 1) / chunkSize;
+		ByteBuffer[] buffers = new ByteBuffer[chunkNum];
+		pool.invoke(new ChunkTask(elements, isMap, keySerializer, valueSerializer, chunkSize, buffers, 0, chunkNum));
+
+		outputable.putByte((byte) ((isMap ? Types.MAP : Types.COLLECTION) | CHUNKED));
+		BitUtils.putInt(outputable, size);
+		BitUtils.putInt(outputable, chunkNum);
+
+		// 块索引
+		for (int i = 0; i < chunkNum; i++) {
+			BitUtils.putInt(outputable, Math.min(chunkSize, size - i * chunkSize));
+			BitUtils.putInt(outputable, buffers[i].length());
+		}
+
+		for (ByteBuffer buffer : buffers) {
+			buffer.writeTo(outputable);
+		}
+
+	}
+
+
+	/**
+	 * 获取元素编码器
+	 * @param elementType 元素类型
+	 * @return 不确定元素类型时返回null, 按元素的实际类型编码
+	 */
+	private Serializer getElementSerializer(Type elementType) {
+		Class<?> elementClass = TypeUtils.getRawClass(elementType);
+		if (elementClass == Object.class || elementClass.isInterface()
+				|| Modifier.isAbstract(elementClass.getModifiers()) && !elementClass.isArray()) {
+			return null;
+		}
+
+		Serializer serializer = TransferConfig.getCompiledSerializer(elementType);
+		if (serializer == null) {
+			serializer = TransferConfig.preCompileSerializer(elementType);
+		}
+		return serializer;
+	}
+
+
+	/**
+	 * 编码一个元素
+	 */
+	private static void serialzeElement(Outputable outputable, Object element, Serializer serializer, SerialContext context) {
+		if (serializer == null) {
+			serializer = element == null ? Serializer.NULL_SERIALIZER : TransferConfig.getSerializer(element.getClass());
+		}
+		serializer.serialze(outputable, element, context);
+	}
+
+
+	/**
+	 * 块编码任务
+	 * <br/>按块序号二分, 每块编码到独立的缓冲
+	 */
+	private static class ChunkTask extends RecursiveTask<Void> {
+
+		private static final long serialVersionUID = -6187402216931740527L;
+
+		private final Object[] elements;
+
+		private final boolean isMap;
+
+		private final Serializer keySerializer;
+
+		private final Serializer valueSerializer;
+
+		private final int chunkSize;
+
+		private final ByteBuffer[] buffers;
+
+		/** 起始块序号 包括 */
+		private final int low;
+
+		/** 结束块序号 不包括 */
+		private final int high;
+
+		ChunkTask(Object[] elements, boolean isMap, Serializer keySerializer, Serializer valueSerializer,
+				int chunkSize, ByteBuffer[] buffers, int low, int high) {
+			this.elements = elements;
+			this.isMap = isMap;
+			this.keySerializer = keySerializer;
+			this.valueSerializer = valueSerializer;
+			this.chunkSize = chunkSize;
+			this.buffers = buffers;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		protected Void compute() {
+			if (high - low > 1) {
+				int mid = (low + high) >>> 1;
+				ChunkTask left = new ChunkTask(elements, isMap, keySerializer, valueSerializer, chunkSize, buffers, low, mid);
+				left.fork();
+				new ChunkTask(elements, isMap, keySerializer, valueSerializer, chunkSize, buffers, mid, high).compute();
+				left.join();
+				return null;
+			}
+
+			int start = low * chunkSize;
+			int end = Math.min(start + chunkSize, elements.length);
+			ByteBuffer buffer = new ByteBuffer();
+			SerialContext context = new SerialContext();
+			if (isMap) {
+				for (int i = start; i < end; i++) {
+					Map.Entry<?, ?> entry = (Map.Entry<?, ?>) elements[i];
+					serialzeElement(buffer, entry.getKey(), keySerializer, context);
+					serialzeElement(buffer, entry.getValue(), valueSerializer, context);
+				}
+			} else {
+				for (int i = start; i < end; i++) {
+					serialzeElement(buffer, elements[i], keySerializer, context);
+				}
+			}
+			buffers[low] = buffer;
+			return null;
+		}
+	}
+
+
+	private static final ParallelSerializer instance = new ParallelSerializer();
+
+	public static ParallelSerializer getInstance() {
+		return instance;
+	}
+
+}
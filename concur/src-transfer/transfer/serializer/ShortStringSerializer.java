@@ -8,10 +8,9 @@ import transfer.Outputable;
 import transfer.compile.AsmSerializerContext;
 import transfer.core.SerialContext;
 import transfer.def.Types;
-import transfer.utils.BitUtils;
+import transfer.utils.Utf8Utils;
 
 import java.lang.reflect.Type;
-import java.nio.charset.Charset;
 
 /**
  * 短字符串编码器 最大长度255 Created by Jake on 2015/2/26.
@@ -30,9 +29,7 @@ public class ShortStringSerializer implements Serializer, Opcodes {
 		CharSequence charSequence = (CharSequence) object;
 		String string = charSequence.toString();
 
-		byte[] bytes = string.getBytes(Charset.forName("UTF-8"));
-		BitUtils.putInt(outputable, bytes.length);
-		outputable.putBytes(bytes);
+		Utf8Utils.putString(outputable, string);
 	}
 
 	@Override
@@ -68,25 +65,14 @@ public class ShortStringSerializer implements Serializer, Opcodes {
 				"toString", "()Ljava/lang/String;", true);
 		mv.visitVarInsn(ASTORE, 5);
 
-		mv.visitVarInsn(ALOAD, 5);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "getBytes",
-				"()[B", false);
-		mv.visitVarInsn(ASTORE, 6);
-
 		mv.visitVarInsn(ALOAD, 1);
-		mv.visitVarInsn(ALOAD, 6);
-		mv.visitInsn(ARRAYLENGTH);
-		mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/BitUtils", "putInt",
-				"(Ltransfer/Outputable;I)V", false);
-
-		mv.visitVarInsn(ALOAD, 1);
-		mv.visitVarInsn(ALOAD, 6);
-		mv.visitMethodInsn(INVOKEINTERFACE, "transfer/Outputable", "putBytes",
-				"([B)V", true);
+		mv.visitVarInsn(ALOAD, 5);
+		mv.visitMethodInsn(INVOKESTATIC, "transfer/utils/Utf8Utils", "putString",
+				"(Ltransfer/Outputable;Ljava/lang/String;)V", false);
 
 		mv.visitInsn(RETURN);
 
-		mv.visitMaxs(4, 7);
+		mv.visitMaxs(3, 6);
 		mv.visitEnd();
 
 	}
@@ -0,0 +1,29 @@
+package transfer.test;
+
+/**
+ * 测试用断言
+ * @author Jake
+ */
+public class Asserts {
+
+    /**
+     * 条件不成立时抛出异常
+     * @param condition 条件
+     * @param message 说明
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+
+    /**
+     * 期望抛出异常却正常执行时调用
+     * @param message 说明
+     */
+    public static void fail(String message) {
+        throw new IllegalStateException("未抛出异常: " + message);
+    }
+
+}
@@ -0,0 +1,192 @@
+package transfer.test;
+
+import transfer.ByteArray;
+import transfer.ByteBuffer;
+import transfer.Persister;
+import transfer.Transfer;
+import transfer.TypeReference;
+import transfer.def.PersistConfig;
+import transfer.def.TransferConfig;
+import transfer.exceptions.IllegalCompressedDataException;
+import transfer.io.Lz4Outputable;
+import transfer.utils.BitUtils;
+import transfer.utils.Lz4Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static transfer.test.Asserts.check;
+import static transfer.test.Asserts.fail;
+
+/**
+ * LZ4压缩编码测试
+ * <br/>压缩阈值、分块流式压缩、不可压缩数据、数据损坏, 以及与不压缩编码的长度对比
+ * @author Jake
+ */
+public class TestCompress {
+
+    public static void main(String[] args) {
+
+        TransferConfig.registerClass(Item.class, 61);
+        PersistConfig.registerClass(Item.class, 61);
+
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 20000; i++) {
+            Item item = new Item();
+            item.setId(i);
+            item.setName("item" + (i % 100));
+            item.setDesc("The quick brown fox jumps over the lazy dog");
+            items.add(item);
+        }
+        TypeReference<List<Item>> listType = new TypeReference<List<Item>>(){};
+
+        // Transfer
+        byte[] raw = Transfer.encode(items, listType.getType()).toBytes();
+        byte[] compressed = Transfer.encodeCompressed(items, listType.getType()).toBytes();
+        check(compressed[0] == Lz4Utils.FLAG, "flag");
+        check(items.toString().equals(Transfer.decodeCompressed(compressed, listType).toString()), "transfer");
+        System.out.println("transfer length:" + raw.length + " compressed:" + compressed.length);
+
+        // Persister
+        raw = Persister.encode(items).toBytes();
+        compressed = Persister.encodeCompressed(items).toBytes();
+        check(items.toString().equals(Persister.decodeCompressed(compressed, listType).toString()), "persister");
+        System.out.println("persister length:" + raw.length + " compressed:" + compressed.length);
+
+        // 小于压缩阈值时不压缩
+        Item item = items.get(1);
+        check(Arrays.equals(Transfer.encode(item).toBytes(), Transfer.encodeCompressed(item).toBytes()), "threshold");
+        check(item.toString().equals(Transfer.decodeCompressed(Transfer.encodeCompressed(item).toBytes(), Item.class).toString()), "small");
+
+        // 分块流式写入, 包括不可压缩的随机数据
+        byte[] data = new byte[300000];
+        new Random(1).nextBytes(data);
+        for (int i = 0; i < 100000; i++) {
+            data[i] = (byte) (i % 7);
+        }
+        ByteBuffer buffer = new ByteBuffer();
+        Lz4Outputable outputable = new Lz4Outputable(buffer);
+        for (int i = 0; i < data.length; ) {
+            int len = Math.min(1 + i % 1000, data.length - i);
+            if (len == 1) {
+                outputable.putByte(data[i]);
+            } else {
+                outputable.putBytes(data, i, len);
+            }
+            i += len;
+        }
+        outputable.putBytes(data, 0, 200000);
+        outputable.finish();
+        compressed = buffer.toBytes();
+        byte[] restored = Lz4Utils.decompress(new ByteArray(compressed)).toBytes();
+        check(restored.length == 500000, "stream length");
+        check(Arrays.equals(Arrays.copyOf(restored, data.length), data), "stream");
+        check(Arrays.equals(Arrays.copyOfRange(restored, data.length, restored.length), Arrays.copyOf(data, 200000)), "stream direct");
+        System.out.println("stream length:" + restored.length + " compressed:" + compressed.length);
+
+        // 数据损坏
+        compressed = Transfer.encodeCompressed(items, listType.getType()).toBytes();
+        compressed[compressed.length / 2] ^= 0x10;
+        try {
+            Transfer.decodeCompressed(compressed, listType);
+            fail("corrupted");
+        } catch (IllegalCompressedDataException e) {
+            System.out.println("corrupted: " + e.getMessage());
+        }
+
+        // 单个块的损坏
+        byte[] compressible = Arrays.copyOf(data, 4096);
+        byte[] incompressible = Arrays.copyOfRange(data, data.length - 4096, data.length);
+        check(Arrays.equals(compressible, Lz4Utils.decompress(new ByteArray(block(compressible))).toBytes()), "block");
+        check(Arrays.equals(incompressible, Lz4Utils.decompress(new ByteArray(block(incompressible))).toBytes()), "stored block");
+
+        // 校验和
+        compressed = block(compressible);
+        compressed[checksumIndex(compressed)] ^= 0x01;
+        checkCorrupted(compressed, "checksum");
+
+        // 压缩数据
+        compressed = block(compressible);
+        Arrays.fill(compressed, checksumIndex(compressed) + 4, compressed.length - 1, (byte) 0xFF);
+        checkCorrupted(compressed, "lz4 block");
+
+        // 未压缩的块
+        compressed = block(incompressible);
+        compressed[checksumIndex(compressed) + 4] ^= 0x01;
+        checkCorrupted(compressed, "stored block");
+
+        System.out.println("OK");
+    }
+
+
+    // 只有一个块的压缩数据
+    static byte[] block(byte[] data) {
+        ByteBuffer buffer = new ByteBuffer();
+        buffer.putByte(Lz4Utils.FLAG);
+        Lz4Utils.putBlock(buffer, data, 0, data.length, new byte[Lz4Utils.maxCompressedLength(data.length)]);
+        Lz4Utils.putEnd(buffer);
+        return buffer.toBytes();
+    }
+
+
+    // 块的校验和位置
+    static int checksumIndex(byte[] bytes) {
+        ByteArray byteArray = new ByteArray(bytes);
+        byteArray.getByte();
+        BitUtils.getInt(byteArray);// 原始长度
+        BitUtils.getInt(byteArray);// 压缩后长度
+        return byteArray.getCurIndex();
+    }
+
+
+    static void checkCorrupted(byte[] bytes, String message) {
+        try {
+            Lz4Utils.decompress(new ByteArray(bytes));
+            fail(message);
+        } catch (IllegalCompressedDataException e) {
+            System.out.println(message + ": " + e.getMessage());
+        }
+    }
+
+
+    public static class Item {
+
+        private long id;
+
+        private String name;
+
+        private String desc;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getDesc() {
+            return desc;
+        }
+
+        public void setDesc(String desc) {
+            this.desc = desc;
+        }
+
+        @Override
+        public String toString() {
+            return "Item{id=" + id + ", name=" + name + ", desc=" + desc + "}";
+        }
+    }
+
+}
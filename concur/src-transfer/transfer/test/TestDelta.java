@@ -0,0 +1,238 @@
+package transfer.test;
+
+import transfer.Transfer;
+import transfer.def.TransferConfig;
+import transfer.exceptions.IllegalClassTypeException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static transfer.test.Asserts.check;
+import static transfer.test.Asserts.fail;
+
+/**
+ * 增量编码测试
+ * <br/>只编码修改过的属性并应用到客户端已有的对象上, 对比全量编码的长度
+ * @author Jake
+ */
+public class TestDelta {
+
+    public static void main(String[] args) {
+
+        TransferConfig.registerClass(Player.class, 31);
+
+        Player server = new Player();
+        server.setId(10001L);
+        server.setName("Jake");
+        server.setLevel(10);
+        server.setExp(123456L);
+        server.setGold(1000000L);
+        server.setSign("The quick brown fox jumps over the lazy dog");
+        for (long i = 0; i < 50; i++) {
+            server.getFriends().add(20000L + i);
+        }
+
+        // 客户端持有全量数据
+        Player client = Transfer.decode(Transfer.encode(server, Player.class).toBytes(), Player.class);
+        check(server.toString().equals(client.toString()), "full");
+
+        // 修改部分属性
+        server.setLevel(11);
+        server.setExp(0L);
+        server.setSign(null);
+
+        byte[] delta = Transfer.encodeDelta(server, "level", "exp", "sign").toBytes();
+        Transfer.decodeDelta(delta, client);
+        check(server.toString().equals(client.toString()), "delta by name");
+        System.out.println("full length:" + Transfer.encode(server, Player.class).toBytes().length + " delta length:" + delta.length);
+
+        // 按ClassInfo的属性序号
+        server.setGold(999L);
+        server.getFriends().add(1L);
+        BitSet fields = new BitSet();
+        fields.set(TransferConfig.getOrCreateClassInfo(Player.class).getFieldIndex("gold"));
+        fields.set(TransferConfig.getOrCreateClassInfo(Player.class).getFieldIndex("friends"));
+        Transfer.decodeDelta(Transfer.encodeDelta(server, fields).toBytes(), client);
+        check(server.toString().equals(client.toString()), "delta by index");
+
+        // 没有修改
+        Transfer.decodeDelta(Transfer.encodeDelta(server, new BitSet()).toBytes(), client);
+        check(server.toString().equals(client.toString()), "empty delta");
+
+        // 非增量数据
+        try {
+            Transfer.decodeDelta(Transfer.encode(server, Player.class).toBytes(), client);
+            fail("not delta");
+        } catch (RuntimeException e) {
+            System.out.println("not delta: " + e.getClass().getSimpleName());
+        }
+
+        // 序号超出属性数量
+        BitSet outOfRange = new BitSet();
+        outOfRange.set(TransferConfig.getOrCreateClassInfo(Player.class).getFieldInfos().size());
+        try {
+            Transfer.encodeDelta(server, outOfRange);
+            fail("index out of range");
+        } catch (IllegalArgumentException e) {
+            System.out.println("index out of range: " + e.getMessage());
+        }
+
+        // 类Id不一致
+        TransferConfig.registerClass(Monster.class, 32);
+        Monster monster = new Monster();
+        monster.setLevel(99);
+        try {
+            Transfer.decodeDelta(Transfer.encodeDelta(monster, "level").toBytes(), client);
+            fail("class id");
+        } catch (IllegalClassTypeException e) {
+            System.out.println("class id: " + e.getMessage());
+        }
+
+        // 类Id相同但属性数量不一致(编码端为旧版本类)
+        TransferConfig.registerClass(OldPlayer.class, 31);
+        OldPlayer oldPlayer = new OldPlayer();
+        oldPlayer.setLevel(99);
+        try {
+            Transfer.decodeDelta(Transfer.encodeDelta(oldPlayer, "level").toBytes(), client);
+            fail("field number");
+        } catch (IllegalClassTypeException e) {
+            System.out.println("field number: " + e.getMessage());
+        }
+        check(client.getLevel() == 11, "not applied");
+
+        System.out.println("OK");
+    }
+
+
+    public static class Player {
+
+        private long id;
+
+        private String name;
+
+        private int level;
+
+        private long exp;
+
+        private long gold;
+
+        private String sign;
+
+        private List<Long> friends = new ArrayList<Long>();
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public long getExp() {
+            return exp;
+        }
+
+        public void setExp(long exp) {
+            this.exp = exp;
+        }
+
+        public long getGold() {
+            return gold;
+        }
+
+        public void setGold(long gold) {
+            this.gold = gold;
+        }
+
+        public String getSign() {
+            return sign;
+        }
+
+        public void setSign(String sign) {
+            this.sign = sign;
+        }
+
+        public List<Long> getFriends() {
+            return friends;
+        }
+
+        public void setFriends(List<Long> friends) {
+            this.friends = friends;
+        }
+
+        @Override
+        public String toString() {
+            return "Player{id=" + id + ", name=" + name + ", level=" + level + ", exp=" + exp + ", gold=" + gold
+                    + ", sign=" + sign + ", friends=" + friends + "}";
+        }
+    }
+
+
+    /**
+     * 属性较少的旧版本
+     */
+    public static class OldPlayer {
+
+        private long id;
+
+        private int level;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+    }
+
+
+    public static class Monster {
+
+        private long id;
+
+        private int level;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package transfer.test;
+
+import transfer.ByteArray;
+import transfer.ByteBuffer;
+import transfer.Transfer;
+import transfer.def.TransferConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 缓冲池编码与普通编码对比
+ * @author Jake
+ */
+public class TestEncodePool {
+
+    public static void main(String[] args) {
+
+        TransferConfig.registerClass(Entity.class, 1);
+
+        Transfer.encodePreCompile(Entity.class);
+
+        Entity entity = new Entity();
+        entity.setId(1L);
+        entity.setName("Jake");
+        entity.setStr("str");
+        entity.setBool(true);
+        entity.setUid(101);
+        for (long i = 0; i < 200; i++) {
+            entity.getFriends().add(i);
+        }
+
+        byte[] expected = Transfer.encode(entity, Entity.class).toBytes();
+        System.out.println("length:" + expected.length);
+        System.out.println("encodeBytes equals:" + Arrays.equals(expected, Transfer.encodeBytes(entity, Entity.class)));
+
+        // 编码到调用方的数组
+        byte[] dest = new byte[expected.length + 10];
+        int length = Transfer.encode(dest, 10, entity, Entity.class);
+        System.out.println("encode to array equals:" + Arrays.equals(expected, Arrays.copyOfRange(dest, 10, 10 + length)));
+
+        // 重复使用ByteBuffer, 大小消息交替
+        ByteBuffer buffer = new ByteBuffer(16);
+        List<String> small = new ArrayList<String>();
+        small.add("a");
+        for (int i = 0; i < 3; i++) {
+            buffer.reset();
+            Transfer.encode(buffer, entity, Entity.class);
+            boolean bigOk = Arrays.equals(expected, buffer.toBytes());
+            buffer.reset();
+            Transfer.encode(buffer, small);
+            boolean smallOk = Arrays.equals(Transfer.encode(small).toBytes(), buffer.toBytes());
+            System.out.println("reuse " + i + ":" + bigOk + " " + smallOk);
+        }
+
+        long t1 = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            ByteArray byteArray = Transfer.encode(entity, Entity.class);
+            byteArray.toBytes();
+        }
+        System.out.println("encode + toBytes : " + (System.currentTimeMillis() - t1));
+
+        t1 = System.currentTimeMillis();
+        for (int i = 0; i < 1000000; i++) {
+            Transfer.encodeBytes(entity, Entity.class);
+        }
+        System.out.println("encodeBytes : " + (System.currentTimeMillis() - t1));
+
+        t1 = System.currentTimeMillis();
+        byte[] sendBuffer = new byte[4096];
+        for (int i = 0; i < 1000000; i++) {
+            Transfer.encode(sendBuffer, 0, entity, Entity.class);
+        }
+        System.out.println("encode to array : " + (System.currentTimeMillis() - t1));
+    }
+
+}
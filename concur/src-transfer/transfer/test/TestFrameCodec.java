@@ -0,0 +1,85 @@
+package transfer.test;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.filter.codec.ProtocolCodecSession;
+import org.apache.mina.filter.codec.ProtocolDecoder;
+import org.apache.mina.filter.codec.ProtocolEncoder;
+import transfer.ByteBuffer;
+import transfer.def.TransferConfig;
+import transfer.io.FrameDecoder;
+import transfer.io.FrameEncoder;
+import transfer.io.TransferCodecFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * 消息帧流式编解码, 模拟每次读取任意长度的字节
+ * @author Jake
+ */
+public class TestFrameCodec {
+
+    public static void main(String[] args) throws Exception {
+
+        TransferConfig.registerClass(SimpleEntity.class, 1);
+
+        // 连续编码多个消息帧
+        FrameEncoder frameEncoder = new FrameEncoder();
+        ByteBuffer stream = new ByteBuffer();
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            SimpleEntity entity = new SimpleEntity();
+            entity.setId((long) i);
+            entity.setName(i % 10 == 0 ? new String(new char[300]).replace('\0', 'x') : "Jake" + i);
+            frameEncoder.encode(entity, stream);
+        }
+        byte[] bytes = stream.toBytes();
+        System.out.println("stream length:" + bytes.length);
+
+        // 按随机长度分段输入
+        Random random = new Random(1);
+        FrameDecoder frameDecoder = new FrameDecoder();
+        List<Object> messages = new ArrayList<Object>();
+        int position = 0;
+        while (position < bytes.length) {
+            int length = Math.min(bytes.length - position, 1 + random.nextInt(200));
+            frameDecoder.decode(java.nio.ByteBuffer.wrap(bytes, position, length), messages);
+            position += length;
+        }
+        boolean ordered = messages.size() == count;
+        for (int i = 0; i < messages.size(); i++) {
+            ordered &= ((SimpleEntity) messages.get(i)).getId() == i;
+        }
+        System.out.println("decoded:" + messages.size() + " ordered:" + ordered + " partial:" + frameDecoder.hasPartialFrame());
+
+        // MINA编解码
+        TransferCodecFactory codecFactory = new TransferCodecFactory(SimpleEntity.class, FrameDecoder.DEFAULT_MAX_FRAME_LENGTH);
+        ProtocolCodecSession session = new ProtocolCodecSession();
+        ProtocolEncoder encoder = codecFactory.getEncoder(session);
+        ProtocolDecoder decoder = codecFactory.getDecoder(session);
+
+        SimpleEntity entity = new SimpleEntity();
+        entity.setId(7L);
+        entity.setName("mina");
+        encoder.encode(session, entity, session.getEncoderOutput());
+        encoder.encode(session, entity, session.getEncoderOutput());
+        Queue<Object> encoded = session.getEncoderOutputQueue();
+        IoBuffer first = (IoBuffer) encoded.poll();
+        IoBuffer second = (IoBuffer) encoded.poll();
+        IoBuffer joined = IoBuffer.allocate(first.remaining() + second.remaining());
+        joined.put(first).put(second).flip();
+
+        // 分两次读取, 第二个帧跨越两次读取
+        int split = joined.limit() - 3;
+        IoBuffer read1 = IoBuffer.wrap(joined.array(), 0, split);
+        IoBuffer read2 = IoBuffer.wrap(joined.array(), split, 3);
+        decoder.decode(session, read1, session.getDecoderOutput());
+        System.out.println("mina read1:" + session.getDecoderOutputQueue().size());
+        decoder.decode(session, read2, session.getDecoderOutput());
+        System.out.println("mina read2:" + session.getDecoderOutputQueue().size() + " "
+                + ((SimpleEntity) session.getDecoderOutputQueue().poll()).getName());
+    }
+
+}
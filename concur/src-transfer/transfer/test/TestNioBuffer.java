@@ -0,0 +1,56 @@
+package transfer.test;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import transfer.Transfer;
+import transfer.def.TransferConfig;
+import transfer.io.IoBufferInputable;
+import transfer.io.IoBufferOutputable;
+import transfer.io.NioInputable;
+import transfer.io.NioOutputable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 直接编解码到NIO和MINA缓冲
+ * @author Jake
+ */
+public class TestNioBuffer {
+
+    public static void main(String[] args) {
+
+        TransferConfig.registerClass(SimpleEntity.class, 1);
+
+        SimpleEntity entity = new SimpleEntity();
+        entity.setId(1L);
+        entity.setName("Jake");
+        entity.setStr("str");
+        entity.setBool(true);
+        entity.setUid(101);
+
+        // 直接内存, 初始容量不足时自动扩容
+        NioOutputable nioOutputable = NioOutputable.allocate(8, true);
+        Transfer.encode(nioOutputable, entity, SimpleEntity.class);
+        ByteBuffer buffer = nioOutputable.getBuffer();
+        buffer.flip();
+        System.out.println("direct length:" + buffer.remaining());
+        SimpleEntity decoded = Transfer.decode(new NioInputable(buffer), SimpleEntity.class);
+        System.out.println(decoded.getName() + " " + decoded.getUid());
+
+        // MINA IoBuffer
+        IoBufferOutputable ioBufferOutputable = IoBufferOutputable.allocate(8, false);
+        Transfer.encode(ioBufferOutputable, entity, SimpleEntity.class);
+        IoBuffer ioBuffer = ioBufferOutputable.getBuffer().flip();
+        System.out.println("IoBuffer length:" + ioBuffer.remaining());
+        decoded = Transfer.decode(new IoBufferInputable(ioBuffer), SimpleEntity.class);
+        System.out.println(decoded.getName() + " " + decoded.getUid());
+
+        long t1 = System.currentTimeMillis();
+        ByteBuffer sendBuffer = ByteBuffer.allocateDirect(256);
+        for (int i = 0; i < 10000000; i++) {
+            sendBuffer.clear();
+            Transfer.encode(new NioOutputable(sendBuffer), entity, SimpleEntity.class);
+        }
+        System.out.println(System.currentTimeMillis() - t1);
+    }
+
+}
@@ -0,0 +1,220 @@
+package transfer.test;
+
+import transfer.ByteArray;
+import transfer.ObjectView;
+import transfer.Transfer;
+import transfer.core.FieldInfo;
+import transfer.def.TransferConfig;
+import transfer.exceptions.IllegalTypeException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static transfer.test.Asserts.check;
+import static transfer.test.Asserts.fail;
+
+/**
+ * 对象视图测试
+ * <br/>只读取路由需要的属性, 对比完整解码的结果
+ * @author Jake
+ */
+public class TestObjectView {
+
+    public static void main(String[] args) {
+
+        TransferConfig.registerClass(Message.class, 51);
+        TransferConfig.registerClass(Header.class, 52);
+
+        Entity entity = new Entity();
+        entity.setId(1001L);
+        entity.setUid(-101);
+        entity.setStatus(AcountStatus.OPEN);
+        entity.setStatusHis(new AcountStatus[] {AcountStatus.CLOSE, AcountStatus.LOCK});
+        entity.setDate(new Date());
+        entity.setStr("jake");
+        entity.setBool(true);
+        entity.getFriends().add(1L);
+        entity.getFriends().add(2L);
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("a", 1);
+        map.put("b", "x");
+        entity.setMap(map);
+        entity.setObj(Arrays.asList(1, 2, 3));
+
+        Header header = new Header();
+        header.setRoute("game.battle");
+        header.setUserId(-123456789L);
+
+        Message message = new Message();
+        message.setEntity(entity);
+        message.setPayload(new byte[] {1, 2, 3, 4});
+        message.setScore(99.5);
+        for (int i = 0; i < 1000; i++) {
+            message.getLogs().add("log" + i);
+        }
+        message.setHeader(header);
+        message.setSeq(42);
+
+        byte[] bytes = Transfer.encode(message, Message.class).toBytes();
+
+        // 逐个属性与完整解码的结果一致
+        Message decoded = Transfer.decode(bytes, Message.class);
+        ObjectView view = Transfer.view(bytes);
+        List<FieldInfo> fieldInfos = view.getClassInfo().getFieldInfos();
+        for (int i = fieldInfos.size() - 1; i >= 0; i--) {
+            check(same(fieldInfos.get(i).getField(decoded), view.get(i)), fieldInfos.get(i).getName());
+        }
+
+        // 嵌套对象
+        ObjectView entityView = Transfer.view(bytes).getView("entity");
+        Entity decodedEntity = decoded.getEntity();
+        fieldInfos = entityView.getClassInfo().getFieldInfos();
+        for (FieldInfo fieldInfo : fieldInfos) {
+            check(same(fieldInfo.getField(decodedEntity), entityView.get(fieldInfo.getFieldName())), fieldInfo.getName());
+        }
+        check(Transfer.view(bytes).getView("header").get("route").equals("game.battle"), "route");
+        check(Transfer.view(bytes).getView("other") == null && Transfer.view(bytes).isNull("other"), "null view");
+
+        // 原始字节
+        ByteArray raw = Transfer.view(bytes).getView("header").getByteArray();
+        check(Transfer.decode(raw, Header.class).getUserId() == -123456789L, "raw object");
+        check(Arrays.equals(bytes, Transfer.view(bytes).getByteArray().toBytes()), "raw message");
+
+        try {
+            Transfer.view(bytes).get("route");
+            fail("unknown field");
+        } catch (IllegalArgumentException e) {
+            System.out.println("unknown field: " + e.getMessage());
+        }
+
+        try {
+            Transfer.view(bytes).getByteArray(view.getFieldCount());
+            fail("index out of range");
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println("index out of range: " + e.getMessage());
+        }
+
+        // 非对象数据
+        try {
+            Transfer.view(Transfer.encode("game.battle").toBytes());
+            fail("not object");
+        } catch (IllegalTypeException e) {
+            System.out.println("not object: " + e.getClass().getSimpleName());
+        }
+
+        System.out.println("OK");
+    }
+
+
+    static boolean same(Object a, Object b) {
+        return Arrays.deepToString(new Object[] {a}).equals(Arrays.deepToString(new Object[] {b}));
+    }
+
+
+    public static class Message {
+
+        private Entity entity;
+
+        private byte[] payload;
+
+        private double score;
+
+        private List<String> logs = new ArrayList<String>();
+
+        private Header other;
+
+        private Header header;
+
+        private int seq;
+
+        public Entity getEntity() {
+            return entity;
+        }
+
+        public void setEntity(Entity entity) {
+            this.entity = entity;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        public void setPayload(byte[] payload) {
+            this.payload = payload;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public void setScore(double score) {
+            this.score = score;
+        }
+
+        public List<String> getLogs() {
+            return logs;
+        }
+
+        public void setLogs(List<String> logs) {
+            this.logs = logs;
+        }
+
+        public Header getOther() {
+            return other;
+        }
+
+        public void setOther(Header other) {
+            this.other = other;
+        }
+
+        public Header getHeader() {
+            return header;
+        }
+
+        public void setHeader(Header header) {
+            this.header = header;
+        }
+
+        public int getSeq() {
+            return seq;
+        }
+
+        public void setSeq(int seq) {
+            this.seq = seq;
+        }
+    }
+
+
+    public static class Header {
+
+        private String route;
+
+        private long userId;
+
+        public String getRoute() {
+            return route;
+        }
+
+        public void setRoute(String route) {
+            this.route = route;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public String toString() {
+            return "Header{route=" + route + ", userId=" + userId + "}";
+        }
+    }
+
+}
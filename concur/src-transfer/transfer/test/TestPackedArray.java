@@ -0,0 +1,244 @@
+package transfer.test;
+
+import transfer.ByteArray;
+import transfer.Persister;
+import transfer.Transfer;
+import transfer.TypeReference;
+import transfer.def.PersistConfig;
+import transfer.def.TransferConfig;
+import transfer.def.Types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static transfer.test.Asserts.check;
+
+/**
+ * 基本类型数组和数字集合的紧凑编码测试
+ * <br/>对比解释执行与预编译的结果, 以及与逐个元素编码的长度
+ * @author Jake
+ */
+public class TestPackedArray {
+
+    public static void main(String[] args) {
+
+        // 默认不使用紧凑编码
+        check(Transfer.encode(new int[] {1, -2, 3}).toBytes()[0] == Types.ARRAY, "packed by default");
+        check(Transfer.encode(Arrays.asList(1L, 2L)).toBytes()[0] == Types.COLLECTION, "packed collection by default");
+
+        TransferConfig.setPackedEncoding(true);
+
+        TransferConfig.registerClass(Arrays2.class, 21);
+        PersistConfig.registerClass(Arrays2.class, 21);
+
+        Arrays2 arrays = new Arrays2();
+        arrays.setInts(new int[] {0, 1, -1, 63, -64, 300, Integer.MAX_VALUE, Integer.MIN_VALUE});
+        arrays.setLongs(new long[] {0L, -1L, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE});
+        arrays.setDoubles(new double[] {0.0, -1.5, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE});
+        arrays.setFloats(new float[] {1.25f, -0.0f, Float.POSITIVE_INFINITY});
+        arrays.setShorts(new short[] {Short.MIN_VALUE, -1, 0, Short.MAX_VALUE});
+        arrays.setChars(new char[] {'a', '中', '\uFFFF'});
+        arrays.setBooleans(new boolean[] {true, false, true, true, false, false, false, true, true, false, true, false, true});
+        arrays.setEmpty(new int[0]);
+        for (long i = 0; i < 100; i++) {
+            arrays.getFriends().add(i * 1000003L - 50);
+        }
+        arrays.getScores().add(1.5);
+        arrays.getScores().add(-2.5);
+        arrays.getMixed().add(1);
+        arrays.getMixed().add(2L);
+        arrays.getMixed().add("x");
+
+        // 解释执行
+        Arrays2 decoded = Transfer.decode(new ByteArray(Transfer.encode(arrays).toBytes()), Arrays2.class);
+        check(arrays.equals(decoded), "transfer");
+        // 预编译
+        decoded = Transfer.decode(Transfer.encode(arrays, Arrays2.class).toBytes(), Arrays2.class);
+        check(arrays.equals(decoded), "transfer compiled");
+        // 持久化格式
+        decoded = Persister.decode(Persister.encode(arrays).toBytes(), Arrays2.class);
+        check(arrays.equals(decoded), "persister");
+
+        // 未指定类型时与原来一样解码为Object[]
+        Object[] objects = Transfer.decode(Transfer.encode(new int[] {1, -2, 3}));
+        check(Arrays.equals(new Object[] {1, -2, 3}, objects), "untyped array");
+        List<Object> list = Transfer.decode(Transfer.encode(arrays.getFriends()));
+        check(arrays.getFriends().equals(list), "untyped list");
+
+        // 元素类型转换
+        long[] widened = Transfer.decode(Transfer.encode(new int[] {1, -2, 3}).toBytes(), long[].class);
+        check(Arrays.equals(new long[] {1, -2, 3}, widened), "widen");
+        List<Integer> narrowed = Transfer.decode(Transfer.encode(arrays.getFriends()).toBytes(), new TypeReference<List<Integer>>(){});
+        check(narrowed.get(1).equals(Integer.valueOf((int) arrays.getFriends().get(1).longValue())), "narrow");
+
+        // 迭代解码
+        Iterator<Long> iterator = Transfer.iterator(Transfer.encode(arrays.getFriends()).toBytes(), new TypeReference<List<Long>>(){});
+        List<Long> iterated = new ArrayList<Long>();
+        while (iterator.hasNext()) {
+            iterated.add(iterator.next());
+        }
+        check(arrays.getFriends().equals(iterated), "iterator");
+
+        // 单个元素
+        check(Arrays.equals(new int[] {-7}, Transfer.decode(Transfer.encode(new int[] {-7}, int[].class).toBytes(), int[].class)), "single");
+        check(Arrays.equals(new boolean[] {true}, Transfer.decode(Transfer.encode(new boolean[] {true}, boolean[].class).toBytes(), boolean[].class)), "single boolean");
+
+        // 长度对比
+        int count = 10000;
+        int[] ints = new int[count];
+        Integer[] boxed = new Integer[count];
+        List<Long> longs = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {
+            ints[i] = i * 31 - 5000;
+            boxed[i] = ints[i];
+            longs.add(i * 1000003L);
+        }
+        byte[] packed = Transfer.encode(ints, int[].class).toBytes();
+        byte[] unpacked = Transfer.encode(boxed, Integer[].class).toBytes();
+        System.out.println("int[] length:" + packed.length + " Integer[] length:" + unpacked.length);
+        check(packed.length < unpacked.length, "packed length");
+        check(Arrays.equals(ints, Transfer.decode(packed, int[].class)), "large array");
+        check(Arrays.equals(boxed, Transfer.decode(unpacked, Integer[].class)), "large boxed array");
+        check(longs.equals(Transfer.decode(Transfer.encode(longs, List.class).toBytes(), new TypeReference<List<Long>>(){})), "large list");
+
+        System.out.println("OK");
+    }
+
+
+    public static class Arrays2 {
+
+        private int[] ints;
+
+        private long[] longs;
+
+        private double[] doubles;
+
+        private float[] floats;
+
+        private short[] shorts;
+
+        private char[] chars;
+
+        private boolean[] booleans;
+
+        private int[] empty;
+
+        private List<Long> friends = new ArrayList<Long>();
+
+        private Set<Double> scores = new HashSet<Double>();
+
+        private List<Object> mixed = new ArrayList<Object>();
+
+        public int[] getInts() {
+            return ints;
+        }
+
+        public void setInts(int[] ints) {
+            this.ints = ints;
+        }
+
+        public long[] getLongs() {
+            return longs;
+        }
+
+        public void setLongs(long[] longs) {
+            this.longs = longs;
+        }
+
+        public double[] getDoubles() {
+            return doubles;
+        }
+
+        public void setDoubles(double[] doubles) {
+            this.doubles = doubles;
+        }
+
+        public float[] getFloats() {
+            return floats;
+        }
+
+        public void setFloats(float[] floats) {
+            this.floats = floats;
+        }
+
+        public short[] getShorts() {
+            return shorts;
+        }
+
+        public void setShorts(short[] shorts) {
+            this.shorts = shorts;
+        }
+
+        public char[] getChars() {
+            return chars;
+        }
+
+        public void setChars(char[] chars) {
+            this.chars = chars;
+        }
+
+        public boolean[] getBooleans() {
+            return booleans;
+        }
+
+        public void setBooleans(boolean[] booleans) {
+            this.booleans = booleans;
+        }
+
+        public int[] getEmpty() {
+            return empty;
+        }
+
+        public void setEmpty(int[] empty) {
+            this.empty = empty;
+        }
+
+        public List<Long> getFriends() {
+            return friends;
+        }
+
+        public void setFriends(List<Long> friends) {
+            this.friends = friends;
+        }
+
+        public Set<Double> getScores() {
+            return scores;
+        }
+
+        public void setScores(Set<Double> scores) {
+            this.scores = scores;
+        }
+
+        public List<Object> getMixed() {
+            return mixed;
+        }
+
+        public void setMixed(List<Object> mixed) {
+            this.mixed = mixed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Arrays2)) {
+                return false;
+            }
+            Arrays2 other = (Arrays2) o;
+            return Arrays.equals(ints, other.ints)
+                    && Arrays.equals(longs, other.longs)
+                    && Arrays.equals(doubles, other.doubles)
+                    && Arrays.equals(floats, other.floats)
+                    && Arrays.equals(shorts, other.shorts)
+                    && Arrays.equals(chars, other.chars)
+                    && Arrays.equals(booleans, other.booleans)
+                    && Arrays.equals(empty, other.empty)
+                    && friends.equals(other.friends)
+                    && scores.equals(other.scores)
+                    && mixed.equals(other.mixed);
+        }
+    }
+
+}
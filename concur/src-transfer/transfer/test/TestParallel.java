@@ -0,0 +1,151 @@
+package transfer.test;
+
+import transfer.ByteArray;
+import transfer.ByteBuffer;
+import transfer.Transfer;
+import transfer.TypeReference;
+import transfer.def.TransferConfig;
+import transfer.def.Types;
+import transfer.serializer.ParallelSerializer;
+import utils.collections.concurrent.ForkJoinPool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static transfer.test.Asserts.check;
+
+/**
+ * 大集合并行编解码测试
+ * <br/>对比串行编解码的结果, 以及块数量的边界
+ * @author Jake
+ */
+public class TestParallel {
+
+    public static void main(String[] args) {
+
+        TransferConfig.registerClass(Item.class, 41);
+
+        System.out.println("cpu core:" + Runtime.getRuntime().availableProcessors());
+
+        TypeReference<List<Item>> listType = new TypeReference<List<Item>>(){};
+        TypeReference<Map<Long, String>> mapType = new TypeReference<Map<Long, String>>(){};
+
+        List<Item> items = new ArrayList<Item>();
+        Map<Long, String> names = new HashMap<Long, String>();
+        for (int i = 0; i < 200000; i++) {
+            Item item = new Item();
+            item.setId(i);
+            item.setName("item" + i);
+            item.setCount(i % 1000);
+            item.setPrice(i * 0.5);
+            items.add(item);
+            names.put((long) i, item.getName());
+        }
+
+        // 与串行编码的结果一致
+        byte[] bytes = Transfer.encodeParallel(items, listType.getType()).toBytes();
+        List<Item> decoded = Transfer.decodeParallel(bytes, listType);
+        check(items.toString().equals(decoded.toString()), "list");
+        check(Transfer.decode(Transfer.encode(items, listType.getType()).toBytes(), listType).toString().equals(decoded.toString()), "list sequential");
+
+        Map<Long, String> decodedMap = Transfer.decodeParallel(Transfer.encodeParallel(names, mapType.getType()).toBytes(), mapType);
+        check(names.equals(decodedMap), "map");
+
+        // 未指定泛型
+        List<Object> untyped = Transfer.decodeParallel(Transfer.encodeParallel(items, List.class).toBytes(), new TypeReference<List<Object>>(){});
+        check(items.toString().equals(untyped.toString()), "untyped");
+
+        // 元素数量不超过块大小时按普通格式编码
+        List<Item> small = items.subList(0, 100);
+        byte[] smallBytes = Transfer.encodeParallel(small, listType.getType()).toBytes();
+        check(small.toString().equals(Transfer.decode(smallBytes, listType).toString()), "small");
+        check(small.toString().equals(Transfer.decodeParallel(smallBytes, listType).toString()), "small parallel");
+
+        // 指定块大小和线程池
+        ForkJoinPool pool = new ForkJoinPool(2);
+        check(small.toString().equals(roundTrip(small, listType, 7, pool).toString()), "chunk size");
+
+        // 元素数量等于块大小: 只有一块, 按普通格式编码
+        ByteBuffer buffer = new ByteBuffer();
+        Transfer.encodeParallel(buffer, small, listType.getType(), small.size(), pool);
+        check(buffer.toBytes()[0] == Types.COLLECTION, "single chunk flag");
+        check(small.toString().equals(roundTrip(small, listType, small.size(), pool).toString()), "single chunk");
+
+        // 元素数量为块大小+1: 最后一块只有一个元素
+        buffer = new ByteBuffer();
+        Transfer.encodeParallel(buffer, small, listType.getType(), small.size() - 1, pool);
+        check(buffer.toBytes()[0] == (byte) (Types.COLLECTION | ParallelSerializer.CHUNKED), "two chunks flag");
+        check(small.toString().equals(roundTrip(small, listType, small.size() - 1, pool).toString()), "two chunks");
+
+        Map<Long, String> smallMap = new HashMap<Long, String>();
+        for (long i = 0; i < 9; i++) {
+            smallMap.put(i, names.get(i));
+        }
+        check(smallMap.equals(roundTrip(smallMap, mapType, 8, pool)), "map two chunks");
+
+        // 每块一个元素
+        check(small.toString().equals(roundTrip(small, listType, 1, pool).toString()), "chunk size 1");
+        pool.shutdown();
+
+        System.out.println("OK");
+    }
+
+
+    static <T> T roundTrip(T object, TypeReference<T> typeReference, int chunkSize, ForkJoinPool pool) {
+        ByteBuffer buffer = new ByteBuffer();
+        Transfer.encodeParallel(buffer, object, typeReference.getType(), chunkSize, pool);
+        return Transfer.decodeParallel(new ByteArray(buffer.toBytes()), typeReference.getType(), pool);
+    }
+
+
+    public static class Item {
+
+        private long id;
+
+        private String name;
+
+        private int count;
+
+        private double price;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        @Override
+        public String toString() {
+            return "Item{id=" + id + ", name=" + name + ", count=" + count + ", price=" + price + "}";
+        }
+    }
+
+}
@@ -0,0 +1,300 @@
+package transfer.test;
+
+import transfer.ByteArray;
+import transfer.Persister;
+import transfer.def.PersistConfig;
+import transfer.deserializer.Deserializer;
+import transfer.deserializer.TagObjectDeSerializer;
+import transfer.core.DeserialContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static transfer.test.Asserts.check;
+
+/**
+ * 带标签对象的预编译解码测试
+ * <br/>旧版本类编码的数据使用新版本类解码(属性增加、删除、调整顺序), 对比解释执行与预编译的结果
+ * @author Jake
+ */
+public class TestTagCompile {
+
+    public static void main(String[] args) {
+
+        PersistConfig.registerTagClass(Address.class, 11);
+        PersistConfig.registerTagClass(UserV1.class, 10);
+
+        UserV1 v1 = new UserV1();
+        v1.setId(1001);
+        v1.setName("Jake");
+        v1.setExp(123456789L);
+        v1.setRate(0.75);
+        v1.setBirthday(new Date(1420070400000L));
+        v1.setAddress(new Address("Guangzhou", 510000));
+        v1.getFriends().add(1L);
+        v1.getFriends().add(2L);
+        v1.setAvatar(new byte[] {1, 2, 3});
+        v1.setVip(true);
+
+        byte[] bytes = Persister.encode(v1).toBytes();
+        System.out.println("v1 length:" + bytes.length);
+
+        // 升级为新版本类
+        PersistConfig.registerTagClass(UserV2.class, 10);
+
+        UserV2 interpreted = decodeInterpreted(bytes);
+        UserV2 compiled = Persister.decode(bytes, UserV2.class);
+        System.out.println("interpreted: " + interpreted);
+        System.out.println("compiled:    " + compiled);
+        check(interpreted.toString().equals(compiled.toString()), "compat");
+        check(compiled.getLevel() == 7 && compiled.getId() == 1001 && "Jake".equals(compiled.getName())
+                && compiled.isVip() && compiled.getFriends().size() == 2 && compiled.getAvatar().length == 3, "fields");
+
+        // 新版本编码解码
+        compiled.setLevel(9);
+        byte[] bytes2 = Persister.encode(compiled).toBytes();
+        check(compiled.toString().equals(Persister.decode(bytes2, UserV2.class).toString()), "round trip");
+        check(compiled.toString().equals(decodeInterpreted(bytes2).toString()), "round trip interpreted");
+
+        // 属性值为null
+        UserV2 empty = new UserV2();
+        byte[] bytes3 = Persister.encode(empty).toBytes();
+        check(empty.toString().equals(Persister.decode(bytes3, UserV2.class).toString()), "null fields");
+        check(empty.toString().equals(decodeInterpreted(bytes3).toString()), "null fields interpreted");
+
+        System.out.println("OK");
+    }
+
+
+    static UserV2 decodeInterpreted(byte[] bytes) {
+        ByteArray byteArray = new ByteArray(bytes);
+        Deserializer deserializer = TagObjectDeSerializer.getInstance();
+        byte flag = byteArray.getByte();
+        return deserializer.deserialze(byteArray, UserV2.class, flag, new DeserialContext());
+    }
+
+
+    public static class Address {
+
+        private String city;
+
+        private int zip;
+
+        public Address() {
+        }
+
+        public Address(String city, int zip) {
+            this.city = city;
+            this.zip = zip;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+
+        public int getZip() {
+            return zip;
+        }
+
+        public void setZip(int zip) {
+            this.zip = zip;
+        }
+    }
+
+
+    /**
+     * 旧版本
+     */
+    public static class UserV1 {
+
+        private int id;
+
+        private String name;
+
+        private long exp;
+
+        private Address address;
+
+        private double rate;
+
+        private Date birthday;
+
+        private List<Long> friends = new ArrayList<Long>();
+
+        private byte[] avatar;
+
+        private boolean vip;
+
+        public boolean isVip() {
+            return vip;
+        }
+
+        public void setVip(boolean vip) {
+            this.vip = vip;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getExp() {
+            return exp;
+        }
+
+        public void setExp(long exp) {
+            this.exp = exp;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public Date getBirthday() {
+            return birthday;
+        }
+
+        public void setBirthday(Date birthday) {
+            this.birthday = birthday;
+        }
+
+        public List<Long> getFriends() {
+            return friends;
+        }
+
+        public void setFriends(List<Long> friends) {
+            this.friends = friends;
+        }
+
+        public byte[] getAvatar() {
+            return avatar;
+        }
+
+        public void setAvatar(byte[] avatar) {
+            this.avatar = avatar;
+        }
+    }
+
+
+    /**
+     * 新版本: 删除exp和address, 增加level, 调整属性顺序
+     */
+    public static class UserV2 {
+
+        private String name;
+
+        private int id;
+
+        private int level = 7;
+
+        private List<Long> friends = new ArrayList<Long>();
+
+        private Date birthday;
+
+        private double rate;
+
+        private byte[] avatar;
+
+        private boolean vip;
+
+        public boolean isVip() {
+            return vip;
+        }
+
+        public void setVip(boolean vip) {
+            this.vip = vip;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public List<Long> getFriends() {
+            return friends;
+        }
+
+        public void setFriends(List<Long> friends) {
+            this.friends = friends;
+        }
+
+        public Date getBirthday() {
+            return birthday;
+        }
+
+        public void setBirthday(Date birthday) {
+            this.birthday = birthday;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public byte[] getAvatar() {
+            return avatar;
+        }
+
+        public void setAvatar(byte[] avatar) {
+            this.avatar = avatar;
+        }
+
+        @Override
+        public String toString() {
+            return "UserV2{name=" + name + ", id=" + id + ", level=" + level + ", friends=" + friends
+                    + ", birthday=" + (birthday != null ? birthday.getTime() : null) + ", rate=" + rate
+                    + ", avatar=" + (avatar != null ? avatar.length : null) + ", vip=" + vip + "}";
+        }
+    }
+
+}
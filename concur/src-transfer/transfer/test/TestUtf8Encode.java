@@ -0,0 +1,106 @@
+package transfer.test;
+
+import transfer.ByteArray;
+import transfer.Transfer;
+import transfer.TypeReference;
+import transfer.io.NioInputable;
+import transfer.io.NioOutputable;
+import transfer.utils.Utf8Utils;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static transfer.test.Asserts.check;
+
+/**
+ * UTF-8字符串编解码测试
+ * <br/>与String.getBytes("UTF-8")对比编码结果, 并测试解释执行、预编译和字符串驻留
+ * @author Jake
+ */
+public class TestUtf8Encode {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public static void main(String[] args) {
+
+        String[] samples = new String[] {"", "abc=5", "名称", "mixed ascii 和中文", "é ß ü",
+                "emoji \uD83D\uDE00 end", "lone \uD800 surrogate", "\uDC00"};
+
+        Random random = new Random(1);
+        String[] strings = Arrays.copyOf(samples, samples.length + 1000);
+        for (int i = samples.length; i < strings.length; i++) {
+            strings[i] = randomString(random, random.nextInt(64));
+        }
+
+        // 编码结果与JDK一致
+        for (String string : strings) {
+            byte[] expect = string.getBytes(UTF_8);
+            byte[] bytes = new byte[Utf8Utils.utf8Length(string)];
+            Utf8Utils.encode(string, bytes, 0);
+            check(Arrays.equals(expect, bytes), "encode " + string);
+            check(new String(expect, UTF_8).equals(Utf8Utils.decode(bytes, 0, bytes.length)), "decode " + string);
+        }
+
+        TypeReference<Map<String, String>> typeReference = new TypeReference<Map<String, String>>(){};
+        for (String string : strings) {
+            if (string.equals(new String(string.getBytes(UTF_8), UTF_8))) {
+                // 解释执行
+                check(string.equals(Transfer.decode(Transfer.encode(string))), "transfer " + string);
+                // 预编译
+                check(string.equals(Transfer.decode(Transfer.encode(string, String.class), String.class)), "compiled " + string);
+
+                Map<String, String> map = new HashMap<String, String>();
+                map.put(string, string);
+                Map<String, String> decoded = Transfer.decode(Transfer.encode(map, typeReference.getType()), typeReference);
+                check(map.equals(decoded), "compiled map " + string);
+
+                // 非ByteBuffer的输出通道与直接内存缓冲
+                NioOutputable outputable = NioOutputable.allocate(16, true);
+                Transfer.encode(outputable, string);
+                java.nio.ByteBuffer buffer = outputable.getBuffer();
+                buffer.flip();
+                check(string.equals(Transfer.decode(new NioInputable(buffer))), "nio " + string);
+            }
+        }
+
+        // 字符串驻留
+        Utf8Utils.setStringIntern(32, 1024);
+        ByteArray byteArray = Transfer.encode("userName");
+        String s1 = Transfer.decode(byteArray);
+        String s2 = Transfer.decode(Transfer.encode("userName"));
+        check(s1 == s2, "intern");
+        String longString = randomString(random, 40);
+        check(Transfer.decode(Transfer.encode(longString)) != Transfer.decode(Transfer.encode(longString)), "intern maxLength");
+        Utf8Utils.setStringIntern(0, 0);
+
+        System.out.println("OK");
+    }
+
+
+    static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    sb.append((char) random.nextInt(0x80));
+                    break;
+                case 1:
+                    sb.append((char) (0x80 + random.nextInt(0x780)));
+                    break;
+                case 2:
+                    sb.append((char) (0x800 + random.nextInt(0xD000)));
+                    break;
+                case 3:
+                    sb.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                    break;
+                default:
+                    sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+}
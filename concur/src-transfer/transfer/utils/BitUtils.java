@@ -110,6 +110,16 @@ public class BitUtils {
     }
 
 
+    /**
+     * 跳过变长整数(int或long)
+     * @param inputable
+     */
+    public static void skipVarint(final Inputable inputable) {
+        while (inputable.getByte() < 0) {
+        }
+    }
+
+
 
     /**
      * 长整型转换成字节
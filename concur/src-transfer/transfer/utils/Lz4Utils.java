@@ -0,0 +1,186 @@
+package transfer.utils;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+import transfer.ByteArray;
+import transfer.Outputable;
+import transfer.def.Types;
+import transfer.exceptions.IllegalCompressedDataException;
+
+/**
+ * LZ4块压缩
+ * <br/>格式: 标记(COMPRESSED | LZ4) + 若干块 + 结束标记(原始长度0)
+ * <br/>块: 原始长度 + 压缩后长度(0为未压缩) + 原始数据的xxhash32校验和(4字节, 大端) + 数据
+ * <br/>每块最大64KB, 压缩后不小于原始长度的块直接存储
+ * <br/>未达到压缩阈值的数据不加信封, 解压时原样返回
+ * @see transfer.io.Lz4Outputable
+ * @author Jake
+ */
+public class Lz4Utils {
+
+    /** LZ4压缩(COMPRESSED类型的低4位) */
+    public static final byte LZ4 = 0x01;
+
+    /** 信封标记 */
+    public static final byte FLAG = (byte) (Types.COMPRESSED | LZ4);
+
+    /** 块的最大原始长度 */
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    /** 默认压缩阈值 */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    /** 校验和种子 */
+    private static final int SEED = 0x9747b28c;
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+
+    private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private static final XXHash32 HASH = XXHashFactory.fastestInstance().hash32();
+
+
+    /**
+     * 压缩后的最大长度
+     * @param length 原始长度
+     * @return
+     */
+    public static int maxCompressedLength(int length) {
+        return COMPRESSOR.maxCompressedLength(length);
+    }
+
+
+    /**
+     * 压缩一个块并写入
+     * @param outputable 输出通道
+     * @param src 原始数据
+     * @param off 起始位置
+     * @param len 长度(1 - BLOCK_SIZE)
+     * @param compressed 压缩缓冲, 长度不小于maxCompressedLength(len)
+     */
+    public static void putBlock(Outputable outputable, byte[] src, int off, int len, byte[] compressed) {
+        int compressedLength = COMPRESSOR.compress(src, off, len, compressed, 0, compressed.length);
+        int checksum = HASH.hash(src, off, len, SEED);
+
+        BitUtils.putInt(outputable, len);
+        if (compressedLength >= len) {
+            BitUtils.putInt(outputable, 0);
+            putChecksum(outputable, checksum);
+            outputable.putBytes(src, off, len);
+        } else {
+            BitUtils.putInt(outputable, compressedLength);
+            putChecksum(outputable, checksum);
+            outputable.putBytes(compressed, 0, compressedLength);
+        }
+    }
+
+
+    /**
+     * 写入块结束标记
+     * @param outputable 输出通道
+     */
+    public static void putEnd(Outputable outputable) {
+        BitUtils.putInt(outputable, 0);
+    }
+
+
+    /**
+     * 是否压缩数据
+     * @param byteArray 数据源, 当前位置为标记
+     * @return
+     */
+    public static boolean isCompressed(ByteArray byteArray) {
+        return byteArray.getCurIndex() < byteArray.getEndIndex()
+                && byteArray.getByteArr()[byteArray.getCurIndex()] == FLAG;
+    }
+
+
+    /**
+     * 解压
+     * <br/>先读取块头计算原始长度, 只分配一次结果数组; 数据源的位置移到信封之后
+     * @param byteArray 数据源, 当前位置为标记
+     * @return 未压缩的数据原样返回
+     */
+    public static ByteArray decompress(ByteArray byteArray) {
+        if (!isCompressed(byteArray)) {
+            return byteArray;
+        }
+
+        byteArray.getByte();
+        int blocksStart = byteArray.getCurIndex();
+
+        // 计算原始长度
+        int length = 0;
+        int rawLength;
+        while ((rawLength = BitUtils.getInt(byteArray)) != 0) {
+            if (rawLength < 0 || rawLength > BLOCK_SIZE) {
+                throw new IllegalCompressedDataException("块长度错误:" + rawLength);
+            }
+            int compressedLength = BitUtils.getInt(byteArray);
+            if (compressedLength < 0 || compressedLength > maxCompressedLength(rawLength)) {
+                throw new IllegalCompressedDataException("压缩块长度错误:" + compressedLength);
+            }
+            byteArray.skip(4 + (compressedLength == 0 ? rawLength : compressedLength));
+            length += rawLength;
+            if (length < 0) {
+                throw new IllegalCompressedDataException("原始长度超出范围");
+            }
+        }
+
+        byte[] src = byteArray.getByteArr();
+        byte[] dest = new byte[length];
+        ByteArray blocks = new ByteArray(src, blocksStart, byteArray.getCurIndex());
+        int pos = 0;
+        while ((rawLength = BitUtils.getInt(blocks)) != 0) {
+            int compressedLength = BitUtils.getInt(blocks);
+            int checksum = getChecksum(blocks);
+            int off = blocks.getCurIndex();
+
+            if (compressedLength == 0) {
+                System.arraycopy(src, off, dest, pos, rawLength);
+                blocks.skip(rawLength);
+            } else {
+                int decompressedLength;
+                try {
+                    decompressedLength = DECOMPRESSOR.decompress(src, off, compressedLength, dest, pos, rawLength);
+                } catch (LZ4Exception e) {
+                    throw new IllegalCompressedDataException("解压失败", e);
+                }
+                if (decompressedLength != rawLength) {
+                    throw new IllegalCompressedDataException("解压长度不一致:" + decompressedLength + ", 期望:" + rawLength);
+                }
+                blocks.skip(compressedLength);
+            }
+
+            if (HASH.hash(dest, pos, rawLength, SEED) != checksum) {
+                throw new IllegalCompressedDataException("校验和不一致");
+            }
+            pos += rawLength;
+        }
+
+        return new ByteArray(dest);
+    }
+
+
+    // 写入校验和
+    private static void putChecksum(Outputable outputable, int checksum) {
+        outputable.putByte((byte) (checksum >>> 24));
+        outputable.putByte((byte) (checksum >>> 16));
+        outputable.putByte((byte) (checksum >>> 8));
+        outputable.putByte((byte) checksum);
+    }
+
+
+    // 读取校验和
+    private static int getChecksum(ByteArray byteArray) {
+        return (byteArray.getByte() & 0xFF) << 24
+                | (byteArray.getByte() & 0xFF) << 16
+                | (byteArray.getByte() & 0xFF) << 8
+                | byteArray.getByte() & 0xFF;
+    }
+
+}
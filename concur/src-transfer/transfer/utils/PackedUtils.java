@@ -0,0 +1,710 @@
+package transfer.utils;
+
+import transfer.ByteArray;
+import transfer.Inputable;
+import transfer.Outputable;
+import transfer.def.Types;
+import transfer.exceptions.EOFBytesException;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+
+/**
+ * 基本类型数组和数字集合的紧凑编码
+ * <br/>数组(ARRAY)、集合(COLLECTION)标记的低4位记录元素类型, 元素不再逐个写入类型标记
+ * <br/>格式: 标记(类型 | 元素类型) + 元素数量 + 元素数据
+ * <br/>整数使用ZigZag变长编码, 浮点数使用定长编码(大端), 布尔值按位存储
+ * <br/>编码需通过TransferConfig.setPackedEncoding开启, 解码始终支持
+ * @author Jake
+ */
+public class PackedUtils {
+
+    /** 非紧凑编码 */
+    public static final byte NONE = 0x00;
+
+    /** int ZigZag变长编码 */
+    public static final byte INT = 0x01;
+
+    /** long ZigZag变长编码 */
+    public static final byte LONG = 0x02;
+
+    /** short ZigZag变长编码 */
+    public static final byte SHORT = 0x03;
+
+    /** char 变长编码 */
+    public static final byte CHAR = 0x04;
+
+    /** float 4字节 */
+    public static final byte FLOAT = 0x05;
+
+    /** double 8字节 */
+    public static final byte DOUBLE = 0x06;
+
+    /** boolean 每字节8个 */
+    public static final byte BOOLEAN = 0x07;
+
+    /** 写入缓冲大小 */
+    private static final int CHUNK_SIZE = 4096;
+
+    /** 写入元素前的最大位置(预留一个变长long) */
+    private static final int CHUNK_LIMIT = CHUNK_SIZE - 10;
+
+    /** 线程本地写入缓冲 */
+    private static final ThreadLocal<Chunk> CHUNK = new ThreadLocal<Chunk>() {
+        @Override
+        protected Chunk initialValue() {
+            return new Chunk();
+        }
+    };
+
+
+    /**
+     * 获取数组元素的紧凑编码类型
+     * @param componentClass 数组元素类型
+     * @return 不支持的类型返回NONE(byte[]使用BYTE_ARRAY编码)
+     */
+    public static byte getPackedType(Class<?> componentClass) {
+        if (componentClass == int.class) {
+            return INT;
+        } else if (componentClass == long.class) {
+            return LONG;
+        } else if (componentClass == double.class) {
+            return DOUBLE;
+        } else if (componentClass == float.class) {
+            return FLOAT;
+        } else if (componentClass == short.class) {
+            return SHORT;
+        } else if (componentClass == char.class) {
+            return CHAR;
+        } else if (componentClass == boolean.class) {
+            return BOOLEAN;
+        }
+        return NONE;
+    }
+
+
+    /**
+     * 获取集合元素的紧凑编码类型
+     * @param elementClass 集合元素类型
+     * @return 不支持的类型返回NONE
+     */
+    public static byte getNumberPackedType(Class<?> elementClass) {
+        if (elementClass == Integer.class) {
+            return INT;
+        } else if (elementClass == Long.class) {
+            return LONG;
+        } else if (elementClass == Double.class) {
+            return DOUBLE;
+        } else if (elementClass == Float.class) {
+            return FLOAT;
+        } else if (elementClass == Short.class) {
+            return SHORT;
+        }
+        return NONE;
+    }
+
+
+    /**
+     * 声明的集合元素类型是否可能使用紧凑编码
+     * @param elementClass 声明的元素类型
+     * @return
+     */
+    public static boolean maybePacked(Class<?> elementClass) {
+        return elementClass == null
+                || elementClass.isAssignableFrom(Integer.class)
+                || elementClass.isAssignableFrom(Long.class)
+                || elementClass.isAssignableFrom(Double.class)
+                || elementClass.isAssignableFrom(Float.class)
+                || elementClass.isAssignableFrom(Short.class);
+    }
+
+
+    /**
+     * 写入基本类型数组
+     * @param outputable 输出通道
+     * @param array 基本类型数组
+     */
+    public static void putArray(Outputable outputable, Object array) {
+
+        byte packedType = getPackedType(array.getClass().getComponentType());
+        if (packedType == NONE) {
+            throw new IllegalArgumentException("unsupported packed array: " + array.getClass());
+        }
+
+        int length = Array.getLength(array);
+        outputable.putByte((byte) (Types.ARRAY | packedType));
+        BitUtils.putInt(outputable, length);
+        if (length == 0) {
+            return;
+        }
+
+        Chunk chunk = CHUNK.get().begin(outputable);
+        switch (packedType) {
+            case INT:
+                int[] ints = (int[]) array;
+                for (int i = 0; i < length; i++) {
+                    chunk.putVarint(encodeZigZag(ints[i]));
+                }
+                break;
+            case LONG:
+                long[] longs = (long[]) array;
+                for (int i = 0; i < length; i++) {
+                    chunk.putVarlong(encodeZigZag(longs[i]));
+                }
+                break;
+            case DOUBLE:
+                double[] doubles = (double[]) array;
+                for (int i = 0; i < length; i++) {
+                    chunk.putFixed64(Double.doubleToRawLongBits(doubles[i]));
+                }
+                break;
+            case FLOAT:
+                float[] floats = (float[]) array;
+                for (int i = 0; i < length; i++) {
+                    chunk.putFixed32(Float.floatToRawIntBits(floats[i]));
+                }
+                break;
+            case SHORT:
+                short[] shorts = (short[]) array;
+                for (int i = 0; i < length; i++) {
+                    chunk.putVarint(encodeZigZag(shorts[i]));
+                }
+                break;
+            case CHAR:
+                char[] chars = (char[]) array;
+                for (int i = 0; i < length; i++) {
+                    chunk.putVarint(chars[i]);
+                }
+                break;
+            case BOOLEAN:
+                boolean[] booleans = (boolean[]) array;
+                for (int i = 0; i < length; i += 8) {
+                    int bits = 0;
+                    for (int j = 0, end = Math.min(8, length - i); j < end; j++) {
+                        if (booleans[i + j]) {
+                            bits |= 1 << j;
+                        }
+                    }
+                    chunk.putByte((byte) bits);
+                }
+                break;
+        }
+        chunk.end();
+    }
+
+
+    /**
+     * 尝试写入数字集合
+     * <br/>元素全部为同一种数字包装类型(Integer、Long、Short、Float、Double)且不为null时使用紧凑编码
+     * @param outputable 输出通道
+     * @param collection 集合
+     * @return 是否已写入, 返回false时未写入任何字节
+     */
+    public static boolean putCollection(Outputable outputable, Collection<?> collection) {
+
+        if (collection.isEmpty()) {
+            return false;
+        }
+
+        // 先检查首个元素, 避免非数字集合复制元素
+        Object first = collection.iterator().next();
+        if (first == null) {
+            return false;
+        }
+
+        Class<?> elementClass = first.getClass();
+        byte packedType = getNumberPackedType(elementClass);
+        if (packedType == NONE) {
+            return false;
+        }
+
+        Object[] elements = collection.toArray();
+        int length = elements.length;
+        for (int i = 0; i < length; i++) {
+            Object element = elements[i];
+            if (element == null || element.getClass() != elementClass) {
+                return false;
+            }
+        }
+
+        outputable.putByte((byte) (Types.COLLECTION | packedType));
+        BitUtils.putInt(outputable, length);
+
+        Chunk chunk = CHUNK.get().begin(outputable);
+        switch (packedType) {
+            case INT:
+                for (int i = 0; i < length; i++) {
+                    chunk.putVarint(encodeZigZag(((Integer) elements[i]).intValue()));
+                }
+                break;
+            case LONG:
+                for (int i = 0; i < length; i++) {
+                    chunk.putVarlong(encodeZigZag(((Long) elements[i]).longValue()));
+                }
+                break;
+            case DOUBLE:
+                for (int i = 0; i < length; i++) {
+                    chunk.putFixed64(Double.doubleToRawLongBits(((Double) elements[i]).doubleValue()));
+                }
+                break;
+            case FLOAT:
+                for (int i = 0; i < length; i++) {
+                    chunk.putFixed32(Float.floatToRawIntBits(((Float) elements[i]).floatValue()));
+                }
+                break;
+            case SHORT:
+                for (int i = 0; i < length; i++) {
+                    chunk.putVarint(encodeZigZag(((Short) elements[i]).shortValue()));
+                }
+                break;
+        }
+        chunk.end();
+        return true;
+    }
+
+
+    /**
+     * 读取紧凑编码的元素
+     * @param inputable 数据源
+     * @param packedType 元素类型(标记的低4位)
+     * @param size 元素数量
+     * @return 基本类型数组
+     */
+    public static Object getArray(Inputable inputable, byte packedType, int size) {
+
+        switch (packedType) {
+            case INT:
+                int[] ints = getVarints(inputable, size);
+                for (int i = 0; i < size; i++) {
+                    ints[i] = decodeZigZag(ints[i]);
+                }
+                return ints;
+            case LONG:
+                long[] longs = getVarlongs(inputable, size);
+                for (int i = 0; i < size; i++) {
+                    longs[i] = decodeZigZag(longs[i]);
+                }
+                return longs;
+            case DOUBLE:
+                double[] doubles = new double[size];
+                ByteArray block = getBlock(inputable, size << 3);
+                byte[] src = block.getByteArr();
+                for (int i = 0, pos = block.getStartIndex(); i < size; i++, pos += 8) {
+                    doubles[i] = Double.longBitsToDouble(getFixed64(src, pos));
+                }
+                return doubles;
+            case FLOAT:
+                float[] floats = new float[size];
+                block = getBlock(inputable, size << 2);
+                src = block.getByteArr();
+                for (int i = 0, pos = block.getStartIndex(); i < size; i++, pos += 4) {
+                    floats[i] = Float.intBitsToFloat(getFixed32(src, pos));
+                }
+                return floats;
+            case SHORT:
+                ints = getVarints(inputable, size);
+                short[] shorts = new short[size];
+                for (int i = 0; i < size; i++) {
+                    shorts[i] = (short) decodeZigZag(ints[i]);
+                }
+                return shorts;
+            case CHAR:
+                ints = getVarints(inputable, size);
+                char[] chars = new char[size];
+                for (int i = 0; i < size; i++) {
+                    chars[i] = (char) ints[i];
+                }
+                return chars;
+            case BOOLEAN:
+                boolean[] booleans = new boolean[size];
+                block = getBlock(inputable, (size + 7) >>> 3);
+                src = block.getByteArr();
+                int start = block.getStartIndex();
+                for (int i = 0; i < size; i++) {
+                    booleans[i] = (src[start + (i >>> 3)] & (1 << (i & 7))) != 0;
+                }
+                return booleans;
+            default:
+                throw new IllegalArgumentException("unsupported packed type: " + packedType);
+        }
+    }
+
+
+    /**
+     * 跳过紧凑编码的元素
+     * @param inputable 数据源
+     * @param packedType 元素类型(标记的低4位)
+     * @param size 元素数量
+     */
+    public static void skip(Inputable inputable, byte packedType, int size) {
+        switch (packedType) {
+            case INT:
+            case LONG:
+            case SHORT:
+            case CHAR:
+                for (int i = 0; i < size; i++) {
+                    BitUtils.skipVarint(inputable);
+                }
+                return;
+            case DOUBLE:
+                getBlock(inputable, size << 3);
+                return;
+            case FLOAT:
+                getBlock(inputable, size << 2);
+                return;
+            case BOOLEAN:
+                getBlock(inputable, (size + 7) >>> 3);
+                return;
+            default:
+                throw new IllegalArgumentException("unsupported packed type: " + packedType);
+        }
+    }
+
+
+    /**
+     * 转换为指定元素类型的数组
+     * @param values 基本类型数组
+     * @param componentClass 目标元素类型
+     * @return 元素类型一致时直接返回
+     */
+    public static Object toArray(Object values, Class<?> componentClass) {
+        if (componentClass == null || componentClass == values.getClass().getComponentType()) {
+            return values;
+        }
+
+        int length = Array.getLength(values);
+        Object array = Array.newInstance(componentClass, length);
+        for (int i = 0; i < length; i++) {
+            Array.set(array, i, cast(Array.get(values, i), componentClass));
+        }
+        return array;
+    }
+
+
+    /**
+     * 将元素添加到集合
+     * @param collection 集合
+     * @param values 基本类型数组
+     * @param elementClass 目标元素类型
+     */
+    public static void addAll(Collection collection, Object values, Class<?> elementClass) {
+
+        int length = Array.getLength(values);
+        if (elementClass == null
+                || elementClass.isAssignableFrom(wrap(values.getClass().getComponentType()))) {
+            if (values instanceof int[]) {
+                int[] ints = (int[]) values;
+                for (int i = 0; i < length; i++) {
+                    collection.add(Integer.valueOf(ints[i]));
+                }
+                return;
+            } else if (values instanceof long[]) {
+                long[] longs = (long[]) values;
+                for (int i = 0; i < length; i++) {
+                    collection.add(Long.valueOf(longs[i]));
+                }
+                return;
+            } else if (values instanceof double[]) {
+                double[] doubles = (double[]) values;
+                for (int i = 0; i < length; i++) {
+                    collection.add(Double.valueOf(doubles[i]));
+                }
+                return;
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            collection.add(get(values, i, elementClass));
+        }
+    }
+
+
+    /**
+     * 获取元素
+     * @param values 基本类型数组
+     * @param index 序号
+     * @param elementClass 目标元素类型
+     * @return
+     */
+    public static Object get(Object values, int index, Class<?> elementClass) {
+        Object value = Array.get(values, index);
+        if (elementClass == null) {
+            return value;
+        }
+        return cast(value, elementClass);
+    }
+
+
+    // 数值类型转换
+    private static Object cast(Object value, Class<?> targetClass) {
+
+        if (targetClass.isPrimitive()) {
+            targetClass = wrap(targetClass);
+        }
+        if (targetClass.isInstance(value)) {
+            return value;
+        }
+
+        Number number;
+        if (value instanceof Number) {
+            number = (Number) value;
+        } else if (value instanceof Character) {
+            number = Integer.valueOf(((Character) value).charValue());
+        } else if (value instanceof Boolean) {
+            number = Integer.valueOf(((Boolean) value).booleanValue() ? 1 : 0);
+        } else {
+            return value;
+        }
+
+        if (targetClass == Integer.class) {
+            return Integer.valueOf(number.intValue());
+        } else if (targetClass == Long.class) {
+            return Long.valueOf(number.longValue());
+        } else if (targetClass == Double.class) {
+            return Double.valueOf(number.doubleValue());
+        } else if (targetClass == Float.class) {
+            return Float.valueOf(number.floatValue());
+        } else if (targetClass == Short.class) {
+            return Short.valueOf(number.shortValue());
+        } else if (targetClass == Byte.class) {
+            return Byte.valueOf(number.byteValue());
+        } else if (targetClass == Character.class) {
+            return Character.valueOf((char) number.intValue());
+        } else if (targetClass == Boolean.class) {
+            return Boolean.valueOf(number.intValue() == 1);
+        }
+        return value;
+    }
+
+
+    // 基本类型对应的包装类型
+    private static Class<?> wrap(Class<?> clazz) {
+        if (clazz == int.class) {
+            return Integer.class;
+        } else if (clazz == long.class) {
+            return Long.class;
+        } else if (clazz == double.class) {
+            return Double.class;
+        } else if (clazz == float.class) {
+            return Float.class;
+        } else if (clazz == short.class) {
+            return Short.class;
+        } else if (clazz == char.class) {
+            return Character.class;
+        } else if (clazz == boolean.class) {
+            return Boolean.class;
+        } else if (clazz == byte.class) {
+            return Byte.class;
+        }
+        return clazz;
+    }
+
+
+    // 读取变长整数
+    private static int[] getVarints(Inputable inputable, int size) {
+
+        int[] values = new int[size];
+        if (!(inputable instanceof ByteArray)) {
+            for (int i = 0; i < size; i++) {
+                values[i] = BitUtils.getInt(inputable);
+            }
+            return values;
+        }
+
+        // 直接从底层数组解码
+        ByteArray byteArray = (ByteArray) inputable;
+        byte[] src = byteArray.getByteArr();
+        int start = byteArray.getCurIndex();
+        int end = byteArray.getEndIndex();
+        int pos = start;
+        for (int i = 0; i < size; i++) {
+            if (pos == end) {
+                throw new EOFBytesException();
+            }
+            int b = src[pos++];
+            if (b >= 0) {
+                values[i] = b;
+                continue;
+            }
+            int result = b & 0x7F;
+            int shift = 7;
+            do {
+                if (pos == end) {
+                    throw new EOFBytesException();
+                }
+                b = src[pos++];
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            values[i] = result;
+        }
+        byteArray.skip(pos - start);
+        return values;
+    }
+
+
+    // 读取变长长整数
+    private static long[] getVarlongs(Inputable inputable, int size) {
+
+        long[] values = new long[size];
+        if (!(inputable instanceof ByteArray)) {
+            for (int i = 0; i < size; i++) {
+                values[i] = BitUtils.getLong(inputable);
+            }
+            return values;
+        }
+
+        // 直接从底层数组解码
+        ByteArray byteArray = (ByteArray) inputable;
+        byte[] src = byteArray.getByteArr();
+        int start = byteArray.getCurIndex();
+        int end = byteArray.getEndIndex();
+        int pos = start;
+        for (int i = 0; i < size; i++) {
+            if (pos == end) {
+                throw new EOFBytesException();
+            }
+            long b = src[pos++];
+            if (b >= 0) {
+                values[i] = b;
+                continue;
+            }
+            long result = b & 0x7F;
+            int shift = 7;
+            do {
+                if (pos == end) {
+                    throw new EOFBytesException();
+                }
+                b = src[pos++];
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            values[i] = result;
+        }
+        byteArray.skip(pos - start);
+        return values;
+    }
+
+
+    // 读取定长数据块
+    private static ByteArray getBlock(Inputable inputable, int length) {
+        if (inputable instanceof ByteArray) {
+            ByteArray byteArray = (ByteArray) inputable;
+            int start = byteArray.getCurIndex();
+            byteArray.skip(length);
+            return new ByteArray(byteArray.getByteArr(), start, start + length);
+        }
+        return inputable.getByteArray(length);
+    }
+
+
+    private static int getFixed32(byte[] src, int pos) {
+        return (src[pos] << 24)
+                | ((src[pos + 1] & 0xFF) << 16)
+                | ((src[pos + 2] & 0xFF) << 8)
+                | (src[pos + 3] & 0xFF);
+    }
+
+
+    private static long getFixed64(byte[] src, int pos) {
+        return ((long) getFixed32(src, pos) << 32) | (getFixed32(src, pos + 4) & 0xFFFFFFFFL);
+    }
+
+
+    private static int encodeZigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+
+    private static long encodeZigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+
+    private static int decodeZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+
+    private static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+
+    /**
+     * 线程本地写入缓冲
+     * <br/>元素先编码到字节数组, 满后整块写入输出通道
+     */
+    static final class Chunk {
+
+        final byte[] bytes = new byte[CHUNK_SIZE];
+
+        int pos;
+
+        Outputable outputable;
+
+        Chunk begin(Outputable outputable) {
+            this.outputable = outputable;
+            this.pos = 0;
+            return this;
+        }
+
+        void putByte(byte value) {
+            if (pos > CHUNK_LIMIT) {
+                flush();
+            }
+            bytes[pos++] = value;
+        }
+
+        void putVarint(int value) {
+            if (pos > CHUNK_LIMIT) {
+                flush();
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[pos++] = (byte) value;
+        }
+
+        void putVarlong(long value) {
+            if (pos > CHUNK_LIMIT) {
+                flush();
+            }
+            while ((value & ~0x7FL) != 0) {
+                bytes[pos++] = (byte) ((((int) value) & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[pos++] = (byte) value;
+        }
+
+        void putFixed32(int value) {
+            if (pos > CHUNK_LIMIT) {
+                flush();
+            }
+            bytes[pos] = (byte) (value >> 24);
+            bytes[pos + 1] = (byte) (value >> 16);
+            bytes[pos + 2] = (byte) (value >> 8);
+            bytes[pos + 3] = (byte) value;
+            pos += 4;
+        }
+
+        void putFixed64(long value) {
+            putFixed32((int) (value >> 32));
+            putFixed32((int) value);
+        }
+
+        void flush() {
+            outputable.putBytes(bytes, 0, pos);
+            pos = 0;
+        }
+
+        void end() {
+            if (pos > 0) {
+                flush();
+            }
+            outputable = null;
+        }
+    }
+
+}
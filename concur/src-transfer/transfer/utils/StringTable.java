@@ -0,0 +1,110 @@
+package transfer.utils;
+
+/**
+ * 短字符串驻留表
+ * <br/>按UTF-8字节查找已解码的字符串, 命中时不分配任何对象
+ * <br/>固定大小, 发生冲突时直接覆盖旧的条目; 条目不可变, 多线程并发读写无需加锁
+ * @see Utf8Utils#setStringIntern(int, int)
+ * @author Jake
+ */
+public class StringTable {
+
+    /** 默认表大小 */
+    public static final int DEFAULT_TABLE_SIZE = 4096;
+
+    /** 驻留的最大字节数 */
+    private final int maxLength;
+
+    private final Entry[] buckets;
+
+    private final int indexMask;
+
+
+    /**
+     * @param maxLength 驻留的最大字节数
+     * @param tableSize 表大小(会调整为2的幂)
+     */
+    public StringTable(int maxLength, int tableSize) {
+        int size = 1;
+        while (size < tableSize) {
+            size <<= 1;
+        }
+        this.maxLength = maxLength;
+        this.buckets = new Entry[size];
+        this.indexMask = size - 1;
+    }
+
+
+    /**
+     * 获取字符串, 表中不存在时解码并放入表中
+     * @param src 源数组
+     * @param start 起始位置
+     * @param length 字节数
+     * @return
+     */
+    public String get(byte[] src, int start, int length) {
+        int hash = hash(src, start, length);
+        int bucket = hash & indexMask;
+
+        Entry entry = buckets[bucket];
+        if (entry != null && entry.hash == hash && entry.equals(src, start, length)) {
+            return entry.value;
+        }
+
+        String value = Utf8Utils.decode(src, start, length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(src, start, bytes, 0, length);
+        buckets[bucket] = new Entry(hash, bytes, value);
+        return value;
+    }
+
+
+    private static int hash(byte[] src, int start, int length) {
+        int h = length;
+        for (int i = start, end = start + length; i < end; i++) {
+            h = 31 * h + src[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+
+    /**
+     * 驻留的最大字节数
+     * @return
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+
+    /**
+     * 条目
+     */
+    static final class Entry {
+
+        final int hash;
+
+        final byte[] bytes;
+
+        final String value;
+
+        Entry(int hash, byte[] bytes, String value) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.value = value;
+        }
+
+        boolean equals(byte[] src, int start, int length) {
+            if (bytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != src[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,258 @@
+package transfer.utils;
+
+import transfer.ByteArray;
+import transfer.ByteBuffer;
+import transfer.Inputable;
+import transfer.Outputable;
+
+/**
+ * UTF-8字符串编解码工具
+ * <br/>直接将字符编码到输出缓冲, 直接从输入字节数组解码, 不经过Charset和临时字节数组
+ * <br/>格式与String.getBytes("UTF-8")一致: 长度(varint) + UTF-8字节, 无法配对的代理字符编码为'?'
+ * <br/>可选开启短字符串驻留表, 重复出现的短字符串(名称、键等)解码时直接返回已有的字符串对象
+ * @see StringTable
+ * @author Jake
+ */
+public class Utf8Utils {
+
+    /** 线程本地缓冲的最大长度, 超过时临时分配 */
+    private static final int MAX_SCRATCH_SIZE = 8192;
+
+    /** 替换字符 */
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    /** 线程本地缓冲 */
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /** 短字符串驻留表, 为null时不驻留 */
+    private static volatile StringTable stringTable;
+
+
+    /**
+     * 写入字符串(长度 + UTF-8字节)
+     * @param outputable 输出通道
+     * @param string 字符串
+     */
+    public static void putString(final Outputable outputable, final String string) {
+        int length = utf8Length(string);
+        BitUtils.putInt(outputable, length);
+        if (length == 0) {
+            return;
+        }
+
+        if (outputable instanceof ByteBuffer) {
+            ((ByteBuffer) outputable).putUtf8(string, length);
+            return;
+        }
+
+        byte[] bytes = length <= MAX_SCRATCH_SIZE ? SCRATCH.get().bytes : new byte[length];
+        encode(string, bytes, 0);
+        outputable.putBytes(bytes, 0, length);
+    }
+
+
+    /**
+     * 读取字符串(长度 + UTF-8字节)
+     * <br/>ByteArray直接从底层数组解码, 其他数据源通过getByteArray获取(堆内缓冲不复制)
+     * @param inputable 数据源
+     * @return
+     */
+    public static String getString(final Inputable inputable) {
+        int length = BitUtils.getInt(inputable);
+        if (length == 0) {
+            return "";
+        }
+
+        ByteArray byteArray;
+        int start;
+        if (inputable instanceof ByteArray) {
+            byteArray = (ByteArray) inputable;
+            start = byteArray.getCurIndex();
+            byteArray.skip(length);
+        } else {
+            byteArray = inputable.getByteArray(length);
+            start = byteArray.getStartIndex();
+        }
+
+        StringTable table = stringTable;
+        if (table != null && length <= table.getMaxLength()) {
+            return table.get(byteArray.getByteArr(), start, length);
+        }
+        return decode(byteArray.getByteArr(), start, length);
+    }
+
+
+    /**
+     * 计算字符串的UTF-8字节数
+     * @param string 字符串
+     * @return
+     */
+    public static int utf8Length(final String string) {
+        final int len = string.length();
+        int i = 0;
+        // ASCII
+        while (i < len && string.charAt(i) < 0x80) {
+            i++;
+        }
+        int length = i;
+        for (; i < len; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length ++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (isSurrogate(c)) {
+                // 无法配对的代理字符
+                length ++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+
+    /**
+     * 将字符串编码到字节数组, 调用方需保证剩余空间不小于utf8Length(string)
+     * @param string 字符串
+     * @param dest 目标数组
+     * @param pos 起始位置
+     * @return 编码后的位置
+     */
+    public static int encode(final String string, final byte[] dest, int pos) {
+        final int len = string.length();
+        int i = 0;
+        // ASCII
+        for (char c; i < len && (c = string.charAt(i)) < 0x80; i++) {
+            dest[pos++] = (byte) c;
+        }
+        for (; i < len; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                dest[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                dest[pos++] = (byte) (0xC0 | (c >> 6));
+                dest[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                dest[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                dest[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                dest[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                dest[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (isSurrogate(c)) {
+                dest[pos++] = '?';
+            } else {
+                dest[pos++] = (byte) (0xE0 | (c >> 12));
+                dest[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dest[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+
+    /**
+     * 从字节数组解码字符串
+     * <br/>不合法的字节序列解码为U+FFFD
+     * @param src 源数组
+     * @param start 起始位置
+     * @param length 字节数
+     * @return
+     */
+    public static String decode(final byte[] src, final int start, final int length) {
+        final char[] chars = length <= MAX_SCRATCH_SIZE ? SCRATCH.get().chars : new char[length];
+        final int end = start + length;
+        int i = start;
+        int n = 0;
+        // ASCII
+        for (byte b; i < end && (b = src[i]) >= 0; i++) {
+            chars[n++] = (char) b;
+        }
+        while (i < end) {
+            int b = src[i++];
+            if (b >= 0) {
+                chars[n++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0 && b != (byte) 0xC0 && b != (byte) 0xC1
+                    && i < end && isContinuation(src[i])) {
+                chars[n++] = (char) (((b & 0x1F) << 6) | (src[i++] & 0x3F));
+            } else if ((b & 0xF0) == 0xE0 && i + 1 < end
+                    && isContinuation(src[i]) && isContinuation(src[i + 1])) {
+                char c = (char) (((b & 0x0F) << 12) | ((src[i] & 0x3F) << 6) | (src[i + 1] & 0x3F));
+                if (c < 0x800 || isSurrogate(c)) {
+                    chars[n++] = REPLACEMENT_CHAR;
+                } else {
+                    chars[n++] = c;
+                    i += 2;
+                }
+            } else if ((b & 0xF8) == 0xF0 && i + 2 < end && isContinuation(src[i])
+                    && isContinuation(src[i + 1]) && isContinuation(src[i + 2])) {
+                int codePoint = ((b & 0x07) << 18) | ((src[i] & 0x3F) << 12)
+                        | ((src[i + 1] & 0x3F) << 6) | (src[i + 2] & 0x3F);
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT
+                        || codePoint > Character.MAX_CODE_POINT) {
+                    chars[n++] = REPLACEMENT_CHAR;
+                } else {
+                    chars[n++] = (char) ((codePoint >>> 10) + (Character.MIN_HIGH_SURROGATE - (Character.MIN_SUPPLEMENTARY_CODE_POINT >>> 10)));
+                    chars[n++] = (char) ((codePoint & 0x3FF) + Character.MIN_LOW_SURROGATE);
+                    i += 3;
+                }
+            } else {
+                chars[n++] = REPLACEMENT_CHAR;
+            }
+        }
+        return new String(chars, 0, n);
+    }
+
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+
+    private static boolean isSurrogate(char c) {
+        return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+    }
+
+
+    /**
+     * 设置短字符串驻留
+     * <br/>默认不驻留
+     * @param maxLength 驻留的最大字节数, 小于等于0时关闭
+     * @param tableSize 驻留表大小(会调整为2的幂)
+     */
+    public static void setStringIntern(int maxLength, int tableSize) {
+        stringTable = maxLength > 0 ? new StringTable(maxLength, tableSize) : null;
+    }
+
+
+    /**
+     * 获取短字符串驻留表
+     * @return 未开启时返回null
+     */
+    public static StringTable getStringTable() {
+        return stringTable;
+    }
+
+
+    /**
+     * 线程本地缓冲
+     */
+    static class Scratch {
+
+        final byte[] bytes = new byte[MAX_SCRATCH_SIZE];
+
+        final char[] chars = new char[MAX_SCRATCH_SIZE];
+
+    }
+
+}
@@ -66,6 +66,24 @@ public class AsmAccessHelper implements Opcodes {
 	private static Map<Class<?>, Map<Method, List<String>>> putFieldsMthodMapCache = new ConcurrentHashMap<Class<?>, Map<Method, List<String>>>();
 	
 	
+	/**
+	 * 获取属性访问器的类名
+	 * <br/>名称与属性名一致时类名固定为 实体类名 + 后缀 + 属性名, 可在构建期预生成
+	 * @param baseClass 访问器基类
+	 * @param suffix 类名后缀
+	 * @param name 访问器名称
+	 * @param clazz 实体类
+	 * @param field 属性
+	 * @return
+	 */
+	public static String getAccessorClassName(Class<?> baseClass, String suffix, String name, Class<?> clazz, Field field) {
+		if (field.getName().equals(name)) {
+			return clazz.getName() + suffix + SPLITER + field.getName();
+		}
+		return baseClass.getName() + suffix + SPLITER + clazz.getSimpleName() + SPLITER + id.incrementAndGet();
+	}
+
+
 	/**
 	 * 创建属性获取器
 	 * @param getterName 名称
@@ -78,12 +96,10 @@ public class AsmAccessHelper implements Opcodes {
 	public static <T> ValueGetter<T> createFieldGetter(final String getterName, final Class<T> clazz, final Field field) throws Exception {
 		Class<T> enhancedClass;
 		//代理类名
-		final String enhancedClassName = AbstractFieldGetter.class.getName()
-				+ SUFIX + SPLITER + clazz.getSimpleName() + SPLITER
-				+ id.incrementAndGet();
-		try {
-			enhancedClass = (Class<T>) classLoader.loadClass(enhancedClassName);
-		} catch (ClassNotFoundException classNotFoundException) {
+		final String enhancedClassName = getAccessorClassName(AbstractFieldGetter.class, SUFIX, getterName, clazz, field);
+		// 优先使用构建期预生成的类
+		enhancedClass = (Class<T>) classLoader.findPregeneratedClass(enhancedClassName);
+		if (enhancedClass == null) {
 			ClassReader reader;
 			try {
 				reader = new ClassReader(AbstractFieldGetter.class.getName());
@@ -190,7 +206,7 @@ public class AsmAccessHelper implements Opcodes {
 
 			AsmUtils.writeClazz(enhancedClassName, byteCodes);
 			//load class
-			enhancedClass = (Class<T>) classLoader.defineClass(
+			enhancedClass = (Class<T>) classLoader.defineClassIfAbsent(
 					enhancedClassName, byteCodes);
 		}
 
@@ -216,12 +232,10 @@ public class AsmAccessHelper implements Opcodes {
 	public static <T> ValueSetter<T> createFieldSetter(final String setterName, final Class<T> clazz, final Field field) throws Exception {
 		Class<T> enhancedClass;
 		//代理类名
-		final String enhancedClassName = AbstractFieldSetter.class.getName()
-				+ SUFIX1 + SPLITER + clazz.getSimpleName() + SPLITER
-				+ id.incrementAndGet();
-		try {
-			enhancedClass = (Class<T>) classLoader.loadClass(enhancedClassName);
-		} catch (ClassNotFoundException classNotFoundException) {
+		final String enhancedClassName = getAccessorClassName(AbstractFieldSetter.class, SUFIX1, setterName, clazz, field);
+		// 优先使用构建期预生成的类
+		enhancedClass = (Class<T>) classLoader.findPregeneratedClass(enhancedClassName);
+		if (enhancedClass == null) {
 			ClassReader reader;
 			try {
 				reader = new ClassReader(AbstractFieldSetter.class.getName());
@@ -344,7 +358,7 @@ public class AsmAccessHelper implements Opcodes {
 
 			AsmUtils.writeClazz(enhancedClassName, byteCodes);
 			//load class
-			enhancedClass = (Class<T>) classLoader.defineClass(
+			enhancedClass = (Class<T>) classLoader.defineClassIfAbsent(
 					enhancedClassName, byteCodes);
 		}
 
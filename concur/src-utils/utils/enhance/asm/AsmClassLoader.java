@@ -1,6 +1,8 @@
 package utils.enhance.asm;
 
 
+import utils.enhance.asm.util.AsmUtils;
+
 import java.security.PrivilegedAction;
 
 /**
@@ -46,6 +48,35 @@ public class AsmClassLoader extends ClassLoader {
         return defineClass(name, b, 0, b.length, DOMAIN);
     }
 
+    /**
+     * 定义类,已由本加载器定义过则返回已有的类
+     * <br/>用于类名固定的生成类,避免并发生成时重复定义
+     */
+    public synchronized Class<?> defineClassIfAbsent(String name, byte[] b) throws ClassFormatError {
+        Class<?> clazz = findLoadedClass(name);
+        if (clazz != null) {
+            return clazz;
+        }
+        return defineClass(name, b);
+    }
+
+    /**
+     * 查找构建期预生成的类(位于父加载器的classpath中)
+     * <br/>开启了字节码输出(正在预生成)时总是返回null,以便重新生成
+     * @param name 类名
+     * @return 不存在返回null
+     */
+    public Class<?> findPregeneratedClass(String name) {
+        if (AsmUtils.getOutputDir() != null) {
+            return null;
+        }
+        try {
+            return getParent() != null ? getParent().loadClass(name) : null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
     public boolean isExternalClass(Class<?> clazz) {
         ClassLoader classLoader = clazz.getClassLoader();
 
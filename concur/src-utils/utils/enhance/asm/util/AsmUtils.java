@@ -588,28 +588,65 @@ public class AsmUtils implements Opcodes {
 
 
 
+	/**
+	 * 构建期预生成字节码的输出目录, 为null时不输出
+	 * <br/>可通过系统属性"asm.output.dir"指定
+	 */
+	private static volatile File outputDir = System.getProperty("asm.output.dir") == null ?
+			null : new File(System.getProperty("asm.output.dir"));
+
+
+	/**
+	 * 设置预生成字节码的输出目录
+	 * @param dir 输出目录(如target/classes), 为null则不输出
+	 */
+	public static void setOutputDir(File dir) {
+		outputDir = dir;
+	}
+
+
+	/**
+	 * 获取预生成字节码的输出目录
+	 * @return 未开启输出时返回null
+	 */
+	public static File getOutputDir() {
+		return outputDir;
+	}
+
+
 	/**
 	 *
 	 * <p>
 	 * 把java字节码写入class文件
 	 * </p>
+	 * 只在设置了输出目录时写入, 按包名生成目录
 	 *
 	 * @param <T>
-	 * @param name
-	 * @param data
-	 * @throws FileNotFoundException
-	 * @throws IOException
+	 * @param name 类名
+	 * @param data 字节码
+	 * @throws IllegalStateException 写入失败
 	 */
 	public static <T> void writeClazz(String name, byte[] data) {
-//		try {
-//			File file = new File("C:\\" + name + ".class");
-//			FileOutputStream fout = new FileOutputStream(file);
-//
-//			fout.write(data);
-//			fout.close();
-//		} catch (Exception e) {
-//			e.printStackTrace();
-//		}
+		File dir = outputDir;
+		if (dir == null) {
+			return;
+		}
+		File file = new File(dir, name.replace('.', File.separatorChar) + ".class");
+		file.getParentFile().mkdirs();
+
+		FileOutputStream fout = null;
+		try {
+			fout = new FileOutputStream(file);
+			fout.write(data);
+		} catch (IOException e) {
+			throw new IllegalStateException("无法写入class文件:" + file, e);
+		} finally {
+			if (fout != null) {
+				try {
+					fout.close();
+				} catch (IOException e) {}
+			}
+		}
 	}
 
 
@@ -16,4 +16,10 @@ public abstract class FinalCommitActor extends SafeActor {
         this.safeRunner = new FinalCommitRunner(safeType, this);
     }
 
+    /**
+     * 被后提交的任务覆盖而不执行时回调
+     */
+    public void onDiscard() {
+    }
+
 }
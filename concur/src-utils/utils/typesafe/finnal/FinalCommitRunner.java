@@ -32,6 +32,8 @@ public class FinalCommitRunner extends SafeRunner {
                 } catch (Exception e) {
                     current.safeActor.onException(e);
                 }
+            } else {
+                ((FinalCommitActor) current.safeActor).onDiscard();
             }
         } while ((current = current.next()) != null);// 获取下一个任务
     }